@@ -17,6 +17,7 @@ package com.google.android.exoplayer.ext.okhttp;
 
 import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DefaultHttpDataSource;
 import com.google.android.exoplayer.upstream.HttpDataSource;
 import com.google.android.exoplayer.upstream.TransferListener;
 import com.google.android.exoplayer.util.Assertions;
@@ -37,15 +38,23 @@ import java.io.InterruptedIOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * An {@link HttpDataSource} that delegates to Square's {@link OkHttpClient}.
+ * <p>
+ * Instances created without an explicit client use a shared client, obtained from
+ * {@link #getSharedClient(boolean)}. All such instances share a single connection pool, and so can
+ * reuse connections (including multiplexed HTTP/2 connections) across requests and sources.
  */
 public class OkHttpDataSource implements HttpDataSource {
 
   private static final AtomicReference<byte[]> skipBufferReference = new AtomicReference<>();
 
+  private static OkHttpClient sharedClient;
+  private static OkHttpClient sharedClientWithCrossProtocolRedirects;
+
   private final OkHttpClient okHttpClient;
   private final String userAgent;
   private final Predicate<String> contentTypePredicate;
@@ -64,6 +73,23 @@ public class OkHttpDataSource implements HttpDataSource {
   private long bytesSkipped;
   private long bytesRead;
 
+  private RequestTimingListener requestTimingListener;
+  private long requestStartTimeMs;
+
+  /**
+   * Constructs an instance that uses the shared client returned by
+   * {@link #getSharedClient(boolean)}.
+   *
+   * @param userAgent The User-Agent string that should be used.
+   * @param listener An optional listener.
+   * @param allowCrossProtocolRedirects Whether cross-protocol redirects (i.e. redirects from HTTP
+   *     to HTTPS and vice versa) are enabled.
+   */
+  public OkHttpDataSource(String userAgent, TransferListener listener,
+      boolean allowCrossProtocolRedirects) {
+    this(getSharedClient(allowCrossProtocolRedirects), userAgent, null, listener);
+  }
+
   /**
    * @param client An {@link OkHttpClient} for use by the source.
    * @param userAgent The User-Agent string that should be used.
@@ -114,6 +140,39 @@ public class OkHttpDataSource implements HttpDataSource {
     this.requestProperties = new HashMap<>();
   }
 
+  /**
+   * Returns a client that is shared by all instances created without an explicit client.
+   * <p>
+   * The returned clients share a single connection pool, and negotiate HTTP/2 with servers that
+   * support it. Their timeouts are the same as the defaults used by {@link DefaultHttpDataSource}.
+   * Applications can derive differently configured clients that share the same pool using
+   * {@link OkHttpClient#newBuilder()}.
+   *
+   * @param allowCrossProtocolRedirects Whether cross-protocol redirects (i.e. redirects from HTTP
+   *     to HTTPS and vice versa) are followed by the returned client.
+   * @return The shared client.
+   */
+  public static synchronized OkHttpClient getSharedClient(boolean allowCrossProtocolRedirects) {
+    if (sharedClient == null) {
+      sharedClient = new OkHttpClient.Builder()
+          .connectTimeout(DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+              TimeUnit.MILLISECONDS)
+          .readTimeout(DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+          .followSslRedirects(false)
+          .build();
+      // Derived clients share the connection pool and dispatcher of the original.
+      sharedClientWithCrossProtocolRedirects = sharedClient.newBuilder()
+          .followSslRedirects(true)
+          .build();
+    }
+    return allowCrossProtocolRedirects ? sharedClientWithCrossProtocolRedirects : sharedClient;
+  }
+
+  @Override
+  public void setRequestTimingListener(RequestTimingListener requestTimingListener) {
+    this.requestTimingListener = requestTimingListener;
+  }
+
   @Override
   public String getUri() {
     return response == null ? null : response.request().url().toString();
@@ -153,6 +212,7 @@ public class OkHttpDataSource implements HttpDataSource {
     this.dataSpec = dataSpec;
     this.bytesRead = 0;
     this.bytesSkipped = 0;
+    requestStartTimeMs = System.currentTimeMillis();
     Request request = makeRequest(dataSpec);
     try {
       response = okHttpClient.newCall(request).execute();
@@ -215,6 +275,14 @@ public class OkHttpDataSource implements HttpDataSource {
       if (listener != null) {
         listener.onTransferEnd();
       }
+      if (requestTimingListener != null) {
+        // The response timestamps are wall clock times, as is the start time.
+        long sentRequestTimeMs = response.sentRequestAtMillis();
+        long receivedResponseTimeMs = response.receivedResponseAtMillis();
+        requestTimingListener.onRequestCompleted(dataSpec, sentRequestTimeMs - requestStartTimeMs,
+            receivedResponseTimeMs - sentRequestTimeMs,
+            System.currentTimeMillis() - receivedResponseTimeMs, bytesSkipped + bytesRead);
+      }
       closeConnectionQuietly();
     }
   }
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import com.google.android.exoplayer.extractor.ExtractorSampleSource;
+import com.google.android.exoplayer.testutil.FakeDataSource;
+import com.google.android.exoplayer.upstream.DefaultAllocator;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the parallel renderer checks in {@link ExoPlayerImplInternal}.
+ */
+public class ExoPlayerImplInternalTest extends TestCase {
+
+  public void testSeparateSourcesAccepted() {
+    TrackRenderer[] renderers = new TrackRenderer[] {
+        new FakeRenderer(newSampleSource()), new FakeRenderer(newSampleSource()),
+        new DummyTrackRenderer()};
+    ExoPlayerImplInternal.checkSourcesNotShared(renderers);
+  }
+
+  public void testSharedSourceRejected() {
+    SampleSource sampleSource = newSampleSource();
+    TrackRenderer[] renderers = new TrackRenderer[] {
+        new FakeRenderer(newSampleSource()), new FakeRenderer(sampleSource),
+        new FakeRenderer(sampleSource)};
+    try {
+      ExoPlayerImplInternal.checkSourcesNotShared(renderers);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  public void testSourceSharedAmongOthersRejected() {
+    SampleSource sampleSource = newSampleSource();
+    TrackRenderer[] renderers = new TrackRenderer[] {
+        new FakeRenderer(newSampleSource(), sampleSource), new FakeRenderer(sampleSource)};
+    try {
+      ExoPlayerImplInternal.checkSourcesNotShared(renderers);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  private static SampleSource newSampleSource() {
+    return new ExtractorSampleSource(Uri.parse("http://test/media"),
+        new FakeDataSource.Builder().build(), new DefaultAllocator(1024), 1024);
+  }
+
+  /**
+   * A {@link SampleSourceTrackRenderer} that's never prepared.
+   */
+  private static final class FakeRenderer extends SampleSourceTrackRenderer {
+
+    public FakeRenderer(SampleSource... sources) {
+      super(sources);
+    }
+
+    @Override
+    protected boolean handlesTrack(MediaFormat mediaFormat) {
+      return true;
+    }
+
+    @Override
+    protected void onDiscontinuity(long positionUs) {
+      // Do nothing.
+    }
+
+    @Override
+    protected void doSomeWork(long positionUs, long elapsedRealtimeUs, boolean sourceIsReady) {
+      // Do nothing.
+    }
+
+    @Override
+    protected boolean isEnded() {
+      return false;
+    }
+
+    @Override
+    protected boolean isReady() {
+      return false;
+    }
+
+  }
+
+}
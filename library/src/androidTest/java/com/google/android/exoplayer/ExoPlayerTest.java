@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link ExoPlayer}, which use only its public API.
+ */
+public class ExoPlayerTest extends TestCase {
+
+  private static final long TIMEOUT_MS = 5000;
+
+  private HandlerThread playerThread;
+  private ExoPlayer player;
+
+  @Override
+  public void setUp() {
+    playerThread = new HandlerThread("ExoPlayerTest:Player");
+    playerThread.start();
+  }
+
+  @Override
+  public void tearDown() {
+    if (player != null) {
+      player.release();
+    }
+    playerThread.quit();
+  }
+
+  public void testRendererLatenessHistogramSampled() throws InterruptedException {
+    assertLatenessHistogramSampled(false);
+  }
+
+  public void testRendererLatenessHistogramSampledWithParallelRenderers()
+      throws InterruptedException {
+    assertLatenessHistogramSampled(true);
+  }
+
+  /**
+   * Plays a renderer until it's done some work, and asserts that the lateness of that work was
+   * recorded in the histogram obtained from the player.
+   */
+  private void assertLatenessHistogramSampled(final boolean parallelRenderers)
+      throws InterruptedException {
+    final FakeRenderer renderer = new FakeRenderer();
+    final CountDownLatch playerCreatedLatch = new CountDownLatch(1);
+    // The player must be created on a thread with a Looper.
+    new Handler(playerThread.getLooper()).post(new Runnable() {
+      @Override
+      public void run() {
+        player = ExoPlayer.Factory.newInstance(1, 0, 0, parallelRenderers);
+        player.prepare(renderer);
+        player.setPlayWhenReady(true);
+        playerCreatedLatch.countDown();
+      }
+    });
+    assertTrue(playerCreatedLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertTrue(renderer.workLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+    LatenessHistogram latenessHistogram = player.getRendererLatenessHistogram(0);
+    // The first piece of work isn't scheduled, so its lateness isn't recorded.
+    assertTrue(latenessHistogram.getSampleCount() > 0);
+    assertTrue(latenessHistogram.getMaxLatenessUs() >= 0);
+  }
+
+  /**
+   * A {@link TrackRenderer} that's always ready, and counts down a latch as it does work.
+   */
+  private static final class FakeRenderer extends TrackRenderer {
+
+    public final CountDownLatch workLatch;
+
+    public FakeRenderer() {
+      workLatch = new CountDownLatch(5);
+    }
+
+    @Override
+    protected boolean doPrepare(long positionUs) {
+      return true;
+    }
+
+    @Override
+    protected int getTrackCount() {
+      return 1;
+    }
+
+    @Override
+    protected MediaFormat getFormat(int track) {
+      return null;
+    }
+
+    @Override
+    protected void doSomeWork(long positionUs, long elapsedRealtimeUs) {
+      workLatch.countDown();
+    }
+
+    @Override
+    protected boolean isEnded() {
+      return false;
+    }
+
+    @Override
+    protected boolean isReady() {
+      return true;
+    }
+
+    @Override
+    protected void maybeThrowError() {
+      // Do nothing.
+    }
+
+    @Override
+    protected long getDurationUs() {
+      return UNKNOWN_TIME_US;
+    }
+
+    @Override
+    protected long getBufferedPositionUs() {
+      return UNKNOWN_TIME_US;
+    }
+
+    @Override
+    protected void seekTo(long positionUs) {
+      // Do nothing.
+    }
+
+  }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit test for {@link LatenessHistogram}.
+ */
+public class LatenessHistogramTest extends TestCase {
+
+  public void testAddSample() {
+    LatenessHistogram histogram = new LatenessHistogram();
+    histogram.addSample(0);
+    histogram.addSample(999);
+    histogram.addSample(1000);
+    histogram.addSample(30000);
+    histogram.addSample(500000);
+
+    assertEquals(5, histogram.getSampleCount());
+    assertEquals(2, histogram.getCount(0));
+    assertEquals(1, histogram.getCount(1));
+    assertEquals(1, histogram.getCount(5));
+    assertEquals(1, histogram.getCount(histogram.getBucketCount() - 1));
+    assertEquals(500000, histogram.getMaxLatenessUs());
+    assertEquals(106399, histogram.getMeanLatenessUs());
+  }
+
+  public void testBucketBounds() {
+    LatenessHistogram histogram = new LatenessHistogram();
+    for (int i = 0; i < histogram.getBucketCount() - 1; i++) {
+      long upperBoundUs = histogram.getBucketUpperBoundUs(i);
+      histogram.addSample(upperBoundUs - 1);
+      histogram.addSample(upperBoundUs);
+    }
+    int lastBucketIndex = histogram.getBucketCount() - 1;
+    assertEquals(1, histogram.getCount(0));
+    for (int i = 1; i < lastBucketIndex; i++) {
+      assertEquals(2, histogram.getCount(i));
+    }
+    assertEquals(1, histogram.getCount(lastBucketIndex));
+  }
+
+  public void testReset() {
+    LatenessHistogram histogram = new LatenessHistogram();
+    histogram.addSample(5000);
+    histogram.reset();
+    assertEquals(0, histogram.getSampleCount());
+    assertEquals(0, histogram.getCount(3));
+    assertEquals(0, histogram.getMaxLatenessUs());
+    assertEquals(0, histogram.getMeanLatenessUs());
+  }
+
+}
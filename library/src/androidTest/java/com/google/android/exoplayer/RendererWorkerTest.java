@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for {@link RendererWorker}.
+ */
+public class RendererWorkerTest extends TestCase {
+
+  private static final String WORKER_NAME = "RendererWorkerTest:Renderer";
+  private static final long TIMEOUT_MS = 5000;
+
+  private FakeRenderer renderer;
+  private StandaloneMediaClock playbackClock;
+  private LatenessHistogram latenessHistogram;
+  private RendererWorker worker;
+
+  @Override
+  public void setUp() throws ExoPlaybackException {
+    renderer = new FakeRenderer();
+    renderer.prepare(0);
+    renderer.enable(0, 0, false);
+    playbackClock = new StandaloneMediaClock();
+    latenessHistogram = new LatenessHistogram();
+    worker = new RendererWorker(WORKER_NAME, renderer, playbackClock, latenessHistogram);
+  }
+
+  @Override
+  public void tearDown() {
+    worker.deactivate();
+    worker.release();
+  }
+
+  public void testWorkDoneOnWorkerThread() throws InterruptedException {
+    renderer.workLatch = new CountDownLatch(3);
+    worker.activate();
+    worker.schedule(false);
+
+    assertTrue(renderer.workLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(WORKER_NAME, renderer.workThreadName);
+    assertTrue(latenessHistogram.getSampleCount() >= 2);
+  }
+
+  public void testPlaybackPositionPassedToRenderer() throws InterruptedException {
+    playbackClock.setPositionUs(1234000);
+    renderer.workLatch = new CountDownLatch(1);
+    worker.activate();
+    worker.schedule(false);
+
+    assertTrue(renderer.workLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    assertEquals(1234000, renderer.workPositionUs);
+  }
+
+  public void testMaxWorkDelayRespectedWhenStarted() throws Exception {
+    renderer.start();
+    renderer.maxWorkDelayUs = 10000000;
+    renderer.workLatch = new CountDownLatch(1);
+    worker.activate();
+    worker.schedule(false);
+
+    assertTrue(renderer.workLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    Thread.sleep(200);
+    // The renderer asked not to do more work for 10 seconds.
+    assertEquals(1, renderer.workCount);
+  }
+
+  public void testErrorThrownByMaybeThrowError() throws InterruptedException {
+    renderer.error = new ExoPlaybackException("test");
+    renderer.workLatch = new CountDownLatch(1);
+    worker.activate();
+    worker.schedule(false);
+
+    assertTrue(renderer.workLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+    // Holding the lock ensures that the worker has finished handling the error.
+    worker.lock();
+    try {
+      worker.maybeThrowError();
+      fail();
+    } catch (ExoPlaybackException e) {
+      assertSame(renderer.error, e);
+    } finally {
+      worker.unlock();
+    }
+    // The worker stops doing work after an error.
+    Thread.sleep(100);
+    assertEquals(1, renderer.workCount);
+  }
+
+  public void testDeactivatedWorkerDoesNoWork() throws InterruptedException {
+    worker.activate();
+    worker.deactivate();
+    worker.schedule(false);
+
+    Thread.sleep(100);
+    assertEquals(0, renderer.workCount);
+  }
+
+  /**
+   * A {@link TrackRenderer} that records the work it's asked to do.
+   */
+  private static final class FakeRenderer extends TrackRenderer {
+
+    public volatile CountDownLatch workLatch;
+    public volatile long maxWorkDelayUs;
+    public volatile ExoPlaybackException error;
+    public volatile int workCount;
+    public volatile String workThreadName;
+    public volatile long workPositionUs;
+
+    public FakeRenderer() {
+      maxWorkDelayUs = DEFAULT_MAX_WORK_DELAY_US;
+    }
+
+    @Override
+    protected boolean doPrepare(long positionUs) {
+      return true;
+    }
+
+    @Override
+    protected int getTrackCount() {
+      return 1;
+    }
+
+    @Override
+    protected MediaFormat getFormat(int track) {
+      return null;
+    }
+
+    @Override
+    protected void doSomeWork(long positionUs, long elapsedRealtimeUs)
+        throws ExoPlaybackException {
+      workCount++;
+      workThreadName = Thread.currentThread().getName();
+      workPositionUs = positionUs;
+      if (workLatch != null) {
+        workLatch.countDown();
+      }
+      if (error != null) {
+        throw error;
+      }
+    }
+
+    @Override
+    protected long getMaxWorkDelayUs() {
+      return maxWorkDelayUs;
+    }
+
+    @Override
+    protected boolean isEnded() {
+      return false;
+    }
+
+    @Override
+    protected boolean isReady() {
+      return true;
+    }
+
+    @Override
+    protected void maybeThrowError() {
+      // Do nothing.
+    }
+
+    @Override
+    protected long getDurationUs() {
+      return UNKNOWN_TIME_US;
+    }
+
+    @Override
+    protected long getBufferedPositionUs() {
+      return UNKNOWN_TIME_US;
+    }
+
+    @Override
+    protected void seekTo(long positionUs) {
+      // Do nothing.
+    }
+
+  }
+
+}
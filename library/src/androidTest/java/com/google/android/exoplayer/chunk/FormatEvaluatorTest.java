@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.chunk;
+
+import com.google.android.exoplayer.chunk.FormatEvaluator.AdaptiveEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.BolaEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.Evaluation;
+import com.google.android.exoplayer.chunk.FormatEvaluator.MpcEvaluator;
+import com.google.android.exoplayer.testutil.AbrSimulator;
+import com.google.android.exoplayer.testutil.FakeDataSource;
+import com.google.android.exoplayer.upstream.BandwidthMeter;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DualEwmaBandwidthEstimator;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.util.Collections;
+import java.util.Random;
+
+/**
+ * Tests for {@link FormatEvaluator} implementations, including trace driven comparisons using
+ * {@link AbrSimulator}.
+ */
+public class FormatEvaluatorTest extends TestCase {
+
+  private static final Format[] FORMATS = new Format[] {
+      buildFormat(4800000), buildFormat(3000000), buildFormat(1800000), buildFormat(1200000),
+      buildFormat(750000), buildFormat(400000)};
+
+  private static final int CHUNK_DURATION_MS = 4000;
+  private static final int CHUNK_COUNT = 100;
+  private static final int MAX_BUFFER_MS = 30000;
+  private static final int TRACE_LENGTH_SECS = 600;
+
+  private static final int EVALUATOR_ADAPTIVE = 0;
+  private static final int EVALUATOR_BOLA = 1;
+  private static final int EVALUATOR_MPC = 2;
+
+  public void testBolaSelectsByBufferLevel() {
+    BolaEvaluator evaluator = new BolaEvaluator(null);
+    Evaluation evaluation = new Evaluation();
+    evaluator.evaluate(Collections.<MediaChunk>emptyList(), 0, FORMATS, evaluation);
+    // The lowest quality is selected when the buffer is empty.
+    assertEquals(FORMATS[FORMATS.length - 1], evaluation.format);
+    // The highest quality is selected when the buffer reaches the target.
+    MediaChunk chunk = buildChunk(evaluation.format, BolaEvaluator.DEFAULT_BUFFER_TARGET_MS);
+    evaluator.evaluate(Collections.singletonList(chunk), 0, FORMATS, evaluation);
+    assertEquals(FORMATS[0], evaluation.format);
+    assertEquals(Chunk.TRIGGER_ADAPTIVE, evaluation.trigger);
+  }
+
+  public void testMpcWithoutEstimateUsesMaxInitialBitrate() {
+    MpcEvaluator evaluator = new MpcEvaluator(new FixedBandwidthMeter(BandwidthMeter.NO_ESTIMATE));
+    Evaluation evaluation = new Evaluation();
+    evaluator.evaluate(Collections.<MediaChunk>emptyList(), 0, FORMATS, evaluation);
+    assertTrue(evaluation.format.bitrate <= MpcEvaluator.DEFAULT_MAX_INITIAL_BITRATE);
+    assertEquals(Chunk.TRIGGER_INITIAL, evaluation.trigger);
+  }
+
+  public void testMpcSelectsSustainableFormat() {
+    MpcEvaluator evaluator = new MpcEvaluator(new FixedBandwidthMeter(4000000));
+    Evaluation evaluation = new Evaluation();
+    evaluation.format = FORMATS[2];
+    MediaChunk chunk = buildChunk(evaluation.format, CHUNK_DURATION_MS);
+    evaluator.evaluate(Collections.singletonList(chunk), 0, FORMATS, evaluation);
+    // 80% of the estimate sustains 3000000 but not 4800000, with a single chunk buffered.
+    assertEquals(FORMATS[1], evaluation.format);
+    assertEquals(Chunk.TRIGGER_ADAPTIVE, evaluation.trigger);
+  }
+
+  public void testStableTrace() {
+    Random random = new Random(0);
+    long[] trace = new long[TRACE_LENGTH_SECS];
+    for (int i = 0; i < trace.length; i++) {
+      trace[i] = (long) (3000000 * (0.5 + random.nextDouble()));
+    }
+    AbrSimulator.Result adaptive = simulate(trace, EVALUATOR_ADAPTIVE);
+    AbrSimulator.Result bola = simulate(trace, EVALUATOR_BOLA);
+    AbrSimulator.Result mpc = simulate(trace, EVALUATOR_MPC);
+    assertNoRebuffering(adaptive, bola, mpc);
+    // The buffer aware evaluators make better use of the available bandwidth.
+    assertTrue(bola.averageBitrate > adaptive.averageBitrate);
+    assertTrue(mpc.averageBitrate > adaptive.averageBitrate);
+  }
+
+  public void testOscillatingTrace() {
+    long[] trace = new long[TRACE_LENGTH_SECS];
+    for (int i = 0; i < trace.length; i++) {
+      trace[i] = (i / 10) % 2 == 0 ? 1500000 : 5000000;
+    }
+    AbrSimulator.Result adaptive = simulate(trace, EVALUATOR_ADAPTIVE);
+    AbrSimulator.Result bola = simulate(trace, EVALUATOR_BOLA);
+    AbrSimulator.Result mpc = simulate(trace, EVALUATOR_MPC);
+    assertNoRebuffering(adaptive, bola, mpc);
+    // The buffer aware evaluators switch less, at a higher bitrate.
+    assertTrue(bola.switchCount < adaptive.switchCount);
+    assertTrue(mpc.switchCount < adaptive.switchCount);
+    assertTrue(bola.averageBitrate > adaptive.averageBitrate);
+    assertTrue(mpc.averageBitrate > adaptive.averageBitrate);
+  }
+
+  public void testBandwidthDropTrace() {
+    long[] trace = new long[TRACE_LENGTH_SECS];
+    for (int i = 0; i < trace.length; i++) {
+      trace[i] = i < 100 ? 6000000 : i < 200 ? 800000 : 4000000;
+    }
+    AbrSimulator.Result adaptive = simulate(trace, EVALUATOR_ADAPTIVE);
+    AbrSimulator.Result bola = simulate(trace, EVALUATOR_BOLA);
+    AbrSimulator.Result mpc = simulate(trace, EVALUATOR_MPC);
+    assertNoRebuffering(adaptive, bola, mpc);
+    assertTrue(mpc.averageBitrate > adaptive.averageBitrate);
+  }
+
+  private static AbrSimulator.Result simulate(long[] trace, int evaluatorType) {
+    AbrSimulator simulator = new AbrSimulator(trace, FORMATS, CHUNK_DURATION_MS, CHUNK_COUNT,
+        MAX_BUFFER_MS, new DualEwmaBandwidthEstimator());
+    BandwidthMeter bandwidthMeter = simulator.getBandwidthMeter();
+    FormatEvaluator evaluator;
+    switch (evaluatorType) {
+      case EVALUATOR_ADAPTIVE:
+        evaluator = new AdaptiveEvaluator(bandwidthMeter);
+        break;
+      case EVALUATOR_BOLA:
+        evaluator = new BolaEvaluator(bandwidthMeter);
+        break;
+      default:
+        evaluator = new MpcEvaluator(bandwidthMeter);
+        break;
+    }
+    return simulator.run(evaluator);
+  }
+
+  private static void assertNoRebuffering(AbrSimulator.Result... results) {
+    for (AbrSimulator.Result result : results) {
+      assertEquals(result.toString(), 0, result.rebufferTimeMs);
+    }
+  }
+
+  private static MediaChunk buildChunk(Format format, int durationMs) {
+    return new SingleSampleMediaChunk(new FakeDataSource.Builder().build(),
+        new DataSpec(Uri.parse("chunk")), Chunk.TRIGGER_INITIAL, format, 0, durationMs * 1000L, 0,
+        null, null, Chunk.NO_PARENT_ID);
+  }
+
+  private static Format buildFormat(int bitrate) {
+    return new Format(Integer.toString(bitrate), "video/mp4", -1, -1, -1, -1, -1, bitrate);
+  }
+
+  private static final class FixedBandwidthMeter implements BandwidthMeter {
+
+    private final long bitrateEstimate;
+
+    public FixedBandwidthMeter(long bitrateEstimate) {
+      this.bitrateEstimate = bitrateEstimate;
+    }
+
+    @Override
+    public long getBitrateEstimate() {
+      return bitrateEstimate;
+    }
+
+    @Override
+    public void onTransferStart() {
+      // Do nothing.
+    }
+
+    @Override
+    public void onBytesTransferred(int bytes) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onTransferEnd() {
+      // Do nothing.
+    }
+
+  }
+
+}
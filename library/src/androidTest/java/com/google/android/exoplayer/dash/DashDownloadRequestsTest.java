@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.dash;
+
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.dash.mpd.AdaptationSet;
+import com.google.android.exoplayer.dash.mpd.MediaPresentationDescription;
+import com.google.android.exoplayer.dash.mpd.Period;
+import com.google.android.exoplayer.dash.mpd.RangedUri;
+import com.google.android.exoplayer.dash.mpd.Representation;
+import com.google.android.exoplayer.dash.mpd.SegmentBase.SegmentList;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.util.MimeTypes;
+import com.google.android.exoplayer.util.Predicate;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link DashDownloadRequests}.
+ */
+public class DashDownloadRequestsTest extends TestCase {
+
+  private static final String BASE_URI = "http://test/";
+  private static final Format FORMAT_1 =
+      new Format("1", MimeTypes.VIDEO_MP4, 1280, 720, -1, 0, 0, 1000000);
+  private static final Format FORMAT_2 =
+      new Format("2", MimeTypes.VIDEO_MP4, 1920, 1080, -1, 0, 0, 2500000);
+
+  public void testSingleSegmentRepresentation() {
+    Representation representation = Representation.SingleSegmentRepresentation.newInstance(
+        "content", 0, FORMAT_1, BASE_URI + "media", 0, 99, 100, 199, null, 5000);
+    List<DataSpec> dataSpecs = DashDownloadRequests.build(newManifest(false, representation));
+
+    // The whole resource is downloaded in one request, keyed as playback keys its ranges.
+    assertEquals(1, dataSpecs.size());
+    DataSpec dataSpec = dataSpecs.get(0);
+    assertEquals(BASE_URI + "media", dataSpec.uri.toString());
+    assertEquals(0, dataSpec.position);
+    assertEquals(5000, dataSpec.length);
+    assertEquals(representation.getCacheKey(representation.getInitializationUri()), dataSpec.key);
+    assertEquals(representation.getCacheKey(representation.getIndexUri()), dataSpec.key);
+  }
+
+  public void testMultiSegmentRepresentation() {
+    Representation representation = newMultiSegmentRepresentation(FORMAT_1);
+    List<DataSpec> dataSpecs = DashDownloadRequests.build(newManifest(false, representation));
+
+    assertEquals(3, dataSpecs.size());
+    assertDataSpec(representation, representation.getInitializationUri(), dataSpecs.get(0));
+    DashSegmentIndex index = representation.getIndex();
+    assertDataSpec(representation, index.getSegmentUrl(0), dataSpecs.get(1));
+    assertDataSpec(representation, index.getSegmentUrl(1), dataSpecs.get(2));
+    // Each segment is a separate resource, and so must have its own key.
+    assertFalse(dataSpecs.get(0).key.equals(dataSpecs.get(1).key));
+    assertFalse(dataSpecs.get(1).key.equals(dataSpecs.get(2).key));
+  }
+
+  public void testFormatPredicate() {
+    Representation representation1 = newMultiSegmentRepresentation(FORMAT_1);
+    Representation representation2 = newMultiSegmentRepresentation(FORMAT_2);
+    List<DataSpec> dataSpecs = DashDownloadRequests.build(
+        newManifest(false, representation1, representation2), new Predicate<Format>() {
+          @Override
+          public boolean evaluate(Format format) {
+            return format == FORMAT_2;
+          }
+        });
+
+    assertEquals(3, dataSpecs.size());
+    for (DataSpec dataSpec : dataSpecs) {
+      assertTrue(dataSpec.key.startsWith(representation2.getCacheKey()));
+    }
+  }
+
+  public void testDynamicManifestRejected() {
+    try {
+      DashDownloadRequests.build(newManifest(true, newMultiSegmentRepresentation(FORMAT_1)));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  private static void assertDataSpec(Representation representation, RangedUri rangedUri,
+      DataSpec dataSpec) {
+    assertEquals(rangedUri.getUri(), dataSpec.uri);
+    assertEquals(rangedUri.start, dataSpec.position);
+    assertEquals(rangedUri.length, dataSpec.length);
+    assertEquals(representation.getCacheKey(rangedUri), dataSpec.key);
+  }
+
+  private static Representation newMultiSegmentRepresentation(Format format) {
+    List<RangedUri> segments = new ArrayList<>();
+    segments.add(new RangedUri(BASE_URI, format.id + "/segment1", 0, -1));
+    segments.add(new RangedUri(BASE_URI, format.id + "/segment2", 0, -1));
+    SegmentList segmentBase = new SegmentList(new RangedUri(BASE_URI, format.id + "/init", 0, -1),
+        1, 0, 0, 1, null, segments);
+    return Representation.newInstance("content", 0, format, segmentBase);
+  }
+
+  private static MediaPresentationDescription newManifest(boolean dynamic,
+      Representation... representations) {
+    List<Representation> representationList = new ArrayList<>();
+    Collections.addAll(representationList, representations);
+    AdaptationSet adaptationSet = new AdaptationSet(0, AdaptationSet.TYPE_VIDEO,
+        representationList);
+    Period period = new Period(null, 0, Collections.singletonList(adaptationSet));
+    return new MediaPresentationDescription(-1, 2000, 1000, dynamic, -1, -1, null, null,
+        Collections.singletonList(period));
+  }
+
+}
@@ -16,11 +16,16 @@
 package com.google.android.exoplayer.dash.mpd;
 
 import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.dash.DashSegmentIndex;
+import com.google.android.exoplayer.dash.mpd.SegmentBase.SegmentList;
 import com.google.android.exoplayer.dash.mpd.SegmentBase.SingleSegmentBase;
 import com.google.android.exoplayer.util.MimeTypes;
 
 import junit.framework.TestCase;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Unit test for {@link Representation}.
  */
@@ -38,4 +43,33 @@ public class RepresentationTest extends TestCase {
     assertEquals("test_stream_1.150.-1", representation.getCacheKey());
   }
 
+  public void testGetCacheKeyForSingleSegment() {
+    String uri = "http://www.google.com";
+    SegmentBase base = new SingleSegmentBase(new RangedUri(uri, null, 0, 1), 1, 0, uri, 1, 1);
+    Format format = new Format("0", MimeTypes.VIDEO_MP4, 1920, 1080, -1, 0, 0, 2500000);
+    Representation representation = Representation.newInstance("test_stream_1", 3, format, base);
+    // Ranges of the single segment share its key.
+    assertEquals("test_stream_1.0.3",
+        representation.getCacheKey(representation.getInitializationUri()));
+    assertEquals("test_stream_1.0.3", representation.getCacheKey(representation.getIndexUri()));
+  }
+
+  public void testGetCacheKeyForMultipleSegments() {
+    String baseUri = "http://www.google.com/";
+    List<RangedUri> segments = new ArrayList<>();
+    segments.add(new RangedUri(baseUri, "segment1", 0, -1));
+    segments.add(new RangedUri(baseUri, "segment2", 0, -1));
+    SegmentBase base = new SegmentList(new RangedUri(baseUri, "init", 0, -1), 1, 0, 0, 1, null,
+        segments);
+    Format format = new Format("0", MimeTypes.VIDEO_MP4, 1920, 1080, -1, 0, 0, 2500000);
+    Representation representation = Representation.newInstance("test_stream_1", 3, format, base);
+    DashSegmentIndex index = representation.getIndex();
+    assertEquals("test_stream_1.0.3.http://www.google.com/init",
+        representation.getCacheKey(representation.getInitializationUri()));
+    assertEquals("test_stream_1.0.3.http://www.google.com/segment1",
+        representation.getCacheKey(index.getSegmentUrl(0)));
+    assertEquals("test_stream_1.0.3.http://www.google.com/segment2",
+        representation.getCacheKey(index.getSegmentUrl(1)));
+  }
+
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.extractor.ExtractorSampleSource.ExtractingLoadable;
+import com.google.android.exoplayer.extractor.ExtractorSampleSource.ExtractorHolder;
+import com.google.android.exoplayer.testutil.FakeDataSource;
+import com.google.android.exoplayer.testutil.FakeExtractorOutput;
+import com.google.android.exoplayer.testutil.TestUtil;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DefaultAllocator;
+import com.google.android.exoplayer.upstream.PrefetchingDataSource;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for the prefetching performed by {@link ExtractorSampleSource} while preparing.
+ */
+public class ExtractorSampleSourceTest extends TestCase {
+
+  private static final Uri URI = Uri.parse("http://test/media");
+  private static final Uri OTHER_URI = Uri.parse("http://test/other");
+
+  // The stream consists of a header, followed by the media, followed by an index. The extractor
+  // reads the header, skips ahead to read the index and then returns to read the media, as
+  // Mp4Extractor does for a file whose moov atom follows its mdat atom.
+  private static final int HEADER_SIZE = 100;
+  private static final int MEDIA_SIZE = 10000;
+  private static final int INDEX_SIZE = 500;
+  private static final byte[] DATA = TestUtil.buildTestData(HEADER_SIZE + MEDIA_SIZE + INDEX_SIZE);
+
+  private RecordingDataSource upstream;
+  private RecordingDataSource prefetchSource;
+  private PrefetchingDataSource prefetchingDataSource;
+
+  @Override
+  public void setUp() {
+    upstream = new RecordingDataSource();
+    prefetchSource = new RecordingDataSource();
+    prefetchingDataSource = new PrefetchingDataSource(upstream,
+        new DataSource[] {prefetchSource, new RecordingDataSource()}, 4096);
+  }
+
+  @Override
+  public void tearDown() {
+    prefetchingDataSource.release();
+  }
+
+  public void testMediaPrefetchedWhileIndexIsRead() throws IOException, InterruptedException {
+    TrailingIndexExtractor extractor = new TrailingIndexExtractor(true);
+    newLoadable(extractor).load();
+
+    assertTrue(Arrays.equals(Arrays.copyOfRange(DATA, HEADER_SIZE, HEADER_SIZE + MEDIA_SIZE),
+        extractor.media.toByteArray()));
+    // The media was prefetched when the extractor skipped ahead, and then read from the prefetch.
+    assertEquals(Arrays.asList((long) HEADER_SIZE), prefetchSource.getOpenedPositions(URI));
+    assertEquals(Arrays.asList(0L, (long) (HEADER_SIZE + MEDIA_SIZE)),
+        upstream.getOpenedPositions(URI));
+  }
+
+  public void testOtherPrefetchesNotCanceled() throws IOException, InterruptedException {
+    // Another component prefetches through the same source.
+    DataSpec otherDataSpec = new DataSpec(OTHER_URI, 0, C.LENGTH_UNBOUNDED, null);
+    assertTrue(prefetchingDataSource.prefetch(otherDataSpec));
+    newLoadable(new TrailingIndexExtractor(true)).load();
+
+    // The other prefetch is still available.
+    prefetchingDataSource.open(otherDataSpec);
+    prefetchingDataSource.close();
+    assertTrue(upstream.getOpenedPositions(OTHER_URI).isEmpty());
+  }
+
+  public void testUnclaimedPrefetchCanceled() throws IOException, InterruptedException {
+    // The extractor doesn't return to the media, for example because the load is canceled.
+    ExtractingLoadable loadable = newLoadable(new TrailingIndexExtractor(false));
+    loadable.load();
+    DataSpec mediaDataSpec = new DataSpec(URI, HEADER_SIZE, C.LENGTH_UNBOUNDED, null);
+    loadable.cancelPrefetch();
+
+    prefetchingDataSource.open(mediaDataSpec);
+    prefetchingDataSource.close();
+    assertEquals(Arrays.asList(0L, (long) (HEADER_SIZE + MEDIA_SIZE), (long) HEADER_SIZE),
+        upstream.getOpenedPositions(URI));
+  }
+
+  private ExtractingLoadable newLoadable(Extractor extractor) {
+    ExtractorHolder extractorHolder = new ExtractorHolder(new Extractor[] {extractor},
+        new FakeExtractorOutput(), URI);
+    return new ExtractingLoadable(URI, prefetchingDataSource, prefetchingDataSource,
+        extractorHolder, new DefaultAllocator(1024), 1024 * 1024, 0);
+  }
+
+  /**
+   * A fake {@link Extractor} for streams laid out with a trailing index.
+   */
+  private static final class TrailingIndexExtractor implements Extractor {
+
+    public final ByteArrayOutputStream media;
+
+    private final boolean readMedia;
+    private boolean indexRead;
+
+    /**
+     * @param readMedia Whether the extractor returns to read the media after reading the index.
+     */
+    public TrailingIndexExtractor(boolean readMedia) {
+      this.readMedia = readMedia;
+      media = new ByteArrayOutputStream();
+    }
+
+    @Override
+    public boolean sniff(ExtractorInput input) {
+      return true;
+    }
+
+    @Override
+    public void init(ExtractorOutput output) {
+      // Do nothing.
+    }
+
+    @Override
+    public void seek() {
+      // Do nothing.
+    }
+
+    @Override
+    public void release() {
+      // Do nothing.
+    }
+
+    @Override
+    public int read(ExtractorInput input, PositionHolder seekPosition)
+        throws IOException, InterruptedException {
+      if (input.getPosition() == 0) {
+        input.skipFully(HEADER_SIZE);
+        seekPosition.position = HEADER_SIZE + MEDIA_SIZE;
+        return RESULT_SEEK;
+      } else if (!indexRead) {
+        input.skipFully(INDEX_SIZE);
+        indexRead = true;
+        if (!readMedia) {
+          return RESULT_END_OF_INPUT;
+        }
+        seekPosition.position = HEADER_SIZE;
+        return RESULT_SEEK;
+      }
+      int length = (int) Math.min(1000, HEADER_SIZE + MEDIA_SIZE - input.getPosition());
+      if (length == 0) {
+        return RESULT_END_OF_INPUT;
+      }
+      byte[] buffer = new byte[length];
+      input.readFully(buffer, 0, length);
+      media.write(buffer, 0, length);
+      return RESULT_CONTINUE;
+    }
+
+  }
+
+  /**
+   * A {@link DataSource} that reads {@link #DATA} and records the requests that it opens.
+   */
+  private static final class RecordingDataSource implements DataSource {
+
+    private final List<DataSpec> openedDataSpecs;
+
+    private DataSource dataSource;
+
+    public RecordingDataSource() {
+      openedDataSpecs = new ArrayList<>();
+    }
+
+    public synchronized List<Long> getOpenedPositions(Uri uri) {
+      List<Long> positions = new ArrayList<>();
+      for (DataSpec dataSpec : openedDataSpecs) {
+        if (dataSpec.uri.equals(uri)) {
+          positions.add(dataSpec.position);
+        }
+      }
+      return positions;
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+      synchronized (this) {
+        openedDataSpecs.add(dataSpec);
+      }
+      dataSource = new FakeDataSource.Builder().appendReadData(DATA).build();
+      return dataSource.open(dataSpec);
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws IOException {
+      return dataSource.read(buffer, offset, readLength);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (dataSource != null) {
+        dataSource.close();
+        dataSource = null;
+      }
+    }
+
+  }
+
+}
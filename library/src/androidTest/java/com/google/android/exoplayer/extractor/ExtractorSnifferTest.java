@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor;
+
+import com.google.android.exoplayer.extractor.mp3.Mp3Extractor;
+import com.google.android.exoplayer.extractor.mp4.FragmentedMp4Extractor;
+import com.google.android.exoplayer.extractor.mp4.Mp4Extractor;
+import com.google.android.exoplayer.extractor.ts.AdtsExtractor;
+import com.google.android.exoplayer.extractor.ts.TsExtractor;
+import com.google.android.exoplayer.extractor.wav.WavExtractor;
+import com.google.android.exoplayer.extractor.webm.WebmExtractor;
+import com.google.android.exoplayer.util.Util;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link ExtractorSniffer}.
+ */
+public class ExtractorSnifferTest extends TestCase {
+
+  private Extractor webmExtractor;
+  private Extractor fragmentedMp4Extractor;
+  private Extractor mp4Extractor;
+  private Extractor mp3Extractor;
+  private Extractor adtsExtractor;
+  private Extractor tsExtractor;
+  private Extractor wavExtractor;
+  private Extractor[] extractors;
+
+  @Override
+  public void setUp() {
+    webmExtractor = new WebmExtractor();
+    fragmentedMp4Extractor = new FragmentedMp4Extractor();
+    mp4Extractor = new Mp4Extractor();
+    mp3Extractor = new Mp3Extractor();
+    adtsExtractor = new AdtsExtractor();
+    tsExtractor = new TsExtractor();
+    wavExtractor = new WavExtractor();
+    extractors = new Extractor[] {webmExtractor, fragmentedMp4Extractor, mp4Extractor,
+        mp3Extractor, adtsExtractor, tsExtractor, wavExtractor};
+  }
+
+  public void testUnrecognizedStreamKeepsOrder() {
+    byte[] prefix = Util.getBytesFromHexString("0102030405060708090A0B0C");
+    assertSame(extractors, ExtractorSniffer.sortExtractors(extractors, "http", "bin", null,
+        prefix, prefix.length));
+  }
+
+  public void testSignatureMovesMatchingExtractorsFirst() {
+    byte[] prefix = new byte[ExtractorSniffer.PREFIX_LENGTH];
+    prefix[0] = 0x47;
+    prefix[188] = 0x47;
+    Extractor[] sorted = ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix,
+        prefix.length);
+    assertSame(tsExtractor, sorted[0]);
+    assertSame(webmExtractor, sorted[1]);
+    assertSame(wavExtractor, sorted[sorted.length - 1]);
+
+    // Both MP4 extractors match, and keep their relative priority.
+    prefix = Util.getBytesFromHexString("0000001C6674797069736F6D");
+    sorted = ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix, prefix.length);
+    assertSame(fragmentedMp4Extractor, sorted[0]);
+    assertSame(mp4Extractor, sorted[1]);
+
+    prefix = Util.getBytesFromHexString("52494646240000005741564566");
+    sorted = ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix, 12);
+    assertSame(wavExtractor, sorted[0]);
+  }
+
+  public void testId3TagMovesMp3ExtractorFirst() {
+    byte[] prefix = Util.getBytesFromHexString("494433030000");
+    Extractor[] sorted = ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix,
+        prefix.length);
+    assertSame(mp3Extractor, sorted[0]);
+    assertSame(webmExtractor, sorted[1]);
+  }
+
+  public void testShortSyncWordsKeepOrder() {
+    // MPEG audio and ADTS sync words occur by chance in other formats.
+    byte[] prefix = Util.getBytesFromHexString("FFF15080");
+    assertSame(extractors, ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix,
+        prefix.length));
+    prefix = Util.getBytesFromHexString("FFFB9064");
+    assertSame(extractors, ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix,
+        prefix.length));
+    // A single TS sync byte.
+    prefix = Util.getBytesFromHexString("47400010001100B00D0001C1");
+    assertSame(extractors, ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix,
+        prefix.length));
+  }
+
+  public void testHintsMoveMatchingExtractorsFirst() {
+    Extractor[] sorted = ExtractorSniffer.sortExtractors(extractors, "http", "TS", null, null, 0);
+    assertSame(tsExtractor, sorted[0]);
+
+    sorted = ExtractorSniffer.sortExtractors(extractors, "http", "ts", "audio/mpeg; charset=x",
+        null, 0);
+    assertSame(mp3Extractor, sorted[0]);
+  }
+
+  public void testSignatureTakesPrecedenceOverHints() {
+    byte[] prefix = Util.getBytesFromHexString("1A45DFA3");
+    Extractor[] sorted = ExtractorSniffer.sortExtractors(extractors, "http", "mp3", "audio/mpeg",
+        prefix, prefix.length);
+    assertSame(webmExtractor, sorted[0]);
+    assertSame(mp3Extractor, sorted[1]);
+    assertSame(fragmentedMp4Extractor, sorted[2]);
+  }
+
+  public void testShortPrefix() {
+    byte[] prefix = Util.getBytesFromHexString("0000001C6674797069736F6D");
+    assertSame(extractors, ExtractorSniffer.sortExtractors(extractors, null, null, null, prefix,
+        6));
+  }
+
+}
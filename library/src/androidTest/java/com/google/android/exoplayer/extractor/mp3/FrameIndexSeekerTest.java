@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor.mp3;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for {@link FrameIndexSeeker}.
+ */
+public final class FrameIndexSeekerTest extends TestCase {
+
+  private static final int FIRST_FRAME_POSITION = 100;
+  private static final int BITRATE = 128000;
+  private static final int SAMPLES_PER_FRAME = 1152;
+  private static final int SAMPLE_RATE = 48000;
+  /**
+   * Duration of each frame in microseconds.
+   */
+  private static final int FRAME_DURATION_US = 24000;
+  private static final int INPUT_LENGTH = 100000;
+
+  private FrameIndexSeeker seeker;
+
+  @Override
+  public void setUp() {
+    seeker = new FrameIndexSeeker(FIRST_FRAME_POSITION, BITRATE, SAMPLES_PER_FRAME, SAMPLE_RATE,
+        INPUT_LENGTH);
+  }
+
+  public void testUsesConstantBitrateBeforeIndexing() {
+    ConstantBitrateSeeker constantBitrateSeeker =
+        new ConstantBitrateSeeker(FIRST_FRAME_POSITION, BITRATE, INPUT_LENGTH);
+    assertTrue(seeker.isSeekable());
+    assertEquals(constantBitrateSeeker.getDurationUs(), seeker.getDurationUs());
+    assertEquals(constantBitrateSeeker.getPosition(1000000), seeker.getPosition(1000000));
+    assertEquals(constantBitrateSeeker.getTimeUs(5000), seeker.getTimeUs(5000));
+  }
+
+  public void testSeeksExactlyWithinIndexedFrames() {
+    // Frames of varying sizes, with three junk bytes before the third frame.
+    int[] framePositions = new int[] {100, 200, 503, 603};
+    int[] frameSizes = new int[] {100, 300, 100, 200};
+    long searchPosition = FIRST_FRAME_POSITION;
+    for (int i = 0; i < framePositions.length; i++) {
+      seeker.onFrame(searchPosition, framePositions[i], frameSizes[i]);
+      searchPosition = framePositions[i] + frameSizes[i];
+    }
+
+    for (int i = 0; i < framePositions.length; i++) {
+      long frameTimeUs = i * FRAME_DURATION_US;
+      assertEquals(framePositions[i], seeker.getPosition(frameTimeUs));
+      assertEquals(framePositions[i], seeker.getPosition(frameTimeUs + FRAME_DURATION_US - 1));
+      assertEquals(frameTimeUs, seeker.getTimeUs(framePositions[i]));
+    }
+    assertEquals(0, seeker.getTimeUs(0));
+  }
+
+  public void testExtrapolatesBeyondIndexedFrames() {
+    seeker.onFrame(100, 100, 100);
+    seeker.onFrame(200, 200, 300);
+    // 400 bytes were indexed over 48ms. Beyond this, positions advance at the same average rate.
+    assertEquals(500, seeker.getPosition(2 * FRAME_DURATION_US));
+    assertEquals(900, seeker.getPosition(4 * FRAME_DURATION_US));
+    assertEquals(2 * FRAME_DURATION_US, seeker.getTimeUs(500));
+    assertEquals(4 * FRAME_DURATION_US, seeker.getTimeUs(900));
+  }
+
+  public void testIgnoresFramesNotFollowingIndex() {
+    seeker.onFrame(100, 100, 100);
+    // A frame read after seeking beyond the indexed frames has an estimated timestamp.
+    seeker.onFrame(5000, 5000, 100);
+    // Reading from the end of the indexed frames extends the index.
+    seeker.onFrame(200, 250, 100);
+    assertEquals(250, seeker.getPosition(FRAME_DURATION_US));
+    assertEquals(350, seeker.getPosition(2 * FRAME_DURATION_US));
+    assertEquals(FRAME_DURATION_US, seeker.getTimeUs(300));
+  }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor.mp3;
+
+import com.google.android.exoplayer.extractor.Extractor;
+import com.google.android.exoplayer.extractor.PositionHolder;
+import com.google.android.exoplayer.testutil.FakeExtractorInput;
+import com.google.android.exoplayer.testutil.FakeExtractorOutput;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+
+/**
+ * Unit test for {@link Mp3Extractor}.
+ */
+public class Mp3ExtractorTest extends TestCase {
+
+  // MPEG-1 layer III, 128 kbps, 44.1 kHz, stereo, without padding.
+  private static final int FRAME_HEADER = 0xFFFB9064;
+  private static final int FRAME_SIZE = 417;
+  private static final int FRAME_COUNT = 20;
+
+  public void testFramesIndexedWithKnownLength() throws IOException, InterruptedException {
+    FakeExtractorOutput output = extract(false);
+    assertTrue(output.seekMap instanceof FrameIndexSeeker);
+    assertTrue(output.seekMap.isSeekable());
+  }
+
+  public void testFramesNotIndexedWithUnknownLength() throws IOException, InterruptedException {
+    // The stream may be unending, as for an Icecast stream.
+    FakeExtractorOutput output = extract(true);
+    assertTrue(output.seekMap instanceof ConstantBitrateSeeker);
+    assertFalse(output.seekMap.isSeekable());
+  }
+
+  private static FakeExtractorOutput extract(boolean simulateUnknownLength)
+      throws IOException, InterruptedException {
+    byte[] data = new byte[FRAME_SIZE * FRAME_COUNT];
+    for (int i = 0; i < FRAME_COUNT; i++) {
+      int position = i * FRAME_SIZE;
+      data[position] = (byte) (FRAME_HEADER >> 24);
+      data[position + 1] = (byte) (FRAME_HEADER >> 16);
+      data[position + 2] = (byte) (FRAME_HEADER >> 8);
+      data[position + 3] = (byte) FRAME_HEADER;
+    }
+    Mp3Extractor extractor = new Mp3Extractor();
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    extractor.init(output);
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data)
+        .setSimulateUnknownLength(simulateUnknownLength).build();
+    PositionHolder seekPositionHolder = new PositionHolder();
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, seekPositionHolder);
+    }
+    output.trackOutputs.get(0).assertSampleCount(FRAME_COUNT);
+    return output;
+  }
+
+}
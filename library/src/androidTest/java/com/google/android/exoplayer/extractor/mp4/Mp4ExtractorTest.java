@@ -17,7 +17,10 @@ package com.google.android.exoplayer.extractor.mp4;
 
 import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.MediaFormat;
+import com.google.android.exoplayer.extractor.Extractor;
+import com.google.android.exoplayer.extractor.PositionHolder;
 import com.google.android.exoplayer.extractor.SeekMap;
+import com.google.android.exoplayer.testutil.FakeExtractorInput;
 import com.google.android.exoplayer.testutil.FakeExtractorOutput;
 import com.google.android.exoplayer.testutil.FakeTrackOutput;
 import com.google.android.exoplayer.testutil.TestUtil;
@@ -30,6 +33,7 @@ import junit.framework.TestCase;
 
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -70,6 +74,7 @@ public final class Mp4ExtractorTest extends TestCase {
       "0000000000000000736f756e");
   private static final byte[] AUDIO_MDHD_PAYLOAD = Util.getBytesFromHexString(
       "00000000cf6c4889cf6c488a0000ac4400a3e40055c40000");
+  private static final int AUDIO_TIMESCALE = 44100;
 
   /** String of hexadecimal bytes for an ftyp payload with major_brand mp41 and minor_version 0. **/
   private static final byte[] FTYP_PAYLOAD = Util.getBytesFromHexString("6d70343100000000");
@@ -97,6 +102,14 @@ public final class Mp4ExtractorTest extends TestCase {
   private static final int[] SAMPLES_IN_CHUNK = {2, 2, 1, 1};
   /** The mdat box must be large enough to avoid reading chunk sample data out of bounds. */
   private static final int MDAT_SIZE = 10 * 1024 * 1024;
+  /** Number of samples in each track of the badly interleaved file. */
+  private static final int INTERLEAVED_SAMPLE_COUNT = 30;
+  /** Size of each sample in the badly interleaved file. */
+  private static final int INTERLEAVED_SAMPLE_SIZE = 100;
+  /** Distance between the video and audio chunks of the badly interleaved file. */
+  private static final int INTERLEAVED_AUDIO_CHUNK_OFFSET = 1024 * 1024;
+  /** Maximum number of one-second samples that one track should be read ahead of another. */
+  private static final int MAXIMUM_READ_AHEAD_SAMPLES = 10;
   /** Empty byte array. */
   private static final byte[] EMPTY = new byte[0];
 
@@ -188,6 +201,37 @@ public final class Mp4ExtractorTest extends TestCase {
     }
   }
 
+  public void testReadsBadlyInterleavedFileInRuns() throws Exception {
+    FakeExtractorInput input =
+        new FakeExtractorInput.Builder().setData(getBadlyInterleavedMp4File()).build();
+    PositionHolder seekPositionHolder = new PositionHolder();
+    int seekCount = 0;
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, seekPositionHolder);
+      if (readResult == Extractor.RESULT_SEEK) {
+        input.setPosition((int) seekPositionHolder.position);
+        seekCount++;
+      } else if (extractorOutput.tracksEnded) {
+        // Neither track is read too far ahead of the other.
+        int videoSampleCount = extractorOutput.trackOutputs.get(0).getSampleCount();
+        int audioSampleCount = extractorOutput.trackOutputs.get(1).getSampleCount();
+        assertTrue(Math.abs(videoSampleCount - audioSampleCount) <= MAXIMUM_READ_AHEAD_SAMPLES);
+      }
+    }
+
+    // The tracks are read in runs, rather than reloading the source for each sample.
+    assertEquals(3, seekCount);
+    for (int trackIndex = 0; trackIndex < 2; trackIndex++) {
+      FakeTrackOutput trackOutput = extractorOutput.trackOutputs.get(trackIndex);
+      trackOutput.assertSampleCount(INTERLEAVED_SAMPLE_COUNT);
+      for (int i = 0; i < INTERLEAVED_SAMPLE_COUNT; i++) {
+        byte[] sampleData = getInterleavedSampleData(trackIndex, i);
+        trackOutput.assertSample(i, sampleData, i * C.MICROS_PER_SECOND, C.SAMPLE_FLAG_SYNC, null);
+      }
+    }
+  }
+
   private static void assertSeekMap(SeekMap seekMap, boolean haveStss) {
     assertNotNull(seekMap);
     int expectedSeekPosition = getSampleOffset(0);
@@ -407,6 +451,102 @@ public final class Mp4ExtractorTest extends TestCase {
         atom(Atom.TYPE_mdat, getMdat(mp4vFormat ? 1176 : 1166, !mp4vFormat)));
   }
 
+  /**
+   * Gets an MP4 file with mp4v video and audio tracks, each of which has one-second samples stored
+   * in a single chunk, with the audio chunk far from the video chunk.
+   */
+  private static byte[] getBadlyInterleavedMp4File() {
+    int mdatPayloadOffset = Mp4Atom.serialize(atom(Atom.TYPE_ftyp, FTYP_PAYLOAD),
+        getBadlyInterleavedMoov(0)).length + 8;
+    byte[] mdat = new byte[INTERLEAVED_AUDIO_CHUNK_OFFSET
+        + INTERLEAVED_SAMPLE_COUNT * INTERLEAVED_SAMPLE_SIZE];
+    for (int trackIndex = 0; trackIndex < 2; trackIndex++) {
+      int chunkOffset = trackIndex == 0 ? 0 : INTERLEAVED_AUDIO_CHUNK_OFFSET;
+      for (int i = 0; i < INTERLEAVED_SAMPLE_COUNT; i++) {
+        byte[] sampleData = getInterleavedSampleData(trackIndex, i);
+        System.arraycopy(sampleData, 0, mdat, chunkOffset + i * INTERLEAVED_SAMPLE_SIZE,
+            INTERLEAVED_SAMPLE_SIZE);
+      }
+    }
+    return Mp4Atom.serialize(
+        atom(Atom.TYPE_ftyp, FTYP_PAYLOAD),
+        getBadlyInterleavedMoov(mdatPayloadOffset),
+        atom(Atom.TYPE_mdat, mdat));
+  }
+
+  private static Mp4Atom getBadlyInterleavedMoov(int mdatPayloadOffset) {
+    return atom(Atom.TYPE_moov,
+        atom(Atom.TYPE_mvhd, MVHD_PAYLOAD),
+        atom(Atom.TYPE_trak,
+            atom(Atom.TYPE_tkhd, TKHD_PAYLOAD),
+            atom(Atom.TYPE_mdia,
+                atom(Atom.TYPE_mdhd, VIDEO_MDHD_PAYLOAD),
+                atom(Atom.TYPE_hdlr, VIDEO_HDLR_PAYLOAD),
+                atom(Atom.TYPE_minf,
+                    atom(Atom.TYPE_vmhd, EMPTY),
+                    atom(Atom.TYPE_stbl,
+                        atom(Atom.TYPE_stsd, VIDEO_STSD_MP4V_PAYLOAD),
+                        atom(Atom.TYPE_stts, getSingleChunkStts(TIMESCALE)),
+                        atom(Atom.TYPE_stsc, getSingleChunkStsc()),
+                        atom(Atom.TYPE_stsz, getSingleChunkStsz()),
+                        atom(Atom.TYPE_stco, getSingleChunkStco(mdatPayloadOffset)))))),
+        atom(Atom.TYPE_trak,
+            atom(Atom.TYPE_tkhd, TKHD_PAYLOAD),
+            atom(Atom.TYPE_mdia,
+                atom(Atom.TYPE_mdhd, AUDIO_MDHD_PAYLOAD),
+                atom(Atom.TYPE_hdlr, AUDIO_HDLR_PAYLOAD),
+                atom(Atom.TYPE_minf,
+                    atom(Atom.TYPE_vmhd, EMPTY),
+                    atom(Atom.TYPE_stbl,
+                        atom(Atom.TYPE_stsd, AUDIO_STSD_PAYLOAD),
+                        atom(Atom.TYPE_stts, getSingleChunkStts(AUDIO_TIMESCALE)),
+                        atom(Atom.TYPE_stsc, getSingleChunkStsc()),
+                        atom(Atom.TYPE_stsz, getSingleChunkStsz()),
+                        atom(Atom.TYPE_stco, getSingleChunkStco(
+                            mdatPayloadOffset + INTERLEAVED_AUDIO_CHUNK_OFFSET)))))));
+  }
+
+  private static byte[] getSingleChunkStts(int timescale) {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4 + 4);
+    buffer.putInt(0); // Version (skipped)
+    buffer.putInt(1);
+    buffer.putInt(INTERLEAVED_SAMPLE_COUNT);
+    buffer.putInt(timescale); // One second per sample.
+    return buffer.array();
+  }
+
+  private static byte[] getSingleChunkStsc() {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 3 * 4);
+    buffer.putInt(0); // Version (skipped)
+    buffer.putInt(1);
+    buffer.putInt(1);
+    buffer.putInt(INTERLEAVED_SAMPLE_COUNT);
+    buffer.putInt(0); // Sample description index (skipped)
+    return buffer.array();
+  }
+
+  private static byte[] getSingleChunkStsz() {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4);
+    buffer.putInt(0); // Version (skipped)
+    buffer.putInt(INTERLEAVED_SAMPLE_SIZE);
+    buffer.putInt(INTERLEAVED_SAMPLE_COUNT);
+    return buffer.array();
+  }
+
+  private static byte[] getSingleChunkStco(int chunkOffset) {
+    ByteBuffer buffer = ByteBuffer.allocate(4 + 4 + 4);
+    buffer.putInt(0); // Version (skipped)
+    buffer.putInt(1);
+    buffer.putInt(chunkOffset);
+    return buffer.array();
+  }
+
+  private static byte[] getInterleavedSampleData(int trackIndex, int index) {
+    byte[] sampleData = new byte[INTERLEAVED_SAMPLE_SIZE];
+    Arrays.fill(sampleData, (byte) (trackIndex * INTERLEAVED_SAMPLE_COUNT + index));
+    return sampleData;
+  }
+
   /** Gets a valid MP4 file with audio/video tracks and without a synchronization table. */
   private static byte[] getTestMp4FileWithoutSynchronizationData(boolean mp4vFormat) {
     return Mp4Atom.serialize(
@@ -0,0 +1,354 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor.mp4;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.ParserException;
+import com.google.android.exoplayer.util.ParsableByteArray;
+import com.google.android.exoplayer.util.Util;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Tests for {@link TrackSampleTable}, as parsed by {@link AtomParsers#parseStbl}.
+ */
+public class TrackSampleTableTest extends TestCase {
+
+  private static final long TIMESCALE = 90000;
+  private static final long MOVIE_TIMESCALE = 1000;
+
+  public void testVariableSizedSamples() throws IOException, ParserException {
+    Random random = new Random(0);
+    for (int i = 0; i < 20; i++) {
+      SampleData sampleData = new SampleData(random, 1 + random.nextInt(1000), false, i % 2 == 0);
+      assertTableMatches(sampleData, sampleData.parse(null, null));
+    }
+  }
+
+  public void testFixedSizeSamplesInLargeChunks() throws IOException, ParserException {
+    Random random = new Random(1);
+    SampleData sampleData = new SampleData(random, 5000, true, false);
+    assertTableMatches(sampleData, sampleData.parse(null, null));
+  }
+
+  public void testSeekToSynchronizationSamples() throws IOException, ParserException {
+    Random random = new Random(2);
+    SampleData sampleData = new SampleData(random, 500, false, true);
+    TrackSampleTable table = sampleData.parse(null, null);
+    long[] timestampsUs = sampleData.getTimestampsUs();
+    for (int i = 0; i < 100; i++) {
+      long timeUs = (long) (random.nextDouble() * timestampsUs[timestampsUs.length - 1]);
+      int index = Util.binarySearchFloor(timestampsUs, timeUs, true, false);
+      while (index >= 0 && !sampleData.syncSamples[index]) {
+        index--;
+      }
+      assertEquals(index, table.getIndexOfEarlierOrEqualSynchronizationSample(timeUs));
+      index = Util.binarySearchCeil(timestampsUs, timeUs, true, false);
+      while (index < timestampsUs.length && !sampleData.syncSamples[index]) {
+        index++;
+      }
+      assertEquals(index == timestampsUs.length ? TrackSampleTable.NO_SAMPLE : index,
+          table.getIndexOfLaterOrEqualSynchronizationSample(timeUs));
+    }
+  }
+
+  public void testEditList() throws IOException, ParserException {
+    Random random = new Random(3);
+    SampleData sampleData = new SampleData(random, 300, false, false);
+    long[] timestamps = sampleData.timestamps;
+    // Keep two ranges of samples, with a gap between them, starting at a non-zero media time.
+    long firstMediaTime = timestamps[10];
+    long secondMediaTime = timestamps[200];
+    long[] editListDurations = new long[] {
+        (timestamps[100] - firstMediaTime) * MOVIE_TIMESCALE / TIMESCALE,
+        (timestamps[250] - secondMediaTime) * MOVIE_TIMESCALE / TIMESCALE};
+    long[] editListMediaTimes = new long[] {firstMediaTime, secondMediaTime};
+    TrackSampleTable table = sampleData.parse(editListDurations, editListMediaTimes);
+    assertEditedTableMatches(sampleData, editListDurations, editListMediaTimes, table);
+  }
+
+  public void testEditListEndingOnSample() throws IOException, ParserException {
+    Random random = new Random(4);
+    SampleData sampleData = new SampleData(random, 300, false, false);
+    long[] timestamps = sampleData.timestamps;
+    // Find a sample on which the end of an edit can land exactly, given the movie timescale.
+    int endSample = 1;
+    while ((timestamps[endSample] - timestamps[0]) % (TIMESCALE / MOVIE_TIMESCALE) != 0) {
+      endSample++;
+    }
+    long[] editListDurations = new long[] {
+        (timestamps[endSample] - timestamps[0]) * MOVIE_TIMESCALE / TIMESCALE};
+    long[] editListMediaTimes = new long[] {timestamps[0]};
+    TrackSampleTable table = sampleData.parse(editListDurations, editListMediaTimes);
+
+    // The sample at the end of the edit is excluded.
+    assertEquals(endSample, table.sampleCount);
+    assertEditedTableMatches(sampleData, editListDurations, editListMediaTimes, table);
+  }
+
+  public void testEditListStartingAfterLastSample() throws IOException, ParserException {
+    Random random = new Random(5);
+    SampleData sampleData = new SampleData(random, 300, false, false);
+    long[] timestamps = sampleData.timestamps;
+    long[] editListDurations = new long[] {MOVIE_TIMESCALE};
+    long[] editListMediaTimes = new long[] {timestamps[timestamps.length - 1] + 1};
+    TrackSampleTable table = sampleData.parse(editListDurations, editListMediaTimes);
+
+    // The edit keeps the last sample.
+    assertEquals(1, table.sampleCount);
+    assertEditedTableMatches(sampleData, editListDurations, editListMediaTimes, table);
+  }
+
+  /**
+   * Asserts that an edited table contains the expected samples, calculated in the same way as the
+   * original expanded implementation.
+   */
+  private static void assertEditedTableMatches(SampleData sampleData, long[] editListDurations,
+      long[] editListMediaTimes, TrackSampleTable table) {
+    long[] timestamps = sampleData.timestamps;
+    int sampleIndex = 0;
+    long pts = 0;
+    for (int i = 0; i < editListDurations.length; i++) {
+      long mediaTime = editListMediaTimes[i];
+      long endMediaTime = mediaTime + Util.scaleLargeTimestamp(editListDurations[i], TIMESCALE,
+          MOVIE_TIMESCALE);
+      int startIndex = Util.binarySearchCeil(timestamps, mediaTime, true, true);
+      int endIndex = Util.binarySearchCeil(timestamps, endMediaTime, true, false);
+      for (int j = startIndex; j < endIndex; j++) {
+        long ptsUs = Util.scaleLargeTimestamp(pts, C.MICROS_PER_SECOND, MOVIE_TIMESCALE);
+        assertEquals(ptsUs + Util.scaleLargeTimestamp(timestamps[j] - mediaTime,
+            C.MICROS_PER_SECOND, TIMESCALE), table.getTimestampUs(sampleIndex));
+        assertEquals(sampleData.offsets[j], table.getOffset(sampleIndex));
+        assertEquals(sampleData.sizes[j], table.getSize(sampleIndex));
+        sampleIndex++;
+      }
+      pts += editListDurations[i];
+    }
+    assertEquals(sampleIndex, table.sampleCount);
+  }
+
+  private static void assertTableMatches(SampleData sampleData, TrackSampleTable table) {
+    assertEquals(sampleData.sizes.length, table.sampleCount);
+    long[] timestampsUs = sampleData.getTimestampsUs();
+    int maximumSize = 0;
+    for (int i = 0; i < table.sampleCount; i++) {
+      assertEquals(sampleData.offsets[i], table.getOffset(i));
+      assertEquals(sampleData.sizes[i], table.getSize(i));
+      assertEquals(timestampsUs[i], table.getTimestampUs(i));
+      assertEquals(sampleData.syncSamples[i] ? C.SAMPLE_FLAG_SYNC : 0, table.getFlags(i));
+      maximumSize = Math.max(maximumSize, sampleData.sizes[i]);
+    }
+    assertEquals(maximumSize, table.maximumSize);
+  }
+
+  /**
+   * Randomly generated samples, with the corresponding sample table atoms.
+   */
+  private static final class SampleData {
+
+    public final long[] offsets;
+    public final int[] sizes;
+    public final long[] timestamps;
+    public final boolean[] syncSamples;
+
+    private final byte[] stsz;
+    private final byte[] stco;
+    private final boolean useCo64;
+    private final byte[] stsc;
+    private final byte[] stts;
+    private final byte[] ctts;
+    private final byte[] stss;
+
+    public SampleData(Random random, int sampleCount, boolean fixedSize, boolean useCtts)
+        throws IOException {
+      offsets = new long[sampleCount];
+      sizes = new int[sampleCount];
+      timestamps = new long[sampleCount];
+      syncSamples = new boolean[sampleCount];
+      useCo64 = random.nextBoolean();
+
+      // Sample sizes.
+      int fixedSampleSize = fixedSize ? 1 + random.nextInt(1000) : 0;
+      AtomWriter writer = new AtomWriter();
+      writer.writeInt(fixedSampleSize);
+      writer.writeInt(sampleCount);
+      for (int i = 0; i < sampleCount; i++) {
+        sizes[i] = fixedSize ? fixedSampleSize : random.nextInt(100000);
+        if (!fixedSize) {
+          writer.writeInt(sizes[i]);
+        }
+      }
+      stsz = writer.toByteArray();
+
+      // Chunks, in runs with the same number of samples per chunk. Some runs contain empty chunks.
+      AtomWriter chunkOffsetWriter = new AtomWriter();
+      AtomWriter samplesPerChunkWriter = new AtomWriter();
+      int chunkCount = 0;
+      int runCount = 0;
+      long offset = useCo64 ? 1L << 33 : 1000;
+      int sampleIndex = 0;
+      while (sampleIndex < sampleCount) {
+        int samplesPerChunk = fixedSize ? 1 + random.nextInt(2000) : random.nextInt(20);
+        int runChunkCount = 1 + random.nextInt(5);
+        int remainingSampleCount = sampleCount - sampleIndex;
+        if (samplesPerChunk * runChunkCount > remainingSampleCount) {
+          runChunkCount = remainingSampleCount / samplesPerChunk;
+          if (runChunkCount == 0) {
+            samplesPerChunk = remainingSampleCount;
+            runChunkCount = 1;
+          }
+        }
+        samplesPerChunkWriter.writeInt(chunkCount + 1);
+        samplesPerChunkWriter.writeInt(samplesPerChunk);
+        samplesPerChunkWriter.writeInt(1);
+        runCount++;
+        for (int i = 0; i < runChunkCount; i++) {
+          offset += random.nextInt(10000);
+          if (useCo64) {
+            chunkOffsetWriter.writeLong(offset);
+          } else {
+            chunkOffsetWriter.writeInt((int) offset);
+          }
+          chunkCount++;
+          for (int j = 0; j < samplesPerChunk; j++) {
+            offsets[sampleIndex] = offset;
+            offset += sizes[sampleIndex];
+            sampleIndex++;
+          }
+        }
+      }
+      stco = prependCount(chunkCount, chunkOffsetWriter);
+      stsc = prependCount(runCount, samplesPerChunkWriter);
+
+      // Sample durations and timestamp offsets.
+      writer = new AtomWriter();
+      runCount = 0;
+      long timestamp = 0;
+      for (int i = 0; i < sampleCount;) {
+        int count = Math.min(sampleCount - i, 1 + random.nextInt(50));
+        int delta = 1000 + random.nextInt(3000);
+        writer.writeInt(count);
+        writer.writeInt(delta);
+        runCount++;
+        for (int j = 0; j < count; j++) {
+          timestamps[i++] = timestamp;
+          timestamp += delta;
+        }
+      }
+      stts = prependCount(runCount, writer);
+      if (useCtts) {
+        writer = new AtomWriter();
+        runCount = 0;
+        // Use either short runs, as for B-frames, or longer runs.
+        int maxRunLength = random.nextBoolean() ? 3 : 40;
+        for (int i = 0; i < sampleCount;) {
+          int count = Math.min(sampleCount - i, random.nextInt(maxRunLength + 1));
+          int timestampOffset = random.nextInt(6000) - 1000;
+          writer.writeInt(count);
+          writer.writeInt(timestampOffset);
+          runCount++;
+          for (int j = 0; j < count; j++) {
+            timestamps[i++] += timestampOffset;
+          }
+        }
+        ctts = prependCount(runCount, writer);
+      } else {
+        ctts = null;
+      }
+
+      // Synchronization samples. The first sample is always a synchronization sample.
+      if (random.nextBoolean()) {
+        writer = new AtomWriter();
+        int syncSampleCount = 0;
+        for (int i = 0; i < sampleCount; i++) {
+          syncSamples[i] = i == 0 || random.nextInt(30) == 0;
+          if (syncSamples[i]) {
+            writer.writeInt(i + 1);
+            syncSampleCount++;
+          }
+        }
+        stss = prependCount(syncSampleCount, writer);
+      } else {
+        for (int i = 0; i < sampleCount; i++) {
+          syncSamples[i] = true;
+        }
+        stss = null;
+      }
+    }
+
+    public long[] getTimestampsUs() {
+      long[] timestampsUs = timestamps.clone();
+      Util.scaleLargeTimestampsInPlace(timestampsUs, C.MICROS_PER_SECOND, TIMESCALE);
+      return timestampsUs;
+    }
+
+    public TrackSampleTable parse(long[] editListDurations, long[] editListMediaTimes)
+        throws ParserException {
+      Track track = new Track(1, Track.TYPE_vide, TIMESCALE, MOVIE_TIMESCALE, C.UNKNOWN_TIME_US,
+          null, null, -1, editListDurations, editListMediaTimes);
+      Atom.ContainerAtom stbl = new Atom.ContainerAtom(Atom.TYPE_stbl, 0);
+      stbl.add(new Atom.LeafAtom(Atom.TYPE_stsz, new ParsableByteArray(stsz)));
+      stbl.add(new Atom.LeafAtom(useCo64 ? Atom.TYPE_co64 : Atom.TYPE_stco,
+          new ParsableByteArray(stco)));
+      stbl.add(new Atom.LeafAtom(Atom.TYPE_stsc, new ParsableByteArray(stsc)));
+      stbl.add(new Atom.LeafAtom(Atom.TYPE_stts, new ParsableByteArray(stts)));
+      if (ctts != null) {
+        stbl.add(new Atom.LeafAtom(Atom.TYPE_ctts, new ParsableByteArray(ctts)));
+      }
+      if (stss != null) {
+        stbl.add(new Atom.LeafAtom(Atom.TYPE_stss, new ParsableByteArray(stss)));
+      }
+      return AtomParsers.parseStbl(track, stbl);
+    }
+
+    private static byte[] prependCount(int count, AtomWriter entries) throws IOException {
+      AtomWriter writer = new AtomWriter();
+      writer.writeInt(count);
+      writer.write(entries.toEntryArray());
+      return writer.toByteArray();
+    }
+
+  }
+
+  /**
+   * Writes the payload of a full atom, preceded by space for the atom header.
+   */
+  private static final class AtomWriter extends DataOutputStream {
+
+    public AtomWriter() throws IOException {
+      super(new ByteArrayOutputStream());
+      write(new byte[Atom.FULL_HEADER_SIZE]);
+    }
+
+    public byte[] toByteArray() {
+      return ((ByteArrayOutputStream) out).toByteArray();
+    }
+
+    public byte[] toEntryArray() {
+      byte[] data = toByteArray();
+      byte[] entries = new byte[data.length - Atom.FULL_HEADER_SIZE];
+      System.arraycopy(data, Atom.FULL_HEADER_SIZE, entries, 0, entries.length);
+      return entries;
+    }
+
+  }
+
+}
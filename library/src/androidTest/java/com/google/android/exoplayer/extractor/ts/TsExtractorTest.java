@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor.ts;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.extractor.Extractor;
+import com.google.android.exoplayer.extractor.PositionHolder;
+import com.google.android.exoplayer.testutil.FakeExtractorInput;
+import com.google.android.exoplayer.testutil.FakeExtractorOutput;
+import com.google.android.exoplayer.testutil.FakeTrackOutput;
+import com.google.android.exoplayer.testutil.TestUtil;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit test for {@link TsExtractor}.
+ */
+public class TsExtractorTest extends TestCase {
+
+  private static final int TS_PACKET_SIZE = 188;
+  private static final int PMT_PID = 0x100;
+  private static final int ID3_PID = 0x101;
+  private static final int ID3_TRACK_ID = 0x15;
+  private static final int AAC_PID = 0x102;
+  private static final int AAC_TRACK_ID = 0x0F;
+  private static final int SAMPLE_COUNT = 120;
+  private static final int AAC_FRAME_COUNT = 20;
+  private static final int AAC_FRAME_CONTENT_SIZE = 300;
+
+  private static final byte[] ID3_SAMPLE = AdtsReaderTest.ID3_DATA_1;
+
+  public void testReadSamples() throws IOException, InterruptedException {
+    byte[] data = buildStream(SAMPLE_COUNT, null);
+    FakeExtractorOutput output = extract(data, false);
+    assertSamples(output, SAMPLE_COUNT);
+  }
+
+  public void testReadSamplesWithPartialReads() throws IOException, InterruptedException {
+    byte[] data = buildStream(SAMPLE_COUNT, null);
+    FakeExtractorOutput output = extract(data, true);
+    assertSamples(output, SAMPLE_COUNT);
+  }
+
+  public void testResyncAfterLostSync() throws IOException, InterruptedException {
+    // Insert garbage that contains a false sync byte after some of the packets.
+    byte[] garbage = TestUtil.createByteArray(0x00, 0x47, 0x12, 0x34, 0x00, 0xFF, 0x01);
+    byte[] data = buildStream(SAMPLE_COUNT, garbage);
+    FakeExtractorOutput output = extract(data, true);
+    assertSamples(output, SAMPLE_COUNT);
+  }
+
+  public void testTrailingPartialPacketIgnored() throws IOException, InterruptedException {
+    byte[] data = buildStream(SAMPLE_COUNT, null);
+    data = Arrays.copyOf(data, data.length + 100);
+    data[data.length - 100] = 0x47;
+    FakeExtractorOutput output = extract(data, false);
+    assertSamples(output, SAMPLE_COUNT);
+  }
+
+  public void testLostPacketDiscardsDamagedSample() throws IOException, InterruptedException {
+    List<byte[]> packets = buildAacPackets();
+    // Remove the second packet of the sixth frame.
+    packets.remove(2 + 5 * 2 + 1);
+    TsExtractor extractor = new TsExtractor();
+    FakeExtractorOutput output = extract(extractor, joinPackets(packets), true);
+    assertAacFrames(output, 5);
+    assertEquals(1, extractor.getLostPacketCount());
+    assertEquals(1, extractor.getDroppedSampleCount());
+  }
+
+  public void testDuplicatePacketIgnored() throws IOException, InterruptedException {
+    List<byte[]> packets = buildAacPackets();
+    // Repeat the first packet of the fourth frame.
+    packets.add(2 + 3 * 2 + 1, packets.get(2 + 3 * 2));
+    TsExtractor extractor = new TsExtractor();
+    FakeExtractorOutput output = extract(extractor, joinPackets(packets), true);
+    assertAacFrames(output, -1);
+    assertEquals(1, extractor.getDuplicatePacketCount());
+    assertEquals(0, extractor.getLostPacketCount());
+  }
+
+  public void testRepeatedDuplicatePacketNotIgnored() throws IOException, InterruptedException {
+    List<byte[]> packets = buildAacPackets();
+    // Repeat the first packet of the fourth frame twice.
+    packets.add(2 + 3 * 2 + 1, packets.get(2 + 3 * 2));
+    packets.add(2 + 3 * 2 + 1, packets.get(2 + 3 * 2));
+    TsExtractor extractor = new TsExtractor();
+    extract(extractor, joinPackets(packets), true);
+    // Only one duplicate is permitted, so the second repeat is treated as a discontinuity.
+    assertEquals(1, extractor.getDuplicatePacketCount());
+  }
+
+  public void testConstantContinuityCounter() throws IOException, InterruptedException {
+    List<byte[]> packets = buildAacPackets();
+    // Some muxers don't increment the continuity counter.
+    for (byte[] packet : packets) {
+      packet[3] &= 0xF0;
+    }
+    TsExtractor extractor = new TsExtractor();
+    FakeExtractorOutput output = extract(extractor, joinPackets(packets), true);
+    assertAacFrames(output, -1);
+    assertEquals(0, extractor.getDuplicatePacketCount());
+    assertEquals(0, extractor.getLostPacketCount());
+    assertEquals(0, extractor.getDroppedSampleCount());
+  }
+
+  public void testErrorPacketDiscardsDamagedSample() throws IOException, InterruptedException {
+    List<byte[]> packets = buildAacPackets();
+    // Set the transport_error_indicator on the second packet of the eighth frame.
+    packets.get(2 + 7 * 2 + 1)[1] |= 0x80;
+    TsExtractor extractor = new TsExtractor();
+    FakeExtractorOutput output = extract(extractor, joinPackets(packets), true);
+    assertAacFrames(output, 7);
+    assertEquals(1, extractor.getErrorPacketCount());
+    assertEquals(1, extractor.getDroppedSampleCount());
+  }
+
+  private static FakeExtractorOutput extract(byte[] data, boolean simulatePartialReads)
+      throws IOException, InterruptedException {
+    return extract(new TsExtractor(), data, simulatePartialReads);
+  }
+
+  private static FakeExtractorOutput extract(TsExtractor extractor, byte[] data,
+      boolean simulatePartialReads) throws IOException, InterruptedException {
+    FakeExtractorOutput output = new FakeExtractorOutput();
+    extractor.init(output);
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data)
+        .setSimulatePartialReads(simulatePartialReads).build();
+    PositionHolder seekPositionHolder = new PositionHolder();
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, seekPositionHolder);
+    }
+    return output;
+  }
+
+  private static void assertSamples(FakeExtractorOutput output, int sampleCount) {
+    FakeTrackOutput trackOutput = output.trackOutputs.get(ID3_TRACK_ID);
+    trackOutput.assertSampleCount(sampleCount);
+    for (int i = 0; i < sampleCount; i++) {
+      trackOutput.assertSample(i, ID3_SAMPLE, getSampleTimeUs(i), C.SAMPLE_FLAG_SYNC, null);
+    }
+  }
+
+  /**
+   * Asserts that the output contains the AAC frames built by {@link #buildAacPackets()}, except
+   * for the frame at {@code missingFrameIndex}.
+   */
+  private static void assertAacFrames(FakeExtractorOutput output, int missingFrameIndex) {
+    FakeTrackOutput trackOutput = output.trackOutputs.get(AAC_TRACK_ID);
+    int sampleIndex = 0;
+    for (int i = 0; i < AAC_FRAME_COUNT; i++) {
+      if (i != missingFrameIndex) {
+        trackOutput.assertSample(sampleIndex++, TestUtil.buildTestData(AAC_FRAME_CONTENT_SIZE, i),
+            getSampleTimeUs(i), C.SAMPLE_FLAG_SYNC, null);
+      }
+    }
+    trackOutput.assertSampleCount(sampleIndex);
+  }
+
+  /**
+   * Builds the packets of a stream consisting of a PAT, a PMT declaring a single AAC stream, and
+   * then {@link #AAC_FRAME_COUNT} ADTS frames, each in its own PES packet spanning two TS packets.
+   */
+  private static List<byte[]> buildAacPackets() {
+    List<byte[]> packets = new ArrayList<>();
+    packets.add(buildPacket(0, true, 0, buildPat()));
+    packets.add(buildPacket(PMT_PID, true, 0, buildPmt(0x0F, AAC_PID)));
+    int frameLength = 7 + AAC_FRAME_CONTENT_SIZE;
+    byte[] adtsHeader = TestUtil.createByteArray(0xFF, 0xF1, 0x50, 0x80 | (frameLength >> 11),
+        (frameLength >> 3) & 0xFF, ((frameLength & 0x07) << 5) | 0x1F, 0xFC);
+    int continuityCounter = 0;
+    for (int i = 0; i < AAC_FRAME_COUNT; i++) {
+      byte[] pesPacket = TestUtil.joinByteArrays(buildPesHeader(getSampleTimeUs(i), frameLength),
+          adtsHeader, TestUtil.buildTestData(AAC_FRAME_CONTENT_SIZE, i));
+      packets.add(buildPacket(AAC_PID, true, continuityCounter++,
+          Arrays.copyOf(pesPacket, TS_PACKET_SIZE - 4)));
+      packets.add(buildPacket(AAC_PID, false, continuityCounter++,
+          Arrays.copyOfRange(pesPacket, TS_PACKET_SIZE - 4, pesPacket.length)));
+    }
+    return packets;
+  }
+
+  private static byte[] joinPackets(List<byte[]> packets) {
+    return TestUtil.joinByteArrays(packets.toArray(new byte[packets.size()][]));
+  }
+
+  /**
+   * Builds a stream consisting of a PAT, a PMT declaring a single ID3 stream, and then the
+   * specified number of ID3 samples, each in its own PES packet.
+   *
+   * @param sampleCount The number of samples.
+   * @param garbage Data to insert after every seventh packet, or null.
+   */
+  private static byte[] buildStream(int sampleCount, byte[] garbage) {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    writePacket(stream, buildPacket(0, true, 0, buildPat()));
+    writePacket(stream, buildPacket(PMT_PID, true, 0, buildPmt(0x15, ID3_PID)));
+    for (int i = 0; i < sampleCount; i++) {
+      byte[] pesHeader = buildPesHeader(getSampleTimeUs(i), ID3_SAMPLE.length);
+      writePacket(stream, buildPacket(ID3_PID, true, i,
+          TestUtil.joinByteArrays(pesHeader, ID3_SAMPLE)));
+      if (garbage != null && i % 7 == 0) {
+        stream.write(garbage, 0, garbage.length);
+      }
+    }
+    return stream.toByteArray();
+  }
+
+  private static byte[] buildPat() {
+    return TestUtil.createByteArray(
+        0x00, // pointer_field
+        0x00, 0xB0, 0x0D, // table_id, section_length
+        0x00, 0x01, 0xC1, 0x00, 0x00, // transport_stream_id, version etc.
+        0x00, 0x01, 0xE0 | (PMT_PID >> 8), PMT_PID & 0xFF, // program_number, program_map_PID
+        0x00, 0x00, 0x00, 0x00); // CRC_32
+  }
+
+  private static byte[] buildPmt(int streamType, int pid) {
+    return TestUtil.createByteArray(
+        0x00, // pointer_field
+        0x02, 0xB0, 0x12, // table_id, section_length
+        0x00, 0x01, 0xC1, 0x00, 0x00, // program_number, version etc.
+        0xE0 | (pid >> 8), pid & 0xFF, // PCR_PID
+        0xF0, 0x00, // program_info_length
+        streamType, 0xE0 | (pid >> 8), pid & 0xFF, 0xF0, 0x00, // stream_type, PID, ES_info_length
+        0x00, 0x00, 0x00, 0x00); // CRC_32
+  }
+
+  private static byte[] buildPesHeader(long timeUs, int payloadLength) {
+    long pts = timeUs * 90 / 1000;
+    return TestUtil.createByteArray(
+        0x00, 0x00, 0x01, 0xBD, // packet_start_code_prefix, stream_id
+        (8 + payloadLength) >> 8, (8 + payloadLength) & 0xFF, // PES_packet_length
+        0x84, 0x80, 0x05, // data_alignment_indicator, PTS_DTS_flags, PES_header_data_length
+        0x21 | (int) ((pts >> 29) & 0x0E), (int) ((pts >> 22) & 0xFF),
+        0x01 | (int) ((pts >> 14) & 0xFE), (int) ((pts >> 7) & 0xFF),
+        0x01 | (int) ((pts << 1) & 0xFE));
+  }
+
+  /**
+   * Builds a TS packet with the specified payload, which must fit in a single packet. If the
+   * payload does not fill the packet, it is preceded by adaptation field stuffing.
+   */
+  private static byte[] buildPacket(int pid, boolean payloadUnitStart, int continuityCounter,
+      byte[] payload) {
+    byte[] packet = new byte[TS_PACKET_SIZE];
+    packet[0] = 0x47;
+    packet[1] = (byte) ((payloadUnitStart ? 0x40 : 0) | (pid >> 8));
+    packet[2] = (byte) pid;
+    int payloadOffset = TS_PACKET_SIZE - payload.length;
+    if (payloadOffset == 4) {
+      packet[3] = (byte) (0x10 | (continuityCounter & 0x0F)); // payload only
+    } else {
+      packet[3] = (byte) (0x30 | (continuityCounter & 0x0F)); // adaptation field and payload
+      int adaptationFieldLength = payloadOffset - 5;
+      packet[4] = (byte) adaptationFieldLength;
+      if (adaptationFieldLength > 0) {
+        packet[5] = 0x00; // flags
+        Arrays.fill(packet, 6, payloadOffset, (byte) 0xFF);
+      }
+    }
+    System.arraycopy(payload, 0, packet, payloadOffset, payload.length);
+    return packet;
+  }
+
+  private static void writePacket(ByteArrayOutputStream stream, byte[] packet) {
+    stream.write(packet, 0, packet.length);
+  }
+
+  private static long getSampleTimeUs(int sampleIndex) {
+    return sampleIndex * 100000L;
+  }
+
+}
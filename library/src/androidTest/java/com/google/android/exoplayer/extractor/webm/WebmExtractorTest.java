@@ -23,8 +23,11 @@ import com.google.android.exoplayer.ParserException;
 import com.google.android.exoplayer.drm.DrmInitData;
 import com.google.android.exoplayer.drm.DrmInitData.SchemeInitData;
 import com.google.android.exoplayer.extractor.ChunkIndex;
+import com.google.android.exoplayer.extractor.Extractor;
+import com.google.android.exoplayer.extractor.PositionHolder;
 import com.google.android.exoplayer.extractor.SeekMap;
 import com.google.android.exoplayer.extractor.webm.StreamBuilder.ContentEncodingSettings;
+import com.google.android.exoplayer.testutil.FakeExtractorInput;
 import com.google.android.exoplayer.testutil.FakeExtractorOutput;
 import com.google.android.exoplayer.testutil.FakeTrackOutput;
 import com.google.android.exoplayer.testutil.TestUtil;
@@ -303,7 +306,95 @@ public final class WebmExtractorTest extends InstrumentationTestCase {
     TestUtil.consumeTestData(extractor, data);
 
     assertTracksEnded();
-    assertIndexUnseekable();
+    assertTrue(extractorOutput.seekMap.isSeekable());
+  }
+
+  public void testSeekToClusterWithoutCuesElement() throws IOException, InterruptedException {
+    byte[] media = createFrameData(100);
+    byte[] data = new StreamBuilder()
+        .setHeader(WEBM_DOC_TYPE)
+        .setInfo(DEFAULT_TIMECODE_SCALE, TEST_DURATION_TIMECODE)
+        .addVp9Track(VIDEO_TRACK_NUMBER, TEST_WIDTH, TEST_HEIGHT, null)
+        .addSimpleBlockMedia(1 /* trackNumber */, 0 /* clusterTimecode */, 0 /* blockTimecode */,
+            true /* keyframe */, false /* invisible */, media)
+        .addSimpleBlockMedia(1 /* trackNumber */, 10 /* clusterTimecode */, 0 /* blockTimecode */,
+            true /* keyframe */, false /* invisible */, media)
+        .addSimpleBlockMedia(1 /* trackNumber */, 20 /* clusterTimecode */, 0 /* blockTimecode */,
+            true /* keyframe */, false /* invisible */, media)
+        .build(0);
+
+    TestUtil.consumeTestData(extractor, data);
+
+    long[] clusterPositions = findClusterContentPositions(data, 3);
+    SeekMap seekMap = extractorOutput.seekMap;
+    assertTrue(seekMap.isSeekable());
+    assertEquals(clusterPositions[0], seekMap.getPosition(0));
+    assertEquals(clusterPositions[1], seekMap.getPosition(10000));
+    assertEquals(clusterPositions[1], seekMap.getPosition(15000));
+    assertEquals(clusterPositions[2], seekMap.getPosition(TEST_DURATION_TIMECODE * 1000));
+
+    // Resume reading from the middle cluster.
+    extractor.seek();
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data).build();
+    input.setPosition((int) seekMap.getPosition(15000));
+    PositionHolder seekPositionHolder = new PositionHolder();
+    int readResult = Extractor.RESULT_CONTINUE;
+    while (readResult != Extractor.RESULT_END_OF_INPUT) {
+      readResult = extractor.read(input, seekPositionHolder);
+    }
+
+    FakeTrackOutput trackOutput = getTrackOutput(VIDEO_TRACK_NUMBER);
+    trackOutput.assertSampleCount(5);
+    assertSample(3, media, 10000, true, false, null, trackOutput);
+    assertSample(4, media, 20000, true, false, null, trackOutput);
+  }
+
+  public void testSeekBeyondIndexedClustersWithoutCuesElement() throws IOException,
+      InterruptedException {
+    // A ten minute stream with a one second cluster every second.
+    int clusterCount = 600;
+    byte[] media = createFrameData(1000);
+    StreamBuilder builder = new StreamBuilder()
+        .setHeader(WEBM_DOC_TYPE)
+        .setInfo(DEFAULT_TIMECODE_SCALE, clusterCount * 1000L)
+        .addVp9Track(VIDEO_TRACK_NUMBER, TEST_WIDTH, TEST_HEIGHT, null);
+    for (int i = 0; i < clusterCount; i++) {
+      builder.addSimpleBlockMedia(1 /* trackNumber */, i * 1000 /* clusterTimecode */,
+          0 /* blockTimecode */, true /* keyframe */, false /* invisible */, media);
+    }
+    byte[] data = builder.build(0);
+    long[] clusterPositions = findClusterContentPositions(data, clusterCount);
+
+    // Read the first minute only.
+    FakeExtractorInput input = new FakeExtractorInput.Builder().setData(data).build();
+    PositionHolder seekPositionHolder = new PositionHolder();
+    while (input.getPosition() < clusterPositions[60]) {
+      extractor.read(input, seekPositionHolder);
+    }
+
+    // Seek far beyond the indexed clusters. The position is estimated rather than that of the last
+    // indexed cluster.
+    SeekMap seekMap = extractorOutput.seekMap;
+    long seekPosition = seekMap.getPosition(400000000);
+    assertTrue(seekPosition > clusterPositions[390]);
+    assertTrue(seekPosition < clusterPositions[400]);
+
+    // Reading resyncs to the next cluster, which starts at or before the target.
+    extractor.seek();
+    input.setPosition((int) seekPosition);
+    FakeTrackOutput trackOutput = getTrackOutput(VIDEO_TRACK_NUMBER);
+    int sampleCount = trackOutput.getSampleCount();
+    while (trackOutput.getSampleCount() == sampleCount) {
+      extractor.read(input, seekPositionHolder);
+    }
+    assertSample(sampleCount, media, 396000000, true, false, null, trackOutput);
+    // Less than a cluster was skipped to resync, and four clusters are then read before the
+    // target. Resuming from the last indexed cluster would read 340.
+    assertTrue(input.getPosition() - seekPosition < 2 * (clusterPositions[1] - clusterPositions[0]));
+
+    // Clusters read after an estimated seek aren't indexed.
+    assertEquals(clusterPositions[60], seekMap.getPosition(60000000));
+    assertEquals(clusterPositions[60], seekMap.getPosition(62000000));
   }
 
   public void testAcceptsWebmDocType() throws IOException, InterruptedException {
@@ -769,8 +860,19 @@ public final class WebmExtractorTest extends InstrumentationTestCase {
         index.durationsUs[lastIndex]);
   }
 
-  private void assertIndexUnseekable() {
-    assertEquals(SeekMap.UNSEEKABLE, extractorOutput.seekMap);
+  private static long[] findClusterContentPositions(byte[] data, int clusterCount) {
+    long[] positions = new long[clusterCount];
+    int clusterIndex = 0;
+    for (int i = 0; i < data.length - 4 && clusterIndex < clusterCount; i++) {
+      if (data[i] == 0x1F && data[i + 1] == 0x43 && data[i + 2] == (byte) 0xB6
+          && data[i + 3] == 0x75) {
+        // Skip the cluster ID and the size, whose length is given by its leading zero bits.
+        int sizeLength = Integer.numberOfLeadingZeros(data[i + 4] & 0xFF) - 23;
+        positions[clusterIndex++] = i + 4 + sizeLength;
+      }
+    }
+    assertEquals(clusterCount, clusterIndex);
+    return positions;
   }
 
   private void assertSample(int index, byte[] expectedMedia, long timeUs, boolean keyframe,
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.hls;
+
+import com.google.android.exoplayer.chunk.Chunk;
+import com.google.android.exoplayer.chunk.ChunkOperationHolder;
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator;
+import com.google.android.exoplayer.chunk.MediaChunk;
+import com.google.android.exoplayer.testutil.FakeDataSource;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DefaultBandwidthMeter;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for the {@link FormatEvaluator} path of {@link HlsChunkSource}.
+ */
+public class HlsChunkSourceTest extends TestCase {
+
+  private static final String PLAYLIST_URL = "http://test/master.m3u8";
+  private static final Variant HIGH_VARIANT = new Variant("high.m3u8", buildFormat(3000000));
+  private static final Variant LOW_VARIANT = new Variant("low.m3u8", buildFormat(1000000));
+
+  private static final long CHUNK_START_TIME_US = 10000000;
+  private static final long CHUNK_END_TIME_US = 20000000;
+  private static final long PLAYBACK_POSITION_US = 4000000;
+
+  private DataSource dataSource;
+  private RecordingEvaluator evaluator;
+
+  @Override
+  public void setUp() {
+    dataSource = new FakeDataSource.Builder().build();
+    evaluator = new RecordingEvaluator();
+  }
+
+  public void testBufferedDurationWhenSplicing() {
+    getChunkOperation(HlsChunkSource.ADAPTIVE_MODE_SPLICE);
+    // A spliced switch reloads the previous chunk, so only the media before it is buffered.
+    assertEquals(CHUNK_START_TIME_US - PLAYBACK_POSITION_US, evaluator.bufferedDurationUs);
+    assertEquals(2, evaluator.formats.length);
+  }
+
+  public void testBufferedDurationWhenSwitchingAtChunkBoundaries() {
+    getChunkOperation(HlsChunkSource.ADAPTIVE_MODE_ABRUPT);
+    assertEquals(CHUNK_END_TIME_US - PLAYBACK_POSITION_US, evaluator.bufferedDurationUs);
+  }
+
+  public void testEvaluatedFormatSelected() {
+    evaluator.selectedFormat = LOW_VARIANT.format;
+    ChunkOperationHolder out = getChunkOperation(HlsChunkSource.ADAPTIVE_MODE_SPLICE);
+    // The media playlist of the selected variant is requested first.
+    assertEquals(Uri.parse("http://test/low.m3u8"), out.chunk.dataSpec.uri);
+  }
+
+  public void testEvaluatorEnabledAgainAfterReset() {
+    HlsChunkSource chunkSource = newChunkSource(HlsChunkSource.ADAPTIVE_MODE_SPLICE);
+    getChunkOperation(chunkSource);
+    assertEquals(1, evaluator.enableCount);
+
+    // The source is reset when it's disabled, and then enabled again for the same track.
+    chunkSource.reset();
+    assertFalse(evaluator.enabled);
+    // Neither selecting the track nor resetting again disables the evaluator a second time.
+    chunkSource.selectTrack(chunkSource.getSelectedTrackIndex());
+    chunkSource.reset();
+    assertFalse(evaluator.enabled);
+    getChunkOperation(chunkSource);
+    assertTrue(evaluator.enabled);
+    assertEquals(2, evaluator.enableCount);
+    // The evaluation starts from the selected variant, rather than a stale format.
+    assertSame(HIGH_VARIANT.format, evaluator.initialFormat);
+  }
+
+  public void testEvaluatorDisabledWhenTrackReselected() {
+    HlsChunkSource chunkSource = newChunkSource(HlsChunkSource.ADAPTIVE_MODE_SPLICE);
+    getChunkOperation(chunkSource);
+    chunkSource.selectTrack(chunkSource.getSelectedTrackIndex());
+    assertFalse(evaluator.enabled);
+    getChunkOperation(chunkSource);
+    assertEquals(2, evaluator.enableCount);
+  }
+
+  private ChunkOperationHolder getChunkOperation(int adaptiveMode) {
+    return getChunkOperation(newChunkSource(adaptiveMode));
+  }
+
+  private HlsChunkSource newChunkSource(int adaptiveMode) {
+    HlsMasterPlaylist playlist = new HlsMasterPlaylist(PLAYLIST_URL,
+        Arrays.asList(HIGH_VARIANT, LOW_VARIANT), Collections.<Variant>emptyList(),
+        Collections.<Variant>emptyList(), null, null);
+    HlsChunkSource chunkSource = new HlsChunkSource(true, dataSource, PLAYLIST_URL, playlist,
+        new AdaptiveTrackSelector(), new DefaultBandwidthMeter(),
+        new PtsTimestampAdjusterProvider(), adaptiveMode, evaluator);
+    assertTrue(chunkSource.prepare());
+    return chunkSource;
+  }
+
+  private ChunkOperationHolder getChunkOperation(HlsChunkSource chunkSource) {
+    TsChunk previousChunk = new TsChunk(dataSource, new DataSpec(Uri.parse("http://test/0.ts")),
+        Chunk.TRIGGER_UNSPECIFIED, HIGH_VARIANT.format, CHUNK_START_TIME_US, CHUNK_END_TIME_US, 0,
+        0, null, null, null);
+    ChunkOperationHolder out = new ChunkOperationHolder();
+    chunkSource.getChunkOperation(previousChunk, PLAYBACK_POSITION_US, out);
+    return out;
+  }
+
+  private static Format buildFormat(int bitrate) {
+    return new Format(Integer.toString(bitrate), "video/mp2t", -1, -1, -1, -1, -1, bitrate);
+  }
+
+  /**
+   * An {@link HlsTrackSelector} that exposes all variants as a single adaptive track.
+   */
+  private static final class AdaptiveTrackSelector implements HlsTrackSelector {
+
+    @Override
+    public void selectTracks(HlsMasterPlaylist playlist, Output output) throws IOException {
+      output.adaptiveTrack(playlist, playlist.variants.toArray(new Variant[0]));
+    }
+
+  }
+
+  /**
+   * A {@link FormatEvaluator} that records the buffered duration it's offered, and checks that
+   * it's enabled and disabled in turn.
+   */
+  private static final class RecordingEvaluator implements FormatEvaluator {
+
+    public Format selectedFormat;
+    public Format[] formats;
+    public Format initialFormat;
+    public long bufferedDurationUs;
+    public boolean enabled;
+    public int enableCount;
+
+    @Override
+    public void enable() {
+      assertFalse(enabled);
+      enabled = true;
+      enableCount++;
+    }
+
+    @Override
+    public void disable() {
+      assertTrue(enabled);
+      enabled = false;
+    }
+
+    @Override
+    public void evaluate(List<? extends MediaChunk> queue, long playbackPositionUs,
+        Format[] formats, Evaluation evaluation) {
+      assertTrue(enabled);
+      this.formats = formats;
+      initialFormat = evaluation.format;
+      bufferedDurationUs = queue.get(queue.size() - 1).endTimeUs - playbackPositionUs;
+      if (selectedFormat != null) {
+        evaluation.format = selectedFormat;
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.hls;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.DataSpec;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link HlsDownloadRequests}.
+ */
+public class HlsDownloadRequestsTest extends TestCase {
+
+  private static final String BASE_URI = "http://test/playlist/";
+
+  public void testSegments() {
+    List<HlsMediaPlaylist.Segment> segments = new ArrayList<>();
+    segments.add(newSegment("segment1.ts", null, 0, C.LENGTH_UNBOUNDED));
+    segments.add(newSegment("segment2.ts", null, 0, C.LENGTH_UNBOUNDED));
+    List<DataSpec> dataSpecs = HlsDownloadRequests.build(newPlaylist(false, segments));
+
+    // Segments are requested and cached by URI, as during playback.
+    assertEquals(2, dataSpecs.size());
+    assertDataSpec(BASE_URI + "segment1.ts", 0, C.LENGTH_UNBOUNDED, dataSpecs.get(0));
+    assertDataSpec(BASE_URI + "segment2.ts", 0, C.LENGTH_UNBOUNDED, dataSpecs.get(1));
+  }
+
+  public void testByteRangeSegments() {
+    List<HlsMediaPlaylist.Segment> segments = new ArrayList<>();
+    segments.add(newSegment("media.ts", null, 0, 1000));
+    segments.add(newSegment("media.ts", null, 1000, 500));
+    List<DataSpec> dataSpecs = HlsDownloadRequests.build(newPlaylist(false, segments));
+
+    assertEquals(2, dataSpecs.size());
+    assertDataSpec(BASE_URI + "media.ts", 0, 1000, dataSpecs.get(0));
+    assertDataSpec(BASE_URI + "media.ts", 1000, 500, dataSpecs.get(1));
+  }
+
+  public void testEncryptionKeysRequestedOnce() {
+    List<HlsMediaPlaylist.Segment> segments = new ArrayList<>();
+    segments.add(newSegment("segment1.ts", "key1", 0, C.LENGTH_UNBOUNDED));
+    segments.add(newSegment("segment2.ts", "key1", 0, C.LENGTH_UNBOUNDED));
+    segments.add(newSegment("segment3.ts", "key2", 0, C.LENGTH_UNBOUNDED));
+    List<DataSpec> dataSpecs = HlsDownloadRequests.build(newPlaylist(false, segments));
+
+    assertEquals(5, dataSpecs.size());
+    assertDataSpec(BASE_URI + "key1", 0, C.LENGTH_UNBOUNDED, dataSpecs.get(0));
+    assertDataSpec(BASE_URI + "segment1.ts", 0, C.LENGTH_UNBOUNDED, dataSpecs.get(1));
+    assertDataSpec(BASE_URI + "segment2.ts", 0, C.LENGTH_UNBOUNDED, dataSpecs.get(2));
+    assertDataSpec(BASE_URI + "key2", 0, C.LENGTH_UNBOUNDED, dataSpecs.get(3));
+    assertDataSpec(BASE_URI + "segment3.ts", 0, C.LENGTH_UNBOUNDED, dataSpecs.get(4));
+  }
+
+  public void testLivePlaylistRejected() {
+    List<HlsMediaPlaylist.Segment> segments = new ArrayList<>();
+    segments.add(newSegment("segment1.ts", null, 0, C.LENGTH_UNBOUNDED));
+    try {
+      HlsDownloadRequests.build(newPlaylist(true, segments));
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  private static void assertDataSpec(String uri, long position, long length, DataSpec dataSpec) {
+    assertEquals(uri, dataSpec.uri.toString());
+    assertEquals(position, dataSpec.position);
+    assertEquals(length, dataSpec.length);
+    assertEquals(uri, dataSpec.key);
+  }
+
+  private static HlsMediaPlaylist.Segment newSegment(String uri, String encryptionKeyUri,
+      long byterangeOffset, long byterangeLength) {
+    return new HlsMediaPlaylist.Segment(uri, 10, 0, 0, encryptionKeyUri != null, encryptionKeyUri,
+        null, byterangeOffset, byterangeLength);
+  }
+
+  private static HlsMediaPlaylist newPlaylist(boolean live,
+      List<HlsMediaPlaylist.Segment> segments) {
+    return new HlsMediaPlaylist(BASE_URI + "media.m3u8", 0, 10, 3, live, segments);
+  }
+
+}
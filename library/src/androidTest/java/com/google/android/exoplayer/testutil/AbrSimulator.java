@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.testutil;
+
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.Evaluation;
+import com.google.android.exoplayer.chunk.MediaChunk;
+import com.google.android.exoplayer.upstream.BandwidthEstimator;
+import com.google.android.exoplayer.upstream.BandwidthMeter;
+import com.google.android.exoplayer.upstream.DataSpec;
+
+import android.net.Uri;
+
+import java.util.ArrayList;
+
+/**
+ * Simulates the playback of a chunked stream over a network whose bandwidth follows a trace, so
+ * that {@link FormatEvaluator}s can be compared without a device.
+ * <p>
+ * Chunks are loaded one at a time, in the format selected by the evaluator, whenever fewer than
+ * {@code maxBufferMs} of media are buffered. The time taken to load each chunk is computed from
+ * the trace, and each load is reported to the {@link BandwidthMeter} returned by
+ * {@link #getBandwidthMeter()}, which the evaluator under test should use. Playback starts, and
+ * resumes after rebuffering, once a chunk is buffered. Each instance simulates a single playback.
+ */
+public final class AbrSimulator {
+
+  /**
+   * The result of a simulated playback.
+   */
+  public static final class Result {
+
+    /**
+     * The average bitrate of the loaded chunks, in bits per second.
+     */
+    public final long averageBitrate;
+    /**
+     * The number of times that the format changed between consecutive chunks.
+     */
+    public final int switchCount;
+    /**
+     * The time from the start of the simulation until playback started, in milliseconds.
+     */
+    public final long startupTimeMs;
+    /**
+     * The total time spent rebuffering after playback started, in milliseconds.
+     */
+    public final long rebufferTimeMs;
+
+    public Result(long averageBitrate, int switchCount, long startupTimeMs, long rebufferTimeMs) {
+      this.averageBitrate = averageBitrate;
+      this.switchCount = switchCount;
+      this.startupTimeMs = startupTimeMs;
+      this.rebufferTimeMs = rebufferTimeMs;
+    }
+
+    @Override
+    public String toString() {
+      return "averageBitrate=" + averageBitrate + ", switchCount=" + switchCount
+          + ", startupTimeMs=" + startupTimeMs + ", rebufferTimeMs=" + rebufferTimeMs;
+    }
+
+  }
+
+  private final long[] bandwidthTrace;
+  private final Format[] formats;
+  private final long chunkDurationUs;
+  private final int chunkCount;
+  private final long maxBufferUs;
+  private final SimulatedBandwidthMeter bandwidthMeter;
+
+  private long timeUs;
+  private long playbackPositionUs;
+  private long bufferedPositionUs;
+  private boolean playing;
+  private long startupTimeUs;
+  private long rebufferTimeUs;
+
+  /**
+   * @param bandwidthTrace The available bandwidth in each second of the simulation, in bits per
+   *     second. The trace is repeated if the simulation outlasts it.
+   * @param formats The formats from which the evaluator selects, ordered by decreasing bitrate.
+   * @param chunkDurationMs The duration of each chunk.
+   * @param chunkCount The number of chunks in the stream.
+   * @param maxBufferMs The maximum duration of media to buffer.
+   * @param bandwidthEstimator The estimator that computes the bandwidth meter's estimates.
+   */
+  public AbrSimulator(long[] bandwidthTrace, Format[] formats, int chunkDurationMs,
+      int chunkCount, int maxBufferMs, BandwidthEstimator bandwidthEstimator) {
+    this.bandwidthTrace = bandwidthTrace;
+    this.formats = formats;
+    this.chunkDurationUs = chunkDurationMs * 1000L;
+    this.chunkCount = chunkCount;
+    this.maxBufferUs = maxBufferMs * 1000L;
+    this.bandwidthMeter = new SimulatedBandwidthMeter(bandwidthEstimator);
+  }
+
+  /**
+   * Returns the {@link BandwidthMeter} that should be used by the evaluator under test.
+   */
+  public BandwidthMeter getBandwidthMeter() {
+    return bandwidthMeter;
+  }
+
+  /**
+   * Simulates playback of the whole stream.
+   *
+   * @param evaluator The evaluator under test.
+   * @return The result.
+   */
+  public Result run(FormatEvaluator evaluator) {
+    ArrayList<MediaChunk> queue = new ArrayList<>();
+    Evaluation evaluation = new Evaluation();
+    FakeDataSource dataSource = new FakeDataSource.Builder().build();
+    Uri uri = Uri.parse("simulated://chunk");
+    long totalBitrate = 0;
+    int switchCount = 0;
+    Format previousFormat = null;
+    evaluator.enable();
+    for (int i = 0; i < chunkCount; i++) {
+      if (bufferedPositionUs - playbackPositionUs > maxBufferUs - chunkDurationUs) {
+        // Wait until there is space in the buffer for the next chunk.
+        advance(bufferedPositionUs - playbackPositionUs - (maxBufferUs - chunkDurationUs));
+      }
+      while (!queue.isEmpty() && queue.get(0).endTimeUs <= playbackPositionUs) {
+        queue.remove(0);
+      }
+      evaluation.queueSize = queue.size();
+      evaluator.evaluate(queue, playbackPositionUs, formats, evaluation);
+      Format format = evaluation.format;
+      if (previousFormat != null && previousFormat != format) {
+        switchCount++;
+      }
+      previousFormat = format;
+      totalBitrate += format.bitrate;
+
+      long bytes = format.bitrate * chunkDurationUs / 8000000;
+      long loadDurationUs = getLoadDurationUs(bytes);
+      advance(loadDurationUs);
+      bandwidthMeter.onLoadCompleted(bytes, loadDurationUs);
+
+      long chunkStartTimeUs = i * chunkDurationUs;
+      queue.add(new SimulatedChunk(dataSource, new DataSpec(uri), evaluation.trigger, format,
+          chunkStartTimeUs, chunkStartTimeUs + chunkDurationUs, i));
+      bufferedPositionUs = chunkStartTimeUs + chunkDurationUs;
+      if (!playing) {
+        if (startupTimeUs == 0) {
+          startupTimeUs = timeUs;
+        }
+        playing = true;
+      }
+    }
+    evaluator.disable();
+    return new Result(totalBitrate / chunkCount, switchCount, startupTimeUs / 1000,
+        rebufferTimeUs / 1000);
+  }
+
+  /**
+   * Advances the simulation by the specified duration, playing out buffered media.
+   */
+  private void advance(long durationUs) {
+    if (playing) {
+      long playableUs = bufferedPositionUs - playbackPositionUs;
+      if (durationUs <= playableUs) {
+        playbackPositionUs += durationUs;
+      } else {
+        playbackPositionUs = bufferedPositionUs;
+        rebufferTimeUs += durationUs - playableUs;
+        playing = false;
+      }
+    } else if (startupTimeUs != 0) {
+      rebufferTimeUs += durationUs;
+    }
+    timeUs += durationUs;
+  }
+
+  /**
+   * Returns the time required to load the specified number of bytes starting at the current time,
+   * according to the bandwidth trace.
+   */
+  private long getLoadDurationUs(long bytes) {
+    double bitsRemaining = bytes * 8d;
+    long loadTimeUs = timeUs;
+    while (true) {
+      int second = (int) ((loadTimeUs / 1000000) % bandwidthTrace.length);
+      long secondEndTimeUs = (loadTimeUs / 1000000 + 1) * 1000000;
+      double bitsInSecond = bandwidthTrace[second] * (secondEndTimeUs - loadTimeUs) / 1000000d;
+      if (bitsInSecond >= bitsRemaining) {
+        loadTimeUs += (long) (bitsRemaining * 1000000 / bandwidthTrace[second]);
+        return Math.max(1000, loadTimeUs - timeUs);
+      }
+      bitsRemaining -= bitsInSecond;
+      loadTimeUs = secondEndTimeUs;
+    }
+  }
+
+  private static final class SimulatedBandwidthMeter implements BandwidthMeter {
+
+    private final BandwidthEstimator bandwidthEstimator;
+
+    public SimulatedBandwidthMeter(BandwidthEstimator bandwidthEstimator) {
+      this.bandwidthEstimator = bandwidthEstimator;
+    }
+
+    public void onLoadCompleted(long bytes, long loadDurationUs) {
+      bandwidthEstimator.addSample(bytes, Math.max(1, loadDurationUs / 1000));
+    }
+
+    @Override
+    public long getBitrateEstimate() {
+      return bandwidthEstimator.getBitrateEstimate();
+    }
+
+    @Override
+    public void onTransferStart() {
+      // Do nothing.
+    }
+
+    @Override
+    public void onBytesTransferred(int bytes) {
+      // Do nothing.
+    }
+
+    @Override
+    public void onTransferEnd() {
+      // Do nothing.
+    }
+
+  }
+
+  private static final class SimulatedChunk extends MediaChunk {
+
+    public SimulatedChunk(FakeDataSource dataSource, DataSpec dataSpec, int trigger,
+        Format format, long startTimeUs, long endTimeUs, int chunkIndex) {
+      super(dataSource, dataSpec, trigger, format, startTimeUs, endTimeUs, chunkIndex);
+    }
+
+    @Override
+    public long bytesLoaded() {
+      return 0;
+    }
+
+    @Override
+    public void cancelLoad() {
+      // Do nothing.
+    }
+
+    @Override
+    public boolean isLoadCanceled() {
+      return false;
+    }
+
+    @Override
+    public void load() {
+      // Do nothing.
+    }
+
+  }
+
+}
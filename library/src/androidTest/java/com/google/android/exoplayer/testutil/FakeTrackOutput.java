@@ -81,6 +81,10 @@ public final class FakeTrackOutput implements TrackOutput {
     sampleEncryptionKeys.add(encryptionKey);
   }
 
+  public int getSampleCount() {
+    return sampleTimesUs.size();
+  }
+
   public void assertSampleCount(int count) {
     Assert.assertEquals(count, sampleTimesUs.size());
   }
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Trace driven tests for {@link BandwidthEstimator} implementations.
+ */
+public class BandwidthEstimatorTest extends TestCase {
+
+  // The bandwidth in each phase of the trace, in bits/sec.
+  private static final long[] TRACE_BANDWIDTHS = new long[] {4000000, 1000000, 6000000, 2000000};
+  private static final int TRANSFERS_PER_PHASE = 60;
+
+  public void testNoEstimateBeforeFirstSample() {
+    assertEquals(BandwidthMeter.NO_ESTIMATE,
+        new PercentileBandwidthEstimator().getBitrateEstimate());
+    assertEquals(BandwidthMeter.NO_ESTIMATE, new EwmaBandwidthEstimator().getBitrateEstimate());
+    assertEquals(BandwidthMeter.NO_ESTIMATE, new DualEwmaBandwidthEstimator().getBitrateEstimate());
+  }
+
+  public void testEwmaFirstSample() {
+    // The first estimate isn't biased towards zero.
+    EwmaBandwidthEstimator estimator = new EwmaBandwidthEstimator();
+    estimator.addSample(100000, 1000);
+    assertEquals(800000, estimator.getBitrateEstimate());
+  }
+
+  public void testTraceErrors() {
+    TraceResult percentile = runTrace(new PercentileBandwidthEstimator());
+    TraceResult ewma = runTrace(new EwmaBandwidthEstimator());
+    TraceResult dualEwma = runTrace(new DualEwmaBandwidthEstimator());
+
+    // All of the estimators track the bandwidth.
+    assertTrue(percentile.meanError < 0.25);
+    assertTrue(ewma.meanError < 0.25);
+    assertTrue(dualEwma.meanError < 0.25);
+    // Averaging smooths out the noise in the samples better than taking the median of the few
+    // samples that fit in the percentile window.
+    assertTrue(ewma.meanError < percentile.meanError);
+    assertTrue(dualEwma.meanError < percentile.meanError);
+    // Taking the lower of the two averages overestimates the bandwidth the least.
+    assertTrue(dualEwma.meanOverestimate < ewma.meanOverestimate);
+    assertTrue(dualEwma.meanOverestimate < percentile.meanOverestimate);
+  }
+
+  /**
+   * Feeds an estimator with transfers of random sizes at a noisy bandwidth that changes in steps,
+   * and measures the relative error of the estimate that is available before each transfer.
+   */
+  private static TraceResult runTrace(BandwidthEstimator estimator) {
+    Random random = new Random(0);
+    double totalError = 0;
+    double totalOverestimate = 0;
+    int estimateCount = 0;
+    for (long bandwidth : TRACE_BANDWIDTHS) {
+      for (int i = 0; i < TRANSFERS_PER_PHASE; i++) {
+        long bytes = 200000 + random.nextInt(600000);
+        double throughput = bandwidth * (0.6 + 0.8 * random.nextDouble());
+        long elapsedMs = Math.max(1, (long) (bytes * 8000 / throughput));
+        long estimate = estimator.getBitrateEstimate();
+        if (estimate != BandwidthMeter.NO_ESTIMATE) {
+          double error = (double) (estimate - bandwidth) / bandwidth;
+          totalError += Math.abs(error);
+          totalOverestimate += Math.max(0, error);
+          estimateCount++;
+        }
+        estimator.addSample(bytes, elapsedMs);
+      }
+    }
+    return new TraceResult(totalError / estimateCount, totalOverestimate / estimateCount);
+  }
+
+  private static final class TraceResult {
+
+    public final double meanError;
+    public final double meanOverestimate;
+
+    public TraceResult(double meanError, double meanOverestimate) {
+      this.meanError = meanError;
+      this.meanOverestimate = meanOverestimate;
+    }
+
+  }
+
+}
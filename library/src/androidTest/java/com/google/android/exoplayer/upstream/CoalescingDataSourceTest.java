@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.TestUtil;
+
+import android.net.Uri;
+import android.test.MoreAsserts;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Unit tests for {@link CoalescingDataSource}.
+ */
+public class CoalescingDataSourceTest extends TestCase {
+
+  private static final Uri URI = Uri.parse("http://test/media");
+  private static final byte[] TEST_DATA = TestUtil.buildTestData(100000);
+  private static final int MIN_REQUEST_LENGTH = 1000;
+  private static final int MAX_REQUEST_LENGTH = 10000;
+
+  private CountingDataSource upstream;
+  private CoalescingDataSource dataSource;
+
+  @Override
+  public void setUp() {
+    upstream = new CountingDataSource();
+    dataSource = new CoalescingDataSource(upstream, MIN_REQUEST_LENGTH, MAX_REQUEST_LENGTH, 2);
+  }
+
+  public void testNearbySmallReadsCoalesced() throws IOException {
+    assertReadData(0, 100);
+    assertReadData(100, 200);
+    assertReadData(500, 400);
+    assertEquals(1, upstream.requestCount);
+    assertEquals(1, dataSource.getUpstreamRequestCount());
+  }
+
+  public void testDistantSmallReadsNotCoalesced() throws IOException {
+    assertReadData(0, 100);
+    assertReadData(5000, 100);
+    assertEquals(2, upstream.requestCount);
+  }
+
+  public void testHintedRangeCoalesced() throws IOException {
+    dataSource.addHint(new DataSpec(URI, 900, 500, null));
+    dataSource.addHint(new DataSpec(URI, 1300, 2000, null));
+    assertReadData(0, 100);
+    assertReadData(900, 500);
+    assertReadData(1300, 2000);
+    assertEquals(1, upstream.requestCount);
+  }
+
+  public void testHintedRangeBeyondMaxRequestLengthNotCoalesced() throws IOException {
+    dataSource.addHint(new DataSpec(URI, 900, MAX_REQUEST_LENGTH, null));
+    assertReadData(0, 100);
+    assertEquals(MIN_REQUEST_LENGTH, upstream.lastRequestLength);
+  }
+
+  public void testHintBehindReadPositionDiscarded() throws IOException {
+    dataSource.addHint(new DataSpec(URI, 1000, 3000, null));
+    assertReadData(5000, 100);
+    assertReadData(900, 100);
+    assertEquals(MIN_REQUEST_LENGTH, upstream.lastRequestLength);
+  }
+
+  public void testOldestHintDiscarded() throws IOException {
+    dataSource.addHint(new DataSpec(URI, 1000, 3000, null));
+    Uri otherUri = Uri.parse("http://test/other");
+    for (int i = 0; i < 16; i++) {
+      dataSource.addHint(new DataSpec(otherUri, i * 100, 100, null));
+    }
+    assertReadData(900, 100);
+    assertEquals(MIN_REQUEST_LENGTH, upstream.lastRequestLength);
+  }
+
+  public void testLargeAndUnboundedReadsPassedThrough() throws IOException {
+    assertReadData(0, MIN_REQUEST_LENGTH);
+    assertReadData(0, MIN_REQUEST_LENGTH);
+    assertEquals(2, upstream.requestCount);
+    assertEquals(MIN_REQUEST_LENGTH, upstream.lastRequestLength);
+    assertReadData(TEST_DATA.length - 100, C.LENGTH_UNBOUNDED);
+    assertEquals(3, upstream.requestCount);
+  }
+
+  public void testSmallReadAtEndOfResource() throws IOException {
+    // The extended request extends beyond the end of the resource.
+    assertReadData(TEST_DATA.length - 100, 100);
+    assertReadData(TEST_DATA.length - 50, 50);
+    assertEquals(1, upstream.requestCount);
+  }
+
+  public void testOldestRangeDiscarded() throws IOException {
+    assertReadData(0, 100);
+    assertReadData(10000, 100);
+    assertReadData(20000, 100);
+    assertReadData(10000, 100);
+    assertEquals(3, upstream.requestCount);
+    assertReadData(0, 100);
+    assertEquals(4, upstream.requestCount);
+  }
+
+  private void assertReadData(int position, int length) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[64];
+    try {
+      dataSource.open(new DataSpec(URI, position, length, null));
+      int bytesRead;
+      while ((bytesRead = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+        output.write(buffer, 0, bytesRead);
+      }
+    } finally {
+      dataSource.close();
+    }
+    int endPosition = length == C.LENGTH_UNBOUNDED ? TEST_DATA.length : position + length;
+    MoreAsserts.assertEquals(Arrays.copyOfRange(TEST_DATA, position, endPosition),
+        output.toByteArray());
+  }
+
+  /**
+   * A {@link UriDataSource} that counts requests and, like an HTTP source, fails if the end of the
+   * resource is reached before the requested length has been read.
+   */
+  private static final class CountingDataSource implements UriDataSource {
+
+    public int requestCount;
+    public long lastRequestLength;
+
+    private int position;
+    private int endPosition;
+    private boolean endOfResourceIsError;
+
+    @Override
+    public long open(DataSpec dataSpec) {
+      requestCount++;
+      lastRequestLength = dataSpec.length;
+      position = (int) dataSpec.position;
+      if (dataSpec.length == C.LENGTH_UNBOUNDED) {
+        endPosition = TEST_DATA.length;
+        endOfResourceIsError = false;
+      } else {
+        endPosition = (int) Math.min(TEST_DATA.length, dataSpec.position + dataSpec.length);
+        endOfResourceIsError = dataSpec.position + dataSpec.length > TEST_DATA.length;
+      }
+      return dataSpec.length;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws IOException {
+      if (position == endPosition) {
+        if (endOfResourceIsError) {
+          throw new EOFException();
+        }
+        return C.RESULT_END_OF_INPUT;
+      }
+      int bytesToRead = Math.min(readLength, endPosition - position);
+      System.arraycopy(TEST_DATA, position, buffer, offset, bytesToRead);
+      position += bytesToRead;
+      return bytesToRead;
+    }
+
+    @Override
+    public String getUri() {
+      return URI.toString();
+    }
+
+    @Override
+    public void close() {
+      // Do nothing.
+    }
+
+  }
+
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.TestUtil;
+
+import android.net.Uri;
+import android.test.InstrumentationTestCase;
+import android.test.MoreAsserts;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link DefaultHttpDataSource}.
+ */
+public class DefaultHttpDataSourceTest extends InstrumentationTestCase {
+
+  private static final String USER_AGENT = "DefaultHttpDataSourceTest";
+  private static final byte[] TEST_DATA = TestUtil.buildTestData(10000);
+
+  private TestServer server;
+
+  @Override
+  public void setUp() throws IOException {
+    server = new TestServer();
+  }
+
+  @Override
+  public void tearDown() throws IOException {
+    server.release();
+  }
+
+  public void testRead() throws IOException {
+    DefaultHttpDataSource dataSource = new DefaultHttpDataSource(USER_AGENT, null);
+    MoreAsserts.assertEquals(TEST_DATA, readData(dataSource, "/data"));
+  }
+
+  public void testSequentialRequestsReuseConnection() throws IOException {
+    DefaultHttpDataSource dataSource = new DefaultHttpDataSource(USER_AGENT, null);
+    for (int i = 0; i < 3; i++) {
+      MoreAsserts.assertEquals(TEST_DATA, readData(dataSource, "/data"));
+    }
+    assertEquals(3, server.requestCount.get());
+    assertEquals(1, server.connectionCount.get());
+  }
+
+  public void testManualRedirectReusesConnection() throws IOException {
+    DefaultHttpDataSource dataSource = new DefaultHttpDataSource(USER_AGENT, null, null,
+        DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+        DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS, true);
+    MoreAsserts.assertEquals(TEST_DATA, readData(dataSource, "/redirect"));
+    assertEquals(2, server.requestCount.get());
+    assertEquals(1, server.connectionCount.get());
+  }
+
+  public void testRequestTimingListener() throws IOException {
+    RecordingTimingListener listener = new RecordingTimingListener();
+    DefaultHttpDataSource dataSource = new DefaultHttpDataSource(USER_AGENT, null);
+    dataSource.setRequestTimingListener(listener);
+    readData(dataSource, "/data");
+    assertEquals(1, listener.callbackCount);
+    assertEquals(TEST_DATA.length, listener.bytesTransferred);
+  }
+
+  public void testRequestTimingListenerForwardedByDefaultUriDataSource() throws IOException {
+    RecordingTimingListener listener = new RecordingTimingListener();
+    DefaultUriDataSource dataSource = new DefaultUriDataSource(
+        getInstrumentation().getContext(), USER_AGENT);
+    dataSource.setRequestTimingListener(listener);
+    readData(dataSource, "/data");
+    assertEquals(1, listener.callbackCount);
+    assertEquals(TEST_DATA.length, listener.bytesTransferred);
+  }
+
+  private byte[] readData(DataSource dataSource, String path) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    try {
+      dataSource.open(new DataSpec(Uri.parse("http://127.0.0.1:" + server.getPort() + path)));
+      int bytesRead;
+      while ((bytesRead = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+        output.write(buffer, 0, bytesRead);
+      }
+    } finally {
+      dataSource.close();
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * A {@link HttpDataSource.RequestTimingListener} that records the requests it's notified of.
+   */
+  private static final class RecordingTimingListener
+      implements HttpDataSource.RequestTimingListener {
+
+    public int callbackCount;
+    public long bytesTransferred;
+
+    @Override
+    public void onRequestCompleted(DataSpec dataSpec, long connectMs, long firstByteMs,
+        long transferMs, long bytesTransferred) {
+      assertTrue(connectMs >= 0 && firstByteMs >= 0 && transferMs >= 0);
+      callbackCount++;
+      this.bytesTransferred = bytesTransferred;
+    }
+
+  }
+
+  /**
+   * A minimal HTTP/1.1 server that supports persistent connections.
+   */
+  private static final class TestServer implements Runnable {
+
+    public final AtomicInteger connectionCount;
+    public final AtomicInteger requestCount;
+
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+
+    public TestServer() throws IOException {
+      connectionCount = new AtomicInteger();
+      requestCount = new AtomicInteger();
+      serverSocket = new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+      thread = new Thread(this);
+      thread.start();
+    }
+
+    public int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    public void release() throws IOException {
+      serverSocket.close();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final Socket socket = serverSocket.accept();
+          connectionCount.incrementAndGet();
+          new Thread() {
+            @Override
+            public void run() {
+              serve(socket);
+            }
+          }.start();
+        }
+      } catch (IOException e) {
+        // The server was released.
+      }
+    }
+
+    private void serve(Socket socket) {
+      try {
+        InputStream inputStream = socket.getInputStream();
+        OutputStream outputStream = socket.getOutputStream();
+        String requestLine;
+        while ((requestLine = readHeaders(inputStream)) != null) {
+          requestCount.incrementAndGet();
+          String path = requestLine.split(" ")[1];
+          if (path.equals("/redirect")) {
+            byte[] body = "Moved".getBytes();
+            outputStream.write(("HTTP/1.1 302 Found\r\nLocation: /data\r\nContent-Length: "
+                + body.length + "\r\n\r\n").getBytes());
+            outputStream.write(body);
+          } else {
+            outputStream.write(("HTTP/1.1 200 OK\r\nContent-Type: application/octet-stream\r\n"
+                + "Content-Length: " + TEST_DATA.length + "\r\n\r\n").getBytes());
+            outputStream.write(TEST_DATA);
+          }
+          outputStream.flush();
+        }
+        socket.close();
+      } catch (IOException e) {
+        // The client closed the connection.
+      }
+    }
+
+    /**
+     * Reads the headers of a request, returning the request line or null if the connection was
+     * closed.
+     */
+    private static String readHeaders(InputStream inputStream) throws IOException {
+      String requestLine = null;
+      StringBuilder line = new StringBuilder();
+      int b;
+      while ((b = inputStream.read()) != -1) {
+        if (b == '\n') {
+          if (line.length() == 0) {
+            return requestLine;
+          }
+          if (requestLine == null) {
+            requestLine = line.toString();
+          }
+          line.setLength(0);
+        } else if (b != '\r') {
+          line.append((char) b);
+        }
+      }
+      return null;
+    }
+
+  }
+
+}
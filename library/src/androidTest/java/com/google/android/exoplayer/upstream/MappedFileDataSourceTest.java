@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.TestUtil;
+import com.google.android.exoplayer.upstream.FileDataSource.FileDataSourceException;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Unit tests for {@link MappedFileDataSource}.
+ */
+public class MappedFileDataSourceTest extends TestCase {
+
+  private static final byte[] TEST_DATA = TestUtil.buildTestData(10000);
+
+  private File file;
+  private Uri uri;
+
+  @Override
+  public void setUp() throws IOException {
+    file = File.createTempFile("MappedFileDataSourceTest", null);
+    FileOutputStream outputStream = new FileOutputStream(file);
+    outputStream.write(TEST_DATA);
+    outputStream.close();
+    uri = Uri.fromFile(file);
+  }
+
+  @Override
+  public void tearDown() {
+    file.delete();
+  }
+
+  public void testReadUnbounded() throws IOException {
+    MappedFileDataSource dataSource = new MappedFileDataSource();
+    assertEquals(TEST_DATA.length, dataSource.open(new DataSpec(uri)));
+    assertTrue(Arrays.equals(TEST_DATA, readToEnd(dataSource, 100)));
+    dataSource.close();
+  }
+
+  public void testReadBoundedAcrossMappings() throws IOException {
+    // Use a mapping size that isn't a multiple of the read length.
+    MappedFileDataSource dataSource = new MappedFileDataSource(null, 1000);
+    assertEquals(5000, dataSource.open(new DataSpec(uri, 1234, 5000, null)));
+    assertTrue(Arrays.equals(Arrays.copyOfRange(TEST_DATA, 1234, 6234),
+        readToEnd(dataSource, 300)));
+    dataSource.close();
+  }
+
+  public void testReadBuffer() throws IOException {
+    MappedFileDataSource dataSource = new MappedFileDataSource(null, 4096);
+    dataSource.open(new DataSpec(uri, 10, C.LENGTH_UNBOUNDED, null));
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    ByteBuffer buffer;
+    while ((buffer = dataSource.readBuffer(3000)) != null) {
+      assertTrue(buffer.remaining() <= 3000);
+      byte[] data = new byte[buffer.remaining()];
+      buffer.get(data);
+      output.write(data);
+    }
+    dataSource.close();
+    assertTrue(Arrays.equals(Arrays.copyOfRange(TEST_DATA, 10, TEST_DATA.length),
+        output.toByteArray()));
+  }
+
+  public void testReadBeyondEndFails() throws IOException {
+    MappedFileDataSource dataSource = new MappedFileDataSource();
+    try {
+      dataSource.open(new DataSpec(uri, 5000, TEST_DATA.length, null));
+      fail();
+    } catch (FileDataSourceException e) {
+      // Expected.
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  private static byte[] readToEnd(DataSource dataSource, int readLength) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[readLength];
+    int bytesRead;
+    while ((bytesRead = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+      output.write(buffer, 0, bytesRead);
+    }
+    return output.toByteArray();
+  }
+
+}
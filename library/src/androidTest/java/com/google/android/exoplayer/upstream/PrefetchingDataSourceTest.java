@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.TestUtil;
+
+import android.net.Uri;
+import android.test.MoreAsserts;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link PrefetchingDataSource}.
+ */
+public class PrefetchingDataSourceTest extends TestCase {
+
+  private static final int SEGMENT_LENGTH = 1000;
+  private static final int SEGMENT_COUNT = 4;
+  private static final int LATENCY_MS = 200;
+
+  private DelayedDataSource upstream;
+  private DelayedDataSource[] prefetchDataSources;
+
+  @Override
+  public void setUp() {
+    upstream = new DelayedDataSource(LATENCY_MS, false);
+    prefetchDataSources = new DelayedDataSource[SEGMENT_COUNT - 1];
+    for (int i = 0; i < prefetchDataSources.length; i++) {
+      prefetchDataSources[i] = new DelayedDataSource(LATENCY_MS, false);
+    }
+  }
+
+  public void testReadWithoutPrefetch() throws IOException {
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, prefetchDataSources);
+    MoreAsserts.assertEquals(getSegmentData(0), readSegment(dataSource, 0));
+    assertEquals(1, upstream.openCount.get());
+    dataSource.release();
+  }
+
+  public void testReadWithPrefetch() throws IOException {
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, prefetchDataSources);
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(1)));
+    MoreAsserts.assertEquals(getSegmentData(1), readSegment(dataSource, 1));
+    assertEquals(0, upstream.openCount.get());
+    assertEquals(1, prefetchDataSources[0].openCount.get());
+    dataSource.release();
+  }
+
+  public void testReadWithPrefetchSmallBuffer() throws IOException {
+    // A buffer smaller than the segment requires the prefetch to wait for the data to be read.
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, prefetchDataSources,
+        7);
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(2)));
+    MoreAsserts.assertEquals(getSegmentData(2), readSegment(dataSource, 2));
+    assertEquals(0, upstream.openCount.get());
+    dataSource.release();
+  }
+
+  public void testPrefetchLimitedByPrefetchDataSourceCount() {
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, prefetchDataSources);
+    for (int i = 0; i < prefetchDataSources.length; i++) {
+      assertTrue(dataSource.prefetch(getSegmentDataSpec(i)));
+    }
+    // Prefetching the same data again is a no-op.
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(0)));
+    assertFalse(dataSource.prefetch(getSegmentDataSpec(prefetchDataSources.length)));
+    dataSource.release();
+  }
+
+  public void testFinishedPrefetchIsReclaimed() throws IOException, InterruptedException {
+    DelayedDataSource[] twoDataSources = new DelayedDataSource[] {
+        new DelayedDataSource(0, false), new DelayedDataSource(0, false)};
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, twoDataSources);
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(0)));
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(1)));
+    // Once both prefetches have loaded, the oldest is reclaimed to make room for a new one.
+    assertTrue(prefetchWithTimeout(dataSource, getSegmentDataSpec(2)));
+    MoreAsserts.assertEquals(getSegmentData(1), readSegment(dataSource, 1));
+    assertEquals(0, upstream.openCount.get());
+    MoreAsserts.assertEquals(getSegmentData(0), readSegment(dataSource, 0));
+    assertEquals(1, upstream.openCount.get());
+    dataSource.release();
+  }
+
+  public void testPrefetchAfterRelease() throws IOException {
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, prefetchDataSources);
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(1)));
+    dataSource.release();
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(2)));
+    MoreAsserts.assertEquals(getSegmentData(2), readSegment(dataSource, 2));
+    assertEquals(0, upstream.openCount.get());
+    dataSource.release();
+  }
+
+  public void testCancelPrefetches() throws IOException {
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, prefetchDataSources);
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(1)));
+    dataSource.cancelPrefetches();
+    MoreAsserts.assertEquals(getSegmentData(1), readSegment(dataSource, 1));
+    assertEquals(1, upstream.openCount.get());
+    dataSource.release();
+  }
+
+  public void testFailedPrefetchFallsBackToUpstream() throws IOException {
+    DelayedDataSource[] failingDataSources = new DelayedDataSource[] {
+        new DelayedDataSource(0, true)};
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, failingDataSources);
+    assertTrue(dataSource.prefetch(getSegmentDataSpec(1)));
+    MoreAsserts.assertEquals(getSegmentData(1), readSegment(dataSource, 1));
+    assertEquals(1, upstream.openCount.get());
+    dataSource.release();
+  }
+
+  public void testPrefetchReducesLoadTime() throws IOException {
+    PrefetchingDataSource dataSource = new PrefetchingDataSource(upstream, prefetchDataSources);
+    long sequentialStartMs = System.currentTimeMillis();
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      readSegment(dataSource, i);
+    }
+    long sequentialDurationMs = System.currentTimeMillis() - sequentialStartMs;
+
+    long prefetchStartMs = System.currentTimeMillis();
+    for (int i = 0; i < SEGMENT_COUNT; i++) {
+      for (int j = i + 1; j < SEGMENT_COUNT; j++) {
+        dataSource.prefetch(getSegmentDataSpec(j));
+      }
+      MoreAsserts.assertEquals(getSegmentData(i), readSegment(dataSource, i));
+    }
+    long prefetchDurationMs = System.currentTimeMillis() - prefetchStartMs;
+    dataSource.release();
+
+    // Sequential loads pay the latency once per segment, whereas prefetched loads pay it
+    // approximately twice in total.
+    assertTrue(sequentialDurationMs >= SEGMENT_COUNT * LATENCY_MS);
+    assertTrue("Prefetched: " + prefetchDurationMs + "ms, sequential: " + sequentialDurationMs
+        + "ms", prefetchDurationMs < (SEGMENT_COUNT - 1) * LATENCY_MS);
+  }
+
+  private static boolean prefetchWithTimeout(PrefetchingDataSource dataSource,
+      DataSpec dataSpec) throws InterruptedException {
+    // Prefetching fails until a prefetch finishes, which there's no callback for.
+    for (int i = 0; i < 100; i++) {
+      if (dataSource.prefetch(dataSpec)) {
+        return true;
+      }
+      Thread.sleep(10);
+    }
+    return false;
+  }
+
+  private static DataSpec getSegmentDataSpec(int segmentIndex) {
+    return new DataSpec(Uri.parse("http://test/segment" + segmentIndex), 0, C.LENGTH_UNBOUNDED,
+        null);
+  }
+
+  private static byte[] getSegmentData(int segmentIndex) {
+    return TestUtil.buildTestData(SEGMENT_LENGTH, segmentIndex);
+  }
+
+  private static byte[] readSegment(DataSource dataSource, int segmentIndex) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[100];
+    try {
+      dataSource.open(getSegmentDataSpec(segmentIndex));
+      int bytesRead;
+      while ((bytesRead = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+        output.write(buffer, 0, bytesRead);
+      }
+    } finally {
+      dataSource.close();
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * A {@link DataSource} that simulates a server with a fixed time to first byte.
+   */
+  private static final class DelayedDataSource implements DataSource {
+
+    public final AtomicInteger openCount;
+
+    private final int latencyMs;
+    private final boolean fail;
+
+    private byte[] data;
+    private int position;
+
+    public DelayedDataSource(int latencyMs, boolean fail) {
+      this.latencyMs = latencyMs;
+      this.fail = fail;
+      openCount = new AtomicInteger();
+    }
+
+    @Override
+    public long open(DataSpec dataSpec) throws IOException {
+      openCount.incrementAndGet();
+      try {
+        Thread.sleep(latencyMs);
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      }
+      if (fail) {
+        throw new IOException("Simulated failure");
+      }
+      String path = dataSpec.uri.toString();
+      data = getSegmentData(Integer.parseInt(path.substring(path.lastIndexOf("segment") + 7)));
+      position = 0;
+      return data.length;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) {
+      if (position == data.length) {
+        return C.RESULT_END_OF_INPUT;
+      }
+      int bytesToRead = Math.min(readLength, data.length - position);
+      System.arraycopy(data, position, buffer, offset, bytesToRead);
+      position += bytesToRead;
+      return bytesToRead;
+    }
+
+    @Override
+    public void close() {
+      data = null;
+    }
+
+  }
+
+}
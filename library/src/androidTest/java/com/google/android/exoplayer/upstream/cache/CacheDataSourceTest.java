@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.FakeDataSource;
+import com.google.android.exoplayer.testutil.TestUtil;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Unit tests for {@link CacheDataSource}.
+ */
+public class CacheDataSourceTest extends TestCase {
+
+  private static final String KEY = "key";
+  private static final Uri URI = Uri.parse("http://test/stream");
+
+  private File cacheDir;
+  private SimpleCache cache;
+  private byte[] data;
+
+  @Override
+  public void setUp() throws IOException {
+    cacheDir = File.createTempFile("CacheDataSourceTest", null);
+    assertTrue(cacheDir.delete());
+    assertTrue(cacheDir.mkdir());
+    cache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    data = TestUtil.buildTestData(100);
+  }
+
+  @Override
+  public void tearDown() {
+    File[] files = cacheDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    cacheDir.delete();
+  }
+
+  public void testUnboundedRequestWithUnknownLengthCached() throws IOException {
+    DataSource upstream = new FakeDataSource.Builder()
+        .setSimulateUnknownLength(true)
+        .appendReadData(Arrays.copyOf(data, 40))
+        .appendReadData(Arrays.copyOfRange(data, 40, 100))
+        .build();
+    CacheDataSource dataSource = new CacheDataSource(cache, upstream, false, false);
+    assertEquals(C.LENGTH_UNBOUNDED, dataSource.open(new DataSpec(URI, 0, C.LENGTH_UNBOUNDED,
+        KEY)));
+    assertTrue(Arrays.equals(data, readToEnd(dataSource)));
+    dataSource.close();
+
+    // The data is cached, but no length is recorded since the upstream source didn't report one.
+    assertTrue(cache.isCached(KEY, 0, 100));
+    assertEquals(C.LENGTH_UNBOUNDED, cache.getContentLength(KEY));
+  }
+
+  public void testUnboundedRequestWithUnknownLengthReadsGrowingContent() throws IOException {
+    DataSource upstream = new FakeDataSource.Builder()
+        .setSimulateUnknownLength(true)
+        .appendReadData(Arrays.copyOf(data, 60))
+        .build();
+    CacheDataSource dataSource = new CacheDataSource(cache, upstream, false, false);
+    dataSource.open(new DataSpec(URI, 0, C.LENGTH_UNBOUNDED, KEY));
+    readToEnd(dataSource);
+    dataSource.close();
+
+    // The content grows. The cached data is read, followed by the new data from upstream.
+    upstream = new FakeDataSource.Builder()
+        .setSimulateUnknownLength(true)
+        .appendReadData(data)
+        .build();
+    dataSource = new CacheDataSource(cache, upstream, false, false);
+    assertEquals(C.LENGTH_UNBOUNDED, dataSource.open(new DataSpec(URI, 0, C.LENGTH_UNBOUNDED,
+        KEY)));
+    assertTrue(Arrays.equals(data, readToEnd(dataSource)));
+    dataSource.close();
+    assertTrue(cache.isCached(KEY, 0, 100));
+  }
+
+  public void testUnboundedRequestWithResolvedLengthCached() throws IOException {
+    DataSource upstream = new FakeDataSource.Builder().appendReadData(data).build();
+    CacheDataSource dataSource = new CacheDataSource(cache, upstream, false, false);
+    assertEquals(100, dataSource.open(new DataSpec(URI, 0, C.LENGTH_UNBOUNDED, KEY)));
+    // The length is recorded as soon as it's resolved.
+    assertEquals(100, cache.getContentLength(KEY));
+    assertTrue(Arrays.equals(data, readToEnd(dataSource)));
+    dataSource.close();
+
+    assertReadFromCache(0);
+  }
+
+  public void testUnboundedRequestPartiallyCached() throws IOException {
+    DataSource upstream = new FakeDataSource.Builder().appendReadData(data).build();
+    CacheDataSource dataSource = new CacheDataSource(cache, upstream, false, false);
+    // Cache the middle of the content.
+    dataSource.open(new DataSpec(URI, 30, 20, KEY));
+    readToEnd(dataSource);
+    dataSource.close();
+    assertTrue(cache.isCached(KEY, 30, 20));
+
+    // Read the whole content, which is requested from upstream either side of the cached span.
+    dataSource.open(new DataSpec(URI, 0, C.LENGTH_UNBOUNDED, KEY));
+    assertTrue(Arrays.equals(data, readToEnd(dataSource)));
+    dataSource.close();
+
+    assertTrue(cache.isCached(KEY, 0, 100));
+    assertEquals(100, cache.getContentLength(KEY));
+    assertReadFromCache(0);
+  }
+
+  public void testUnboundedRequestWithoutKeyReadsChangingResource() throws IOException {
+    assertChangingResourceRead(new DataSpec(URI, 0, C.LENGTH_UNBOUNDED, null));
+    assertEquals(0, cache.getKeys().size());
+  }
+
+  public void testBoundedRequestWithoutKeyReadsChangingResource() throws IOException {
+    DataSpec dataSpec = new DataSpec(URI, 0, 50, null);
+    DataSource upstream = new FakeDataSource.Builder().appendReadData(data).build();
+    CacheDataSource dataSource = new CacheDataSource(cache, upstream, false, false);
+    dataSource.open(dataSpec);
+    readToEnd(dataSource);
+    dataSource.close();
+
+    upstream = new FakeDataSource.Builder().appendReadData(Arrays.copyOfRange(data, 20, 100))
+        .build();
+    dataSource = new CacheDataSource(cache, upstream, false, false);
+    assertEquals(50, dataSource.open(dataSpec));
+    assertTrue(Arrays.equals(Arrays.copyOfRange(data, 20, 70), readToEnd(dataSource)));
+    dataSource.close();
+    assertEquals(0, cache.getKeys().size());
+  }
+
+  public void testUnboundedGzipRequestReadsChangingResource() throws IOException {
+    assertChangingResourceRead(new DataSpec(URI, 0, C.LENGTH_UNBOUNDED, KEY,
+        DataSpec.FLAG_ALLOW_GZIP));
+    assertFalse(cache.isCached(KEY, 0, 1));
+  }
+
+  /**
+   * Asserts that a resource whose content changes between two reads of the specified
+   * {@link DataSpec} is read from upstream both times.
+   */
+  private void assertChangingResourceRead(DataSpec dataSpec) throws IOException {
+    byte[] firstData = Arrays.copyOf(data, 50);
+    DataSource upstream = new FakeDataSource.Builder().appendReadData(firstData).build();
+    CacheDataSource dataSource = new CacheDataSource(cache, upstream, false, false);
+    assertEquals(50, dataSource.open(dataSpec));
+    assertTrue(Arrays.equals(firstData, readToEnd(dataSource)));
+    dataSource.close();
+
+    // The resource changes, e.g. a live playlist that's been refreshed.
+    byte[] secondData = Arrays.copyOfRange(data, 20, 100);
+    upstream = new FakeDataSource.Builder().appendReadData(secondData).build();
+    dataSource = new CacheDataSource(cache, upstream, false, false);
+    assertEquals(80, dataSource.open(dataSpec));
+    assertTrue(Arrays.equals(secondData, readToEnd(dataSource)));
+    dataSource.close();
+  }
+
+  /**
+   * Asserts that the content can be read from the specified position to the end without
+   * requesting data from upstream.
+   */
+  private void assertReadFromCache(int position) throws IOException {
+    // An upstream source containing no data, which fails to open.
+    DataSource upstream = new FakeDataSource.Builder().build();
+    CacheDataSource dataSource = new CacheDataSource(cache, upstream, false, false);
+    assertEquals(100 - position, dataSource.open(new DataSpec(URI, position, C.LENGTH_UNBOUNDED,
+        KEY)));
+    assertTrue(Arrays.equals(Arrays.copyOfRange(data, position, 100), readToEnd(dataSource)));
+    dataSource.close();
+  }
+
+  private static byte[] readToEnd(DataSource dataSource) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[16];
+    int bytesRead;
+    while ((bytesRead = dataSource.read(buffer, 0, buffer.length)) != -1) {
+      output.write(buffer, 0, bytesRead);
+    }
+    return output.toByteArray();
+  }
+
+}
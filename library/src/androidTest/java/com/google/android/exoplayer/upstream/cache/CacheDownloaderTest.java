@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.FakeDataSource;
+import com.google.android.exoplayer.testutil.TestUtil;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DefaultHttpDataSource;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Unit tests for {@link CacheDownloader}, which download from a local HTTP server.
+ */
+public class CacheDownloaderTest extends TestCase {
+
+  private static final String USER_AGENT = "CacheDownloaderTest";
+  private static final byte[] TEST_DATA = TestUtil.buildTestData(100000);
+  private static final int CHUNK_SIZE = 16 * 1024;
+
+  private TestServer server;
+  private File cacheDir;
+  private SimpleCache cache;
+
+  @Override
+  public void setUp() throws IOException {
+    server = new TestServer();
+    cacheDir = File.createTempFile("CacheDownloaderTest", null);
+    assertTrue(cacheDir.delete());
+    assertTrue(cacheDir.mkdir());
+    cache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+  }
+
+  @Override
+  public void tearDown() throws IOException {
+    server.release();
+    File[] files = cacheDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    cacheDir.delete();
+  }
+
+  public void testProgressiveDownload() throws Exception {
+    final long[] lastProgress = new long[2];
+    CacheDownloader downloader = new CacheDownloader(cache, newDataSources(4),
+        Collections.singletonList(newDataSpec("/data")), CHUNK_SIZE,
+        new CacheDownloader.ProgressListener() {
+          @Override
+          public void onDownloadProgress(CacheDownloader downloader, long cachedBytes,
+              long totalBytes) {
+            assertTrue(cachedBytes >= lastProgress[0]);
+            lastProgress[0] = cachedBytes;
+            lastProgress[1] = totalBytes;
+          }
+        });
+    downloader.load();
+
+    assertEquals(TEST_DATA.length, lastProgress[0]);
+    assertEquals(TEST_DATA.length, lastProgress[1]);
+    // The content was requested in chunks, after the first request resolved its length.
+    assertEquals((TEST_DATA.length + CHUNK_SIZE - 1) / CHUNK_SIZE, server.requestCount.get());
+    assertEquals(TEST_DATA.length, cache.getContentLength("/data"));
+    assertCached("/data");
+  }
+
+  public void testDownloadResumes() throws Exception {
+    // Cache part of the content.
+    CacheDataSource cacheDataSource = new CacheDataSource(cache,
+        new DefaultHttpDataSource(USER_AGENT, null), false, false);
+    cacheDataSource.open(new DataSpec(getUri("/data"), 40000, 20000, "/data"));
+    readToEnd(cacheDataSource);
+    cacheDataSource.close();
+    server.requestedRangeStarts.clear();
+
+    CacheDownloader downloader = new CacheDownloader(cache, newDataSources(2),
+        Collections.singletonList(newDataSpec("/data")), CHUNK_SIZE, null);
+    downloader.load();
+
+    // The data that was already cached wasn't requested.
+    assertFalse(server.requestedRangeStarts.isEmpty());
+    for (int rangeStart : server.requestedRangeStarts) {
+      assertTrue(rangeStart < 40000 || rangeStart >= 60000);
+    }
+    assertEquals(TEST_DATA.length, downloader.getCachedBytes());
+    assertCached("/data");
+  }
+
+  public void testMultipleRequests() throws Exception {
+    ArrayList<DataSpec> dataSpecs = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      // Segments of a stream, identified by range or by URI.
+      dataSpecs.add(new DataSpec(getUri("/data"), i * 10000, 10000, "key"));
+      dataSpecs.add(newDataSpec("/segment" + i));
+    }
+    CacheDownloader downloader = new CacheDownloader(cache, newDataSources(3), dataSpecs,
+        CHUNK_SIZE, null);
+    downloader.load();
+
+    assertEquals(50000 + 5 * TEST_DATA.length, downloader.getCachedBytes());
+    assertEquals(downloader.getTotalBytes(), downloader.getCachedBytes());
+    assertTrue(cache.isCached("key", 0, 50000));
+    assertFalse(cache.isCached("key", 50000, 1));
+    for (int i = 0; i < 5; i++) {
+      assertCached("/segment" + i);
+    }
+  }
+
+  public void testBandwidthLimit() throws Exception {
+    CacheDownloader downloader = new CacheDownloader(cache, newDataSources(4),
+        Collections.singletonList(newDataSpec("/data")), CHUNK_SIZE, null);
+    downloader.setMaxBytesPerSecond(400000);
+    long startTimeMs = System.currentTimeMillis();
+    downloader.load();
+    // 100000 bytes at 400000 bytes per second should take at least 250ms.
+    assertTrue(System.currentTimeMillis() - startTimeMs >= 200);
+    assertCached("/data");
+  }
+
+  public void testDownloadWithUnknownLength() throws Exception {
+    DataSource upstream = new FakeDataSource.Builder()
+        .setSimulateUnknownLength(true)
+        .appendReadData(TEST_DATA)
+        .build();
+    CacheDownloader downloader = new CacheDownloader(cache, new DataSource[] {upstream},
+        Collections.singletonList(new DataSpec(getUri("/data"), 0, C.LENGTH_UNBOUNDED, "/data")),
+        CHUNK_SIZE, null);
+    downloader.load();
+
+    assertEquals(TEST_DATA.length, downloader.getCachedBytes());
+    assertEquals(TEST_DATA.length, downloader.getTotalBytes());
+    assertTrue(cache.isCached("/data", 0, TEST_DATA.length));
+    // The upstream source didn't report a length, so none is recorded.
+    assertEquals(C.LENGTH_UNBOUNDED, cache.getContentLength("/data"));
+  }
+
+  public void testRequestWithoutKeyRejected() {
+    try {
+      new CacheDownloader(cache, newDataSources(1),
+          Collections.singletonList(new DataSpec(getUri("/data"))), null);
+      fail();
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+
+  /**
+   * Returns an unbounded request for the content at a path, which is cached under the path.
+   */
+  private DataSpec newDataSpec(String path) {
+    return new DataSpec(getUri(path), 0, C.LENGTH_UNBOUNDED, path);
+  }
+
+  private Uri getUri(String path) {
+    return Uri.parse("http://127.0.0.1:" + server.getPort() + path);
+  }
+
+  private static DataSource[] newDataSources(int count) {
+    DataSource[] dataSources = new DataSource[count];
+    for (int i = 0; i < count; i++) {
+      dataSources[i] = new DefaultHttpDataSource(USER_AGENT, null);
+    }
+    return dataSources;
+  }
+
+  /**
+   * Asserts that the content at a path can be read from the cache without network access.
+   */
+  private void assertCached(String path) throws IOException {
+    CacheDataSource dataSource = new CacheDataSource(cache, new FakeDataSource.Builder().build(),
+        false, false);
+    assertEquals(TEST_DATA.length, dataSource.open(newDataSpec(path)));
+    assertTrue(Arrays.equals(TEST_DATA, readToEnd(dataSource)));
+    dataSource.close();
+  }
+
+  private static byte[] readToEnd(DataSource dataSource) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int bytesRead;
+    while ((bytesRead = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+      output.write(buffer, 0, bytesRead);
+    }
+    return output.toByteArray();
+  }
+
+  /**
+   * A minimal HTTP/1.1 server that supports byte range requests. Every path serves the same data.
+   */
+  private static final class TestServer implements Runnable {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("bytes=(\\d+)-(\\d*)");
+
+    public final AtomicInteger requestCount;
+    public final List<Integer> requestedRangeStarts;
+
+    private final ServerSocket serverSocket;
+
+    public TestServer() throws IOException {
+      requestCount = new AtomicInteger();
+      requestedRangeStarts = new CopyOnWriteArrayList<>();
+      serverSocket = new ServerSocket(0, 0, InetAddress.getByName("127.0.0.1"));
+      new Thread(this).start();
+    }
+
+    public int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    public void release() throws IOException {
+      serverSocket.close();
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (true) {
+          final Socket socket = serverSocket.accept();
+          new Thread() {
+            @Override
+            public void run() {
+              serve(socket);
+            }
+          }.start();
+        }
+      } catch (IOException e) {
+        // The server was released.
+      }
+    }
+
+    private void serve(Socket socket) {
+      try {
+        InputStream inputStream = socket.getInputStream();
+        OutputStream outputStream = socket.getOutputStream();
+        List<String> headers;
+        while ((headers = readHeaders(inputStream)) != null) {
+          requestCount.incrementAndGet();
+          int start = 0;
+          int end = TEST_DATA.length - 1;
+          boolean ranged = false;
+          for (String header : headers) {
+            Matcher matcher = RANGE_PATTERN.matcher(header);
+            if (header.toLowerCase().startsWith("range:") && matcher.find()) {
+              ranged = true;
+              start = Integer.parseInt(matcher.group(1));
+              if (!matcher.group(2).isEmpty()) {
+                end = Math.min(end, Integer.parseInt(matcher.group(2)));
+              }
+            }
+          }
+          requestedRangeStarts.add(start);
+          int length = end - start + 1;
+          String statusLine = ranged ? "HTTP/1.1 206 Partial Content\r\nContent-Range: bytes "
+              + start + "-" + end + "/" + TEST_DATA.length : "HTTP/1.1 200 OK";
+          outputStream.write((statusLine + "\r\nContent-Type: application/octet-stream\r\n"
+              + "Content-Length: " + length + "\r\n\r\n").getBytes());
+          outputStream.write(TEST_DATA, start, length);
+          outputStream.flush();
+        }
+        socket.close();
+      } catch (IOException e) {
+        // The client closed the connection.
+      }
+    }
+
+    /**
+     * Reads the request line and headers of a request, or returns null if the connection was
+     * closed.
+     */
+    private static List<String> readHeaders(InputStream inputStream) throws IOException {
+      ArrayList<String> lines = new ArrayList<>();
+      StringBuilder line = new StringBuilder();
+      int b;
+      while ((b = inputStream.read()) != -1) {
+        if (b == '\n') {
+          if (line.length() == 0) {
+            return lines;
+          }
+          lines.add(line.toString());
+          line.setLength(0);
+        } else if (b != '\r') {
+          line.append((char) b);
+        }
+      }
+      return null;
+    }
+
+  }
+
+}
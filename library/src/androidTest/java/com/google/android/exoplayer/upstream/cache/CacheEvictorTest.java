@@ -0,0 +1,244 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.util.Predicate;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Unit tests for the {@link CacheEvictor} implementations, which replay access traces against a
+ * fake cache and measure the resulting hit rates.
+ */
+public class CacheEvictorTest extends TestCase {
+
+  private static final int SPAN_LENGTH = 100;
+  private static final int MAX_BYTES = 50 * SPAN_LENGTH;
+  private static final int HOT_SPAN_COUNT = 20;
+  private static final int SCAN_SPAN_COUNT = 100;
+  private static final int ROUND_COUNT = 10;
+
+  public void testLeastRecentlyUsedFlushedByScan() {
+    TraceResult result = replayHotSetWithScans(new LeastRecentlyUsedCacheEvictor(MAX_BYTES));
+    // Each scan flushes the hot set, so only the second access to each hot span in each round hits.
+    assertEquals(HOT_SPAN_COUNT * ROUND_COUNT, result.hotHits);
+    assertTrue(result.maxCacheSpace <= MAX_BYTES);
+  }
+
+  public void testTwoQueueResistsScan() {
+    TraceResult result = replayHotSetWithScans(new TwoQueueCacheEvictor(MAX_BYTES));
+    // The hot set is promoted when it's accessed for the second time, and survives the scans.
+    assertEquals(HOT_SPAN_COUNT * (2 * ROUND_COUNT - 1), result.hotHits);
+    assertTrue(result.maxCacheSpace <= MAX_BYTES);
+  }
+
+  public void testLeastFrequentlyUsedResistsScan() {
+    TraceResult result = replayHotSetWithScans(new LeastFrequentlyUsedCacheEvictor(MAX_BYTES));
+    // The hot set is accessed more frequently than the scanned spans, and survives the scans.
+    assertEquals(HOT_SPAN_COUNT * (2 * ROUND_COUNT - 1), result.hotHits);
+    assertTrue(result.maxCacheSpace <= MAX_BYTES);
+  }
+
+  public void testLeastFrequentlyUsedDecay() {
+    FakeCache cache = new FakeCache(new LeastFrequentlyUsedCacheEvictor(MAX_BYTES, 10));
+    // Access a span many times, then wait for many half-lives.
+    for (int i = 0; i < 10; i++) {
+      cache.access("old", SPAN_LENGTH);
+    }
+    cache.timestamp += 1000;
+    // The frequently accessed span is no longer favored over newer spans.
+    for (int i = 0; i < 50; i++) {
+      cache.access("new" + i, SPAN_LENGTH);
+    }
+    assertFalse(cache.contains("old"));
+  }
+
+  public void testTimeToLive() throws InterruptedException {
+    FakeCache cache = new FakeCache(new TimeToLiveCacheEvictor(50, new Predicate<String>() {
+      @Override
+      public boolean evaluate(String key) {
+        return key.startsWith("live");
+      }
+    }, new NoOpCacheEvictor()));
+    cache.timestamp = System.currentTimeMillis();
+    cache.access("live1", 0);
+    cache.access("vod1", 0);
+    Thread.sleep(100);
+    cache.timestamp = System.currentTimeMillis();
+    cache.access("live2", 0);
+    assertFalse(cache.contains("live1"));
+    assertTrue(cache.contains("vod1"));
+    assertTrue(cache.contains("live2"));
+  }
+
+  /**
+   * Replays a trace in which a hot set of spans is accessed twice in each round, with rounds
+   * separated by a sequential scan of spans that are accessed only once. The scan is larger than
+   * the cache.
+   */
+  private static TraceResult replayHotSetWithScans(CacheEvictor evictor) {
+    FakeCache cache = new FakeCache(evictor);
+    TraceResult result = new TraceResult();
+    int scanIndex = 0;
+    for (int round = 0; round < ROUND_COUNT; round++) {
+      for (int i = 0; i < 2 * HOT_SPAN_COUNT; i++) {
+        if (cache.access("hot" + (i % HOT_SPAN_COUNT), SPAN_LENGTH)) {
+          result.hotHits++;
+        }
+        result.maxCacheSpace = Math.max(result.maxCacheSpace, cache.getCacheSpace());
+      }
+      for (int i = 0; i < SCAN_SPAN_COUNT; i++) {
+        cache.access("scan" + scanIndex++, SPAN_LENGTH);
+        result.maxCacheSpace = Math.max(result.maxCacheSpace, cache.getCacheSpace());
+      }
+    }
+    return result;
+  }
+
+  private static final class TraceResult {
+
+    public int hotHits;
+    public long maxCacheSpace;
+
+  }
+
+  /**
+   * A {@link Cache} that holds a single span per key in memory, and notifies an evictor of
+   * accesses.
+   */
+  private static final class FakeCache implements Cache {
+
+    public long timestamp;
+
+    private final CacheEvictor evictor;
+    private final TreeMap<String, CacheSpan> spans;
+    private long cacheSpace;
+
+    public FakeCache(CacheEvictor evictor) {
+      this.evictor = evictor;
+      spans = new TreeMap<>();
+    }
+
+    /**
+     * Accesses the span for a key, adding it to the cache if necessary.
+     *
+     * @return Whether the span was already cached.
+     */
+    public boolean access(String key, int length) {
+      timestamp++;
+      CacheSpan span = spans.get(key);
+      if (span != null) {
+        CacheSpan newSpan = new CacheSpan(key, 0, span.length, true, timestamp, span.file);
+        spans.put(key, newSpan);
+        evictor.onSpanTouched(this, span, newSpan);
+        return true;
+      }
+      evictor.onStartFile(this, key, 0, length);
+      span = new CacheSpan(key, 0, Math.max(length, 1), true, timestamp, new File(key));
+      spans.put(key, span);
+      cacheSpace += span.length;
+      evictor.onSpanAdded(this, span);
+      return false;
+    }
+
+    public boolean contains(String key) {
+      return spans.containsKey(key);
+    }
+
+    @Override
+    public void removeSpan(CacheSpan span) {
+      CacheSpan storedSpan = spans.get(span.key);
+      if (storedSpan != null && storedSpan.lastAccessTimestamp == span.lastAccessTimestamp) {
+        spans.remove(span.key);
+        cacheSpace -= span.length;
+        evictor.onSpanRemoved(this, span);
+      }
+    }
+
+    @Override
+    public long getCacheSpace() {
+      return cacheSpace;
+    }
+
+    @Override
+    public NavigableSet<CacheSpan> addListener(String key, Listener listener) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void removeListener(String key, Listener listener) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public NavigableSet<CacheSpan> getCachedSpans(String key) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<String> getKeys() {
+      return new HashSet<>(spans.keySet());
+    }
+
+    @Override
+    public CacheSpan startReadWrite(String key, long position) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public CacheSpan startReadWriteNonBlocking(String key, long position) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public File startFile(String key, long position, long length) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void commitFile(File file) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void releaseHoleSpan(CacheSpan holeSpan) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void setContentLength(String key, long length) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public long getContentLength(String key) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isCached(String key, long position, long length) {
+      return contains(key);
+    }
+
+  }
+
+}
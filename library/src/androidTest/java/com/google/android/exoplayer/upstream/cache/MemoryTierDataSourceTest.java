@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.testutil.TestUtil;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.FileDataSource;
+
+import android.net.Uri;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Unit tests for {@link MemoryTierDataSource}.
+ */
+public class MemoryTierDataSourceTest extends TestCase {
+
+  private File file;
+  private byte[] data;
+
+  @Override
+  public void setUp() throws IOException {
+    file = File.createTempFile("MemoryTierDataSourceTest", null);
+    data = TestUtil.buildTestData(1000);
+    FileOutputStream output = new FileOutputStream(file);
+    try {
+      output.write(data);
+    } finally {
+      output.close();
+    }
+  }
+
+  @Override
+  public void tearDown() {
+    file.delete();
+  }
+
+  public void testPromotedOnSecondRead() throws IOException {
+    MemoryTier memoryTier = new MemoryTier();
+    MemoryTierDataSource dataSource = new MemoryTierDataSource(memoryTier, new FileDataSource());
+    assertRead(dataSource, 0, 1000);
+    assertEquals(0, memoryTier.getSizeBytes());
+    assertRead(dataSource, 0, 1000);
+    assertEquals(1000, memoryTier.getSizeBytes());
+    assertEquals(0, memoryTier.getHitCount());
+
+    // Delete the file, so that subsequent reads can only be served from memory.
+    assertTrue(file.delete());
+    assertRead(dataSource, 100, 200);
+    assertRead(dataSource, 900, C.LENGTH_UNBOUNDED);
+    assertEquals(2, memoryTier.getHitCount());
+  }
+
+  public void testLargeFileNotPromoted() throws IOException {
+    MemoryTier memoryTier = new MemoryTier(10000, 500);
+    MemoryTierDataSource dataSource = new MemoryTierDataSource(memoryTier, new FileDataSource());
+    assertRead(dataSource, 0, 1000);
+    assertRead(dataSource, 0, 1000);
+    assertEquals(0, memoryTier.getSizeBytes());
+  }
+
+  public void testEviction() {
+    MemoryTier memoryTier = new MemoryTier(250, 100);
+    memoryTier.put("a", new byte[100]);
+    memoryTier.put("b", new byte[100]);
+    // Access the first file, so that the second is evicted first.
+    assertNotNull(memoryTier.get("a"));
+    memoryTier.put("c", new byte[100]);
+    assertEquals(200, memoryTier.getSizeBytes());
+    assertNotNull(memoryTier.get("a"));
+    assertNull(memoryTier.get("b"));
+    assertNotNull(memoryTier.get("c"));
+  }
+
+  private void assertRead(MemoryTierDataSource dataSource, int position, long length)
+      throws IOException {
+    int expectedLength = length == C.LENGTH_UNBOUNDED ? data.length - position : (int) length;
+    assertEquals(expectedLength, dataSource.open(new DataSpec(Uri.fromFile(file), position,
+        length, null)));
+    byte[] buffer = new byte[expectedLength];
+    int bytesRead = 0;
+    while (bytesRead < expectedLength) {
+      int result = dataSource.read(buffer, bytesRead, expectedLength - bytesRead);
+      assertTrue(result > 0);
+      bytesRead += result;
+    }
+    assertEquals(-1, dataSource.read(new byte[1], 0, 1));
+    dataSource.close();
+    assertTrue(Arrays.equals(Arrays.copyOfRange(data, position, position + expectedLength),
+        buffer));
+  }
+
+}
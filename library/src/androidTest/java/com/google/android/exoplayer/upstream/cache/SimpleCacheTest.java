@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.NavigableSet;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Unit tests for {@link SimpleCache}.
+ */
+public class SimpleCacheTest extends TestCase {
+
+  private static final String KEY_1 = "key1";
+  private static final String KEY_2 = "key2";
+
+  private File cacheDir;
+
+  @Override
+  public void setUp() throws IOException {
+    cacheDir = File.createTempFile("SimpleCacheTest", null);
+    assertTrue(cacheDir.delete());
+    assertTrue(cacheDir.mkdir());
+  }
+
+  @Override
+  public void tearDown() {
+    File[] files = cacheDir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    cacheDir.delete();
+  }
+
+  public void testWriteAndRead() throws Exception {
+    SimpleCache cache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    addSpan(cache, KEY_1, 0, 100);
+    addSpan(cache, KEY_1, 100, 50);
+    assertTrue(cache.isCached(KEY_1, 0, 150));
+    assertFalse(cache.isCached(KEY_1, 0, 151));
+    assertEquals(150, cache.getCacheSpace());
+
+    CacheSpan span = cache.startReadWrite(KEY_1, 120);
+    assertTrue(span.isCached);
+    assertEquals(100, span.position);
+    assertEquals(50, span.length);
+  }
+
+  public void testSpansRestoredFromIndex() throws Exception {
+    SimpleCache cache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    addSpan(cache, KEY_1, 0, 100);
+    addSpan(cache, KEY_2, 0, 10);
+    addSpan(cache, KEY_2, 10, 20);
+    cache.removeSpan(cache.getCachedSpans(KEY_2).first());
+    // Touch a span, which replaces it.
+    assertTrue(cache.startReadWrite(KEY_1, 0).isCached);
+    cache.flushIndex();
+
+    SimpleCache restoredCache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    assertEquals(2, restoredCache.getKeys().size());
+    assertTrue(restoredCache.isCached(KEY_1, 0, 100));
+    assertFalse(restoredCache.isCached(KEY_2, 0, 10));
+    assertTrue(restoredCache.isCached(KEY_2, 10, 20));
+    assertEquals(120, restoredCache.getCacheSpace());
+    NavigableSet<CacheSpan> spans = restoredCache.getCachedSpans(KEY_1);
+    assertEquals(1, spans.size());
+    assertTrue(spans.first().file.exists());
+  }
+
+  public void testContentLengthRestoredFromIndex() throws Exception {
+    SimpleCache cache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    addSpan(cache, KEY_1, 0, 100);
+    addSpan(cache, KEY_2, 0, 100);
+    cache.setContentLength(KEY_1, 1000);
+    cache.setContentLength(KEY_2, 2000);
+    // The content length is discarded when the last span for the key is removed.
+    cache.removeSpan(cache.getCachedSpans(KEY_2).first());
+    assertEquals(C.LENGTH_UNBOUNDED, cache.getContentLength(KEY_2));
+    cache.flushIndex();
+
+    SimpleCache restoredCache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    assertEquals(1000, restoredCache.getContentLength(KEY_1));
+    assertEquals(C.LENGTH_UNBOUNDED, restoredCache.getContentLength(KEY_2));
+  }
+
+  public void testSpansRestoredWithoutIndex() throws Exception {
+    SimpleCache cache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    addSpan(cache, KEY_1, 0, 100);
+    cache.flushIndex();
+    for (File file : cacheDir.listFiles()) {
+      if (CacheIndex.isIndexFile(file)) {
+        assertTrue(file.delete());
+      }
+    }
+
+    SimpleCache restoredCache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    assertTrue(restoredCache.isCached(KEY_1, 0, 100));
+    assertEquals(100, restoredCache.getCacheSpace());
+  }
+
+  public void testUnindexedFileAdopted() throws Exception {
+    new SimpleCache(cacheDir, new NoOpCacheEvictor()).getKeys();
+    // Simulate a file that was written but whose addition wasn't recorded in the index.
+    writeFile(CacheSpan.getCacheFileName(cacheDir, KEY_1, 0, 1), 100);
+    File unrecognizedFile = new File(cacheDir, "unrecognized");
+    writeFile(unrecognizedFile, 10);
+
+    SimpleCache restoredCache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    // Unindexed files are adopted in the background, in no particular order.
+    long endTimeMs = System.currentTimeMillis() + 5000;
+    while ((!restoredCache.isCached(KEY_1, 0, 100) || unrecognizedFile.exists())
+        && System.currentTimeMillis() < endTimeMs) {
+      Thread.sleep(10);
+    }
+    assertTrue(restoredCache.isCached(KEY_1, 0, 100));
+    assertFalse(unrecognizedFile.exists());
+  }
+
+  public void testEviction() throws Exception {
+    SimpleCache cache = new SimpleCache(cacheDir, new LeastRecentlyUsedCacheEvictor(150));
+    addSpan(cache, KEY_1, 0, 100);
+    addSpan(cache, KEY_2, 0, 100);
+    assertFalse(cache.isCached(KEY_1, 0, 100));
+    assertTrue(cache.isCached(KEY_2, 0, 100));
+    assertEquals(100, cache.getCacheSpace());
+  }
+
+  public void testConcurrentWritesToDifferentKeys() throws Exception {
+    final SimpleCache cache = new SimpleCache(cacheDir, new NoOpCacheEvictor());
+    final AtomicReference<Exception> error = new AtomicReference<>();
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      final String key = "key" + i;
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            for (int j = 0; j < 20; j++) {
+              addSpan(cache, key, j * 10, 10);
+              assertTrue(cache.startReadWrite(key, j * 10).isCached);
+            }
+          } catch (Exception e) {
+            error.set(e);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertNull(error.get());
+    assertEquals(threads.length, cache.getKeys().size());
+    assertEquals(threads.length * 200, cache.getCacheSpace());
+    for (int i = 0; i < threads.length; i++) {
+      assertTrue(cache.isCached("key" + i, 0, 200));
+    }
+  }
+
+  public void testEvictorRemovingSpanRemovedByAnotherThread() throws Exception {
+    final HookedEvictor evictor = new HookedEvictor(new LeastRecentlyUsedCacheEvictor(150));
+    final SimpleCache cache = new SimpleCache(cacheDir, evictor);
+    addSpan(cache, KEY_1, 0, 100);
+
+    final AtomicReference<CacheSpan> holeSpan = new AtomicReference<>();
+    final Thread remover = new Thread() {
+      @Override
+      public void run() {
+        // Finds that the file is missing and removes the span, but can't deliver the event to the
+        // evictor until the writer below releases it.
+        holeSpan.set(cache.startReadWriteNonBlocking(KEY_1, 0));
+      }
+    };
+    evictor.onStartFileHook = new Runnable() {
+      @Override
+      public void run() {
+        assertTrue(cache.getCachedSpans(KEY_1).first().file.delete());
+        remover.start();
+        long endTimeMs = System.currentTimeMillis() + 5000;
+        while (cache.getCachedSpans(KEY_1) != null && System.currentTimeMillis() < endTimeMs) {
+          Thread.yield();
+        }
+      }
+    };
+    // The evictor tries to remove the span that has just been removed, to make space.
+    final AtomicReference<Exception> error = new AtomicReference<>();
+    Thread writer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          addSpan(cache, KEY_2, 0, 100);
+        } catch (Exception e) {
+          error.set(e);
+        }
+      }
+    };
+    writer.setDaemon(true);
+    writer.start();
+    writer.join(5000);
+    assertFalse("Evictor failed to make progress", writer.isAlive());
+    remover.join();
+    assertNull(error.get());
+    cache.releaseHoleSpan(holeSpan.get());
+    assertTrue(cache.isCached(KEY_2, 0, 100));
+    assertEquals(100, cache.getCacheSpace());
+  }
+
+  private static void addSpan(Cache cache, String key, long position, int length)
+      throws InterruptedException, IOException {
+    CacheSpan holeSpan = cache.startReadWrite(key, position);
+    assertFalse(holeSpan.isCached);
+    File file = cache.startFile(key, position, length);
+    writeFile(file, length);
+    cache.commitFile(file);
+    cache.releaseHoleSpan(holeSpan);
+  }
+
+  private static void writeFile(File file, int length) throws IOException {
+    FileOutputStream output = new FileOutputStream(file);
+    try {
+      output.write(new byte[length]);
+    } finally {
+      output.close();
+    }
+  }
+
+  /**
+   * A {@link CacheEvictor} that runs a hook before delegating {@link #onStartFile}.
+   */
+  private static final class HookedEvictor implements CacheEvictor {
+
+    public volatile Runnable onStartFileHook;
+
+    private final CacheEvictor evictor;
+
+    public HookedEvictor(CacheEvictor evictor) {
+      this.evictor = evictor;
+    }
+
+    @Override
+    public void onStartFile(Cache cache, String key, long position, long length) {
+      Runnable hook = onStartFileHook;
+      if (hook != null) {
+        onStartFileHook = null;
+        hook.run();
+      }
+      evictor.onStartFile(cache, key, position, length);
+    }
+
+    @Override
+    public void onSpanAdded(Cache cache, CacheSpan span) {
+      evictor.onSpanAdded(cache, span);
+    }
+
+    @Override
+    public void onSpanRemoved(Cache cache, CacheSpan span) {
+      evictor.onSpanRemoved(cache, span);
+    }
+
+    @Override
+    public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+      evictor.onSpanTouched(cache, oldSpan, newSpan);
+    }
+
+  }
+
+}
@@ -19,6 +19,7 @@ import junit.framework.TestCase;
 
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Random;
 
 /**
  * Tests for {@link NalUnitUtil}.
@@ -111,6 +112,46 @@ public class NalUnitUtilTest extends TestCase {
     assertPrefixFlagsCleared(prefixFlags);
   }
 
+  public void testFindNalUnitMatchesReferenceSearch() {
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      byte[] data = buildRandomNalData(random, 1 + random.nextInt(500));
+      int offset = 0;
+      while (offset <= data.length) {
+        int expected = findNalUnitReference(data, offset, data.length);
+        assertEquals(expected, NalUnitUtil.findNalUnit(data, offset, data.length, null));
+        offset = expected + 1;
+      }
+    }
+  }
+
+  public void testFindNalUnitWithPrefixMatchesReferenceSearch() {
+    Random random = new Random(0);
+    for (int i = 0; i < 100; i++) {
+      byte[] data = buildRandomNalData(random, 1 + random.nextInt(500));
+      boolean[] prefixFlags = new boolean[3];
+      int chunkStart = 0;
+      int searchStart = 0;
+      while (chunkStart < data.length) {
+        int chunkEnd = Math.min(data.length, chunkStart + 1 + random.nextInt(8));
+        int expected = findNalUnitReference(data, searchStart, data.length);
+        int result = NalUnitUtil.findNalUnit(data, chunkStart, chunkEnd, prefixFlags);
+        if (expected + 3 < chunkEnd) {
+          // The search should have found a start code that is followed by at least one byte in the
+          // chunk. Since the chunks
+          // are ranges of the same array, the returned position is an index into data.
+          assertEquals(expected, result);
+          assertPrefixFlagsCleared(prefixFlags);
+          searchStart = expected + 3;
+          chunkStart = Math.max(chunkStart, searchStart);
+        } else {
+          assertEquals(chunkEnd, result);
+          chunkStart = chunkEnd;
+        }
+      }
+    }
+  }
+
   public void testUnescapeDoesNotModifyBuffersWithoutStartCodes() {
     assertUnescapeDoesNotModify("");
     assertUnescapeDoesNotModify("0000");
@@ -155,6 +196,32 @@ public class NalUnitUtilTest extends TestCase {
     return data;
   }
 
+  /**
+   * Builds random data biased towards zero bytes, so that start codes and partial start codes
+   * occur frequently.
+   */
+  private static byte[] buildRandomNalData(Random random, int length) {
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      int value = random.nextInt(8);
+      data[i] = (byte) (value < 4 ? 0 : value < 6 ? 1 : random.nextInt(256));
+    }
+    return data;
+  }
+
+  /**
+   * Returns the position of the first start code in the range that is followed by at least one
+   * byte, or {@code endOffset} if there is no such start code.
+   */
+  private static int findNalUnitReference(byte[] data, int startOffset, int endOffset) {
+    for (int i = startOffset; i + 3 < endOffset; i++) {
+      if (data[i] == 0 && data[i + 1] == 0 && data[i + 2] == 1) {
+        return i;
+      }
+    }
+    return endOffset;
+  }
+
   private static void assertPrefixFlagsCleared(boolean[] flags) {
     assertEquals(false, flags[0] || flags[1] || flags[2]);
   }
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.util;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Unit tests for {@link SlidingPercentile}.
+ */
+public class SlidingPercentileTest extends TestCase {
+
+  private static final int MAX_WEIGHT = 1000;
+
+  public void testNoSamples() {
+    assertTrue(Float.isNaN(new SlidingPercentile(MAX_WEIGHT).getPercentile(0.5f)));
+  }
+
+  public void testMatchesReferenceImplementation() {
+    Random random = new Random(0);
+    SlidingPercentile slidingPercentile = new SlidingPercentile(MAX_WEIGHT);
+    // Weights and values of the samples in the window, oldest first.
+    ArrayList<int[]> window = new ArrayList<>();
+    int totalWeight = 0;
+    for (int i = 0; i < 2000; i++) {
+      // Use few distinct values, so that equal values are common.
+      int weight = 1 + random.nextInt(i < 1000 ? 20 : 200);
+      int value = random.nextInt(50);
+      slidingPercentile.addSample(weight, value);
+      window.add(new int[] {weight, value});
+      totalWeight += weight;
+      while (totalWeight > MAX_WEIGHT) {
+        int[] oldest = window.get(0);
+        int excessWeight = totalWeight - MAX_WEIGHT;
+        if (oldest[0] <= excessWeight) {
+          window.remove(0);
+          totalWeight -= oldest[0];
+        } else {
+          oldest[0] -= excessWeight;
+          totalWeight -= excessWeight;
+        }
+      }
+      for (float percentile : new float[] {0.1f, 0.5f, 0.9f, 1f}) {
+        assertEquals(getPercentile(window, totalWeight, percentile),
+            slidingPercentile.getPercentile(percentile));
+      }
+    }
+  }
+
+  private static float getPercentile(ArrayList<int[]> window, int totalWeight,
+      float percentile) {
+    int[][] samples = window.toArray(new int[window.size()][]);
+    Arrays.sort(samples, new Comparator<int[]>() {
+      @Override
+      public int compare(int[] a, int[] b) {
+        return a[1] - b[1];
+      }
+    });
+    float desiredWeight = percentile * totalWeight;
+    int accumulatedWeight = 0;
+    for (int[] sample : samples) {
+      accumulatedWeight += sample[0];
+      if (accumulatedWeight >= desiredWeight) {
+        return sample[1];
+      }
+    }
+    return samples[samples.length - 1][1];
+  }
+
+}
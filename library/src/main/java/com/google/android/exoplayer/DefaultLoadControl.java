@@ -136,14 +136,14 @@ public final class DefaultLoadControl implements LoadControl {
   }
 
   @Override
-  public void register(Object loader, int bufferSizeContribution) {
+  public synchronized void register(Object loader, int bufferSizeContribution) {
     loaders.add(loader);
     loaderStates.put(loader, new LoaderState(bufferSizeContribution));
     targetBufferSize += bufferSizeContribution;
   }
 
   @Override
-  public void unregister(Object loader) {
+  public synchronized void unregister(Object loader) {
     loaders.remove(loader);
     LoaderState state = loaderStates.remove(loader);
     targetBufferSize -= state.bufferSizeContribution;
@@ -151,7 +151,7 @@ public final class DefaultLoadControl implements LoadControl {
   }
 
   @Override
-  public void trimAllocator() {
+  public synchronized void trimAllocator() {
     allocator.trim(targetBufferSize);
   }
 
@@ -161,8 +161,8 @@ public final class DefaultLoadControl implements LoadControl {
   }
 
   @Override
-  public boolean update(Object loader, long playbackPositionUs, long nextLoadPositionUs,
-      boolean loading) {
+  public synchronized boolean update(Object loader, long playbackPositionUs,
+      long nextLoadPositionUs, boolean loading) {
     // Update the loader state.
     int loaderBufferState = getLoaderBufferState(playbackPositionUs, nextLoadPositionUs);
     LoaderState loaderState = loaderStates.get(loader);
@@ -126,7 +126,32 @@ public interface ExoPlayer {
      *     not due to a user action such as starting playback or seeking).
      */
     public static ExoPlayer newInstance(int rendererCount, int minBufferMs, int minRebufferMs) {
-      return new ExoPlayerImpl(rendererCount, minBufferMs, minRebufferMs);
+      return new ExoPlayerImpl(rendererCount, minBufferMs, minRebufferMs, false);
+    }
+
+    /**
+     * Obtains an {@link ExoPlayer} instance.
+     * <p>
+     * Must be invoked from a thread that has an associated {@link Looper}.
+     *
+     * @param rendererCount The number of {@link TrackRenderer}s that will be passed to
+     *     {@link #prepare(TrackRenderer[])}.
+     * @param minBufferMs A minimum duration of data that must be buffered for playback to start
+     *     or resume following a user action such as a seek.
+     * @param minRebufferMs A minimum duration of data that must be buffered for playback to resume
+     *     after a player invoked rebuffer (i.e. a rebuffer that occurs due to buffer depletion, and
+     *     not due to a user action such as starting playback or seeking).
+     * @param parallelRenderers Whether each renderer should be driven on its own thread, rather
+     *     than all renderers being driven in turn on the playback thread. If true, a renderer that
+     *     is slow to do its work (for example a software decoder) does not delay the work of the
+     *     others. Renderers must not share a {@link SampleSource}, since sources are not
+     *     thread-safe. This is the case for renderers that each read from their own
+     *     {@link com.google.android.exoplayer.chunk.ChunkSampleSource}. Preparing the player throws
+     *     {@link IllegalArgumentException} if renderers share a source.
+     */
+    public static ExoPlayer newInstance(int rendererCount, int minBufferMs, int minRebufferMs,
+        boolean parallelRenderers) {
+      return new ExoPlayerImpl(rendererCount, minBufferMs, minRebufferMs, parallelRenderers);
     }
 
     /**
@@ -138,7 +163,8 @@ public interface ExoPlayer {
      *     {@link #prepare(TrackRenderer[])}.
      */
     public static ExoPlayer newInstance(int rendererCount) {
-      return new ExoPlayerImpl(rendererCount, DEFAULT_MIN_BUFFER_MS, DEFAULT_MIN_REBUFFER_MS);
+      return new ExoPlayerImpl(rendererCount, DEFAULT_MIN_BUFFER_MS, DEFAULT_MIN_REBUFFER_MS,
+          false);
     }
 
   }
@@ -412,4 +438,13 @@ public interface ExoPlayer {
    */
   public int getBufferedPercentage();
 
+  /**
+   * Gets a histogram of how late the renderer at the specified index was invoked to do work, with
+   * respect to when the work was scheduled. The histogram is reset when the player is prepared.
+   *
+   * @param rendererIndex The index of the renderer.
+   * @return The renderer's lateness histogram.
+   */
+  public LatenessHistogram getRendererLatenessHistogram(int rendererIndex);
+
 }
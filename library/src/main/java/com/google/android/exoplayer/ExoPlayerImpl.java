@@ -51,9 +51,11 @@ import java.util.concurrent.CopyOnWriteArraySet;
    * @param minRebufferMs A minimum duration of data that must be buffered for playback to resume
    *     after a player invoked rebuffer (i.e. a rebuffer that occurs due to buffer depletion, and
    *     not due to a user action such as starting playback or seeking).
+   * @param parallelRenderers Whether each renderer should be driven on its own thread.
    */
   @SuppressLint("HandlerLeak")
-  public ExoPlayerImpl(int rendererCount, int minBufferMs, int minRebufferMs) {
+  public ExoPlayerImpl(int rendererCount, int minBufferMs, int minRebufferMs,
+      boolean parallelRenderers) {
     Log.i(TAG, "Init " + ExoPlayerLibraryInfo.VERSION);
     this.playWhenReady = false;
     this.playbackState = STATE_IDLE;
@@ -67,7 +69,7 @@ import java.util.concurrent.CopyOnWriteArraySet;
       }
     };
     internalPlayer = new ExoPlayerImplInternal(eventHandler, playWhenReady, selectedTrackIndices,
-        minBufferMs, minRebufferMs);
+        minBufferMs, minRebufferMs, parallelRenderers);
   }
 
   @Override
@@ -190,6 +192,11 @@ import java.util.concurrent.CopyOnWriteArraySet;
         : (int) (duration == 0 ? 100 : (bufferedPosition * 100) / duration);
   }
 
+  @Override
+  public LatenessHistogram getRendererLatenessHistogram(int rendererIndex) {
+    return internalPlayer.getLatenessHistogram(rendererIndex);
+  }
+
   // Not private so it can be called from an inner class without going through a thunk method.
   /* package */ void handleEvent(Message msg) {
     switch (msg.what) {
@@ -73,8 +73,11 @@ import java.util.concurrent.atomic.AtomicInteger;
   private final int[] selectedTrackIndices;
   private final long minBufferUs;
   private final long minRebufferUs;
+  private final boolean parallelRenderers;
+  private final LatenessHistogram[] latenessHistograms;
 
   private TrackRenderer[] renderers;
+  private RendererWorker[] rendererWorkers;
   private TrackRenderer rendererMediaClockSource;
   private MediaClock rendererMediaClock;
 
@@ -86,26 +89,33 @@ import java.util.concurrent.atomic.AtomicInteger;
   private int customMessagesProcessed = 0;
   private long lastSeekPositionMs;
   private long elapsedRealtimeUs;
+  private long scheduledWorkTimeMs;
 
   private volatile long durationUs;
   private volatile long positionUs;
   private volatile long bufferedPositionUs;
 
   public ExoPlayerImplInternal(Handler eventHandler, boolean playWhenReady,
-      int[] selectedTrackIndices, int minBufferMs, int minRebufferMs) {
+      int[] selectedTrackIndices, int minBufferMs, int minRebufferMs, boolean parallelRenderers) {
     this.eventHandler = eventHandler;
     this.playWhenReady = playWhenReady;
     this.minBufferUs = minBufferMs * 1000L;
     this.minRebufferUs = minRebufferMs * 1000L;
+    this.parallelRenderers = parallelRenderers;
     this.selectedTrackIndices = Arrays.copyOf(selectedTrackIndices, selectedTrackIndices.length);
     this.state = ExoPlayer.STATE_IDLE;
     this.durationUs = TrackRenderer.UNKNOWN_TIME_US;
     this.bufferedPositionUs = TrackRenderer.UNKNOWN_TIME_US;
+    this.scheduledWorkTimeMs = -1;
 
     standaloneMediaClock = new StandaloneMediaClock();
     pendingSeekCount = new AtomicInteger();
     enabledRenderers = new ArrayList<>(selectedTrackIndices.length);
     trackFormats = new MediaFormat[selectedTrackIndices.length][];
+    latenessHistograms = new LatenessHistogram[selectedTrackIndices.length];
+    for (int i = 0; i < latenessHistograms.length; i++) {
+      latenessHistograms[i] = new LatenessHistogram();
+    }
     // Note: The documentation for Process.THREAD_PRIORITY_AUDIO that states "Applications can
     // not normally change to this priority" is incorrect.
     internalPlaybackThread = new PriorityHandlerThread("ExoPlayerImplInternal:Handler",
@@ -132,7 +142,14 @@ import java.util.concurrent.atomic.AtomicInteger;
         : durationUs / 1000;
   }
 
+  public LatenessHistogram getLatenessHistogram(int rendererIndex) {
+    return latenessHistograms[rendererIndex];
+  }
+
   public void prepare(TrackRenderer... renderers) {
+    if (parallelRenderers) {
+      checkSourcesNotShared(renderers);
+    }
     handler.obtainMessage(MSG_PREPARE, renderers).sendToTarget();
   }
 
@@ -195,6 +212,18 @@ import java.util.concurrent.atomic.AtomicInteger;
 
   @Override
   public boolean handleMessage(Message msg) {
+    // Renderers driven by workers must not do work whilst the playback thread is operating on them.
+    // Periodic work only needs to query each renderer in turn, and so locks them individually.
+    RendererWorker[] lockedWorkers = msg.what != MSG_DO_SOME_WORK ? rendererWorkers : null;
+    lockWorkers(lockedWorkers);
+    try {
+      return handleMessageInternal(msg);
+    } finally {
+      unlockWorkers(lockedWorkers);
+    }
+  }
+
+  private boolean handleMessageInternal(Message msg) {
     try {
       switch (msg.what) {
         case MSG_PREPARE: {
@@ -260,6 +289,16 @@ import java.util.concurrent.atomic.AtomicInteger;
     resetInternal();
     this.renderers = renderers;
     Arrays.fill(trackFormats, null);
+    for (int i = 0; i < latenessHistograms.length; i++) {
+      latenessHistograms[i].reset();
+    }
+    if (parallelRenderers) {
+      rendererWorkers = new RendererWorker[renderers.length];
+      for (int i = 0; i < renderers.length; i++) {
+        rendererWorkers[i] = new RendererWorker("ExoPlayerImplInternal:Renderer" + i, renderers[i],
+            standaloneMediaClock, latenessHistograms[i]);
+      }
+    }
     setState(ExoPlayer.STATE_PREPARING);
     incrementalPrepareInternal();
   }
@@ -342,6 +381,10 @@ import java.util.concurrent.atomic.AtomicInteger;
       throws ExoPlaybackException {
     renderer.enable(trackIndex, positionUs, joining);
     enabledRenderers.add(renderer);
+    RendererWorker worker = getWorker(renderer);
+    if (worker != null) {
+      worker.activate();
+    }
     MediaClock mediaClock = renderer.getMediaClock();
     if (mediaClock != null) {
       Assertions.checkState(rendererMediaClock == null);
@@ -394,26 +437,48 @@ import java.util.concurrent.atomic.AtomicInteger;
 
   private void startRenderers() throws ExoPlaybackException {
     rebuffering = false;
-    standaloneMediaClock.start();
-    for (int i = 0; i < enabledRenderers.size(); i++) {
-      enabledRenderers.get(i).start();
+    RendererWorker[] lockedWorkers = rendererWorkers;
+    lockWorkers(lockedWorkers);
+    try {
+      standaloneMediaClock.start();
+      for (int i = 0; i < enabledRenderers.size(); i++) {
+        enabledRenderers.get(i).start();
+      }
+    } finally {
+      unlockWorkers(lockedWorkers);
     }
   }
 
   private void stopRenderers() throws ExoPlaybackException {
-    standaloneMediaClock.stop();
-    for (int i = 0; i < enabledRenderers.size(); i++) {
-      ensureStopped(enabledRenderers.get(i));
+    RendererWorker[] lockedWorkers = rendererWorkers;
+    lockWorkers(lockedWorkers);
+    try {
+      standaloneMediaClock.stop();
+      for (int i = 0; i < enabledRenderers.size(); i++) {
+        ensureStopped(enabledRenderers.get(i));
+      }
+    } finally {
+      unlockWorkers(lockedWorkers);
     }
   }
 
   private void updatePositionUs() {
-    if (rendererMediaClock != null && enabledRenderers.contains(rendererMediaClockSource)
-        && !rendererMediaClockSource.isEnded()) {
-      positionUs = rendererMediaClock.getPositionUs();
-      standaloneMediaClock.setPositionUs(positionUs);
-    } else {
-      positionUs = standaloneMediaClock.getPositionUs();
+    RendererWorker worker = rendererMediaClock != null ? getWorker(rendererMediaClockSource) : null;
+    if (worker != null) {
+      worker.lock();
+    }
+    try {
+      if (rendererMediaClock != null && enabledRenderers.contains(rendererMediaClockSource)
+          && !rendererMediaClockSource.isEnded()) {
+        positionUs = rendererMediaClock.getPositionUs();
+        standaloneMediaClock.setPositionUs(positionUs);
+      } else {
+        positionUs = standaloneMediaClock.getPositionUs();
+      }
+    } finally {
+      if (worker != null) {
+        worker.unlock();
+      }
     }
     elapsedRealtimeUs = SystemClock.elapsedRealtime() * 1000;
   }
@@ -425,38 +490,59 @@ import java.util.concurrent.atomic.AtomicInteger;
         : Long.MAX_VALUE;
     boolean allRenderersEnded = true;
     boolean allRenderersReadyOrEnded = true;
+    long maxWorkDelayUs = IDLE_INTERVAL_MS * 1000L;
+    long scheduledWorkTimeMs = this.scheduledWorkTimeMs;
+    this.scheduledWorkTimeMs = -1;
     updatePositionUs();
     for (int i = 0; i < enabledRenderers.size(); i++) {
       TrackRenderer renderer = enabledRenderers.get(i);
-      // TODO: Each renderer should return the maximum delay before which it wishes to be
-      // invoked again. The minimum of these values should then be used as the delay before the next
-      // invocation of this method.
-      renderer.doSomeWork(positionUs, elapsedRealtimeUs);
-      allRenderersEnded = allRenderersEnded && renderer.isEnded();
-
-      // Determine whether the renderer is ready (or ended). If it's not, throw an error that's
-      // preventing the renderer from making progress, if such an error exists.
-      boolean rendererReadyOrEnded = rendererReadyOrEnded(renderer);
-      if (!rendererReadyOrEnded) {
-        renderer.maybeThrowError();
-      }
-      allRenderersReadyOrEnded = allRenderersReadyOrEnded && rendererReadyOrEnded;
-
-      if (bufferedPositionUs == TrackRenderer.UNKNOWN_TIME_US) {
-        // We've already encountered a track for which the buffered position is unknown. Hence the
-        // media buffer position unknown regardless of the buffered position of this track.
+      RendererWorker worker = getWorker(renderer);
+      if (worker != null) {
+        // The worker does the renderer's work. We only need to query the renderer's state.
+        worker.lock();
       } else {
-        long rendererDurationUs = renderer.getDurationUs();
-        long rendererBufferedPositionUs = renderer.getBufferedPositionUs();
-        if (rendererBufferedPositionUs == TrackRenderer.UNKNOWN_TIME_US) {
-          bufferedPositionUs = TrackRenderer.UNKNOWN_TIME_US;
-        } else if (rendererBufferedPositionUs == TrackRenderer.END_OF_TRACK_US
-            || (rendererDurationUs != TrackRenderer.UNKNOWN_TIME_US
-                && rendererDurationUs != TrackRenderer.MATCH_LONGEST_US
-                && rendererBufferedPositionUs >= rendererDurationUs)) {
-          // This track is fully buffered.
+        long workTimeMs = SystemClock.elapsedRealtime();
+        if (scheduledWorkTimeMs != -1 && workTimeMs >= scheduledWorkTimeMs) {
+          latenessHistograms[getRendererIndex(renderer)].addSample(
+              (workTimeMs - scheduledWorkTimeMs) * 1000);
+        }
+        renderer.doSomeWork(positionUs, elapsedRealtimeUs);
+      }
+      try {
+        if (worker != null) {
+          worker.maybeThrowError();
+        }
+        maxWorkDelayUs = Math.min(maxWorkDelayUs, renderer.getMaxWorkDelayUs());
+        allRenderersEnded = allRenderersEnded && renderer.isEnded();
+
+        // Determine whether the renderer is ready (or ended). If it's not, throw an error that's
+        // preventing the renderer from making progress, if such an error exists.
+        boolean rendererReadyOrEnded = rendererReadyOrEnded(renderer);
+        if (!rendererReadyOrEnded) {
+          renderer.maybeThrowError();
+        }
+        allRenderersReadyOrEnded = allRenderersReadyOrEnded && rendererReadyOrEnded;
+
+        if (bufferedPositionUs == TrackRenderer.UNKNOWN_TIME_US) {
+          // We've already encountered a track for which the buffered position is unknown. Hence
+          // the media buffer position unknown regardless of the buffered position of this track.
         } else {
-          bufferedPositionUs = Math.min(bufferedPositionUs, rendererBufferedPositionUs);
+          long rendererDurationUs = renderer.getDurationUs();
+          long rendererBufferedPositionUs = renderer.getBufferedPositionUs();
+          if (rendererBufferedPositionUs == TrackRenderer.UNKNOWN_TIME_US) {
+            bufferedPositionUs = TrackRenderer.UNKNOWN_TIME_US;
+          } else if (rendererBufferedPositionUs == TrackRenderer.END_OF_TRACK_US
+              || (rendererDurationUs != TrackRenderer.UNKNOWN_TIME_US
+                  && rendererDurationUs != TrackRenderer.MATCH_LONGEST_US
+                  && rendererBufferedPositionUs >= rendererDurationUs)) {
+            // This track is fully buffered.
+          } else {
+            bufferedPositionUs = Math.min(bufferedPositionUs, rendererBufferedPositionUs);
+          }
+        }
+      } finally {
+        if (worker != null) {
+          worker.unlock();
         }
       }
     }
@@ -478,11 +564,21 @@ import java.util.concurrent.atomic.AtomicInteger;
     }
 
     handler.removeMessages(MSG_DO_SOME_WORK);
-    if ((playWhenReady && state == ExoPlayer.STATE_READY) || state == ExoPlayer.STATE_BUFFERING) {
+    if (playWhenReady && state == ExoPlayer.STATE_READY) {
+      // Wake up when the first renderer next needs to do work, rather than polling.
+      scheduleNextOperation(MSG_DO_SOME_WORK, operationStartTimeMs, maxWorkDelayUs / 1000);
+    } else if (state == ExoPlayer.STATE_BUFFERING) {
       scheduleNextOperation(MSG_DO_SOME_WORK, operationStartTimeMs, RENDERING_INTERVAL_MS);
     } else if (!enabledRenderers.isEmpty()) {
       scheduleNextOperation(MSG_DO_SOME_WORK, operationStartTimeMs, IDLE_INTERVAL_MS);
     }
+    if (rendererWorkers != null) {
+      boolean idle = !(playWhenReady && state == ExoPlayer.STATE_READY)
+          && state != ExoPlayer.STATE_BUFFERING;
+      for (int i = 0; i < enabledRenderers.size(); i++) {
+        getWorker(enabledRenderers.get(i)).schedule(idle);
+      }
+    }
 
     TraceUtil.endSection();
   }
@@ -490,6 +586,9 @@ import java.util.concurrent.atomic.AtomicInteger;
   private void scheduleNextOperation(int operationType, long thisOperationStartTimeMs,
       long intervalMs) {
     long nextOperationStartTimeMs = thisOperationStartTimeMs + intervalMs;
+    if (operationType == MSG_DO_SOME_WORK) {
+      scheduledWorkTimeMs = nextOperationStartTimeMs;
+    }
     long nextOperationDelayMs = nextOperationStartTimeMs - SystemClock.elapsedRealtime();
     if (nextOperationDelayMs <= 0) {
       handler.sendEmptyMessage(operationType);
@@ -542,16 +641,30 @@ import java.util.concurrent.atomic.AtomicInteger;
     handler.removeMessages(MSG_DO_SOME_WORK);
     handler.removeMessages(MSG_INCREMENTAL_PREPARE);
     rebuffering = false;
+    scheduledWorkTimeMs = -1;
     standaloneMediaClock.stop();
     if (renderers == null) {
       return;
     }
-    for (int i = 0; i < renderers.length; i++) {
-      TrackRenderer renderer = renderers[i];
-      stopAndDisable(renderer);
-      release(renderer);
+    RendererWorker[] lockedWorkers = rendererWorkers;
+    lockWorkers(lockedWorkers);
+    try {
+      for (int i = 0; i < renderers.length; i++) {
+        TrackRenderer renderer = renderers[i];
+        stopAndDisable(renderer);
+        release(renderer);
+      }
+      if (lockedWorkers != null) {
+        for (int i = 0; i < lockedWorkers.length; i++) {
+          lockedWorkers[i].deactivate();
+          lockedWorkers[i].release();
+        }
+      }
+    } finally {
+      unlockWorkers(lockedWorkers);
     }
     renderers = null;
+    rendererWorkers = null;
     rendererMediaClock = null;
     rendererMediaClockSource = null;
     enabledRenderers.clear();
@@ -658,6 +771,10 @@ import java.util.concurrent.atomic.AtomicInteger;
   private void ensureDisabled(TrackRenderer renderer) throws ExoPlaybackException {
     ensureStopped(renderer);
     if (renderer.getState() == TrackRenderer.STATE_ENABLED) {
+      RendererWorker worker = getWorker(renderer);
+      if (worker != null) {
+        worker.deactivate();
+      }
       renderer.disable();
       if (renderer == rendererMediaClockSource) {
         rendererMediaClock = null;
@@ -665,4 +782,57 @@ import java.util.concurrent.atomic.AtomicInteger;
       }
     }
   }
+
+  private int getRendererIndex(TrackRenderer renderer) {
+    for (int i = 0; i < renderers.length; i++) {
+      if (renderers[i] == renderer) {
+        return i;
+      }
+    }
+    throw new IllegalStateException();
+  }
+
+  private RendererWorker getWorker(TrackRenderer renderer) {
+    return rendererWorkers != null ? rendererWorkers[getRendererIndex(renderer)] : null;
+  }
+
+  /**
+   * Checks that no two renderers read from the same {@link SampleSource}, which is required for
+   * the renderers to be driven in parallel.
+   *
+   * @param renderers The renderers.
+   * @throws IllegalArgumentException If two of the renderers share a source.
+   */
+  // Visible for testing.
+  /* package */ static void checkSourcesNotShared(TrackRenderer[] renderers) {
+    for (int i = 0; i < renderers.length; i++) {
+      if (!(renderers[i] instanceof SampleSourceTrackRenderer)) {
+        continue;
+      }
+      for (int j = i + 1; j < renderers.length; j++) {
+        if (renderers[j] instanceof SampleSourceTrackRenderer
+            && ((SampleSourceTrackRenderer) renderers[i]).sharesSourceWith(
+                (SampleSourceTrackRenderer) renderers[j])) {
+          throw new IllegalArgumentException("Renderers " + i + " and " + j
+              + " share a SampleSource, so can't be driven in parallel");
+        }
+      }
+    }
+  }
+
+  private static void lockWorkers(RendererWorker[] workers) {
+    if (workers != null) {
+      for (int i = 0; i < workers.length; i++) {
+        workers[i].lock();
+      }
+    }
+  }
+
+  private static void unlockWorkers(RendererWorker[] workers) {
+    if (workers != null) {
+      for (int i = workers.length - 1; i >= 0; i--) {
+        workers[i].unlock();
+      }
+    }
+  }
 }
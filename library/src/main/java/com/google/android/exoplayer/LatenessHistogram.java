@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+/**
+ * A histogram of how late calls to {@link TrackRenderer#doSomeWork(long, long)} were made with
+ * respect to the time at which they were scheduled, for debugging purposes only.
+ * <p>
+ * Samples are added from the thread that drives the renderer. The histogram may be read from any
+ * thread.
+ */
+public final class LatenessHistogram {
+
+  /**
+   * The exclusive upper bounds of the buckets, in microseconds.
+   */
+  private static final long[] BUCKET_UPPER_BOUNDS_US = new long[] {
+      1000, 2000, 5000, 10000, 20000, 50000, 100000, Long.MAX_VALUE};
+
+  private final int[] counts;
+
+  private int sampleCount;
+  private long totalLatenessUs;
+  private long maxLatenessUs;
+
+  public LatenessHistogram() {
+    counts = new int[BUCKET_UPPER_BOUNDS_US.length];
+  }
+
+  /**
+   * Adds a sample to the histogram.
+   *
+   * @param latenessUs How late the call was made, in microseconds. Must not be negative.
+   */
+  public synchronized void addSample(long latenessUs) {
+    int bucketIndex = 0;
+    while (latenessUs >= BUCKET_UPPER_BOUNDS_US[bucketIndex]) {
+      bucketIndex++;
+    }
+    counts[bucketIndex]++;
+    sampleCount++;
+    totalLatenessUs += latenessUs;
+    maxLatenessUs = Math.max(maxLatenessUs, latenessUs);
+  }
+
+  /**
+   * Removes all samples from the histogram.
+   */
+  public synchronized void reset() {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = 0;
+    }
+    sampleCount = 0;
+    totalLatenessUs = 0;
+    maxLatenessUs = 0;
+  }
+
+  /**
+   * Returns the number of buckets in the histogram.
+   */
+  public int getBucketCount() {
+    return BUCKET_UPPER_BOUNDS_US.length;
+  }
+
+  /**
+   * Returns the exclusive upper bound of a bucket in microseconds, or {@link Long#MAX_VALUE} for
+   * the last bucket. The inclusive lower bound of a bucket is the upper bound of the previous one,
+   * or zero for the first bucket.
+   *
+   * @param bucketIndex The index of the bucket.
+   * @return The exclusive upper bound of the bucket in microseconds.
+   */
+  public long getBucketUpperBoundUs(int bucketIndex) {
+    return BUCKET_UPPER_BOUNDS_US[bucketIndex];
+  }
+
+  /**
+   * Returns the number of samples in a bucket.
+   *
+   * @param bucketIndex The index of the bucket.
+   * @return The number of samples in the bucket.
+   */
+  public synchronized int getCount(int bucketIndex) {
+    return counts[bucketIndex];
+  }
+
+  /**
+   * Returns the total number of samples.
+   */
+  public synchronized int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Returns the mean lateness in microseconds, or zero if there are no samples.
+   */
+  public synchronized long getMeanLatenessUs() {
+    return sampleCount == 0 ? 0 : totalLatenessUs / sampleCount;
+  }
+
+  /**
+   * Returns the maximum lateness in microseconds, or zero if there are no samples.
+   */
+  public synchronized long getMaxLatenessUs() {
+    return maxLatenessUs;
+  }
+
+  public synchronized String getDebugString() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < counts.length - 1; i++) {
+      builder.append('<').append(BUCKET_UPPER_BOUNDS_US[i] / 1000).append("ms:").append(counts[i])
+          .append(' ');
+    }
+    builder.append(">=").append(BUCKET_UPPER_BOUNDS_US[counts.length - 2] / 1000).append("ms:")
+        .append(counts[counts.length - 1]);
+    builder.append(" mean:").append(getMeanLatenessUs() / 1000);
+    builder.append(" max:").append(maxLatenessUs / 1000);
+    return builder.toString();
+  }
+
+}
@@ -409,6 +409,23 @@ public class MediaCodecAudioTrackRenderer extends MediaCodecTrackRenderer implem
     return false;
   }
 
+  @Override
+  protected long getMaxWorkDelayUs() {
+    long defaultMaxWorkDelayUs = super.getMaxWorkDelayUs();
+    if (getState() != TrackRenderer.STATE_STARTED || getSourceState() == SOURCE_STATE_NOT_READY) {
+      // If the source has run out of samples then we may only be ready because the track is still
+      // playing out, so keep polling the source.
+      return defaultMaxWorkDelayUs;
+    }
+    long bufferSizeUs = audioTrack.getBufferSizeUs();
+    long pendingDurationUs = audioTrack.getPendingDurationUs();
+    if (bufferSizeUs == C.UNKNOWN_TIME_US || pendingDurationUs == C.UNKNOWN_TIME_US) {
+      return defaultMaxWorkDelayUs;
+    }
+    // There's no need to write more data until the track has played out half of its buffer.
+    return Math.max(defaultMaxWorkDelayUs, pendingDurationUs - bufferSizeUs / 2);
+  }
+
   @Override
   protected void onOutputStreamEnded() {
     audioTrack.handleEndOfStream();
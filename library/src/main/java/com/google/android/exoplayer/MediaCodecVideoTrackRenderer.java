@@ -114,6 +114,7 @@ public class MediaCodecVideoTrackRenderer extends MediaCodecTrackRenderer {
   private long droppedFrameAccumulationStartTimeMs;
   private int droppedFrameCount;
   private int consecutiveDroppedFrameCount;
+  private long pendingFrameDelayUs;
 
   private int pendingRotationDegrees;
   private float pendingPixelWidthHeightRatio;
@@ -207,6 +208,7 @@ public class MediaCodecVideoTrackRenderer extends MediaCodecTrackRenderer {
     this.eventListener = eventListener;
     this.maxDroppedFrameCountToNotify = maxDroppedFrameCountToNotify;
     joiningDeadlineUs = -1;
+    pendingFrameDelayUs = C.UNKNOWN_TIME_US;
     currentWidth = -1;
     currentHeight = -1;
     currentPixelWidthHeightRatio = -1;
@@ -240,6 +242,7 @@ public class MediaCodecVideoTrackRenderer extends MediaCodecTrackRenderer {
     renderedFirstFrame = false;
     consecutiveDroppedFrameCount = 0;
     joiningDeadlineUs = -1;
+    pendingFrameDelayUs = C.UNKNOWN_TIME_US;
   }
 
   @Override
@@ -384,6 +387,7 @@ public class MediaCodecVideoTrackRenderer extends MediaCodecTrackRenderer {
   @Override
   protected boolean processOutputBuffer(long positionUs, long elapsedRealtimeUs, MediaCodec codec,
       ByteBuffer buffer, MediaCodec.BufferInfo bufferInfo, int bufferIndex, boolean shouldSkip) {
+    pendingFrameDelayUs = C.UNKNOWN_TIME_US;
     if (shouldSkip) {
       skipOutputBuffer(codec, bufferIndex);
       consecutiveDroppedFrameCount = 0;
@@ -430,6 +434,7 @@ public class MediaCodecVideoTrackRenderer extends MediaCodecTrackRenderer {
         consecutiveDroppedFrameCount = 0;
         return true;
       }
+      pendingFrameDelayUs = earlyUs - 50000;
     } else {
       // We need to time the release ourselves.
       if (earlyUs < 30000) {
@@ -447,12 +452,22 @@ public class MediaCodecVideoTrackRenderer extends MediaCodecTrackRenderer {
         consecutiveDroppedFrameCount = 0;
         return true;
       }
+      pendingFrameDelayUs = earlyUs - 30000;
     }
 
     // We're either not playing, or it's not time to render the frame yet.
     return false;
   }
 
+  @Override
+  protected long getMaxWorkDelayUs() {
+    // If a frame is waiting to be released, there's no need to do more work until it's due, unless
+    // the source has run out of samples and needs polling.
+    return getState() == TrackRenderer.STATE_STARTED && pendingFrameDelayUs != C.UNKNOWN_TIME_US
+        && getSourceState() != SOURCE_STATE_NOT_READY
+        ? Math.max(super.getMaxWorkDelayUs(), pendingFrameDelayUs) : super.getMaxWorkDelayUs();
+  }
+
   protected void skipOutputBuffer(MediaCodec codec, int bufferIndex) {
     TraceUtil.beginSection("skipVideoBuffer");
     codec.releaseOutputBuffer(bufferIndex, false);
@@ -0,0 +1,409 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import com.google.android.exoplayer.upstream.Allocator;
+import com.google.android.exoplayer.upstream.BandwidthMeter;
+import com.google.android.exoplayer.upstream.NetworkLock;
+
+import android.os.Handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A {@link LoadControl} implementation that extends the behavior of {@link DefaultLoadControl}
+ * with priorities between loaders, byte budgets per loader and watermarks that adapt to the
+ * variability of the bandwidth.
+ * <p>
+ * As in {@link DefaultLoadControl}, loads are scheduled so as to fill the available buffer space,
+ * and the control switches to a draining state once the duration of buffered media and the buffer
+ * utilization both exceed respective thresholds. Loaders are kept in step with one another.
+ * <p>
+ * Audio and text loaders take priority over video loaders. Whilst an audio or text loader is
+ * starved, meaning that it has less media buffered than a threshold, video loaders that are not
+ * behind it may not start loads, so that its load is not slowed by sharing the bandwidth. Each
+ * loader's {@code bufferSizeContribution} is treated as its byte budget, and video loads may not
+ * use the budgets of starved audio and text loaders. The type of a loader is set using
+ * {@link #setTrackType(Object, int)}. Loaders whose type is not set are treated as video loaders.
+ * <p>
+ * If the control is set as the {@link BandwidthMeter.EventListener} of the bandwidth meter used
+ * for loading, the watermarks are scaled up by the variability of the observed bandwidth, so that
+ * more media is buffered when the bandwidth fluctuates.
+ * <p>
+ * This implementation integrates with {@link NetworkLock} in the same way as
+ * {@link DefaultLoadControl}.
+ */
+public final class PriorityLoadControl implements LoadControl, BandwidthMeter.EventListener {
+
+  /**
+   * Interface definition for a callback to be notified of {@link PriorityLoadControl} events.
+   */
+  public interface EventListener {
+
+    /**
+     * Invoked when the control transitions from a loading to a draining state, or vice versa.
+     *
+     * @param loading Whether the control is now in a loading state.
+     */
+    void onLoadingChanged(boolean loading);
+
+  }
+
+  /**
+   * The type of a loader that loads video.
+   */
+  public static final int TRACK_TYPE_VIDEO = 0;
+  /**
+   * The type of a loader that loads audio.
+   */
+  public static final int TRACK_TYPE_AUDIO = 1;
+  /**
+   * The type of a loader that loads text.
+   */
+  public static final int TRACK_TYPE_TEXT = 2;
+
+  public static final int DEFAULT_LOW_WATERMARK_MS = 15000;
+  public static final int DEFAULT_HIGH_WATERMARK_MS = 30000;
+  public static final float DEFAULT_LOW_BUFFER_LOAD = 0.2f;
+  public static final float DEFAULT_HIGH_BUFFER_LOAD = 0.8f;
+  public static final int DEFAULT_STARVATION_THRESHOLD_MS = 5000;
+  public static final float DEFAULT_MAX_WATERMARK_SCALE = 2f;
+
+  private static final int ABOVE_HIGH_WATERMARK = 0;
+  private static final int BETWEEN_WATERMARKS = 1;
+  private static final int BELOW_LOW_WATERMARK = 2;
+
+  private static final int PRIORITY_LOW = 0;
+  private static final int PRIORITY_HIGH = 1;
+
+  /**
+   * The duration of bandwidth samples after which the weight of older samples in the mean and
+   * variance is halved.
+   */
+  private static final double BANDWIDTH_HALF_LIFE_MS = 60000;
+
+  private final Allocator allocator;
+  private final List<Object> loaders;
+  private final HashMap<Object, LoaderState> loaderStates;
+  private final HashMap<Object, Integer> trackTypes;
+  private final Handler eventHandler;
+  private final EventListener eventListener;
+
+  private final long lowWatermarkUs;
+  private final long highWatermarkUs;
+  private final long starvationThresholdUs;
+  private final float lowBufferLoad;
+  private final float highBufferLoad;
+  private final float maxWatermarkScale;
+
+  private int targetBufferSize;
+  private long maxLoadStartPositionUs;
+  private long starvedLoadPositionUs;
+  private int bufferState;
+  private boolean fillingBuffers;
+  private boolean streamingPrioritySet;
+
+  // Accessed on the thread that delivers bandwidth meter events.
+  private double bandwidthMean;
+  private double bandwidthVariance;
+  private boolean haveBandwidthSample;
+  // Accessed on both threads.
+  private volatile float watermarkScale;
+
+  /**
+   * Constructs a new instance, using the {@code DEFAULT_*} constants defined in this class.
+   *
+   * @param allocator The {@link Allocator} used by the loader.
+   */
+  public PriorityLoadControl(Allocator allocator) {
+    this(allocator, null, null);
+  }
+
+  /**
+   * Constructs a new instance, using the {@code DEFAULT_*} constants defined in this class.
+   *
+   * @param allocator The {@link Allocator} used by the loader.
+   * @param eventHandler A handler to use when delivering events to {@code eventListener}. May be
+   *     null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   */
+  public PriorityLoadControl(Allocator allocator, Handler eventHandler,
+      EventListener eventListener) {
+    this(allocator, eventHandler, eventListener, DEFAULT_LOW_WATERMARK_MS,
+        DEFAULT_HIGH_WATERMARK_MS, DEFAULT_LOW_BUFFER_LOAD, DEFAULT_HIGH_BUFFER_LOAD,
+        DEFAULT_STARVATION_THRESHOLD_MS, DEFAULT_MAX_WATERMARK_SCALE);
+  }
+
+  /**
+   * Constructs a new instance.
+   *
+   * @param allocator The {@link Allocator} used by the loader.
+   * @param eventHandler A handler to use when delivering events to {@code eventListener}. May be
+   *     null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   * @param lowWatermarkMs The minimum duration of media that can be buffered for the control to
+   *     be in the draining state, before scaling. If less media is buffered, then the control will
+   *     transition to the filling state.
+   * @param highWatermarkMs The minimum duration of media that can be buffered for the control to
+   *     transition from filling to draining, before scaling.
+   * @param lowBufferLoad The minimum fraction of the buffer that must be utilized for the control
+   *     to be in the draining state. If the utilization is lower, then the control will transition
+   *     to the filling state.
+   * @param highBufferLoad The minimum fraction of the buffer that must be utilized for the control
+   *     to transition from the loading state to the draining state.
+   * @param starvationThresholdMs The duration of buffered media below which an audio or text
+   *     loader is starved, and takes priority over video loaders.
+   * @param maxWatermarkScale The maximum factor by which the watermarks are scaled when the
+   *     observed bandwidth fluctuates.
+   */
+  public PriorityLoadControl(Allocator allocator, Handler eventHandler,
+      EventListener eventListener, int lowWatermarkMs, int highWatermarkMs, float lowBufferLoad,
+      float highBufferLoad, int starvationThresholdMs, float maxWatermarkScale) {
+    this.allocator = allocator;
+    this.eventHandler = eventHandler;
+    this.eventListener = eventListener;
+    this.loaders = new ArrayList<>();
+    this.loaderStates = new HashMap<>();
+    this.trackTypes = new HashMap<>();
+    this.lowWatermarkUs = lowWatermarkMs * 1000L;
+    this.highWatermarkUs = highWatermarkMs * 1000L;
+    this.starvationThresholdUs = starvationThresholdMs * 1000L;
+    this.lowBufferLoad = lowBufferLoad;
+    this.highBufferLoad = highBufferLoad;
+    this.maxWatermarkScale = maxWatermarkScale;
+    watermarkScale = 1;
+  }
+
+  /**
+   * Sets the type of track loaded by a loader. Must be called before the loader is registered,
+   * which is typically before the player is prepared.
+   *
+   * @param loader The loader, which is typically a {@link SampleSource}.
+   * @param trackType One of {@link #TRACK_TYPE_VIDEO}, {@link #TRACK_TYPE_AUDIO} and
+   *     {@link #TRACK_TYPE_TEXT}.
+   */
+  public synchronized void setTrackType(Object loader, int trackType) {
+    trackTypes.put(loader, trackType);
+  }
+
+  @Override
+  public synchronized void register(Object loader, int bufferSizeContribution) {
+    Integer trackType = trackTypes.get(loader);
+    int priority = trackType == null || trackType == TRACK_TYPE_VIDEO ? PRIORITY_LOW
+        : PRIORITY_HIGH;
+    loaders.add(loader);
+    loaderStates.put(loader, new LoaderState(bufferSizeContribution, priority));
+    targetBufferSize += bufferSizeContribution;
+  }
+
+  @Override
+  public synchronized void unregister(Object loader) {
+    loaders.remove(loader);
+    LoaderState state = loaderStates.remove(loader);
+    targetBufferSize -= state.bufferSizeContribution;
+    updateControlState();
+  }
+
+  @Override
+  public synchronized void trimAllocator() {
+    allocator.trim(targetBufferSize);
+  }
+
+  @Override
+  public Allocator getAllocator() {
+    return allocator;
+  }
+
+  @Override
+  public synchronized boolean update(Object loader, long playbackPositionUs,
+      long nextLoadPositionUs, boolean loading) {
+    // Update the loader state.
+    long bufferedDurationUs = nextLoadPositionUs == -1 ? -1
+        : nextLoadPositionUs - playbackPositionUs;
+    int loaderBufferState = getLoaderBufferState(bufferedDurationUs);
+    boolean starved = bufferedDurationUs != -1 && bufferedDurationUs < starvationThresholdUs;
+    LoaderState loaderState = loaderStates.get(loader);
+    boolean loaderStateChanged = loaderState.bufferState != loaderBufferState
+        || loaderState.nextLoadPositionUs != nextLoadPositionUs || loaderState.loading != loading
+        || loaderState.starved != starved;
+    if (loaderStateChanged) {
+      loaderState.bufferState = loaderBufferState;
+      loaderState.nextLoadPositionUs = nextLoadPositionUs;
+      loaderState.loading = loading;
+      loaderState.starved = starved;
+    }
+
+    // Update the buffer state.
+    int currentBufferSize = allocator.getTotalBytesAllocated();
+    int bufferState = getBufferState(currentBufferSize);
+    boolean bufferStateChanged = this.bufferState != bufferState;
+    if (bufferStateChanged) {
+      this.bufferState = bufferState;
+    }
+
+    // If either of the individual states have changed, update the shared control state.
+    if (loaderStateChanged || bufferStateChanged) {
+      updateControlState();
+    }
+
+    if (nextLoadPositionUs == -1 || nextLoadPositionUs > maxLoadStartPositionUs) {
+      return false;
+    }
+    int availableBufferSize = targetBufferSize;
+    if (loaderState.priority == PRIORITY_LOW) {
+      // Yield to starved loaders with high priority that are not ahead of this one, and leave
+      // their budgets available to them.
+      if (starvedLoadPositionUs != -1 && starvedLoadPositionUs <= nextLoadPositionUs) {
+        return false;
+      }
+      availableBufferSize -= getReservedBufferSize();
+    }
+    return currentBufferSize < availableBufferSize;
+  }
+
+  @Override
+  public synchronized void onBandwidthSample(int elapsedMs, long bytes, long bitrate) {
+    if (elapsedMs <= 0) {
+      return;
+    }
+    double sample = bytes * 8000d / elapsedMs;
+    if (!haveBandwidthSample) {
+      haveBandwidthSample = true;
+      bandwidthMean = sample;
+      bandwidthVariance = 0;
+    } else {
+      // Exponentially weighted mean and variance, in which each sample is weighted by the time
+      // that it took. Samples taken whilst the bandwidth is low therefore have a large weight.
+      double weight = 1 - Math.pow(0.5, elapsedMs / BANDWIDTH_HALF_LIFE_MS);
+      double deviation = sample - bandwidthMean;
+      bandwidthMean += weight * deviation;
+      bandwidthVariance = (1 - weight) * (bandwidthVariance + weight * deviation * deviation);
+    }
+    float coefficientOfVariation = bandwidthMean == 0 ? maxWatermarkScale
+        : (float) (Math.sqrt(bandwidthVariance) / bandwidthMean);
+    watermarkScale = Math.min(maxWatermarkScale, 1 + coefficientOfVariation);
+  }
+
+  private int getLoaderBufferState(long bufferedDurationUs) {
+    if (bufferedDurationUs == -1) {
+      return ABOVE_HIGH_WATERMARK;
+    } else {
+      float scale = watermarkScale;
+      return bufferedDurationUs > highWatermarkUs * scale ? ABOVE_HIGH_WATERMARK
+          : bufferedDurationUs < lowWatermarkUs * scale ? BELOW_LOW_WATERMARK
+          : BETWEEN_WATERMARKS;
+    }
+  }
+
+  private int getBufferState(int currentBufferSize) {
+    float bufferLoad = (float) currentBufferSize / targetBufferSize;
+    return bufferLoad > highBufferLoad ? ABOVE_HIGH_WATERMARK
+        : bufferLoad < lowBufferLoad ? BELOW_LOW_WATERMARK
+        : BETWEEN_WATERMARKS;
+  }
+
+  /**
+   * Returns the sum of the byte budgets of starved loaders with high priority.
+   */
+  private int getReservedBufferSize() {
+    int reservedBufferSize = 0;
+    for (int i = 0; i < loaders.size(); i++) {
+      LoaderState loaderState = loaderStates.get(loaders.get(i));
+      if (loaderState.priority == PRIORITY_HIGH && loaderState.starved) {
+        reservedBufferSize += loaderState.bufferSizeContribution;
+      }
+    }
+    return reservedBufferSize;
+  }
+
+  private void updateControlState() {
+    boolean loading = false;
+    boolean haveNextLoadPosition = false;
+    int highestState = bufferState;
+    for (int i = 0; i < loaders.size(); i++) {
+      LoaderState loaderState = loaderStates.get(loaders.get(i));
+      loading |= loaderState.loading;
+      haveNextLoadPosition |= loaderState.nextLoadPositionUs != -1;
+      highestState = Math.max(highestState, loaderState.bufferState);
+    }
+
+    fillingBuffers = !loaders.isEmpty() && (loading || haveNextLoadPosition)
+        && (highestState == BELOW_LOW_WATERMARK
+        || (highestState == BETWEEN_WATERMARKS && fillingBuffers));
+    if (fillingBuffers && !streamingPrioritySet) {
+      NetworkLock.instance.add(NetworkLock.STREAMING_PRIORITY);
+      streamingPrioritySet = true;
+      notifyLoadingChanged(true);
+    } else if (!fillingBuffers && streamingPrioritySet && !loading) {
+      NetworkLock.instance.remove(NetworkLock.STREAMING_PRIORITY);
+      streamingPrioritySet = false;
+      notifyLoadingChanged(false);
+    }
+
+    maxLoadStartPositionUs = -1;
+    starvedLoadPositionUs = -1;
+    if (fillingBuffers) {
+      for (int i = 0; i < loaders.size(); i++) {
+        LoaderState loaderState = loaderStates.get(loaders.get(i));
+        long loaderTime = loaderState.nextLoadPositionUs;
+        if (loaderTime == -1) {
+          continue;
+        }
+        if (maxLoadStartPositionUs == -1 || loaderTime < maxLoadStartPositionUs) {
+          maxLoadStartPositionUs = loaderTime;
+        }
+        if (loaderState.priority == PRIORITY_HIGH && loaderState.starved
+            && (starvedLoadPositionUs == -1 || loaderTime < starvedLoadPositionUs)) {
+          starvedLoadPositionUs = loaderTime;
+        }
+      }
+    }
+  }
+
+  private void notifyLoadingChanged(final boolean loading) {
+    if (eventHandler != null && eventListener != null) {
+      eventHandler.post(new Runnable()  {
+        @Override
+        public void run() {
+          eventListener.onLoadingChanged(loading);
+        }
+      });
+    }
+  }
+
+  private static class LoaderState {
+
+    public final int bufferSizeContribution;
+    public final int priority;
+
+    public int bufferState;
+    public boolean loading;
+    public long nextLoadPositionUs;
+    public boolean starved;
+
+    public LoaderState(int bufferSizeContribution, int priority) {
+      this.bufferSizeContribution = bufferSizeContribution;
+      this.priority = priority;
+      bufferState = ABOVE_HIGH_WATERMARK;
+      loading = false;
+      nextLoadPositionUs = -1;
+    }
+
+  }
+
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import com.google.android.exoplayer.util.PriorityHandlerThread;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Drives {@link TrackRenderer#doSomeWork(long, long)} for a single renderer on a dedicated thread,
+ * so that a renderer that is slow to do its work does not delay the work of other renderers.
+ * <p>
+ * Whilst the worker is active, any other thread that calls the renderer must hold the worker's
+ * lock (see {@link #lock()} and {@link #unlock()}).
+ */
+/* package */ final class RendererWorker implements Handler.Callback {
+
+  private static final int MSG_DO_SOME_WORK = 1;
+
+  private static final long RENDERING_INTERVAL_US = 10000;
+  private static final long IDLE_INTERVAL_US = 1000000;
+
+  private final TrackRenderer renderer;
+  private final StandaloneMediaClock playbackClock;
+  private final LatenessHistogram latenessHistogram;
+  private final ReentrantLock lock;
+  private final HandlerThread workerThread;
+  private final Handler handler;
+
+  // Guarded by lock.
+  private boolean active;
+  private boolean idle;
+  private MediaClock rendererMediaClock;
+  private ExoPlaybackException error;
+  private RuntimeException runtimeError;
+  private long scheduledWorkTimeMs;
+
+  /**
+   * @param name The name of the worker thread.
+   * @param renderer The renderer to drive.
+   * @param playbackClock The clock from which the playback position is obtained, if the renderer
+   *     is not providing it. If the renderer is providing it, the clock is updated after each
+   *     piece of work.
+   * @param latenessHistogram A histogram to which the lateness of each piece of work is added.
+   */
+  public RendererWorker(String name, TrackRenderer renderer,
+      StandaloneMediaClock playbackClock, LatenessHistogram latenessHistogram) {
+    this.renderer = renderer;
+    this.playbackClock = playbackClock;
+    this.latenessHistogram = latenessHistogram;
+    lock = new ReentrantLock();
+    idle = true;
+    workerThread = new PriorityHandlerThread(name, Process.THREAD_PRIORITY_AUDIO);
+    workerThread.start();
+    handler = new Handler(workerThread.getLooper(), this);
+  }
+
+  /**
+   * Acquires the lock that must be held when calling the renderer from another thread. Blocks
+   * until any piece of work being done by the worker has finished.
+   */
+  public void lock() {
+    lock.lock();
+  }
+
+  /**
+   * Releases the lock acquired by {@link #lock()}.
+   */
+  public void unlock() {
+    lock.unlock();
+  }
+
+  /**
+   * Activates the worker. Must be called after the renderer has been enabled. The worker does not
+   * start to do work until {@link #schedule(boolean)} is called.
+   */
+  public void activate() {
+    lock.lock();
+    try {
+      active = true;
+      error = null;
+      runtimeError = null;
+      rendererMediaClock = renderer.getMediaClock();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Deactivates the worker. Must be called before or after the renderer is disabled, whilst
+   * holding the lock.
+   */
+  public void deactivate() {
+    lock.lock();
+    try {
+      active = false;
+      rendererMediaClock = null;
+      handler.removeMessages(MSG_DO_SOME_WORK);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Ensures that the worker has a piece of work scheduled, if it is active.
+   *
+   * @param idle Whether the player is idle, in which case the renderer is driven infrequently. If
+   *     the worker was previously idle and this is false, the work is done immediately.
+   */
+  public void schedule(boolean idle) {
+    lock.lock();
+    try {
+      if (!active) {
+        return;
+      }
+      boolean wake = this.idle && !idle;
+      this.idle = idle;
+      if (wake) {
+        handler.removeMessages(MSG_DO_SOME_WORK);
+      }
+      if (wake || !handler.hasMessages(MSG_DO_SOME_WORK)) {
+        scheduleWork(SystemClock.elapsedRealtime());
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Throws an error that caused the worker to stop doing work, if such an error exists. Must be
+   * called whilst holding the lock.
+   *
+   * @throws ExoPlaybackException The error that caused the worker to stop doing work.
+   */
+  public void maybeThrowError() throws ExoPlaybackException {
+    if (error != null) {
+      throw error;
+    } else if (runtimeError != null) {
+      throw runtimeError;
+    }
+  }
+
+  /**
+   * Releases the worker. The worker must have been deactivated.
+   */
+  public void release() {
+    workerThread.quit();
+  }
+
+  @Override
+  public boolean handleMessage(Message msg) {
+    if (msg.what != MSG_DO_SOME_WORK) {
+      return false;
+    }
+    long workTimeMs = SystemClock.elapsedRealtime();
+    lock.lock();
+    try {
+      if (!active) {
+        return true;
+      }
+      if (workTimeMs >= scheduledWorkTimeMs) {
+        latenessHistogram.addSample((workTimeMs - scheduledWorkTimeMs) * 1000);
+      }
+      long elapsedRealtimeUs = workTimeMs * 1000;
+      long positionUs;
+      if (rendererMediaClock != null && !renderer.isEnded()) {
+        positionUs = rendererMediaClock.getPositionUs();
+        playbackClock.setPositionUs(positionUs);
+      } else {
+        positionUs = playbackClock.getPositionUs();
+      }
+      renderer.doSomeWork(positionUs, elapsedRealtimeUs);
+      long workDelayUs;
+      if (idle) {
+        workDelayUs = IDLE_INTERVAL_US;
+      } else if (renderer.getState() == TrackRenderer.STATE_STARTED) {
+        workDelayUs = renderer.getMaxWorkDelayUs();
+      } else {
+        workDelayUs = RENDERING_INTERVAL_US;
+      }
+      scheduleWork(workTimeMs + workDelayUs / 1000);
+    } catch (ExoPlaybackException e) {
+      // Stop doing work. The error is thrown on the playback thread by maybeThrowError.
+      error = e;
+      active = false;
+      return true;
+    } catch (RuntimeException e) {
+      // Ditto.
+      runtimeError = e;
+      active = false;
+      return true;
+    } finally {
+      lock.unlock();
+    }
+    return true;
+  }
+
+  /**
+   * Schedules the next piece of work. Must be called whilst holding the lock.
+   */
+  private void scheduleWork(long workTimeMs) {
+    scheduledWorkTimeMs = workTimeMs;
+    long delayMs = workTimeMs - SystemClock.elapsedRealtime();
+    if (delayMs <= 0) {
+      handler.sendEmptyMessage(MSG_DO_SOME_WORK);
+    } else {
+      handler.sendEmptyMessageDelayed(MSG_DO_SOME_WORK, delayMs);
+    }
+  }
+
+}
@@ -165,6 +165,24 @@ public abstract class SampleSourceTrackRenderer extends TrackRenderer {
     }
   }
 
+  /**
+   * Returns whether this renderer reads from a {@link SampleSource} that another renderer also
+   * reads from.
+   *
+   * @param other The other renderer.
+   * @return True if the renderers share a source. False otherwise.
+   */
+  /* package */ final boolean sharesSourceWith(SampleSourceTrackRenderer other) {
+    for (int i = 0; i < sources.length; i++) {
+      for (int j = 0; j < other.sources.length; j++) {
+        if (sources[i] == other.sources[j]) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   @Override
   protected final int getTrackCount() {
     return handledSourceTrackIndices.length;
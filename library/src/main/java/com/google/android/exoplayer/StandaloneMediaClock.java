@@ -20,6 +20,8 @@ import android.os.SystemClock;
 /**
  * A standalone {@link MediaClock}. The clock can be started, stopped and its time can be set and
  * retrieved. When started, this clock is based on {@link SystemClock#elapsedRealtime()}.
+ * <p>
+ * The clock is thread-safe, so that it can be shared by renderers driven on separate threads.
  */
 /* package */ final class StandaloneMediaClock implements MediaClock {
 
@@ -39,7 +41,7 @@ import android.os.SystemClock;
   /**
    * Starts the clock. Does nothing if the clock is already started.
    */
-  public void start() {
+  public synchronized void start() {
     if (!started) {
       started = true;
       deltaUs = elapsedRealtimeMinus(positionUs);
@@ -49,7 +51,7 @@ import android.os.SystemClock;
   /**
    * Stops the clock. Does nothing if the clock is already stopped.
    */
-  public void stop() {
+  public synchronized void stop() {
     if (started) {
       positionUs = elapsedRealtimeMinus(deltaUs);
       started = false;
@@ -59,13 +61,13 @@ import android.os.SystemClock;
   /**
    * @param timeUs The position to set in microseconds.
    */
-  public void setPositionUs(long timeUs) {
+  public synchronized void setPositionUs(long timeUs) {
     this.positionUs = timeUs;
     deltaUs = elapsedRealtimeMinus(timeUs);
   }
 
   @Override
-  public long getPositionUs() {
+  public synchronized long getPositionUs() {
     return started ? elapsedRealtimeMinus(deltaUs) : positionUs;
   }
 
@@ -44,6 +44,10 @@ public abstract class TrackRenderer implements ExoPlayerComponent {
    * Represents the time of the end of the track.
    */
   public static final long END_OF_TRACK_US = -3;
+  /**
+   * The default maximum delay between invocations of {@link #doSomeWork(long, long)}.
+   */
+  public static final long DEFAULT_MAX_WORK_DELAY_US = 10000;
 
   /**
    * The renderer has been released and should not be used.
@@ -319,6 +323,27 @@ public abstract class TrackRenderer implements ExoPlayerComponent {
   protected abstract void doSomeWork(long positionUs, long elapsedRealtimeUs)
       throws ExoPlaybackException;
 
+  /**
+   * Returns the maximum delay before {@link #doSomeWork(long, long)} should next be invoked, given
+   * that it has just been invoked. The player may invoke it sooner, for example because another
+   * renderer requires it.
+   * <p>
+   * The default implementation returns {@link #DEFAULT_MAX_WORK_DELAY_US}. Renderers that know
+   * when they will next be able to make progress, for example because output is blocked until a
+   * deadline, should override this method so that the player does not wake up unnecessarily.
+   * They should still return the default while they're waiting for media, since
+   * {@link #doSomeWork(long, long)} is also what continues buffering and lets the player notice
+   * that the renderer is no longer ready.
+   * <p>
+   * This method may be called when the renderer is in the following states:
+   * {@link #STATE_ENABLED}, {@link #STATE_STARTED}
+   *
+   * @return The maximum delay in microseconds.
+   */
+  protected long getMaxWorkDelayUs() {
+    return DEFAULT_MAX_WORK_DELAY_US;
+  }
+
   /**
    * Throws an error that's preventing the renderer from making progress or buffering more data at
    * this point in time.
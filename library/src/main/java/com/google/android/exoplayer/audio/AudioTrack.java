@@ -673,6 +673,20 @@ public final class AudioTrack {
         || overrideHasPendingData());
   }
 
+  /**
+   * Returns the duration of audio that has been written to the track but not yet played out.
+   *
+   * @return The pending duration in microseconds, or {@link C#UNKNOWN_TIME_US} if the track is not
+   *     initialized.
+   */
+  public long getPendingDurationUs() {
+    if (!isInitialized()) {
+      return C.UNKNOWN_TIME_US;
+    }
+    long pendingFrames = getSubmittedFrames() - audioTrackUtil.getPlaybackHeadPosition();
+    return pendingFrames > 0 ? framesToDurationUs(pendingFrames) : 0;
+  }
+
   /**
    * Sets the playback parameters. Only available for SDK_INT >= 23
    *
@@ -16,6 +16,7 @@
 package com.google.android.exoplayer.chunk;
 
 import com.google.android.exoplayer.upstream.BandwidthMeter;
+import com.google.android.exoplayer.util.Assertions;
 
 import java.util.List;
 import java.util.Random;
@@ -281,4 +282,279 @@ public interface FormatEvaluator {
 
   }
 
+  /**
+   * An evaluator that selects formats using BOLA, a buffer based algorithm that chooses the format
+   * maximizing a utility function of its bitrate and the duration of buffered media. Utilities are
+   * logarithmic in bitrate. The lowest quality format is selected when the buffer is empty, and the
+   * highest when the buffer reaches the configured target.
+   * <p>
+   * Increases in quality are additionally limited to formats whose bitrates can be sustained at the
+   * estimated bandwidth, unless the current format's bitrate is already higher (the BOLA-O
+   * variant). This prevents a large buffer from selecting a format the network can't sustain. It
+   * doesn't prevent switching between adjacent formats as the buffer level fluctuates.
+   *
+   * @see <a href="https://arxiv.org/abs/1601.06748">BOLA: Near-Optimal Bitrate Adaptation for
+   *     Online Videos</a>
+   */
+  public static final class BolaEvaluator implements FormatEvaluator {
+
+    public static final int DEFAULT_MIN_BUFFER_MS = 10000;
+    public static final int DEFAULT_BUFFER_TARGET_MS = 30000;
+
+    private final BandwidthMeter bandwidthMeter;
+    private final double minBufferSecs;
+    private final double bufferTargetSecs;
+
+    /**
+     * @param bandwidthMeter Provides an estimate of the currently available bandwidth, which is
+     *     used to limit increases in quality. May be null, in which case quality increases are
+     *     determined by the buffer alone.
+     */
+    public BolaEvaluator(BandwidthMeter bandwidthMeter) {
+      this(bandwidthMeter, DEFAULT_MIN_BUFFER_MS, DEFAULT_BUFFER_TARGET_MS);
+    }
+
+    /**
+     * @param bandwidthMeter Provides an estimate of the currently available bandwidth, which is
+     *     used to limit increases in quality. May be null, in which case quality increases are
+     *     determined by the buffer alone.
+     * @param minBufferMs The duration of buffered media below which the lowest quality format is
+     *     always selected.
+     * @param bufferTargetMs The duration of buffered media at which the highest quality format is
+     *     selected. Must be greater than {@code minBufferMs}.
+     */
+    public BolaEvaluator(BandwidthMeter bandwidthMeter, int minBufferMs, int bufferTargetMs) {
+      Assertions.checkArgument(bufferTargetMs > minBufferMs);
+      this.bandwidthMeter = bandwidthMeter;
+      this.minBufferSecs = minBufferMs / 1000d;
+      this.bufferTargetSecs = bufferTargetMs / 1000d;
+    }
+
+    @Override
+    public void enable() {
+      // Do nothing.
+    }
+
+    @Override
+    public void disable() {
+      // Do nothing.
+    }
+
+    @Override
+    public void evaluate(List<? extends MediaChunk> queue, long playbackPositionUs,
+        Format[] formats, Evaluation evaluation) {
+      long bufferedDurationUs = queue.isEmpty() ? 0
+          : queue.get(queue.size() - 1).endTimeUs - playbackPositionUs;
+      Format current = evaluation.format;
+      Format ideal = formats.length == 1 ? formats[0]
+          : determineIdealFormat(formats, bufferedDurationUs);
+      if (current != null && ideal.bitrate > current.bitrate && bandwidthMeter != null) {
+        long bitrateEstimate = bandwidthMeter.getBitrateEstimate();
+        if (bitrateEstimate != BandwidthMeter.NO_ESTIMATE) {
+          Format sustainable = getFormatForBitrate(formats, bitrateEstimate);
+          if (sustainable.bitrate < ideal.bitrate) {
+            ideal = sustainable.bitrate > current.bitrate ? sustainable : current;
+          }
+        }
+      }
+      if (current != null && ideal != current) {
+        evaluation.trigger = Chunk.TRIGGER_ADAPTIVE;
+      }
+      evaluation.format = ideal;
+    }
+
+    private Format determineIdealFormat(Format[] formats, long bufferedDurationUs) {
+      double bufferedSecs = Math.max(0, bufferedDurationUs) / 1000000d;
+      double minBitrate = Math.max(1, formats[formats.length - 1].bitrate);
+      // Utilities are offset so that the utility of the lowest quality format is 1.
+      double maxUtility = Math.log(Math.max(1, formats[0].bitrate) / minBitrate) + 1;
+      double gp = (maxUtility - 1) / (bufferTargetSecs / minBufferSecs - 1);
+      double vp = minBufferSecs / gp;
+      Format ideal = formats[formats.length - 1];
+      double idealScore = -Double.MAX_VALUE;
+      for (int i = formats.length - 1; i >= 0; i--) {
+        double bitrate = Math.max(1, formats[i].bitrate);
+        double utility = Math.log(bitrate / minBitrate) + 1;
+        double score = (vp * (utility + gp) - bufferedSecs) / bitrate;
+        if (score > idealScore) {
+          ideal = formats[i];
+          idealScore = score;
+        }
+      }
+      return ideal;
+    }
+
+    /**
+     * Returns the highest quality format whose bitrate does not exceed the specified bitrate, or
+     * the lowest quality format if there is no such format.
+     */
+    private static Format getFormatForBitrate(Format[] formats, long bitrate) {
+      for (int i = 0; i < formats.length; i++) {
+        if (formats[i].bitrate <= bitrate) {
+          return formats[i];
+        }
+      }
+      return formats[formats.length - 1];
+    }
+
+  }
+
+  /**
+   * An evaluator that selects formats using model predictive control. For each evaluation, the
+   * download of the next few chunks is simulated for every sequence of formats, using the
+   * estimated bandwidth and the current duration of buffered media. The first format of the
+   * sequence that maximizes a quality of experience metric is selected. The metric rewards bitrate,
+   * and penalizes changes in bitrate and time spent rebuffering.
+   * <p>
+   * The bandwidth estimate is discounted by a configurable fraction, as in the robust variant of
+   * the algorithm, to account for inaccuracies in the estimate.
+   *
+   * @see <a href="https://dl.acm.org/doi/10.1145/2785956.2787486">A Control-Theoretic Approach for
+   *     Dynamic Adaptive Video Streaming over HTTP</a>
+   */
+  public static final class MpcEvaluator implements FormatEvaluator {
+
+    public static final int DEFAULT_MAX_INITIAL_BITRATE = 800000;
+    public static final int DEFAULT_HORIZON = 5;
+    public static final int DEFAULT_CHUNK_DURATION_MS = 4000;
+    public static final int DEFAULT_MAX_BUFFER_MS = 30000;
+    public static final float DEFAULT_BANDWIDTH_FRACTION = 0.8f;
+    public static final float DEFAULT_REBUFFER_PENALTY = 1f;
+    public static final float DEFAULT_SWITCH_PENALTY = 1f;
+
+    private final BandwidthMeter bandwidthMeter;
+    private final int maxInitialBitrate;
+    private final int horizon;
+    private final double maxBufferSecs;
+    private final float bandwidthFraction;
+    private final float rebufferPenalty;
+    private final float switchPenalty;
+
+    // State for the search, which is reused between evaluations.
+    private double[] bitrates;
+    private double chunkDurationSecs;
+    private double throughput;
+    private double maxBitrateRebufferPenalty;
+
+    /**
+     * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+     */
+    public MpcEvaluator(BandwidthMeter bandwidthMeter) {
+      this(bandwidthMeter, DEFAULT_MAX_INITIAL_BITRATE, DEFAULT_HORIZON, DEFAULT_MAX_BUFFER_MS,
+          DEFAULT_BANDWIDTH_FRACTION, DEFAULT_REBUFFER_PENALTY, DEFAULT_SWITCH_PENALTY);
+    }
+
+    /**
+     * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+     * @param maxInitialBitrate The maximum bitrate in bits per second that should be assumed
+     *     when bandwidthMeter cannot provide an estimate due to playback having only just started.
+     * @param horizon The number of future chunks over which downloads are simulated. The cost of
+     *     an evaluation grows exponentially with the horizon.
+     * @param maxBufferMs The maximum duration of media that is buffered.
+     * @param bandwidthFraction The fraction of the estimated bandwidth that is assumed to be
+     *     available.
+     * @param rebufferPenalty The penalty for each second of rebuffering, as a multiple of the
+     *     bitrate of the highest quality format.
+     * @param switchPenalty The penalty for a change in bitrate, as a multiple of the change.
+     */
+    public MpcEvaluator(BandwidthMeter bandwidthMeter, int maxInitialBitrate, int horizon,
+        int maxBufferMs, float bandwidthFraction, float rebufferPenalty, float switchPenalty) {
+      Assertions.checkArgument(horizon > 0);
+      this.bandwidthMeter = bandwidthMeter;
+      this.maxInitialBitrate = maxInitialBitrate;
+      this.horizon = horizon;
+      this.maxBufferSecs = maxBufferMs / 1000d;
+      this.bandwidthFraction = bandwidthFraction;
+      this.rebufferPenalty = rebufferPenalty;
+      this.switchPenalty = switchPenalty;
+    }
+
+    @Override
+    public void enable() {
+      // Do nothing.
+    }
+
+    @Override
+    public void disable() {
+      // Do nothing.
+    }
+
+    @Override
+    public void evaluate(List<? extends MediaChunk> queue, long playbackPositionUs,
+        Format[] formats, Evaluation evaluation) {
+      Format current = evaluation.format;
+      Format ideal = formats.length == 1 ? formats[0]
+          : determineIdealFormat(queue, playbackPositionUs, formats, current);
+      if (current != null && ideal != current) {
+        evaluation.trigger = Chunk.TRIGGER_ADAPTIVE;
+      }
+      evaluation.format = ideal;
+    }
+
+    private Format determineIdealFormat(List<? extends MediaChunk> queue,
+        long playbackPositionUs, Format[] formats, Format current) {
+      if (bitrates == null || bitrates.length != formats.length) {
+        bitrates = new double[formats.length];
+      }
+      for (int i = 0; i < formats.length; i++) {
+        bitrates[i] = Math.max(1, formats[i].bitrate);
+      }
+      long bitrateEstimate = bandwidthMeter.getBitrateEstimate();
+      throughput = bitrateEstimate == BandwidthMeter.NO_ESTIMATE ? maxInitialBitrate
+          : bitrateEstimate * bandwidthFraction;
+      throughput = Math.max(1, throughput);
+      MediaChunk lastChunk = queue.isEmpty() ? null : queue.get(queue.size() - 1);
+      chunkDurationSecs = lastChunk == null ? DEFAULT_CHUNK_DURATION_MS / 1000d
+          : (lastChunk.endTimeUs - lastChunk.startTimeUs) / 1000000d;
+      maxBitrateRebufferPenalty = rebufferPenalty * bitrates[0];
+      double bufferedSecs = lastChunk == null ? 0
+          : Math.max(0, lastChunk.endTimeUs - playbackPositionUs) / 1000000d;
+      double previousBitrate = current == null ? -1 : Math.max(1, current.bitrate);
+
+      int idealIndex = formats.length - 1;
+      double idealQoe = -Double.MAX_VALUE;
+      for (int i = 0; i < formats.length; i++) {
+        double qoe = getChunkQoe(i, previousBitrate, bufferedSecs)
+            + getMaxQoe(1, bitrates[i], getBufferAfterChunk(i, bufferedSecs));
+        if (qoe > idealQoe) {
+          idealIndex = i;
+          idealQoe = qoe;
+        }
+      }
+      return formats[idealIndex];
+    }
+
+    /**
+     * Returns the maximum quality of experience that can be obtained for the remaining chunks in
+     * the horizon, given the state after loading the previous chunk.
+     */
+    private double getMaxQoe(int step, double previousBitrate, double bufferedSecs) {
+      if (step == horizon) {
+        return 0;
+      }
+      double maxQoe = -Double.MAX_VALUE;
+      for (int i = 0; i < bitrates.length; i++) {
+        double qoe = getChunkQoe(i, previousBitrate, bufferedSecs)
+            + getMaxQoe(step + 1, bitrates[i], getBufferAfterChunk(i, bufferedSecs));
+        maxQoe = Math.max(maxQoe, qoe);
+      }
+      return maxQoe;
+    }
+
+    private double getChunkQoe(int formatIndex, double previousBitrate, double bufferedSecs) {
+      double bitrate = bitrates[formatIndex];
+      double downloadSecs = bitrate * chunkDurationSecs / throughput;
+      double rebufferSecs = Math.max(0, downloadSecs - bufferedSecs);
+      double switchCost = previousBitrate < 0 ? 0 : Math.abs(bitrate - previousBitrate);
+      return bitrate - switchPenalty * switchCost - maxBitrateRebufferPenalty * rebufferSecs;
+    }
+
+    private double getBufferAfterChunk(int formatIndex, double bufferedSecs) {
+      double downloadSecs = bitrates[formatIndex] * chunkDurationSecs / throughput;
+      return Math.min(maxBufferSecs,
+          Math.max(0, bufferedSecs - downloadSecs) + chunkDurationSecs);
+    }
+
+  }
+
 }
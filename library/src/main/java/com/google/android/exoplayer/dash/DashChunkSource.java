@@ -44,8 +44,10 @@ import com.google.android.exoplayer.drm.DrmInitData;
 import com.google.android.exoplayer.extractor.ChunkIndex;
 import com.google.android.exoplayer.extractor.mp4.FragmentedMp4Extractor;
 import com.google.android.exoplayer.extractor.webm.WebmExtractor;
+import com.google.android.exoplayer.upstream.CoalescingDataSource;
 import com.google.android.exoplayer.upstream.DataSource;
 import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.PrefetchingDataSource;
 import com.google.android.exoplayer.util.Clock;
 import com.google.android.exoplayer.util.ManifestFetcher;
 import com.google.android.exoplayer.util.MimeTypes;
@@ -73,6 +75,14 @@ import java.util.List;
  * missing representations) and</li>
  * <li>that representations are contiguous across multiple periods</li>
  * </ol>
+ * <p>
+ * If the {@link DataSource} passed to the constructor is a {@link PrefetchingDataSource}, the
+ * segments that follow each requested media segment are prefetched. Prefetches are canceled when
+ * a seek occurs or when a different representation is selected, and the prefetching threads are
+ * released when the source is disabled. The {@link PrefetchingDataSource} must not be shared with
+ * other chunk sources. If it's a {@link CoalescingDataSource}, index data that is stored
+ * separately from the initialization data is hinted so that it can be loaded by the same request
+ * where possible.
  */
 // TODO: handle cases where the above assumption are false
 public class DashChunkSource implements ChunkSource, Output {
@@ -109,6 +119,8 @@ public class DashChunkSource implements ChunkSource, Output {
   private final EventListener eventListener;
 
   private final DataSource dataSource;
+  private final PrefetchingDataSource prefetchingDataSource;
+  private final CoalescingDataSource coalescingDataSource;
   private final FormatEvaluator adaptiveFormatEvaluator;
   private final Evaluation evaluation;
   private final ManifestFetcher<MediaPresentationDescription> manifestFetcher;
@@ -261,6 +273,10 @@ public class DashChunkSource implements ChunkSource, Output {
     this.currentManifest = initialManifest;
     this.trackSelector = trackSelector;
     this.dataSource = dataSource;
+    this.prefetchingDataSource = dataSource instanceof PrefetchingDataSource
+        ? (PrefetchingDataSource) dataSource : null;
+    this.coalescingDataSource = dataSource instanceof CoalescingDataSource
+        ? (CoalescingDataSource) dataSource : null;
     this.adaptiveFormatEvaluator = adaptiveFormatEvaluator;
     this.systemClock = systemClock;
     this.liveEdgeLatencyUs = liveEdgeLatencyUs;
@@ -497,6 +513,15 @@ public class DashChunkSource implements ChunkSource, Output {
         mediaFormat, enabledTrack, segmentNum, evaluation.trigger);
     lastChunkWasInitialization = false;
     out.chunk = nextMediaChunk;
+
+    if (prefetchingDataSource != null) {
+      if (queue.isEmpty() || !queue.get(out.queueSize - 1).format.equals(selectedFormat)) {
+        // Following a seek or a change of representation, previously prefetched segments won't be
+        // requested.
+        prefetchingDataSource.cancelPrefetches();
+      }
+      prefetchFollowingSegments(representationHolder, segmentNum);
+    }
   }
 
   @Override
@@ -543,6 +568,9 @@ public class DashChunkSource implements ChunkSource, Output {
     if (manifestFetcher != null) {
       manifestFetcher.disable();
     }
+    if (prefetchingDataSource != null) {
+      prefetchingDataSource.release();
+    }
     periodHolders.clear();
     evaluation.format = null;
     availableRange = null;
@@ -682,12 +710,16 @@ public class DashChunkSource implements ChunkSource, Output {
       requestUri = initializationUri.attemptMerge(indexUri);
       if (requestUri == null) {
         requestUri = initializationUri;
+        if (indexUri != null && coalescingDataSource != null) {
+          coalescingDataSource.addHint(new DataSpec(indexUri.getUri(), indexUri.start,
+              indexUri.length, representation.getCacheKey(indexUri)));
+        }
       }
     } else {
       requestUri = indexUri;
     }
     DataSpec dataSpec = new DataSpec(requestUri.getUri(), requestUri.start, requestUri.length,
-        representation.getCacheKey());
+        representation.getCacheKey(requestUri));
     return new InitializationChunk(dataSource, dataSpec, trigger, representation.format,
         extractor, manifestIndex);
   }
@@ -699,9 +731,7 @@ public class DashChunkSource implements ChunkSource, Output {
     Format format = representation.format;
     long startTimeUs = representationHolder.getSegmentStartTimeUs(segmentNum);
     long endTimeUs = representationHolder.getSegmentEndTimeUs(segmentNum);
-    RangedUri segmentUri = representationHolder.getSegmentUrl(segmentNum);
-    DataSpec dataSpec = new DataSpec(segmentUri.getUri(), segmentUri.start, segmentUri.length,
-        representation.getCacheKey());
+    DataSpec dataSpec = newSegmentDataSpec(representationHolder, segmentNum);
 
     long sampleOffsetUs = periodHolder.startTimeUs - representation.presentationTimeOffsetUs;
     if (mimeTypeIsRawText(format.mimeType)) {
@@ -717,6 +747,28 @@ public class DashChunkSource implements ChunkSource, Output {
     }
   }
 
+  private void prefetchFollowingSegments(RepresentationHolder representationHolder,
+      int segmentNum) {
+    int lastPrefetchSegmentNum = segmentNum + prefetchingDataSource.getMaxPrefetchCount();
+    for (int i = segmentNum + 1; i <= lastPrefetchSegmentNum; i++) {
+      if (representationHolder.isBeyondLastSegment(i)
+          || (live && representationHolder.getSegmentEndTimeUs(i) > availableRangeValues[1])) {
+        // Don't request segments that are beyond the end of the period, or not yet available.
+        return;
+      }
+      if (!prefetchingDataSource.prefetch(newSegmentDataSpec(representationHolder, i))) {
+        return;
+      }
+    }
+  }
+
+  private static DataSpec newSegmentDataSpec(RepresentationHolder representationHolder,
+      int segmentNum) {
+    RangedUri segmentUri = representationHolder.getSegmentUrl(segmentNum);
+    return new DataSpec(segmentUri.getUri(), segmentUri.start, segmentUri.length,
+        representationHolder.representation.getCacheKey(segmentUri));
+  }
+
   private long getNowUnixTimeUs() {
     if (elapsedRealtimeOffsetUs != 0) {
       return (systemClock.elapsedRealtime() * 1000) + elapsedRealtimeOffsetUs;
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.dash;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.dash.mpd.AdaptationSet;
+import com.google.android.exoplayer.dash.mpd.MediaPresentationDescription;
+import com.google.android.exoplayer.dash.mpd.Period;
+import com.google.android.exoplayer.dash.mpd.RangedUri;
+import com.google.android.exoplayer.dash.mpd.Representation;
+import com.google.android.exoplayer.dash.mpd.Representation.SingleSegmentRepresentation;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.cache.CacheDownloader;
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the requests required to download a DASH stream using a {@link CacheDownloader}. The
+ * requests are keyed in the same way as those made by {@link DashChunkSource}, so that the
+ * downloaded data is used during playback.
+ */
+public final class DashDownloadRequests {
+
+  private DashDownloadRequests() {}
+
+  /**
+   * Builds the requests required to download all of the representations in a manifest.
+   *
+   * @param manifest The manifest, which must not be dynamic.
+   * @return The requests.
+   */
+  public static List<DataSpec> build(MediaPresentationDescription manifest) {
+    return build(manifest, null);
+  }
+
+  /**
+   * Builds the requests required to download the representations in a manifest whose formats are
+   * accepted by a predicate.
+   *
+   * @param manifest The manifest, which must not be dynamic.
+   * @param formatPredicate An optional predicate. If provided, only representations whose formats
+   *     are accepted by the predicate are downloaded.
+   * @return The requests.
+   */
+  public static List<DataSpec> build(MediaPresentationDescription manifest,
+      Predicate<Format> formatPredicate) {
+    Assertions.checkArgument(!manifest.dynamic);
+    ArrayList<DataSpec> dataSpecs = new ArrayList<>();
+    for (int i = 0; i < manifest.getPeriodCount(); i++) {
+      Period period = manifest.getPeriod(i);
+      long periodDurationMs = manifest.getPeriodDuration(i);
+      long periodDurationUs = periodDurationMs == -1 ? C.UNKNOWN_TIME_US
+          : periodDurationMs * 1000;
+      for (AdaptationSet adaptationSet : period.adaptationSets) {
+        for (Representation representation : adaptationSet.representations) {
+          if (formatPredicate == null || formatPredicate.evaluate(representation.format)) {
+            addRepresentation(representation, periodDurationUs, dataSpecs);
+          }
+        }
+      }
+    }
+    return dataSpecs;
+  }
+
+  private static void addRepresentation(Representation representation, long periodDurationUs,
+      List<DataSpec> dataSpecs) {
+    if (representation instanceof SingleSegmentRepresentation) {
+      // The initialization data, index and media are all contained in a single resource.
+      SingleSegmentRepresentation singleSegmentRepresentation =
+          (SingleSegmentRepresentation) representation;
+      dataSpecs.add(new DataSpec(singleSegmentRepresentation.uri, 0,
+          singleSegmentRepresentation.contentLength, representation.getCacheKey()));
+      return;
+    }
+    RangedUri initializationUri = representation.getInitializationUri();
+    if (initializationUri != null) {
+      addRangedUri(representation, initializationUri, dataSpecs);
+    }
+    DashSegmentIndex segmentIndex = representation.getIndex();
+    int lastSegmentNum = segmentIndex.getLastSegmentNum(periodDurationUs);
+    if (lastSegmentNum == DashSegmentIndex.INDEX_UNBOUNDED) {
+      throw new IllegalArgumentException("Unbounded segment index: " + representation.format.id);
+    }
+    for (int i = segmentIndex.getFirstSegmentNum(); i <= lastSegmentNum; i++) {
+      addRangedUri(representation, segmentIndex.getSegmentUrl(i), dataSpecs);
+    }
+  }
+
+  private static void addRangedUri(Representation representation, RangedUri rangedUri,
+      List<DataSpec> dataSpecs) {
+    dataSpecs.add(new DataSpec(rangedUri.getUri(), rangedUri.start, rangedUri.length,
+        representation.getCacheKey(rangedUri)));
+  }
+
+}
@@ -146,6 +146,18 @@ public abstract class Representation implements FormatWrapper {
     return cacheKey;
   }
 
+  /**
+   * A cache key for data belonging to the {@link Representation}, located at the specified
+   * {@link RangedUri}. Each distinct resource referenced by the representation is given its own
+   * key, so that the data of one segment is never mistaken for that of another.
+   *
+   * @param rangedUri A {@link RangedUri} belonging to the {@link Representation}.
+   * @return A cache key.
+   */
+  public String getCacheKey(RangedUri rangedUri) {
+    return cacheKey + "." + rangedUri.getUriString();
+  }
+
   /**
    * A DASH representation consisting of a single segment.
    */
@@ -212,6 +224,12 @@ public abstract class Representation implements FormatWrapper {
       return indexUri;
     }
 
+    @Override
+    public String getCacheKey(RangedUri rangedUri) {
+      // All of the data belongs to the single segment.
+      return getCacheKey();
+    }
+
     @Override
     public DashSegmentIndex getIndex() {
       return segmentIndex;
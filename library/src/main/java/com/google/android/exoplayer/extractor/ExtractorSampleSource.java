@@ -27,8 +27,11 @@ import com.google.android.exoplayer.drm.DrmInitData;
 import com.google.android.exoplayer.upstream.Allocator;
 import com.google.android.exoplayer.upstream.DataSource;
 import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DefaultUriDataSource;
+import com.google.android.exoplayer.upstream.HttpDataSource;
 import com.google.android.exoplayer.upstream.Loader;
 import com.google.android.exoplayer.upstream.Loader.Loadable;
+import com.google.android.exoplayer.upstream.PrefetchingDataSource;
 import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Util;
 
@@ -41,6 +44,7 @@ import java.io.EOFException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A {@link SampleSource} that extracts sample data using an {@link Extractor}.
@@ -64,6 +68,16 @@ import java.util.List;
  *
  * <p>Seeking in AAC, MPEG TS and FLV streams is not supported.
  *
+ * <p>When detecting the format, extractors whose signature matches the start of the stream are
+ * tried first, followed by those matching the URI's file extension or the HTTP Content-Type of the
+ * response, and then the remaining extractors in the order listed above.
+ *
+ * <p>If the {@link DataSource} passed to the constructor is a {@link PrefetchingDataSource}, then
+ * when an extractor first skips ahead while the stream is being prepared (e.g. to read an MP4 moov
+ * atom or WebM Cues element stored after the media), the data from the position at which it
+ * skipped ahead is prefetched. Extractors return to this position once they've read the index, so
+ * the start of the media is buffered while the index is loaded rather than afterwards.
+ *
  * <p>To override the default extractors, pass one or more {@link Extractor} instances to the
  * constructor. When reading a new stream, the first {@link Extractor} that returns {@code true}
  * from {@link Extractor#sniff(ExtractorInput)} will be used.
@@ -209,6 +223,7 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
   private final int minLoadableRetryCount;
   private final Uri uri;
   private final DataSource dataSource;
+  private final PrefetchingDataSource prefetchingDataSource;
   private final Handler eventHandler;
   private final EventListener eventListener;
   private final int eventSourceId;
@@ -236,6 +251,7 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
 
   private Loader loader;
   private ExtractingLoadable loadable;
+  private ExtractingLoadable prefetchingLoadable;
   private IOException currentLoadableException;
   // TODO: Set this back to 0 in the correct place (some place indicative of making progress).
   private int currentLoadableExceptionCount;
@@ -317,6 +333,8 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
       EventListener eventListener, int eventSourceId, Extractor... extractors) {
     this.uri = uri;
     this.dataSource = dataSource;
+    this.prefetchingDataSource = dataSource instanceof PrefetchingDataSource
+        ? (PrefetchingDataSource) dataSource : null;
     this.eventListener = eventListener;
     this.eventHandler = eventHandler;
     this.eventSourceId = eventSourceId;
@@ -335,7 +353,7 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
         }
       }
     }
-    extractorHolder = new ExtractorHolder(extractors, this);
+    extractorHolder = new ExtractorHolder(extractors, this, uri);
     sampleQueues = new SparseArray<>();
     pendingResetPositionUs = NO_RESET_PENDING;
   }
@@ -565,6 +583,10 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
         extractorHolder.extractor.release();
         extractorHolder.extractor = null;
       }
+      if (prefetchingLoadable != null) {
+        prefetchingLoadable.cancelPrefetch();
+        prefetchingLoadable = null;
+      }
     }
   }
 
@@ -702,13 +724,22 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
   }
 
   private ExtractingLoadable createLoadableFromStart() {
-    return new ExtractingLoadable(uri, dataSource, extractorHolder, allocator, requestedBufferSize,
-        0);
+    if (prepared || prefetchingDataSource == null) {
+      return new ExtractingLoadable(uri, dataSource, null, extractorHolder, allocator,
+          requestedBufferSize, 0);
+    }
+    // Only prefetch while preparing, when extractors may skip ahead to read an index.
+    if (prefetchingLoadable != null) {
+      prefetchingLoadable.cancelPrefetch();
+    }
+    prefetchingLoadable = new ExtractingLoadable(uri, dataSource, prefetchingDataSource,
+        extractorHolder, allocator, requestedBufferSize, 0);
+    return prefetchingLoadable;
   }
 
   private ExtractingLoadable createLoadableFromPositionUs(long positionUs) {
-    return new ExtractingLoadable(uri, dataSource, extractorHolder, allocator, requestedBufferSize,
-        seekMap.getPosition(positionUs));
+    return new ExtractingLoadable(uri, dataSource, null, extractorHolder, allocator,
+        requestedBufferSize, seekMap.getPosition(positionUs));
   }
 
   private boolean haveFormatsForAllTracks() {
@@ -792,10 +823,12 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
   /**
    * Loads the media stream and extracts sample data from it.
    */
-  private static class ExtractingLoadable implements Loadable {
+  // Visible for testing.
+  /* package */ static class ExtractingLoadable implements Loadable {
 
     private final Uri uri;
     private final DataSource dataSource;
+    private final PrefetchingDataSource prefetchingDataSource;
     private final ExtractorHolder extractorHolder;
     private final Allocator allocator;
     private final int requestedBufferSize;
@@ -804,11 +837,16 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
     private volatile boolean loadCanceled;
 
     private boolean pendingExtractorSeek;
+    private boolean prefetchedSkippedData;
+    private long skippedToPosition;
+    private volatile DataSpec prefetchDataSpec;
 
-    public ExtractingLoadable(Uri uri, DataSource dataSource, ExtractorHolder extractorHolder,
+    public ExtractingLoadable(Uri uri, DataSource dataSource,
+        PrefetchingDataSource prefetchingDataSource, ExtractorHolder extractorHolder,
         Allocator allocator, int requestedBufferSize, long position) {
       this.uri = Assertions.checkNotNull(uri);
       this.dataSource = Assertions.checkNotNull(dataSource);
+      this.prefetchingDataSource = prefetchingDataSource;
       this.extractorHolder = Assertions.checkNotNull(extractorHolder);
       this.allocator = Assertions.checkNotNull(allocator);
       this.requestedBufferSize = requestedBufferSize;
@@ -835,11 +873,15 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
         try {
           long position = positionHolder.position;
           long length = dataSource.open(new DataSpec(uri, position, C.LENGTH_UNBOUNDED, null));
+          if (position < skippedToPosition) {
+            // The extractor has come back, and has either claimed the prefetch or won't need it.
+            cancelPrefetch();
+          }
           if (length != C.LENGTH_UNBOUNDED) {
             length += position;
           }
           input = new DefaultExtractorInput(dataSource, position, length);
-          Extractor extractor = extractorHolder.selectExtractor(input);
+          Extractor extractor = extractorHolder.selectExtractor(input, getContentType());
           if (pendingExtractorSeek) {
             extractor.seek();
             pendingExtractorSeek = false;
@@ -851,6 +893,7 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
           }
         } finally {
           if (result == Extractor.RESULT_SEEK) {
+            maybePrefetchSkippedData(input);
             result = Extractor.RESULT_CONTINUE;
           } else if (input != null) {
             positionHolder.position = input.getPosition();
@@ -860,15 +903,69 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
       }
     }
 
+    /**
+     * Prefetches the data from the current position if the extractor is skipping ahead for the
+     * first time, since it's likely to return once it has read an index stored later in the stream.
+     */
+    private void maybePrefetchSkippedData(ExtractorInput input) {
+      if (prefetchingDataSource == null || prefetchedSkippedData || input == null
+          || positionHolder.position <= input.getPosition()) {
+        return;
+      }
+      prefetchedSkippedData = true;
+      skippedToPosition = positionHolder.position;
+      DataSpec dataSpec = new DataSpec(uri, input.getPosition(), C.LENGTH_UNBOUNDED, null);
+      if (prefetchingDataSource.prefetch(dataSpec)) {
+        prefetchDataSpec = dataSpec;
+      }
+    }
+
+    /**
+     * Cancels the prefetch issued by this loadable, if it's still pending. Other prefetches made
+     * through the same {@link PrefetchingDataSource} are unaffected.
+     */
+    public void cancelPrefetch() {
+      DataSpec dataSpec = prefetchDataSpec;
+      if (dataSpec != null) {
+        prefetchDataSpec = null;
+        prefetchingDataSource.cancelPrefetch(dataSpec);
+      }
+    }
+
+    private String getContentType() {
+      Map<String, List<String>> headers;
+      if (dataSource instanceof HttpDataSource) {
+        headers = ((HttpDataSource) dataSource).getResponseHeaders();
+      } else if (dataSource instanceof DefaultUriDataSource) {
+        headers = ((DefaultUriDataSource) dataSource).getResponseHeaders();
+      } else {
+        return null;
+      }
+      if (headers == null) {
+        return null;
+      }
+      // Header names are case-insensitive, and some sources normalize them to lower case.
+      for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+        if ("Content-Type".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+          return header.getValue().get(0);
+        }
+      }
+      return null;
+    }
+
   }
 
   /**
    * Stores a list of extractors and a selected extractor when the format has been detected.
    */
-  private static final class ExtractorHolder {
+  // Visible for testing.
+  /* package */ static final class ExtractorHolder {
 
     private final Extractor[] extractors;
     private final ExtractorOutput extractorOutput;
+    private final String uriScheme;
+    private final String fileExtension;
+    private final byte[] prefix;
     private Extractor extractor;
 
     /**
@@ -876,10 +973,16 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
      *
      * @param extractors One or more extractors to choose from.
      * @param extractorOutput The output that will be used to initialize the selected extractor.
+     * @param uri The {@link Uri} of the media stream, used to hint at its format.
      */
-    public ExtractorHolder(Extractor[] extractors, ExtractorOutput extractorOutput) {
+    public ExtractorHolder(Extractor[] extractors, ExtractorOutput extractorOutput, Uri uri) {
       this.extractors = extractors;
       this.extractorOutput = extractorOutput;
+      uriScheme = uri.getScheme();
+      String lastPathSegment = uri.getLastPathSegment();
+      int extensionIndex = lastPathSegment == null ? -1 : lastPathSegment.lastIndexOf('.');
+      fileExtension = extensionIndex == -1 ? null : lastPathSegment.substring(extensionIndex + 1);
+      prefix = new byte[ExtractorSniffer.PREFIX_LENGTH];
     }
 
     /**
@@ -887,16 +990,24 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
      * later calls.
      *
      * @param input The {@link ExtractorInput} from which data should be read.
+     * @param contentType The MIME type reported for the stream, or null if unknown.
      * @throws UnrecognizedInputFormatException Thrown if the input format could not be detected.
      * @throws IOException Thrown if the input could not be read.
      * @throws InterruptedException Thrown if the thread was interrupted.
      */
-    public Extractor selectExtractor(ExtractorInput input)
+    public Extractor selectExtractor(ExtractorInput input, String contentType)
         throws UnrecognizedInputFormatException, IOException, InterruptedException {
       if (extractor != null) {
         return extractor;
       }
-      for (Extractor extractor : extractors) {
+      Extractor[] sortedExtractors = extractors;
+      if (extractors.length > 1) {
+        // The prefix remains in the input's peek buffer, so sniffing doesn't read it again.
+        int prefixLength = peekPrefix(input);
+        sortedExtractors = ExtractorSniffer.sortExtractors(extractors, uriScheme, fileExtension,
+            contentType, prefix, prefixLength);
+      }
+      for (Extractor extractor : sortedExtractors) {
         try {
           if (extractor.sniff(input)) {
             this.extractor = extractor;
@@ -915,6 +1026,19 @@ public final class ExtractorSampleSource implements SampleSource, SampleSourceRe
       return extractor;
     }
 
+    private int peekPrefix(ExtractorInput input) throws IOException, InterruptedException {
+      int prefixLength = 0;
+      try {
+        while (prefixLength < prefix.length
+            && input.peekFully(prefix, prefixLength, 1, true)) {
+          prefixLength++;
+        }
+      } finally {
+        input.resetPeekPosition();
+      }
+      return prefixLength;
+    }
+
   }
 
 }
@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor;
+
+import com.google.android.exoplayer.util.Util;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Orders extractors so that those most likely to read a stream are sniffed first.
+ * <p>
+ * Each of the default extractors is associated with the file extensions and MIME types that usually
+ * identify its format and, where its format has one, with a distinctive signature that can be
+ * checked against a short prefix of the stream. Checking all of the signatures against a single
+ * prefix is much cheaper than sniffing with each extractor in turn, some of which peek a large
+ * amount of data before giving up. Extractors that don't match are still sniffed afterwards.
+ * <p>
+ * Reordering can change which extractor is selected if the sniffers of more than one extractor
+ * would accept the stream. To keep this rare, only signatures that the format requires at the
+ * start of the stream are used. Short sync words such as those of MPEG audio and ADTS frames,
+ * which occur by chance in other formats, are not.
+ */
+/* package */ final class ExtractorSniffer {
+
+  /**
+   * The number of bytes at the start of the stream against which signatures are checked.
+   */
+  public static final int PREFIX_LENGTH = 189;
+
+  private static final int TS_PACKET_SIZE = 188;
+
+  private static final int FORMAT_UNKNOWN = 0;
+  private static final int FORMAT_WEBM = 1;
+  private static final int FORMAT_MP4 = 2;
+  private static final int FORMAT_MP3 = 3;
+  private static final int FORMAT_ADTS = 4;
+  private static final int FORMAT_TS = 5;
+  private static final int FORMAT_FLV = 6;
+  private static final int FORMAT_OGG = 7;
+  private static final int FORMAT_PS = 8;
+  private static final int FORMAT_WAV = 9;
+  private static final int FORMAT_FLAC = 10;
+
+  private static final String[] EXTRACTOR_CLASS_NAMES = new String[] {
+      "com.google.android.exoplayer.extractor.webm.WebmExtractor",
+      "com.google.android.exoplayer.extractor.mp4.FragmentedMp4Extractor",
+      "com.google.android.exoplayer.extractor.mp4.Mp4Extractor",
+      "com.google.android.exoplayer.extractor.mp3.Mp3Extractor",
+      "com.google.android.exoplayer.extractor.ts.AdtsExtractor",
+      "com.google.android.exoplayer.extractor.ts.TsExtractor",
+      "com.google.android.exoplayer.extractor.flv.FlvExtractor",
+      "com.google.android.exoplayer.extractor.ogg.OggVorbisExtractor",
+      "com.google.android.exoplayer.extractor.ts.PsExtractor",
+      "com.google.android.exoplayer.extractor.wav.WavExtractor",
+      "com.google.android.exoplayer.ext.flac.FlacExtractor"};
+  private static final int[] EXTRACTOR_FORMATS = new int[] {
+      FORMAT_WEBM, FORMAT_MP4, FORMAT_MP4, FORMAT_MP3, FORMAT_ADTS, FORMAT_TS, FORMAT_FLV,
+      FORMAT_OGG, FORMAT_PS, FORMAT_WAV, FORMAT_FLAC};
+
+  private static final int SCORE_NONE = 0;
+  private static final int SCORE_HINT = 1;
+  private static final int SCORE_SIGNATURE = 2;
+
+  private ExtractorSniffer() {}
+
+  /**
+   * Returns the extractors ordered by how likely they are to read the stream. Extractors whose
+   * signature matches the prefix come first, followed by extractors that match the hints, followed
+   * by the remaining extractors. The order is otherwise preserved.
+   *
+   * @param extractors The extractors, in order of decreasing priority.
+   * @param uriScheme The scheme of the stream's URI, or null if unknown.
+   * @param fileExtension The file extension of the stream's URI, or null if unknown.
+   * @param mimeType The MIME type reported for the stream (e.g. by an HTTP Content-Type header),
+   *     or null if unknown.
+   * @param prefix The first bytes of the stream, or null if they are unavailable.
+   * @param prefixLength The number of valid bytes in {@code prefix}.
+   * @return The ordered extractors. {@code extractors} is returned if no reordering is needed.
+   */
+  public static Extractor[] sortExtractors(Extractor[] extractors, String uriScheme,
+      String fileExtension, String mimeType, byte[] prefix, int prefixLength) {
+    int hintedFormat = getFormatFromMimeType(mimeType);
+    if (hintedFormat == FORMAT_UNKNOWN) {
+      hintedFormat = getFormatFromUri(uriScheme, fileExtension);
+    }
+    final int[] scores = new int[extractors.length];
+    boolean reorder = false;
+    for (int i = 0; i < extractors.length; i++) {
+      int format = getExtractorFormat(extractors[i]);
+      if (format == FORMAT_UNKNOWN) {
+        continue;
+      } else if (prefix != null && matchesSignature(format, prefix, prefixLength)) {
+        scores[i] = SCORE_SIGNATURE;
+      } else if (format == hintedFormat) {
+        scores[i] = SCORE_HINT;
+      }
+      reorder |= i > 0 && scores[i] > scores[i - 1];
+    }
+    if (!reorder) {
+      return extractors;
+    }
+    // Sort the indices by decreasing score. The sort is stable, so priority is otherwise kept.
+    Integer[] indices = new Integer[extractors.length];
+    for (int i = 0; i < indices.length; i++) {
+      indices[i] = i;
+    }
+    Arrays.sort(indices, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer first, Integer second) {
+        return scores[second] - scores[first];
+      }
+    });
+    Extractor[] sortedExtractors = new Extractor[extractors.length];
+    for (int i = 0; i < indices.length; i++) {
+      sortedExtractors[i] = extractors[indices[i]];
+    }
+    return sortedExtractors;
+  }
+
+  private static int getExtractorFormat(Extractor extractor) {
+    String className = extractor.getClass().getName();
+    for (int i = 0; i < EXTRACTOR_CLASS_NAMES.length; i++) {
+      if (EXTRACTOR_CLASS_NAMES[i].equals(className)) {
+        return EXTRACTOR_FORMATS[i];
+      }
+    }
+    return FORMAT_UNKNOWN;
+  }
+
+  private static boolean matchesSignature(int format, byte[] prefix, int length) {
+    switch (format) {
+      case FORMAT_WEBM:
+        // EBML header ID.
+        return startsWith(prefix, length, 0, 0x1A, 0x45, 0xDF, 0xA3);
+      case FORMAT_MP4:
+        return length >= 8 && (startsWith(prefix, length, 4, 'f', 't', 'y', 'p')
+            || startsWith(prefix, length, 4, 'm', 'o', 'o', 'v')
+            || startsWith(prefix, length, 4, 'm', 'o', 'o', 'f')
+            || startsWith(prefix, length, 4, 's', 't', 'y', 'p'));
+      case FORMAT_MP3:
+        // An ID3 tag.
+        return startsWith(prefix, length, 0, 'I', 'D', '3');
+      case FORMAT_TS:
+        // The sync bytes of the first two packets.
+        return startsWith(prefix, length, 0, 0x47)
+            && startsWith(prefix, length, TS_PACKET_SIZE, 0x47);
+      case FORMAT_FLV:
+        return startsWith(prefix, length, 0, 'F', 'L', 'V');
+      case FORMAT_OGG:
+        return startsWith(prefix, length, 0, 'O', 'g', 'g', 'S');
+      case FORMAT_PS:
+        // MPEG pack start code.
+        return startsWith(prefix, length, 0, 0x00, 0x00, 0x01, 0xBA);
+      case FORMAT_WAV:
+        return startsWith(prefix, length, 0, 'R', 'I', 'F', 'F')
+            && startsWith(prefix, length, 8, 'W', 'A', 'V', 'E');
+      case FORMAT_FLAC:
+        return startsWith(prefix, length, 0, 'f', 'L', 'a', 'C');
+      default:
+        return false;
+    }
+  }
+
+  private static boolean startsWith(byte[] data, int length, int offset, int... signature) {
+    if (offset + signature.length > length) {
+      return false;
+    }
+    for (int i = 0; i < signature.length; i++) {
+      if ((data[offset + i] & 0xFF) != signature[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int getFormatFromMimeType(String mimeType) {
+    if (mimeType == null) {
+      return FORMAT_UNKNOWN;
+    }
+    // Discard any parameters, such as the codecs or charset.
+    int parametersIndex = mimeType.indexOf(';');
+    if (parametersIndex != -1) {
+      mimeType = mimeType.substring(0, parametersIndex);
+    }
+    switch (Util.toLowerInvariant(mimeType.trim())) {
+      case "video/webm":
+      case "audio/webm":
+      case "video/x-matroska":
+      case "audio/x-matroska":
+        return FORMAT_WEBM;
+      case "video/mp4":
+      case "audio/mp4":
+      case "video/quicktime":
+      case "video/3gpp":
+      case "audio/x-m4a":
+        return FORMAT_MP4;
+      case "audio/mpeg":
+      case "audio/mp3":
+        return FORMAT_MP3;
+      case "audio/aac":
+      case "audio/aacp":
+      case "audio/x-aac":
+        return FORMAT_ADTS;
+      case "video/mp2t":
+        return FORMAT_TS;
+      case "video/x-flv":
+        return FORMAT_FLV;
+      case "audio/ogg":
+      case "application/ogg":
+        return FORMAT_OGG;
+      case "video/mp2p":
+      case "video/mpeg":
+        return FORMAT_PS;
+      case "audio/wav":
+      case "audio/wave":
+      case "audio/x-wav":
+        return FORMAT_WAV;
+      case "audio/flac":
+      case "audio/x-flac":
+        return FORMAT_FLAC;
+      default:
+        return FORMAT_UNKNOWN;
+    }
+  }
+
+  private static int getFormatFromUri(String scheme, String fileExtension) {
+    if (scheme != null && Util.toLowerInvariant(scheme).startsWith("rtmp")) {
+      return FORMAT_FLV;
+    }
+    if (fileExtension == null) {
+      return FORMAT_UNKNOWN;
+    }
+    switch (Util.toLowerInvariant(fileExtension)) {
+      case "webm":
+      case "mkv":
+      case "mka":
+        return FORMAT_WEBM;
+      case "mp4":
+      case "m4a":
+      case "m4v":
+      case "mov":
+      case "3gp":
+        return FORMAT_MP4;
+      case "mp3":
+        return FORMAT_MP3;
+      case "aac":
+        return FORMAT_ADTS;
+      case "ts":
+      case "m2ts":
+      case "mts":
+        return FORMAT_TS;
+      case "flv":
+        return FORMAT_FLV;
+      case "ogg":
+      case "oga":
+        return FORMAT_OGG;
+      case "ps":
+      case "mpg":
+      case "mpeg":
+      case "vob":
+        return FORMAT_PS;
+      case "wav":
+        return FORMAT_WAV;
+      case "flac":
+        return FORMAT_FLAC;
+      default:
+        return FORMAT_UNKNOWN;
+    }
+  }
+
+}
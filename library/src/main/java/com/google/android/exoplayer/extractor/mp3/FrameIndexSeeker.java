@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.extractor.mp3;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.util.LongArray;
+
+/**
+ * MP3 seeker for streams without seeking metadata, which indexes the position of each frame as it
+ * is read.
+ * <p>
+ * Frames read contiguously from the start of the stream are indexed, so seeking within the part of
+ * the stream that has been read is exact, even if the stream has a variable bitrate. Seeking beyond
+ * the indexed part extrapolates using the average bitrate of the indexed frames, or assumes a
+ * constant bitrate if no frames have been indexed yet.
+ */
+/* package */ final class FrameIndexSeeker implements Mp3Extractor.Seeker {
+
+  private final ConstantBitrateSeeker constantBitrateSeeker;
+  private final long firstFramePosition;
+  private final int samplesPerFrame;
+  private final int sampleRate;
+  private final LongArray framePositions;
+
+  private long nextFramePosition;
+
+  /**
+   * @param firstFramePosition The position of the first frame in the stream.
+   * @param bitrate The bitrate of the first frame, used to estimate positions before any frames
+   *     have been indexed.
+   * @param samplesPerFrame The number of samples in each frame.
+   * @param sampleRate The sample rate of the stream.
+   * @param inputLength The length of the stream in bytes, or {@link C#LENGTH_UNBOUNDED} if unknown.
+   */
+  public FrameIndexSeeker(long firstFramePosition, int bitrate, int samplesPerFrame,
+      int sampleRate, long inputLength) {
+    this.firstFramePosition = firstFramePosition;
+    this.samplesPerFrame = samplesPerFrame;
+    this.sampleRate = sampleRate;
+    constantBitrateSeeker = new ConstantBitrateSeeker(firstFramePosition, bitrate, inputLength);
+    framePositions = new LongArray();
+    nextFramePosition = firstFramePosition;
+  }
+
+  /**
+   * Called when a frame is about to be read. The frame is indexed if it directly follows the last
+   * indexed frame, allowing for any bytes skipped when resynchronizing.
+   *
+   * @param searchPosition The position from which the extractor searched for the frame.
+   * @param framePosition The position of the frame.
+   * @param frameSize The size of the frame in bytes.
+   */
+  public synchronized void onFrame(long searchPosition, long framePosition, int frameSize) {
+    if (searchPosition == nextFramePosition) {
+      framePositions.add(framePosition);
+      nextFramePosition = framePosition + frameSize;
+    }
+  }
+
+  @Override
+  public boolean isSeekable() {
+    return constantBitrateSeeker.isSeekable();
+  }
+
+  @Override
+  public synchronized long getPosition(long timeUs) {
+    int frameCount = framePositions.size();
+    if (!isSeekable() || frameCount == 0) {
+      return constantBitrateSeeker.getPosition(timeUs);
+    }
+    long frameIndex = (timeUs * sampleRate) / (C.MICROS_PER_SECOND * samplesPerFrame);
+    if (frameIndex < frameCount) {
+      return framePositions.get((int) Math.max(0, frameIndex));
+    }
+    long indexedDurationUs = getFrameTimeUs(frameCount);
+    long indexedBytes = nextFramePosition - firstFramePosition;
+    return nextFramePosition + ((timeUs - indexedDurationUs) * indexedBytes) / indexedDurationUs;
+  }
+
+  @Override
+  public synchronized long getTimeUs(long position) {
+    int frameCount = framePositions.size();
+    if (frameCount == 0) {
+      return constantBitrateSeeker.getTimeUs(position);
+    }
+    if (position < nextFramePosition) {
+      // Find the last indexed frame starting at or before the position.
+      int low = 0;
+      int high = frameCount - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (framePositions.get(mid) <= position) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return getFrameTimeUs(Math.max(0, high));
+    }
+    long indexedDurationUs = getFrameTimeUs(frameCount);
+    long indexedBytes = nextFramePosition - firstFramePosition;
+    return indexedDurationUs + ((position - nextFramePosition) * indexedDurationUs) / indexedBytes;
+  }
+
+  @Override
+  public long getDurationUs() {
+    return constantBitrateSeeker.getDurationUs();
+  }
+
+  private long getFrameTimeUs(int frameIndex) {
+    return ((long) frameIndex * samplesPerFrame * C.MICROS_PER_SECOND) / sampleRate;
+  }
+
+}
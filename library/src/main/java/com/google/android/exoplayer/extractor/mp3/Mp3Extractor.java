@@ -66,6 +66,7 @@ public final class Mp3Extractor implements Extractor {
 
   private GaplessInfo gaplessInfo;
   private Seeker seeker;
+  private FrameIndexSeeker frameIndexSeeker;
   private long basisTimeUs;
   private int samplesRead;
   private int sampleBytesRemaining;
@@ -138,9 +139,14 @@ public final class Mp3Extractor implements Extractor {
 
   private int readSample(ExtractorInput extractorInput) throws IOException, InterruptedException {
     if (sampleBytesRemaining == 0) {
+      long searchPosition = extractorInput.getPosition();
       if (!maybeResynchronize(extractorInput)) {
         return RESULT_END_OF_INPUT;
       }
+      if (frameIndexSeeker != null) {
+        frameIndexSeeker.onFrame(searchPosition, extractorInput.getPosition(),
+            synchronizedHeader.frameSize);
+      }
       if (basisTimeUs == -1) {
         basisTimeUs = seeker.getTimeUs(extractorInput.getPosition());
         if (forcedFirstSampleTimestampUs != -1) {
@@ -317,7 +323,15 @@ public final class Mp3Extractor implements Extractor {
       input.peekFully(scratch.data, 0, 4);
       scratch.setPosition(0);
       MpegAudioHeader.populateHeader(scratch.readInt(), synchronizedHeader);
-      seeker = new ConstantBitrateSeeker(input.getPosition(), synchronizedHeader.bitrate, length);
+      if (length == C.LENGTH_UNBOUNDED) {
+        // The stream isn't seekable, so there's no need to index it. It may also be unending.
+        seeker = new ConstantBitrateSeeker(input.getPosition(), synchronizedHeader.bitrate, length);
+      } else {
+        // Index frames as they are read, as the stream may have a variable bitrate.
+        frameIndexSeeker = new FrameIndexSeeker(input.getPosition(), synchronizedHeader.bitrate,
+            synchronizedHeader.samplesPerFrame, synchronizedHeader.sampleRate, length);
+        seeker = frameIndexSeeker;
+      }
     }
   }
 
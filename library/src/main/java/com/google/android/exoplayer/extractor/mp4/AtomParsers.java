@@ -31,6 +31,7 @@ import com.google.android.exoplayer.util.Util;
 import android.util.Pair;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -112,150 +113,188 @@ import java.util.List;
     stsz.setPosition(Atom.FULL_HEADER_SIZE);
     int fixedSampleSize = stsz.readUnsignedIntToInt();
     int sampleCount = stsz.readUnsignedIntToInt();
-
-    long[] offsets = new long[sampleCount];
-    int[] sizes = new int[sampleCount];
-    int maximumSize = 0;
-    long[] timestamps = new long[sampleCount];
-    int[] flags = new int[sampleCount];
     if (sampleCount == 0) {
-      return new TrackSampleTable(offsets, sizes, maximumSize, timestamps, flags);
+      return new TrackSampleTable(track.timescale, fixedSampleSize, stsz.data, chunkOffsets.data,
+          false, new int[0], new int[0], new int[0], null, new int[0], new long[0], new int[0],
+          null, null, null, 0, 0);
     }
 
     // Prepare to read chunk offsets.
     chunkOffsets.setPosition(Atom.FULL_HEADER_SIZE);
     int chunkCount = chunkOffsets.readUnsignedIntToInt();
+    boolean chunkOffsetsAreLongs = chunkOffsetsAtom.type == Atom.TYPE_co64;
 
+    // Read the runs of chunks that have the same number of samples. Runs of empty chunks, and
+    // changes to the samples-per-chunk after the last chunk, are ignored.
     stsc.setPosition(Atom.FULL_HEADER_SIZE);
-    int remainingSamplesPerChunkChanges = stsc.readUnsignedIntToInt() - 1;
-    Assertions.checkState(stsc.readInt() == 1, "stsc first chunk must be 1");
+    int samplesPerChunkChangeCount = stsc.readUnsignedIntToInt();
+    int[] chunkRunFirstChunks = new int[samplesPerChunkChangeCount];
+    int[] chunkRunFirstSamples = new int[samplesPerChunkChangeCount];
+    int[] chunkRunSamplesPerChunk = new int[samplesPerChunkChangeCount];
+    int chunkRunCount = 0;
+    long chunkRunFirstSample = 0;
+    int firstChunk = stsc.readInt() - 1;
+    Assertions.checkState(firstChunk == 0, "stsc first chunk must be 1");
     int samplesPerChunk = stsc.readUnsignedIntToInt();
     stsc.skipBytes(4); // Skip the sample description index.
-    int nextSamplesPerChunkChangeChunkIndex = -1;
-    if (remainingSamplesPerChunkChanges > 0) {
-      // Store the chunk index when the samples-per-chunk will next change.
-      nextSamplesPerChunkChangeChunkIndex = stsc.readUnsignedIntToInt() - 1;
-    }
-
-    int chunkIndex = 0;
-    int remainingSamplesInChunk = samplesPerChunk;
-
-    // Prepare to read sample timestamps.
-    stts.setPosition(Atom.FULL_HEADER_SIZE);
-    int remainingTimestampDeltaChanges = stts.readUnsignedIntToInt() - 1;
-    int remainingSamplesAtTimestampDelta = stts.readUnsignedIntToInt();
-    int timestampDeltaInTimeUnits = stts.readUnsignedIntToInt();
-
-    // Prepare to read sample timestamp offsets, if ctts is present.
-    int remainingSamplesAtTimestampOffset = 0;
-    int remainingTimestampOffsetChanges = 0;
-    int timestampOffset = 0;
-    if (ctts != null) {
-      ctts.setPosition(Atom.FULL_HEADER_SIZE);
-      remainingTimestampOffsetChanges = ctts.readUnsignedIntToInt();
+    for (int i = 1; i <= samplesPerChunkChangeCount && firstChunk < chunkCount; i++) {
+      int nextFirstChunk = chunkCount;
+      if (i < samplesPerChunkChangeCount) {
+        nextFirstChunk = Math.min(chunkCount, stsc.readUnsignedIntToInt() - 1);
+        Assertions.checkArgument(nextFirstChunk > firstChunk);
+      }
+      if (samplesPerChunk > 0) {
+        chunkRunFirstChunks[chunkRunCount] = firstChunk;
+        chunkRunFirstSamples[chunkRunCount] = (int) chunkRunFirstSample;
+        chunkRunSamplesPerChunk[chunkRunCount] = samplesPerChunk;
+        chunkRunCount++;
+        chunkRunFirstSample += (long) (nextFirstChunk - firstChunk) * samplesPerChunk;
+        Assertions.checkArgument(chunkRunFirstSample <= sampleCount);
+      }
+      if (i < samplesPerChunkChangeCount) {
+        firstChunk = nextFirstChunk;
+        samplesPerChunk = stsc.readUnsignedIntToInt();
+        stsc.skipBytes(4); // Skip the sample description index.
+      }
     }
-
-    int nextSynchronizationSampleIndex = -1;
-    int remainingSynchronizationSamples = 0;
-    if (stss != null) {
-      stss.setPosition(Atom.FULL_HEADER_SIZE);
-      remainingSynchronizationSamples = stss.readUnsignedIntToInt();
-      nextSynchronizationSampleIndex = stss.readUnsignedIntToInt() - 1;
+    // Check the chunks contain all of the samples.
+    Assertions.checkArgument(chunkRunFirstSample == sampleCount);
+    if (chunkRunCount < samplesPerChunkChangeCount) {
+      chunkRunFirstChunks = Arrays.copyOf(chunkRunFirstChunks, chunkRunCount);
+      chunkRunFirstSamples = Arrays.copyOf(chunkRunFirstSamples, chunkRunCount);
+      chunkRunSamplesPerChunk = Arrays.copyOf(chunkRunSamplesPerChunk, chunkRunCount);
     }
 
-    // Calculate the chunk offsets
-    long offsetBytes;
-    if (chunkOffsetsAtom.type == Atom.TYPE_stco) {
-      offsetBytes = chunkOffsets.readUnsignedInt();
-    } else {
-      offsetBytes = chunkOffsets.readUnsignedLongToLong();
+    // Calculate the maximum sample size and, if sample sizes vary, store the offset of every
+    // TrackSampleTable.CHECKPOINT_INTERVAL samples.
+    int maximumSize = fixedSampleSize;
+    long[] offsetCheckpoints = null;
+    if (fixedSampleSize == 0) {
+      offsetCheckpoints = new long[((sampleCount - 1) >> TrackSampleTable.CHECKPOINT_SHIFT) + 1];
+      int sampleIndex = 0;
+      for (int run = 0; run < chunkRunCount; run++) {
+        int runEndSample = run + 1 < chunkRunCount ? chunkRunFirstSamples[run + 1] : sampleCount;
+        chunkOffsets.setPosition(TrackSampleTable.CHUNK_OFFSET_ENTRIES_OFFSET
+            + chunkRunFirstChunks[run] * (chunkOffsetsAreLongs ? 8 : 4));
+        while (sampleIndex < runEndSample) {
+          long offset = chunkOffsetsAreLongs ? chunkOffsets.readUnsignedLongToLong()
+              : chunkOffsets.readUnsignedInt();
+          for (int i = 0; i < chunkRunSamplesPerChunk[run]; i++) {
+            if ((sampleIndex & (TrackSampleTable.CHECKPOINT_INTERVAL - 1)) == 0) {
+              offsetCheckpoints[sampleIndex >> TrackSampleTable.CHECKPOINT_SHIFT] = offset;
+            }
+            int size = stsz.readUnsignedIntToInt();
+            if (size > maximumSize) {
+              maximumSize = size;
+            }
+            offset += size;
+            sampleIndex++;
+          }
+        }
+      }
     }
 
+    // Read the runs of samples that have the same duration.
+    stts.setPosition(Atom.FULL_HEADER_SIZE);
+    int timestampDeltaChangeCount = stts.readUnsignedIntToInt();
+    int[] timestampRunFirstSamples = new int[timestampDeltaChangeCount];
+    long[] timestampRunFirstTimestamps = new long[timestampDeltaChangeCount];
+    int[] timestampRunDeltas = new int[timestampDeltaChangeCount];
+    int timestampRunCount = 0;
+    long timestampRunFirstSample = 0;
     long timestampTimeUnits = 0;
-    for (int i = 0; i < sampleCount; i++) {
-      // Add on the timestamp offset if ctts is present.
-      if (ctts != null) {
-        while (remainingSamplesAtTimestampOffset == 0 && remainingTimestampOffsetChanges > 0) {
-          remainingSamplesAtTimestampOffset = ctts.readUnsignedIntToInt();
-          // The BMFF spec (ISO 14496-12) states that sample offsets should be unsigned integers in
-          // version 0 ctts boxes, however some streams violate the spec and use signed integers
-          // instead. It's safe to always parse sample offsets as signed integers here, because
-          // unsigned integers will still be parsed correctly (unless their top bit is set, which is
-          // never true in practice because sample offsets are always small).
-          timestampOffset = ctts.readInt();
-          remainingTimestampOffsetChanges--;
-        }
-        remainingSamplesAtTimestampOffset--;
+    for (int i = 0; i < timestampDeltaChangeCount; i++) {
+      int samplesAtTimestampDelta = stts.readUnsignedIntToInt();
+      int timestampDeltaInTimeUnits = stts.readUnsignedIntToInt();
+      if (samplesAtTimestampDelta > 0) {
+        timestampRunFirstSamples[timestampRunCount] = (int) timestampRunFirstSample;
+        timestampRunFirstTimestamps[timestampRunCount] = timestampTimeUnits;
+        timestampRunDeltas[timestampRunCount] = timestampDeltaInTimeUnits;
+        timestampRunCount++;
+        timestampRunFirstSample += samplesAtTimestampDelta;
+        timestampTimeUnits += (long) samplesAtTimestampDelta * timestampDeltaInTimeUnits;
+        Assertions.checkArgument(timestampRunFirstSample <= sampleCount);
       }
+    }
+    // Check the durations of all of the samples are known.
+    Assertions.checkArgument(timestampRunFirstSample == sampleCount);
+    if (timestampRunCount < timestampDeltaChangeCount) {
+      timestampRunFirstSamples = Arrays.copyOf(timestampRunFirstSamples, timestampRunCount);
+      timestampRunFirstTimestamps = Arrays.copyOf(timestampRunFirstTimestamps, timestampRunCount);
+      timestampRunDeltas = Arrays.copyOf(timestampRunDeltas, timestampRunCount);
+    }
 
-      offsets[i] = offsetBytes;
-      sizes[i] = fixedSampleSize == 0 ? stsz.readUnsignedIntToInt() : fixedSampleSize;
-      if (sizes[i] > maximumSize) {
-        maximumSize = sizes[i];
-      }
-      timestamps[i] = timestampTimeUnits + timestampOffset;
-
-      // All samples are synchronization samples if the stss is not present.
-      flags[i] = stss == null ? C.SAMPLE_FLAG_SYNC : 0;
-      if (i == nextSynchronizationSampleIndex) {
-        flags[i] = C.SAMPLE_FLAG_SYNC;
-        remainingSynchronizationSamples--;
-        if (remainingSynchronizationSamples > 0) {
-          nextSynchronizationSampleIndex = stss.readUnsignedIntToInt() - 1;
+    // Read the runs of samples that have the same timestamp offset, if ctts is present. Samples
+    // after the last run have the offset of the last run.
+    int[] timestampOffsetRunFirstSamples = null;
+    int[] timestampOffsetRunValues = null;
+    if (ctts != null) {
+      ctts.setPosition(Atom.FULL_HEADER_SIZE);
+      int timestampOffsetChangeCount = ctts.readUnsignedIntToInt();
+      timestampOffsetRunFirstSamples = new int[timestampOffsetChangeCount];
+      timestampOffsetRunValues = new int[timestampOffsetChangeCount];
+      int timestampOffsetRunCount = 0;
+      long timestampOffsetRunFirstSample = 0;
+      for (int i = 0; i < timestampOffsetChangeCount; i++) {
+        // Check the run starts at a sample in the table.
+        Assertions.checkArgument(timestampOffsetRunFirstSample < sampleCount);
+        int samplesAtTimestampOffset = ctts.readUnsignedIntToInt();
+        // The BMFF spec (ISO 14496-12) states that sample offsets should be unsigned integers in
+        // version 0 ctts boxes, however some streams violate the spec and use signed integers
+        // instead. It's safe to always parse sample offsets as signed integers here, because
+        // unsigned integers will still be parsed correctly (unless their top bit is set, which is
+        // never true in practice because sample offsets are always small).
+        int timestampOffset = ctts.readInt();
+        if (samplesAtTimestampOffset > 0) {
+          timestampOffsetRunFirstSamples[timestampOffsetRunCount] =
+              (int) timestampOffsetRunFirstSample;
+          timestampOffsetRunValues[timestampOffsetRunCount] = timestampOffset;
+          timestampOffsetRunCount++;
+          timestampOffsetRunFirstSample += samplesAtTimestampOffset;
         }
       }
-
-      // Add on the duration of this sample.
-      timestampTimeUnits += timestampDeltaInTimeUnits;
-      remainingSamplesAtTimestampDelta--;
-      if (remainingSamplesAtTimestampDelta == 0 && remainingTimestampDeltaChanges > 0) {
-        remainingSamplesAtTimestampDelta = stts.readUnsignedIntToInt();
-        timestampDeltaInTimeUnits = stts.readUnsignedIntToInt();
-        remainingTimestampDeltaChanges--;
-      }
-
-      // If we're at the last sample in this chunk, move to the next chunk.
-      remainingSamplesInChunk--;
-      if (remainingSamplesInChunk == 0) {
-        chunkIndex++;
-        if (chunkIndex < chunkCount) {
-          if (chunkOffsetsAtom.type == Atom.TYPE_stco) {
-            offsetBytes = chunkOffsets.readUnsignedInt();
-          } else {
-            offsetBytes = chunkOffsets.readUnsignedLongToLong();
-          }
-        }
-
-        // Change the samples-per-chunk if required.
-        if (chunkIndex == nextSamplesPerChunkChangeChunkIndex) {
-          samplesPerChunk = stsc.readUnsignedIntToInt();
-          stsc.skipBytes(4); // Skip the sample description index.
-          remainingSamplesPerChunkChanges--;
-          if (remainingSamplesPerChunkChanges > 0) {
-            nextSamplesPerChunkChangeChunkIndex = stsc.readUnsignedIntToInt() - 1;
-          }
-        }
-
-        // Expect samplesPerChunk samples in the following chunk, if it's before the end.
-        if (chunkIndex < chunkCount) {
-          remainingSamplesInChunk = samplesPerChunk;
+      if (timestampOffsetRunCount == 0) {
+        timestampOffsetRunFirstSamples = null;
+        timestampOffsetRunValues = null;
+      } else if (timestampOffsetRunCount > sampleCount / 2) {
+        // The runs are short (e.g. due to B-frames), so storing an offset per sample is smaller.
+        int[] timestampOffsets = new int[sampleCount];
+        for (int i = 0; i < timestampOffsetRunCount; i++) {
+          int endIndex = i + 1 < timestampOffsetRunCount ? timestampOffsetRunFirstSamples[i + 1]
+              : sampleCount;
+          Arrays.fill(timestampOffsets, timestampOffsetRunFirstSamples[i], endIndex,
+              timestampOffsetRunValues[i]);
         }
-      } else {
-        // The next sample follows the current one.
-        offsetBytes += sizes[i];
+        timestampOffsetRunFirstSamples = null;
+        timestampOffsetRunValues = timestampOffsets;
+      } else if (timestampOffsetRunCount < timestampOffsetChangeCount) {
+        timestampOffsetRunFirstSamples =
+            Arrays.copyOf(timestampOffsetRunFirstSamples, timestampOffsetRunCount);
+        timestampOffsetRunValues = Arrays.copyOf(timestampOffsetRunValues, timestampOffsetRunCount);
       }
     }
 
-    // Check all the expected samples have been seen.
-    Assertions.checkArgument(remainingSynchronizationSamples == 0);
-    Assertions.checkArgument(remainingSamplesAtTimestampDelta == 0);
-    Assertions.checkArgument(remainingSamplesInChunk == 0);
-    Assertions.checkArgument(remainingTimestampDeltaChanges == 0);
-    Assertions.checkArgument(remainingTimestampOffsetChanges == 0);
+    // All samples are synchronization samples if the stss is not present.
+    long[] syncSamples = null;
+    if (stss != null) {
+      stss.setPosition(Atom.FULL_HEADER_SIZE);
+      int synchronizationSampleCount = stss.readUnsignedIntToInt();
+      syncSamples = new long[((sampleCount - 1) >> 6) + 1];
+      for (int i = 0; i < synchronizationSampleCount; i++) {
+        int synchronizationSampleIndex = stss.readUnsignedIntToInt() - 1;
+        Assertions.checkArgument(synchronizationSampleIndex >= 0
+            && synchronizationSampleIndex < sampleCount);
+        syncSamples[synchronizationSampleIndex >> 6] |= 1L << synchronizationSampleIndex;
+      }
+    }
 
+    TrackSampleTable sampleTable = new TrackSampleTable(track.timescale, fixedSampleSize,
+        stsz.data, chunkOffsets.data, chunkOffsetsAreLongs, chunkRunFirstChunks,
+        chunkRunFirstSamples, chunkRunSamplesPerChunk, offsetCheckpoints, timestampRunFirstSamples,
+        timestampRunFirstTimestamps, timestampRunDeltas, timestampOffsetRunFirstSamples,
+        timestampOffsetRunValues, syncSamples, sampleCount, maximumSize);
     if (track.editListDurations == null) {
-      Util.scaleLargeTimestampsInPlace(timestamps, C.MICROS_PER_SECOND, track.timescale);
-      return new TrackSampleTable(offsets, sizes, maximumSize, timestamps, flags);
+      return sampleTable;
     }
 
     // See the BMFF spec (ISO 14496-12) subsection 8.6.6. Edit lists that truncate audio and
@@ -267,77 +306,62 @@ import java.util.List;
       // The current version of the spec leaves handling of an edit with zero segment_duration in
       // unfragmented files open to interpretation. We handle this as a special case and include all
       // samples in the edit.
-      for (int i = 0; i < timestamps.length; i++) {
-        timestamps[i] = Util.scaleLargeTimestamp(timestamps[i] - track.editListMediaTimes[0],
-            C.MICROS_PER_SECOND, track.timescale);
-      }
-      return new TrackSampleTable(offsets, sizes, maximumSize, timestamps, flags);
+      return sampleTable.edit(new int[] {0}, new int[] {sampleCount},
+          new long[] {track.editListMediaTimes[0]}, new long[] {0}, maximumSize);
     }
 
-    // Count the number of samples after applying edits.
-    int editedSampleCount = 0;
-    int nextSampleIndex = 0;
-    boolean copyMetadata = false;
-    for (int i = 0; i < track.editListDurations.length; i++) {
-      long mediaTime = track.editListMediaTimes[i];
-      if (mediaTime != -1) {
-        long duration = Util.scaleLargeTimestamp(track.editListDurations[i], track.timescale,
-            track.movieTimescale);
-        int startIndex = Util.binarySearchCeil(timestamps, mediaTime, true, true);
-        int endIndex = Util.binarySearchCeil(timestamps, mediaTime + duration, true, false);
-        editedSampleCount += endIndex - startIndex;
-        copyMetadata |= nextSampleIndex != startIndex;
-        nextSampleIndex = endIndex;
-      }
-    }
-    copyMetadata |= editedSampleCount != sampleCount;
-
-    // Calculate edited sample timestamps and update the corresponding metadata arrays.
-    long[] editedOffsets = copyMetadata ? new long[editedSampleCount] : offsets;
-    int[] editedSizes = copyMetadata ? new int[editedSampleCount] : sizes;
-    int editedMaximumSize = copyMetadata ? 0 : maximumSize;
-    int[] editedFlags = copyMetadata ? new int[editedSampleCount] : flags;
-    long[] editedTimestamps = new long[editedSampleCount];
+    // Find the samples in each edit. Edits without samples are omitted.
+    int editCount = track.editListDurations.length;
+    int[] segmentSourceFirstSamples = new int[editCount];
+    int[] segmentSampleCounts = new int[editCount];
+    long[] segmentMediaTimes = new long[editCount];
+    long[] segmentStartTimesUs = new long[editCount];
+    int segmentCount = 0;
     long pts = 0;
-    int sampleIndex = 0;
-    for (int i = 0; i < track.editListDurations.length; i++) {
+    for (int i = 0; i < editCount; i++) {
       long mediaTime = track.editListMediaTimes[i];
       long duration = track.editListDurations[i];
       if (mediaTime != -1) {
         long endMediaTime = mediaTime + Util.scaleLargeTimestamp(duration, track.timescale,
             track.movieTimescale);
-        int startIndex = Util.binarySearchCeil(timestamps, mediaTime, true, true);
-        int endIndex = Util.binarySearchCeil(timestamps, endMediaTime, true, false);
-        if (copyMetadata) {
-          int count = endIndex - startIndex;
-          System.arraycopy(offsets, startIndex, editedOffsets, sampleIndex, count);
-          System.arraycopy(sizes, startIndex, editedSizes, sampleIndex, count);
-          System.arraycopy(flags, startIndex, editedFlags, sampleIndex, count);
-        }
-        for (int j = startIndex; j < endIndex; j++) {
-          long ptsUs = Util.scaleLargeTimestamp(pts, C.MICROS_PER_SECOND, track.movieTimescale);
-          long timeInSegmentUs = Util.scaleLargeTimestamp(timestamps[j] - mediaTime,
-              C.MICROS_PER_SECOND, track.timescale);
-          editedTimestamps[sampleIndex] = ptsUs + timeInSegmentUs;
-          if (copyMetadata && editedSizes[sampleIndex] > editedMaximumSize) {
-            editedMaximumSize = sizes[j];
-          }
-          sampleIndex++;
+        // The edit includes the samples from the first at or after its start up to, but excluding,
+        // the first at or after its end.
+        int index = sampleTable.binarySearchSourceTimestamps(mediaTime);
+        int startIndex = Math.min(sampleCount - 1, index < 0 ? ~index : index);
+        index = sampleTable.binarySearchSourceTimestamps(endMediaTime);
+        int endIndex = index < 0 ? ~index : index;
+        if (endIndex > startIndex) {
+          segmentSourceFirstSamples[segmentCount] = startIndex;
+          segmentSampleCounts[segmentCount] = endIndex - startIndex;
+          segmentMediaTimes[segmentCount] = mediaTime;
+          segmentStartTimesUs[segmentCount] =
+              Util.scaleLargeTimestamp(pts, C.MICROS_PER_SECOND, track.movieTimescale);
+          segmentCount++;
         }
       }
       pts += duration;
     }
 
     boolean hasSyncSample = false;
-    for (int i = 0; i < editedFlags.length && !hasSyncSample; i++) {
-      hasSyncSample |= (editedFlags[i] & C.SAMPLE_FLAG_SYNC) != 0;
+    int editedMaximumSize = 0;
+    for (int i = 0; i < segmentCount; i++) {
+      int endIndex = segmentSourceFirstSamples[i] + segmentSampleCounts[i];
+      for (int j = segmentSourceFirstSamples[i]; j < endIndex; j++) {
+        hasSyncSample |= sampleTable.isSourceSyncSample(j);
+        int size = sampleTable.getSourceSize(j);
+        if (size > editedMaximumSize) {
+          editedMaximumSize = size;
+        }
+      }
     }
     if (!hasSyncSample) {
       throw new ParserException("The edited sample sequence does not contain a sync sample.");
     }
 
-    return new TrackSampleTable(editedOffsets, editedSizes, editedMaximumSize, editedTimestamps,
-        editedFlags);
+    return sampleTable.edit(Arrays.copyOf(segmentSourceFirstSamples, segmentCount),
+        Arrays.copyOf(segmentSampleCounts, segmentCount),
+        Arrays.copyOf(segmentMediaTimes, segmentCount),
+        Arrays.copyOf(segmentStartTimesUs, segmentCount), editedMaximumSize);
   }
 
   /**
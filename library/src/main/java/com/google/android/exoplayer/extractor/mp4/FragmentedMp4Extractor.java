@@ -39,6 +39,7 @@ import android.util.Pair;
 import android.util.SparseArray;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
@@ -91,18 +92,20 @@ public final class FragmentedMp4Extractor implements Extractor {
   // Temporary arrays.
   private final ParsableByteArray nalStartCode;
   private final ParsableByteArray nalLength;
-  private final ParsableByteArray encryptionSignalByte;
+  private final ParsableByteArray encryptionHeader;
 
   // Parser state.
   private final ParsableByteArray atomHeader;
   private final byte[] extendedTypeScratch;
   private final Stack<ContainerAtom> containerAtoms;
+  private final ArrayList<ParsableByteArray> moofLeafAtomDataPool;
 
   private int parserState;
   private int atomType;
   private long atomSize;
   private int atomHeaderBytesRead;
   private ParsableByteArray atomData;
+  private int moofLeafAtomDataPoolIndex;
   private long endOfMdatPosition;
 
   private TrackBundle currentTrackBundle;
@@ -138,9 +141,10 @@ public final class FragmentedMp4Extractor implements Extractor {
     atomHeader = new ParsableByteArray(Atom.LONG_HEADER_SIZE);
     nalStartCode = new ParsableByteArray(NalUnitUtil.NAL_START_CODE);
     nalLength = new ParsableByteArray(4);
-    encryptionSignalByte = new ParsableByteArray(1);
+    encryptionHeader = new ParsableByteArray(1);
     extendedTypeScratch = new byte[16];
     containerAtoms = new Stack<>();
+    moofLeafAtomDataPool = new ArrayList<>();
     trackBundles = new SparseArray<>();
     enterReadingAtomHeaderState();
   }
@@ -164,6 +168,7 @@ public final class FragmentedMp4Extractor implements Extractor {
   @Override
   public void seek() {
     containerAtoms.clear();
+    moofLeafAtomDataPoolIndex = 0;
     enterReadingAtomHeaderState();
   }
 
@@ -259,7 +264,8 @@ public final class FragmentedMp4Extractor implements Extractor {
       if (atomSize > Integer.MAX_VALUE) {
         throw new ParserException("Leaf atom with length > 2147483647 (unsupported).");
       }
-      atomData = new ParsableByteArray((int) atomSize);
+      atomData = containerAtoms.isEmpty() || containerAtoms.get(0).type != Atom.TYPE_moof
+          ? new ParsableByteArray((int) atomSize) : obtainMoofLeafAtomData((int) atomSize);
       System.arraycopy(atomHeader.data, 0, atomData.data, 0, Atom.HEADER_SIZE);
       parserState = STATE_READING_ATOM_PAYLOAD;
     } else {
@@ -382,6 +388,26 @@ public final class FragmentedMp4Extractor implements Extractor {
 
   private void onMoofContainerAtomRead(ContainerAtom moof) throws ParserException {
     parseMoof(moof, trackBundles, flags, extendedTypeScratch);
+    // The fragment has been parsed into the track bundles, so the leaf atom data can be reused.
+    moofLeafAtomDataPoolIndex = 0;
+  }
+
+  /**
+   * Returns a buffer with the specified limit into which a leaf atom contained by a moof atom can
+   * be read. The buffers are reused for each fragment, since fragments are usually similar in size
+   * and a stream can contain many of them each second.
+   */
+  private ParsableByteArray obtainMoofLeafAtomData(int size) {
+    ParsableByteArray data;
+    if (moofLeafAtomDataPoolIndex == moofLeafAtomDataPool.size()) {
+      data = new ParsableByteArray(size);
+      moofLeafAtomDataPool.add(data);
+    } else {
+      data = moofLeafAtomDataPool.get(moofLeafAtomDataPoolIndex);
+      data.reset(data.capacity() < size ? new byte[size] : data.data, size);
+    }
+    moofLeafAtomDataPoolIndex++;
+    return data;
   }
 
   /**
@@ -932,23 +958,26 @@ public final class FragmentedMp4Extractor implements Extractor {
     boolean subsampleEncryption = trackFragment
         .sampleHasSubsampleEncryptionTable[trackBundle.currentSampleIndex];
 
-    // Write the signal byte, containing the vector size and the subsample encryption flag.
-    encryptionSignalByte.data[0] = (byte) (vectorSize | (subsampleEncryption ? 0x80 : 0));
-    encryptionSignalByte.setPosition(0);
-    TrackOutput output = trackBundle.output;
-    output.sampleData(encryptionSignalByte, 1);
-    // Write the vector.
-    output.sampleData(sampleEncryptionData, vectorSize);
-    // If we don't have subsample encryption data, we're done.
-    if (!subsampleEncryption) {
-      return 1 + vectorSize;
-    }
-    // Write the subsample encryption data.
-    int subsampleCount = sampleEncryptionData.readUnsignedShort();
-    sampleEncryptionData.skipBytes(-2);
-    int subsampleDataLength = 2 + 6 * subsampleCount;
-    output.sampleData(sampleEncryptionData, subsampleDataLength);
-    return 1 + vectorSize + subsampleDataLength;
+    int subsampleDataLength = 0;
+    if (subsampleEncryption) {
+      // Peek the subsample count, which follows the vector.
+      sampleEncryptionData.skipBytes(vectorSize);
+      int subsampleCount = sampleEncryptionData.readUnsignedShort();
+      sampleEncryptionData.skipBytes(-vectorSize - 2);
+      subsampleDataLength = 2 + 6 * subsampleCount;
+    }
+    // Assemble the signal byte, containing the vector size and the subsample encryption flag, the
+    // vector and any subsample encryption data, so that they can be written in a single append.
+    int headerLength = 1 + vectorSize + subsampleDataLength;
+    if (encryptionHeader.capacity() < headerLength) {
+      encryptionHeader.reset(new byte[headerLength], headerLength);
+    } else {
+      encryptionHeader.reset(encryptionHeader.data, headerLength);
+    }
+    encryptionHeader.data[0] = (byte) (vectorSize | (subsampleEncryption ? 0x80 : 0));
+    sampleEncryptionData.readBytes(encryptionHeader.data, 1, vectorSize + subsampleDataLength);
+    trackBundle.output.sampleData(encryptionHeader, headerLength);
+    return headerLength;
   }
 
   /** Returns whether the extractor should parse a leaf atom with type {@code atom}. */
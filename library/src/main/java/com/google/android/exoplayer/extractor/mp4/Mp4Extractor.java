@@ -15,6 +15,7 @@
  */
 package com.google.android.exoplayer.extractor.mp4;
 
+import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.MediaFormat;
 import com.google.android.exoplayer.ParserException;
 import com.google.android.exoplayer.extractor.Extractor;
@@ -37,6 +38,13 @@ import java.util.Stack;
 
 /**
  * Extracts data from an unfragmented MP4 file.
+ * <p>
+ * Samples are read in the order in which they're stored, so that the source is read sequentially,
+ * except that the extractor won't read further than {@link #MAXIMUM_READ_AHEAD_US} or
+ * {@link #MAXIMUM_READ_AHEAD_BYTES} ahead of a track whose next sample is too far away to be
+ * reached without reloading the source. In a badly interleaved file this reads each track's
+ * samples in long runs, reloading the source once per run rather than once per chunk, and keeps
+ * the buffered tracks close enough in time that playback can start before the buffer is full.
  */
 public final class Mp4Extractor implements Extractor, SeekMap {
 
@@ -55,6 +63,18 @@ public final class Mp4Extractor implements Extractor, SeekMap {
    */
   private static final long RELOAD_MINIMUM_SEEK_DISTANCE = 256 * 1024;
 
+  /**
+   * The maximum duration by which the next sample to be read may be ahead of the earliest unread
+   * sample, if reading the earliest unread sample requires the source to be reloaded.
+   */
+  private static final long MAXIMUM_READ_AHEAD_US = 10 * C.MICROS_PER_SECOND;
+
+  /**
+   * The maximum number of bytes that may be read from other tracks, while reading the earliest
+   * unread sample requires the source to be reloaded.
+   */
+  private static final long MAXIMUM_READ_AHEAD_BYTES = 4 * 1024 * 1024;
+
   // Temporary arrays.
   private final ParsableByteArray nalStartCode;
   private final ParsableByteArray nalLength;
@@ -68,6 +88,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
   private int atomHeaderBytesRead;
   private ParsableByteArray atomData;
 
+  private int sampleTrackIndex;
   private int sampleSize;
   private int sampleBytesWritten;
   private int sampleCurrentNalBytesRemaining;
@@ -76,12 +97,14 @@ public final class Mp4Extractor implements Extractor, SeekMap {
   private ExtractorOutput extractorOutput;
   private Mp4Track[] tracks;
   private boolean isQuickTime;
+  private long readAheadBytes;
 
   public Mp4Extractor() {
     atomHeader = new ParsableByteArray(Atom.LONG_HEADER_SIZE);
     containerAtoms = new Stack<>();
     nalStartCode = new ParsableByteArray(NalUnitUtil.NAL_START_CODE);
     nalLength = new ParsableByteArray(4);
+    sampleTrackIndex = TrackSampleTable.NO_SAMPLE;
     enterReadingAtomHeaderState();
   }
 
@@ -99,8 +122,10 @@ public final class Mp4Extractor implements Extractor, SeekMap {
   public void seek() {
     containerAtoms.clear();
     atomHeaderBytesRead = 0;
+    sampleTrackIndex = TrackSampleTable.NO_SAMPLE;
     sampleBytesWritten = 0;
     sampleCurrentNalBytesRemaining = 0;
+    readAheadBytes = 0;
     parserState = STATE_AFTER_SEEK;
   }
 
@@ -156,7 +181,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       }
       tracks[trackIndex].sampleIndex = sampleIndex;
 
-      long offset = sampleTable.offsets[sampleIndex];
+      long offset = sampleTable.getOffset(sampleIndex);
       if (offset < earliestSamplePosition) {
         earliestSamplePosition = offset;
       }
@@ -326,7 +351,7 @@ public final class Mp4Extractor implements Extractor, SeekMap {
       mp4Track.trackOutput.format(mediaFormat);
       tracks.add(mp4Track);
 
-      long firstSampleOffset = trackSampleTable.offsets[0];
+      long firstSampleOffset = trackSampleTable.getOffset(0);
       if (firstSampleOffset < earliestSampleOffset) {
         earliestSampleOffset = firstSampleOffset;
       }
@@ -354,21 +379,23 @@ public final class Mp4Extractor implements Extractor, SeekMap {
    */
   private int readSample(ExtractorInput input, PositionHolder positionHolder)
       throws IOException, InterruptedException {
-    int trackIndex = getTrackIndexOfEarliestCurrentSample();
-    if (trackIndex == TrackSampleTable.NO_SAMPLE) {
-      return RESULT_END_OF_INPUT;
+    if (sampleTrackIndex == TrackSampleTable.NO_SAMPLE) {
+      sampleTrackIndex = getTrackIndexOfNextReadSample(input.getPosition());
+      if (sampleTrackIndex == TrackSampleTable.NO_SAMPLE) {
+        return RESULT_END_OF_INPUT;
+      }
     }
-    Mp4Track track = tracks[trackIndex];
+    Mp4Track track = tracks[sampleTrackIndex];
     TrackOutput trackOutput = track.trackOutput;
     int sampleIndex = track.sampleIndex;
-    long position = track.sampleTable.offsets[sampleIndex];
+    long position = track.sampleTable.getOffset(sampleIndex);
     long skipAmount = position - input.getPosition() + sampleBytesWritten;
     if (skipAmount < 0 || skipAmount >= RELOAD_MINIMUM_SEEK_DISTANCE) {
       positionHolder.position = position;
       return RESULT_SEEK;
     }
     input.skipFully((int) skipAmount);
-    sampleSize = track.sampleTable.sizes[sampleIndex];
+    sampleSize = track.sampleTable.getSize(sampleIndex);
     if (track.track.nalUnitLengthFieldLength != -1) {
       // Zero the top three bytes of the array that we'll use to parse nal unit lengths, in case
       // they're only 1 or 2 bytes long.
@@ -406,21 +433,34 @@ public final class Mp4Extractor implements Extractor, SeekMap {
         sampleCurrentNalBytesRemaining -= writtenBytes;
       }
     }
-    trackOutput.sampleMetadata(track.sampleTable.timestampsUs[sampleIndex],
-        track.sampleTable.flags[sampleIndex], sampleSize, 0, null);
+    trackOutput.sampleMetadata(track.sampleTable.getTimestampUs(sampleIndex),
+        track.sampleTable.getFlags(sampleIndex), sampleSize, 0, null);
     track.sampleIndex++;
+    sampleTrackIndex = TrackSampleTable.NO_SAMPLE;
     sampleBytesWritten = 0;
     sampleCurrentNalBytesRemaining = 0;
     return RESULT_CONTINUE;
   }
 
   /**
-   * Returns the index of the track that contains the earliest current sample, or
+   * Returns the index of the track whose next sample should be read, or
    * {@link TrackSampleTable#NO_SAMPLE} if no samples remain.
+   * <p>
+   * The preferred track is the one whose next sample is nearest to {@code inputPosition}, reading
+   * forward. The track whose next sample is earliest in time is chosen instead if reaching it
+   * requires a reload and the preferred track has read too far ahead of it.
+   *
+   * @param inputPosition The current position in the input.
+   * @return The index of the track whose next sample should be read.
    */
-  private int getTrackIndexOfEarliestCurrentSample() {
-    int earliestSampleTrackIndex = TrackSampleTable.NO_SAMPLE;
-    long earliestSampleOffset = Long.MAX_VALUE;
+  private int getTrackIndexOfNextReadSample(long inputPosition) {
+    int preferredTrackIndex = TrackSampleTable.NO_SAMPLE;
+    long preferredSkipAmount = Long.MAX_VALUE;
+    boolean preferredRequiresReload = true;
+    long preferredTimeUs = 0;
+    int earliestTrackIndex = TrackSampleTable.NO_SAMPLE;
+    long earliestTimeUs = Long.MAX_VALUE;
+    boolean earliestRequiresReload = true;
     for (int trackIndex = 0; trackIndex < tracks.length; trackIndex++) {
       Mp4Track track = tracks[trackIndex];
       int sampleIndex = track.sampleIndex;
@@ -428,14 +468,36 @@ public final class Mp4Extractor implements Extractor, SeekMap {
         continue;
       }
 
-      long trackSampleOffset = track.sampleTable.offsets[sampleIndex];
-      if (trackSampleOffset < earliestSampleOffset) {
-        earliestSampleOffset = trackSampleOffset;
-        earliestSampleTrackIndex = trackIndex;
+      long skipAmount = track.sampleTable.getOffset(sampleIndex) - inputPosition;
+      boolean requiresReload = skipAmount < 0 || skipAmount >= RELOAD_MINIMUM_SEEK_DISTANCE;
+      long timeUs = track.sampleTable.getTimestampUs(sampleIndex);
+      if ((preferredRequiresReload && !requiresReload)
+          || (preferredRequiresReload == requiresReload && skipAmount < preferredSkipAmount)) {
+        preferredTrackIndex = trackIndex;
+        preferredSkipAmount = skipAmount;
+        preferredRequiresReload = requiresReload;
+        preferredTimeUs = timeUs;
+      }
+      if (timeUs < earliestTimeUs) {
+        earliestTrackIndex = trackIndex;
+        earliestTimeUs = timeUs;
+        earliestRequiresReload = requiresReload;
       }
     }
 
-    return earliestSampleTrackIndex;
+    if (earliestTrackIndex == preferredTrackIndex || !earliestRequiresReload) {
+      readAheadBytes = 0;
+      return preferredTrackIndex;
+    }
+    if (preferredRequiresReload || readAheadBytes >= MAXIMUM_READ_AHEAD_BYTES
+        || preferredTimeUs - earliestTimeUs >= MAXIMUM_READ_AHEAD_US) {
+      // Reload the source to read the earliest track.
+      readAheadBytes = 0;
+      return earliestTrackIndex;
+    }
+    Mp4Track preferredTrack = tracks[preferredTrackIndex];
+    readAheadBytes += preferredTrack.sampleTable.getSize(preferredTrack.sampleIndex);
+    return preferredTrackIndex;
   }
 
   /**
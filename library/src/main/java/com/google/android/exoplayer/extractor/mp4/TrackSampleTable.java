@@ -16,11 +16,22 @@
 package com.google.android.exoplayer.extractor.mp4;
 
 import com.google.android.exoplayer.C;
-import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Util;
 
+import java.util.Arrays;
+
 /**
  * Sample table for a track in an MP4 file.
+ * <p>
+ * Per-sample properties are decoded on demand rather than being expanded into arrays, so that the
+ * table remains small for long files with millions of samples. Sample sizes and chunk offsets are
+ * read directly from the stsz and stco/co64 atom payloads, timestamps are derived from the runs in
+ * the stts and ctts atoms, and synchronization samples are held in a bitset. Sample offsets are
+ * calculated from the offset of the containing chunk, located using the runs in the stsc atom, or
+ * from a checkpoint stored every {@link #CHECKPOINT_INTERVAL} samples, whichever is closer.
+ * <p>
+ * Edit lists are applied by mapping the table's samples onto one or more segments of the
+ * underlying (unedited) samples.
  */
 /* package */ final class TrackSampleTable {
 
@@ -29,42 +40,176 @@ import com.google.android.exoplayer.util.Util;
    */
   public static final int NO_SAMPLE = -1;
 
+  /**
+   * Offset of the first sample size entry in the stsz atom.
+   */
+  public static final int STSZ_ENTRIES_OFFSET = Atom.FULL_HEADER_SIZE + 8;
+  /**
+   * Offset of the first chunk offset entry in the stco and co64 atoms.
+   */
+  public static final int CHUNK_OFFSET_ENTRIES_OFFSET = Atom.FULL_HEADER_SIZE + 4;
+
+  /* package */ static final int CHECKPOINT_SHIFT = 6;
+  /* package */ static final int CHECKPOINT_INTERVAL = 1 << CHECKPOINT_SHIFT;
+
   /**
    * Number of samples.
    */
   public final int sampleCount;
   /**
-   * Sample offsets in bytes.
+   * Maximum sample size.
    */
-  public final long[] offsets;
+  public final int maximumSize;
+
+  private final long timescale;
+
+  private final int fixedSampleSize;
+  private final byte[] stszData;
+  private final byte[] chunkOffsetData;
+  private final boolean chunkOffsetsAreLongs;
+  private final int[] chunkRunFirstChunks;
+  private final int[] chunkRunFirstSamples;
+  private final int[] chunkRunSamplesPerChunk;
+  private final long[] offsetCheckpoints;
+
+  private final int[] timestampRunFirstSamples;
+  private final long[] timestampRunFirstTimestamps;
+  private final int[] timestampRunDeltas;
+  private final int[] timestampOffsetRunFirstSamples;
+  private final int[] timestampOffsetRunValues;
+
+  private final long[] syncSamples;
+
+  private final int[] segmentFirstSamples;
+  private final int[] segmentSourceFirstSamples;
+  private final long[] segmentMediaTimes;
+  private final long[] segmentStartTimesUs;
+
   /**
-   * Sample sizes in bytes.
+   * @param timescale The track timescale.
+   * @param fixedSampleSize The size of every sample, or 0 if sizes are read from {@code stszData}.
+   * @param stszData The payload of the stsz atom.
+   * @param chunkOffsetData The payload of the stco or co64 atom.
+   * @param chunkOffsetsAreLongs Whether {@code chunkOffsetData} is the payload of a co64 atom.
+   * @param chunkRunFirstChunks The index of the first chunk in each run of chunks that have the
+   *     same number of samples.
+   * @param chunkRunFirstSamples The index of the first sample in each run of chunks.
+   * @param chunkRunSamplesPerChunk The number of samples per chunk in each run of chunks.
+   * @param offsetCheckpoints The offsets of every {@link #CHECKPOINT_INTERVAL}th sample.
+   * @param timestampRunFirstSamples The index of the first sample in each run of samples that have
+   *     the same duration.
+   * @param timestampRunFirstTimestamps The decoding timestamp of the first sample in each run.
+   * @param timestampRunDeltas The duration of the samples in each run.
+   * @param timestampOffsetRunFirstSamples The index of the first sample in each run of samples
+   *     that have the same composition time offset, or null if there are no offsets or if
+   *     {@code timestampOffsetRunValues} holds an offset for each sample.
+   * @param timestampOffsetRunValues The composition time offset of each run or sample, or null if
+   *     there are no offsets.
+   * @param syncSamples A bitset of synchronization samples, or null if all samples are
+   *     synchronization samples.
+   * @param sampleCount The number of samples.
+   * @param maximumSize The maximum sample size.
    */
-  public final int[] sizes;
+  TrackSampleTable(long timescale, int fixedSampleSize, byte[] stszData, byte[] chunkOffsetData,
+      boolean chunkOffsetsAreLongs, int[] chunkRunFirstChunks, int[] chunkRunFirstSamples,
+      int[] chunkRunSamplesPerChunk, long[] offsetCheckpoints, int[] timestampRunFirstSamples,
+      long[] timestampRunFirstTimestamps, int[] timestampRunDeltas,
+      int[] timestampOffsetRunFirstSamples, int[] timestampOffsetRunValues, long[] syncSamples,
+      int sampleCount, int maximumSize) {
+    this(timescale, fixedSampleSize, stszData, chunkOffsetData, chunkOffsetsAreLongs,
+        chunkRunFirstChunks, chunkRunFirstSamples, chunkRunSamplesPerChunk, offsetCheckpoints,
+        timestampRunFirstSamples, timestampRunFirstTimestamps, timestampRunDeltas,
+        timestampOffsetRunFirstSamples, timestampOffsetRunValues, syncSamples, new int[] {0},
+        new int[] {0}, new long[] {0}, new long[] {0}, sampleCount, maximumSize);
+  }
+
+  private TrackSampleTable(long timescale, int fixedSampleSize, byte[] stszData,
+      byte[] chunkOffsetData, boolean chunkOffsetsAreLongs, int[] chunkRunFirstChunks,
+      int[] chunkRunFirstSamples, int[] chunkRunSamplesPerChunk, long[] offsetCheckpoints,
+      int[] timestampRunFirstSamples, long[] timestampRunFirstTimestamps, int[] timestampRunDeltas,
+      int[] timestampOffsetRunFirstSamples, int[] timestampOffsetRunValues, long[] syncSamples,
+      int[] segmentFirstSamples, int[] segmentSourceFirstSamples, long[] segmentMediaTimes,
+      long[] segmentStartTimesUs, int sampleCount, int maximumSize) {
+    this.timescale = timescale;
+    this.fixedSampleSize = fixedSampleSize;
+    this.stszData = stszData;
+    this.chunkOffsetData = chunkOffsetData;
+    this.chunkOffsetsAreLongs = chunkOffsetsAreLongs;
+    this.chunkRunFirstChunks = chunkRunFirstChunks;
+    this.chunkRunFirstSamples = chunkRunFirstSamples;
+    this.chunkRunSamplesPerChunk = chunkRunSamplesPerChunk;
+    this.offsetCheckpoints = offsetCheckpoints;
+    this.timestampRunFirstSamples = timestampRunFirstSamples;
+    this.timestampRunFirstTimestamps = timestampRunFirstTimestamps;
+    this.timestampRunDeltas = timestampRunDeltas;
+    this.timestampOffsetRunFirstSamples = timestampOffsetRunFirstSamples;
+    this.timestampOffsetRunValues = timestampOffsetRunValues;
+    this.syncSamples = syncSamples;
+    this.segmentFirstSamples = segmentFirstSamples;
+    this.segmentSourceFirstSamples = segmentSourceFirstSamples;
+    this.segmentMediaTimes = segmentMediaTimes;
+    this.segmentStartTimesUs = segmentStartTimesUs;
+    this.sampleCount = sampleCount;
+    this.maximumSize = maximumSize;
+  }
+
   /**
-   * Maximum sample size in {@link #sizes}.
+   * Returns a table containing segments of the samples in this table, which must not itself have
+   * been edited.
+   *
+   * @param segmentSourceFirstSamples The index of the first sample in each segment.
+   * @param segmentSampleCounts The number of samples in each segment.
+   * @param segmentMediaTimes The media time at which each segment starts, in the track timescale.
+   * @param segmentStartTimesUs The presentation time at which each segment starts.
+   * @param maximumSize The maximum size of the samples in the segments.
+   * @return The edited table.
    */
-  public final int maximumSize;
+  public TrackSampleTable edit(int[] segmentSourceFirstSamples, int[] segmentSampleCounts,
+      long[] segmentMediaTimes, long[] segmentStartTimesUs, int maximumSize) {
+    int[] segmentFirstSamples = new int[segmentSampleCounts.length];
+    int editedSampleCount = 0;
+    for (int i = 0; i < segmentSampleCounts.length; i++) {
+      segmentFirstSamples[i] = editedSampleCount;
+      editedSampleCount += segmentSampleCounts[i];
+    }
+    return new TrackSampleTable(timescale, fixedSampleSize, stszData, chunkOffsetData,
+        chunkOffsetsAreLongs, chunkRunFirstChunks, chunkRunFirstSamples, chunkRunSamplesPerChunk,
+        offsetCheckpoints, timestampRunFirstSamples, timestampRunFirstTimestamps,
+        timestampRunDeltas, timestampOffsetRunFirstSamples, timestampOffsetRunValues, syncSamples,
+        segmentFirstSamples, segmentSourceFirstSamples, segmentMediaTimes, segmentStartTimesUs,
+        editedSampleCount, maximumSize);
+  }
+
   /**
-   * Sample timestamps in microseconds.
+   * Returns the offset of a sample in bytes.
    */
-  public final long[] timestampsUs;
+  public long getOffset(int index) {
+    return getSourceOffset(getSourceIndex(index));
+  }
+
   /**
-   * Sample flags.
+   * Returns the size of a sample in bytes.
    */
-  public final int[] flags;
+  public int getSize(int index) {
+    return getSourceSize(getSourceIndex(index));
+  }
 
-  TrackSampleTable(long[] offsets, int[] sizes, int maximumSize, long[] timestampsUs, int[] flags) {
-    Assertions.checkArgument(sizes.length == timestampsUs.length);
-    Assertions.checkArgument(offsets.length == timestampsUs.length);
-    Assertions.checkArgument(flags.length == timestampsUs.length);
+  /**
+   * Returns the presentation timestamp of a sample in microseconds.
+   */
+  public long getTimestampUs(int index) {
+    int segment = getSegment(index);
+    int sourceIndex = segmentSourceFirstSamples[segment] + index - segmentFirstSamples[segment];
+    return segmentStartTimesUs[segment] + Util.scaleLargeTimestamp(
+        getSourceTimestamp(sourceIndex) - segmentMediaTimes[segment], C.MICROS_PER_SECOND,
+        timescale);
+  }
 
-    this.offsets = offsets;
-    this.sizes = sizes;
-    this.maximumSize = maximumSize;
-    this.timestampsUs = timestampsUs;
-    this.flags = flags;
-    sampleCount = offsets.length;
+  /**
+   * Returns the flags of a sample.
+   */
+  public int getFlags(int index) {
+    return isSourceSyncSample(getSourceIndex(index)) ? C.SAMPLE_FLAG_SYNC : 0;
   }
 
   /**
@@ -77,9 +222,10 @@ import com.google.android.exoplayer.util.Util;
   public int getIndexOfEarlierOrEqualSynchronizationSample(long timeUs) {
     // Video frame timestamps may not be sorted, so the behavior of this call can be undefined.
     // Frames are not reordered past synchronization samples so this works in practice.
-    int startIndex = Util.binarySearchFloor(timestampsUs, timeUs, true, false);
+    int index = binarySearchTimestampsUs(timeUs);
+    int startIndex = index < 0 ? -(index + 2) : index;
     for (int i = startIndex; i >= 0; i--) {
-      if ((flags[i] & C.SAMPLE_FLAG_SYNC) != 0) {
+      if (getFlags(i) != 0) {
         return i;
       }
     }
@@ -94,13 +240,156 @@ import com.google.android.exoplayer.util.Util;
    * @return index Index of the synchronization sample, or {@link #NO_SAMPLE} if none.
    */
   public int getIndexOfLaterOrEqualSynchronizationSample(long timeUs) {
-    int startIndex = Util.binarySearchCeil(timestampsUs, timeUs, true, false);
-    for (int i = startIndex; i < timestampsUs.length; i++) {
-      if ((flags[i] & C.SAMPLE_FLAG_SYNC) != 0) {
+    int index = binarySearchTimestampsUs(timeUs);
+    int startIndex = index < 0 ? ~index : index;
+    for (int i = startIndex; i < sampleCount; i++) {
+      if (getFlags(i) != 0) {
         return i;
       }
     }
     return NO_SAMPLE;
   }
 
+  // Accessors for samples in the unedited table.
+
+  /**
+   * Returns the timestamp of a sample in the unedited table, in the track timescale.
+   */
+  /* package */ long getSourceTimestamp(int sourceIndex) {
+    int run = findRun(timestampRunFirstSamples, sourceIndex);
+    long timestamp = timestampRunFirstTimestamps[run]
+        + (long) (sourceIndex - timestampRunFirstSamples[run]) * timestampRunDeltas[run];
+    if (timestampOffsetRunFirstSamples != null) {
+      run = findRun(timestampOffsetRunFirstSamples, sourceIndex);
+      if (run >= 0) {
+        timestamp += timestampOffsetRunValues[run];
+      }
+    } else if (timestampOffsetRunValues != null) {
+      timestamp += timestampOffsetRunValues[sourceIndex];
+    }
+    return timestamp;
+  }
+
+  /**
+   * Performs the same search as {@link Arrays#binarySearch(long[], long)} over the timestamps of
+   * the samples in the unedited table, in the track timescale.
+   */
+  /* package */ int binarySearchSourceTimestamps(long timestamp) {
+    int low = 0;
+    int high = sampleCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midTimestamp = getSourceTimestamp(mid);
+      if (midTimestamp < timestamp) {
+        low = mid + 1;
+      } else if (midTimestamp > timestamp) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Returns the size of a sample in the unedited table.
+   */
+  /* package */ int getSourceSize(int sourceIndex) {
+    return fixedSampleSize != 0 ? fixedSampleSize
+        : readInt(stszData, STSZ_ENTRIES_OFFSET + 4 * sourceIndex);
+  }
+
+  /**
+   * Returns whether a sample in the unedited table is a synchronization sample.
+   */
+  /* package */ boolean isSourceSyncSample(int sourceIndex) {
+    return syncSamples == null || (syncSamples[sourceIndex >> 6] & (1L << sourceIndex)) != 0;
+  }
+
+  private long getSourceOffset(int sourceIndex) {
+    int run = findRun(chunkRunFirstSamples, sourceIndex);
+    int samplesPerChunk = chunkRunSamplesPerChunk[run];
+    int chunkInRun = (sourceIndex - chunkRunFirstSamples[run]) / samplesPerChunk;
+    int chunkFirstSample = chunkRunFirstSamples[run] + chunkInRun * samplesPerChunk;
+    long chunkOffset = getChunkOffset(chunkRunFirstChunks[run] + chunkInRun);
+    if (fixedSampleSize != 0) {
+      return chunkOffset + (long) (sourceIndex - chunkFirstSample) * fixedSampleSize;
+    }
+    // Sum the sizes of the preceding samples from the start of the chunk or from the checkpoint,
+    // whichever is closer.
+    int checkpointIndex = sourceIndex >> CHECKPOINT_SHIFT;
+    int firstSample = checkpointIndex << CHECKPOINT_SHIFT;
+    long offset;
+    if (firstSample > chunkFirstSample) {
+      offset = offsetCheckpoints[checkpointIndex];
+    } else {
+      firstSample = chunkFirstSample;
+      offset = chunkOffset;
+    }
+    for (int i = firstSample; i < sourceIndex; i++) {
+      offset += readInt(stszData, STSZ_ENTRIES_OFFSET + 4 * i);
+    }
+    return offset;
+  }
+
+  private long getChunkOffset(int chunkIndex) {
+    if (chunkOffsetsAreLongs) {
+      int position = CHUNK_OFFSET_ENTRIES_OFFSET + 8 * chunkIndex;
+      return ((long) readInt(chunkOffsetData, position) << 32)
+          | (readInt(chunkOffsetData, position + 4) & 0xFFFFFFFFL);
+    }
+    return readInt(chunkOffsetData, CHUNK_OFFSET_ENTRIES_OFFSET + 4 * chunkIndex) & 0xFFFFFFFFL;
+  }
+
+  private int getSourceIndex(int index) {
+    int segment = getSegment(index);
+    return segmentSourceFirstSamples[segment] + index - segmentFirstSamples[segment];
+  }
+
+  private int getSegment(int index) {
+    if (segmentFirstSamples.length == 1) {
+      return 0;
+    }
+    return findRun(segmentFirstSamples, index);
+  }
+
+  /**
+   * Performs the same search as {@link Arrays#binarySearch(long[], long)} over the timestamps of
+   * the samples in microseconds, so that the results are identical for unsorted timestamps.
+   */
+  private int binarySearchTimestampsUs(long timeUs) {
+    int low = 0;
+    int high = sampleCount - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      long midTimeUs = getTimestampUs(mid);
+      if (midTimeUs < timeUs) {
+        low = mid + 1;
+      } else if (midTimeUs > timeUs) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Returns the index of the run containing the sample, or -1 if the sample precedes all runs.
+   *
+   * @param runFirstSamples The index of the first sample in each run, in increasing order.
+   * @param sampleIndex The sample index.
+   */
+  private static int findRun(int[] runFirstSamples, int sampleIndex) {
+    int index = Arrays.binarySearch(runFirstSamples, sampleIndex);
+    return index < 0 ? -(index + 2) : index;
+  }
+
+  private static int readInt(byte[] data, int position) {
+    return (data[position] & 0xFF) << 24
+        | (data[position + 1] & 0xFF) << 16
+        | (data[position + 2] & 0xFF) << 8
+        | (data[position + 3] & 0xFF);
+  }
+
 }
@@ -16,12 +16,14 @@
 package com.google.android.exoplayer.extractor.ts;
 
 import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.MediaFormat;
 import com.google.android.exoplayer.extractor.DummyTrackOutput;
 import com.google.android.exoplayer.extractor.Extractor;
 import com.google.android.exoplayer.extractor.ExtractorInput;
 import com.google.android.exoplayer.extractor.ExtractorOutput;
 import com.google.android.exoplayer.extractor.PositionHolder;
 import com.google.android.exoplayer.extractor.SeekMap;
+import com.google.android.exoplayer.extractor.TrackOutput;
 import com.google.android.exoplayer.util.ParsableBitArray;
 import com.google.android.exoplayer.util.ParsableByteArray;
 import com.google.android.exoplayer.util.Util;
@@ -48,6 +50,25 @@ public final class TsExtractor implements Extractor {
   private static final int TS_SYNC_BYTE = 0x47; // First byte of each TS packet.
   private static final int TS_PAT_PID = 0;
 
+  // Masks for the three header bytes that follow the sync byte of each TS packet.
+  private static final int TS_HEADER_TRANSPORT_ERROR_INDICATOR = 0x800000;
+  private static final int TS_HEADER_PAYLOAD_UNIT_START_INDICATOR = 0x400000;
+  private static final int TS_HEADER_PID = 0x1FFF00;
+  private static final int TS_HEADER_PID_SHIFT = 8;
+  private static final int TS_HEADER_ADAPTATION_FIELD_EXISTS = 0x20;
+  private static final int TS_HEADER_PAYLOAD_EXISTS = 0x10;
+  private static final int TS_HEADER_CONTINUITY_COUNTER = 0x0F;
+
+  private static final int ADAPTATION_FIELD_DISCONTINUITY_INDICATOR = 0x80;
+
+  private static final int CONTINUITY_COUNTER_UNSET = -1;
+
+  /**
+   * The number of packets read from the input in each call to {@link #read}, where available.
+   */
+  private static final int BUFFER_PACKET_COUNT = 50;
+  private static final int BUFFER_SIZE = TS_PACKET_SIZE * BUFFER_PACKET_COUNT;
+
   private static final int TS_STREAM_TYPE_MPA = 0x03;
   private static final int TS_STREAM_TYPE_MPA_LSF = 0x04;
   private static final int TS_STREAM_TYPE_AAC = 0x0F;
@@ -68,14 +89,20 @@ public final class TsExtractor implements Extractor {
   private final PtsTimestampAdjuster ptsTimestampAdjuster;
   private final int workaroundFlags;
   private final ParsableByteArray tsPacketBuffer;
-  private final ParsableBitArray tsScratch;
   /* package */ final SparseArray<TsPayloadReader> tsPayloadReaders; // Indexed by pid
   /* package */ final SparseBooleanArray streamTypes;
 
   // Accessed only by the loading thread.
   private ExtractorOutput output;
+  private int bytesInBuffer;
   /* package */ Id3Reader id3Reader;
 
+  // Written only by the loading thread.
+  private volatile int lostPacketCount;
+  private volatile int duplicatePacketCount;
+  private volatile int errorPacketCount;
+  private volatile int droppedSampleCount;
+
   public TsExtractor() {
     this(new PtsTimestampAdjuster(0));
   }
@@ -87,13 +114,44 @@ public final class TsExtractor implements Extractor {
   public TsExtractor(PtsTimestampAdjuster ptsTimestampAdjuster, int workaroundFlags) {
     this.ptsTimestampAdjuster = ptsTimestampAdjuster;
     this.workaroundFlags = workaroundFlags;
-    tsPacketBuffer = new ParsableByteArray(TS_PACKET_SIZE);
-    tsScratch = new ParsableBitArray(new byte[3]);
+    tsPacketBuffer = new ParsableByteArray(BUFFER_SIZE);
     tsPayloadReaders = new SparseArray<>();
     tsPayloadReaders.put(TS_PAT_PID, new PatReader());
     streamTypes = new SparseBooleanArray();
   }
 
+  /**
+   * Returns the number of packets that are known to have been lost, as indicated by gaps in the
+   * continuity counters of the packets that were received.
+   */
+  public int getLostPacketCount() {
+    return lostPacketCount;
+  }
+
+  /**
+   * Returns the number of duplicate packets that were received and discarded.
+   */
+  public int getDuplicatePacketCount() {
+    return duplicatePacketCount;
+  }
+
+  /**
+   * Returns the number of packets that were discarded because their transport_error_indicator
+   * was set.
+   */
+  public int getErrorPacketCount() {
+    return errorPacketCount;
+  }
+
+  /**
+   * Returns the number of samples that were discarded because packets carrying part of them were
+   * lost or errored, or because they were received whilst waiting for a keyframe following such a
+   * loss. Samples for which no data at all was received are not included.
+   */
+  public int getDroppedSampleCount() {
+    return droppedSampleCount;
+  }
+
   // Extractor implementation.
 
   @Override
@@ -117,9 +175,12 @@ public final class TsExtractor implements Extractor {
 
   @Override
   public void seek() {
+    bytesInBuffer = 0;
     ptsTimestampAdjuster.reset();
     for (int i = 0; i < tsPayloadReaders.size(); i++) {
-      tsPayloadReaders.valueAt(i).seek();
+      TsPayloadReader payloadReader = tsPayloadReaders.valueAt(i);
+      payloadReader.continuityCounter = CONTINUITY_COUNTER_UNSET;
+      payloadReader.seek();
     }
   }
 
@@ -131,46 +192,137 @@ public final class TsExtractor implements Extractor {
   @Override
   public int read(ExtractorInput input, PositionHolder seekPosition)
       throws IOException, InterruptedException {
-    if (!input.readFully(tsPacketBuffer.data, 0, TS_PACKET_SIZE, true)) {
-      return RESULT_END_OF_INPUT;
-    }
-
-    // Note: see ISO/IEC 13818-1, section 2.4.3.2 for detailed information on the format of
-    // the header.
-    tsPacketBuffer.setPosition(0);
-    tsPacketBuffer.setLimit(TS_PACKET_SIZE);
-    int syncByte = tsPacketBuffer.readUnsignedByte();
-    if (syncByte != TS_SYNC_BYTE) {
-      return RESULT_CONTINUE;
-    }
-
-    tsPacketBuffer.readBytes(tsScratch, 3);
-    tsScratch.skipBits(1); // transport_error_indicator
-    boolean payloadUnitStartIndicator = tsScratch.readBit();
-    tsScratch.skipBits(1); // transport_priority
-    int pid = tsScratch.readBits(13);
-    tsScratch.skipBits(2); // transport_scrambling_control
-    boolean adaptationFieldExists = tsScratch.readBit();
-    boolean payloadExists = tsScratch.readBit();
-    // Last 4 bits of scratch are skipped: continuity_counter
-
-    // Skip the adaptation field.
-    if (adaptationFieldExists) {
-      int adaptationFieldLength = tsPacketBuffer.readUnsignedByte();
-      tsPacketBuffer.skipBytes(adaptationFieldLength);
-    }
-
-    // Read the payload.
-    if (payloadExists) {
-      TsPayloadReader payloadReader = tsPayloadReaders.get(pid);
-      if (payloadReader != null) {
-        payloadReader.consume(tsPacketBuffer, payloadUnitStartIndicator, output);
+    byte[] data = tsPacketBuffer.data;
+    // Read as much data as the buffer can hold, but wait only for a single complete packet.
+    while (bytesInBuffer < TS_PACKET_SIZE) {
+      int bytesRead = input.read(data, bytesInBuffer, BUFFER_SIZE - bytesInBuffer);
+      if (bytesRead == C.RESULT_END_OF_INPUT) {
+        // Discard any trailing partial packet.
+        bytesInBuffer = 0;
+        return RESULT_END_OF_INPUT;
+      }
+      bytesInBuffer += bytesRead;
+    }
+
+    // Demux all of the complete packets in the buffer.
+    int position = 0;
+    while (bytesInBuffer - position >= TS_PACKET_SIZE) {
+      if (data[position] != TS_SYNC_BYTE) {
+        position = findSyncBytePosition(data, position + 1, bytesInBuffer);
+        continue;
+      }
+      int packetEndPosition = position + TS_PACKET_SIZE;
+
+      // Note: see ISO/IEC 13818-1, section 2.4.3.2 for detailed information on the format of
+      // the header.
+      int header = ((data[position + 1] & 0xFF) << 16) | ((data[position + 2] & 0xFF) << 8)
+          | (data[position + 3] & 0xFF);
+      TsPayloadReader payloadReader =
+          tsPayloadReaders.get((header & TS_HEADER_PID) >> TS_HEADER_PID_SHIFT);
+      if (payloadReader != null && (header & TS_HEADER_TRANSPORT_ERROR_INDICATOR) != 0) {
+        // The packet is damaged, and so is its continuity counter.
+        errorPacketCount++;
+        onPacketLost(payloadReader);
+        payloadReader.continuityCounter = CONTINUITY_COUNTER_UNSET;
+      } else if (payloadReader != null && (header & TS_HEADER_PAYLOAD_EXISTS) != 0) {
+        int payloadPosition = position + 4;
+        boolean discontinuityIndicator = false;
+        if ((header & TS_HEADER_ADAPTATION_FIELD_EXISTS) != 0) {
+          int adaptationFieldLength = data[payloadPosition] & 0xFF;
+          discontinuityIndicator = adaptationFieldLength > 0
+              && (data[payloadPosition + 1] & ADAPTATION_FIELD_DISCONTINUITY_INDICATOR) != 0;
+          // Skip the adaptation field.
+          payloadPosition += 1 + adaptationFieldLength;
+        }
+        if (checkContinuity(payloadReader, header & TS_HEADER_CONTINUITY_COUNTER,
+            discontinuityIndicator, data, payloadPosition, packetEndPosition)
+            && payloadPosition < packetEndPosition) {
+          tsPacketBuffer.setLimit(packetEndPosition);
+          tsPacketBuffer.setPosition(payloadPosition);
+          payloadReader.consume(tsPacketBuffer,
+              (header & TS_HEADER_PAYLOAD_UNIT_START_INDICATOR) != 0, output);
+        }
       }
+      position = packetEndPosition;
     }
 
+    // Move any remaining partial packet to the start of the buffer.
+    bytesInBuffer -= position;
+    System.arraycopy(data, position, data, 0, bytesInBuffer);
     return RESULT_CONTINUE;
   }
 
+  /**
+   * Checks the continuity counter of a packet that carries a payload, and updates the reader's
+   * continuity state. If packets are found to have been lost, the reader is notified.
+   * <p>
+   * A packet is a duplicate if it repeats the continuity counter and payload of the previous
+   * packet. ISO/IEC 13818-1 allows a packet to be sent at most twice, so a further repeat is not
+   * treated as a duplicate. Nor is a repeated counter with a different payload, as written by
+   * muxers that don't increment the counter. In both cases the counter gives no indication of
+   * whether packets were lost, and so the packet is treated as a discontinuity.
+   *
+   * @param payloadReader The reader for the packet's PID.
+   * @param continuityCounter The continuity counter of the packet.
+   * @param discontinuityIndicator Whether the discontinuity indicator of the packet is set.
+   * @param data An array containing the packet.
+   * @param payloadPosition The position of the packet's payload in {@code data}.
+   * @param packetEndPosition The position of the end of the packet in {@code data}.
+   * @return Whether the packet's payload should be consumed. False if the packet is a duplicate.
+   */
+  private boolean checkContinuity(TsPayloadReader payloadReader, int continuityCounter,
+      boolean discontinuityIndicator, byte[] data, int payloadPosition, int packetEndPosition) {
+    int previousContinuityCounter = payloadReader.continuityCounter;
+    payloadReader.continuityCounter = continuityCounter;
+    int payloadLength = Math.max(0, packetEndPosition - payloadPosition);
+    boolean repeated = previousContinuityCounter == continuityCounter && !discontinuityIndicator;
+    if (repeated && !payloadReader.duplicateReceived
+        && payloadReader.isPreviousPayload(data, payloadPosition, payloadLength)) {
+      payloadReader.duplicateReceived = true;
+      duplicatePacketCount++;
+      return false;
+    }
+    payloadReader.duplicateReceived = false;
+    payloadReader.setPreviousPayload(data, payloadPosition, payloadLength);
+    if (previousContinuityCounter == CONTINUITY_COUNTER_UNSET || discontinuityIndicator
+        || repeated) {
+      return true;
+    }
+    int lostPackets = (continuityCounter - previousContinuityCounter - 1)
+        & TS_HEADER_CONTINUITY_COUNTER;
+    if (lostPackets > 0) {
+      lostPacketCount += lostPackets;
+      onPacketLost(payloadReader);
+    }
+    return true;
+  }
+
+  private void onPacketLost(TsPayloadReader payloadReader) {
+    if (payloadReader.packetLost()) {
+      droppedSampleCount++;
+    }
+  }
+
+  /**
+   * Returns the position of the next sync byte in {@code data}, or {@code limit} if there isn't
+   * one. Where a further packet is available in the data, a candidate sync byte is only accepted
+   * if the byte one packet later is also a sync byte.
+   *
+   * @param data The data to search.
+   * @param position The position from which to search.
+   * @param limit The limit of the data.
+   * @return The position of the next sync byte, or {@code limit}.
+   */
+  private static int findSyncBytePosition(byte[] data, int position, int limit) {
+    for (; position < limit; position++) {
+      if (data[position] == TS_SYNC_BYTE && (position + TS_PACKET_SIZE >= limit
+          || data[position + TS_PACKET_SIZE] == TS_SYNC_BYTE)) {
+        return position;
+      }
+    }
+    return limit;
+  }
+
   // Internals.
 
   /**
@@ -178,6 +330,21 @@ public final class TsExtractor implements Extractor {
    */
   private abstract static class TsPayloadReader {
 
+    /**
+     * The continuity counter of the last packet with a payload, or
+     * {@link #CONTINUITY_COUNTER_UNSET}. Maintained by the extractor.
+     */
+    public int continuityCounter = CONTINUITY_COUNTER_UNSET;
+
+    /**
+     * Whether the last packet with a payload was discarded as a duplicate. Maintained by the
+     * extractor.
+     */
+    public boolean duplicateReceived;
+
+    private final byte[] previousPayload = new byte[TS_PACKET_SIZE];
+    private int previousPayloadLength;
+
     /**
      * Notifies the reader that a seek has occurred.
      * <p>
@@ -197,6 +364,39 @@ public final class TsExtractor implements Extractor {
     public abstract void consume(ParsableByteArray data, boolean payloadUnitStartIndicator,
         ExtractorOutput output);
 
+    /**
+     * Notifies the reader that one or more packets have been lost or damaged since the data
+     * passed to the previous invocation of
+     * {@link #consume(ParsableByteArray, boolean, ExtractorOutput)}.
+     *
+     * @return Whether data that had been partially read was discarded as a result.
+     */
+    public abstract boolean packetLost();
+
+    /**
+     * Returns whether a payload is equal to the one last recorded by
+     * {@link #setPreviousPayload(byte[], int, int)}.
+     */
+    public final boolean isPreviousPayload(byte[] data, int position, int length) {
+      if (length != previousPayloadLength) {
+        return false;
+      }
+      for (int i = 0; i < length; i++) {
+        if (data[position + i] != previousPayload[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Records the payload of a packet, so that a duplicate of the packet can be identified.
+     */
+    public final void setPreviousPayload(byte[] data, int position, int length) {
+      System.arraycopy(data, position, previousPayload, 0, length);
+      previousPayloadLength = length;
+    }
+
   }
 
   /**
@@ -215,6 +415,12 @@ public final class TsExtractor implements Extractor {
       // Do nothing.
     }
 
+    @Override
+    public boolean packetLost() {
+      // Do nothing. Tables are repeated, and so will be received again.
+      return false;
+    }
+
     @Override
     public void consume(ParsableByteArray data, boolean payloadUnitStartIndicator,
         ExtractorOutput output) {
@@ -270,6 +476,12 @@ public final class TsExtractor implements Extractor {
       // Do nothing.
     }
 
+    @Override
+    public boolean packetLost() {
+      // Do nothing. Tables are repeated, and so will be received again.
+      return false;
+    }
+
     @Override
     public void consume(ParsableByteArray data, boolean payloadUnitStartIndicator,
         ExtractorOutput output) {
@@ -339,54 +551,62 @@ public final class TsExtractor implements Extractor {
           continue;
         }
 
-        ElementaryStreamReader pesPayloadReader;
+        // Samples of the stream are written through a gate, so that samples can be discarded until
+        // the next keyframe following a loss of data.
+        KeyframeGatingTrackOutput trackOutput = null;
+        ElementaryStreamReader pesPayloadReader = null;
         switch (streamType) {
           case TS_STREAM_TYPE_MPA:
-            pesPayloadReader = new MpegAudioReader(output.track(TS_STREAM_TYPE_MPA));
-            break;
           case TS_STREAM_TYPE_MPA_LSF:
-            pesPayloadReader = new MpegAudioReader(output.track(TS_STREAM_TYPE_MPA_LSF));
+            trackOutput = new KeyframeGatingTrackOutput(output.track(streamType));
+            pesPayloadReader = new MpegAudioReader(trackOutput);
             break;
           case TS_STREAM_TYPE_AAC:
-            pesPayloadReader = (workaroundFlags & WORKAROUND_IGNORE_AAC_STREAM) != 0 ? null
-                : new AdtsReader(output.track(TS_STREAM_TYPE_AAC), new DummyTrackOutput());
+            if ((workaroundFlags & WORKAROUND_IGNORE_AAC_STREAM) == 0) {
+              trackOutput = new KeyframeGatingTrackOutput(output.track(TS_STREAM_TYPE_AAC));
+              pesPayloadReader = new AdtsReader(trackOutput, new DummyTrackOutput());
+            }
             break;
           case TS_STREAM_TYPE_AC3:
-            pesPayloadReader = new Ac3Reader(output.track(TS_STREAM_TYPE_AC3), false);
-            break;
           case TS_STREAM_TYPE_E_AC3:
-            pesPayloadReader = new Ac3Reader(output.track(TS_STREAM_TYPE_E_AC3), true);
+            trackOutput = new KeyframeGatingTrackOutput(output.track(streamType));
+            pesPayloadReader = new Ac3Reader(trackOutput, streamType == TS_STREAM_TYPE_E_AC3);
             break;
           case TS_STREAM_TYPE_DTS:
           case TS_STREAM_TYPE_HDMV_DTS:
-            pesPayloadReader = new DtsReader(output.track(TS_STREAM_TYPE_DTS));
+            trackOutput = new KeyframeGatingTrackOutput(output.track(TS_STREAM_TYPE_DTS));
+            pesPayloadReader = new DtsReader(trackOutput);
             break;
           case TS_STREAM_TYPE_H262:
-            pesPayloadReader = new H262Reader(output.track(TS_STREAM_TYPE_H262));
+            trackOutput = new KeyframeGatingTrackOutput(output.track(TS_STREAM_TYPE_H262));
+            pesPayloadReader = new H262Reader(trackOutput);
             break;
           case TS_STREAM_TYPE_H264:
-            pesPayloadReader = (workaroundFlags & WORKAROUND_IGNORE_H264_STREAM) != 0 ? null
-                : new H264Reader(output.track(TS_STREAM_TYPE_H264),
-                    new SeiReader(output.track(TS_STREAM_TYPE_EIA608)),
-                    (workaroundFlags & WORKAROUND_ALLOW_NON_IDR_KEYFRAMES) != 0,
-                    (workaroundFlags & WORKAROUND_DETECT_ACCESS_UNITS) != 0);
+            if ((workaroundFlags & WORKAROUND_IGNORE_H264_STREAM) == 0) {
+              trackOutput = new KeyframeGatingTrackOutput(output.track(TS_STREAM_TYPE_H264));
+              pesPayloadReader = new H264Reader(trackOutput,
+                  new SeiReader(output.track(TS_STREAM_TYPE_EIA608)),
+                  (workaroundFlags & WORKAROUND_ALLOW_NON_IDR_KEYFRAMES) != 0,
+                  (workaroundFlags & WORKAROUND_DETECT_ACCESS_UNITS) != 0);
+            }
             break;
           case TS_STREAM_TYPE_H265:
-            pesPayloadReader = new H265Reader(output.track(TS_STREAM_TYPE_H265),
+            trackOutput = new KeyframeGatingTrackOutput(output.track(TS_STREAM_TYPE_H265));
+            pesPayloadReader = new H265Reader(trackOutput,
                 new SeiReader(output.track(TS_STREAM_TYPE_EIA608)));
             break;
           case TS_STREAM_TYPE_ID3:
+            // ID3 samples are all keyframes, and so don't need to be gated.
             pesPayloadReader = id3Reader;
             break;
           default:
-            pesPayloadReader = null;
             break;
         }
 
         if (pesPayloadReader != null) {
           streamTypes.put(streamType, true);
           tsPayloadReaders.put(elementaryPid,
-              new PesReader(pesPayloadReader, ptsTimestampAdjuster));
+              new PesReader(pesPayloadReader, trackOutput, ptsTimestampAdjuster));
         }
       }
 
@@ -449,6 +669,7 @@ public final class TsExtractor implements Extractor {
     private static final int PES_SCRATCH_SIZE = 10; // max(HEADER_SIZE, MAX_HEADER_EXTENSION_SIZE)
 
     private final ElementaryStreamReader pesPayloadReader;
+    private final KeyframeGatingTrackOutput trackOutput;
     private final PtsTimestampAdjuster ptsTimestampAdjuster;
     private final ParsableBitArray pesScratch;
 
@@ -464,8 +685,9 @@ public final class TsExtractor implements Extractor {
     private long timeUs;
 
     public PesReader(ElementaryStreamReader pesPayloadReader,
-        PtsTimestampAdjuster ptsTimestampAdjuster) {
+        KeyframeGatingTrackOutput trackOutput, PtsTimestampAdjuster ptsTimestampAdjuster) {
       this.pesPayloadReader = pesPayloadReader;
+      this.trackOutput = trackOutput;
       this.ptsTimestampAdjuster = ptsTimestampAdjuster;
       pesScratch = new ParsableBitArray(new byte[PES_SCRATCH_SIZE]);
       state = STATE_FINDING_HEADER;
@@ -479,6 +701,21 @@ public final class TsExtractor implements Extractor {
       pesPayloadReader.seek();
     }
 
+    @Override
+    public boolean packetLost() {
+      // Discard the packet being read, and any partially read sample. The payload reader's state
+      // is reset so that it resynchronizes on the data that follows.
+      boolean discardedData = state == STATE_READING_BODY
+          || state == STATE_READING_HEADER_EXTENSION
+          || (state == STATE_READING_HEADER && bytesRead > 0);
+      setState(STATE_FINDING_HEADER);
+      pesPayloadReader.seek();
+      if (trackOutput != null) {
+        trackOutput.waitForKeyframe();
+      }
+      return discardedData;
+    }
+
     @Override
     public void consume(ParsableByteArray data, boolean payloadUnitStartIndicator,
         ExtractorOutput output) {
@@ -638,4 +875,56 @@ public final class TsExtractor implements Extractor {
 
   }
 
+  /**
+   * A {@link TrackOutput} that discards samples that follow a loss of data, until the next
+   * keyframe.
+   */
+  private final class KeyframeGatingTrackOutput implements TrackOutput {
+
+    private final TrackOutput output;
+
+    private boolean waitingForKeyframe;
+
+    public KeyframeGatingTrackOutput(TrackOutput output) {
+      this.output = output;
+    }
+
+    /**
+     * Discards subsequent samples until the next keyframe.
+     */
+    public void waitForKeyframe() {
+      waitingForKeyframe = true;
+    }
+
+    @Override
+    public void format(MediaFormat format) {
+      output.format(format);
+    }
+
+    @Override
+    public int sampleData(ExtractorInput input, int length, boolean allowEndOfInput)
+        throws IOException, InterruptedException {
+      return output.sampleData(input, length, allowEndOfInput);
+    }
+
+    @Override
+    public void sampleData(ParsableByteArray data, int length) {
+      // The data of discarded samples is still written, but is never referenced by a sample.
+      output.sampleData(data, length);
+    }
+
+    @Override
+    public void sampleMetadata(long timeUs, int flags, int size, int offset, byte[] encryptionKey) {
+      if (waitingForKeyframe) {
+        if ((flags & C.SAMPLE_FLAG_SYNC) == 0) {
+          droppedSampleCount++;
+          return;
+        }
+        waitingForKeyframe = false;
+      }
+      output.sampleMetadata(timeUs, flags, size, offset, encryptionKey);
+    }
+
+  }
+
 }
@@ -243,6 +243,13 @@ public final class WebmExtractor implements Extractor {
   private LongArray cueClusterPositions;
   private boolean seenClusterPositionForCurrentCuePoint;
 
+  // Index built from clusters as they are read, used when the Cues element is missing.
+  private ClusterSeekMap clusterSeekMap;
+  private long clusterContentPosition = UNKNOWN;
+  private boolean pendingSeekPositionCheck;
+  private boolean resyncingToCluster;
+  private boolean indexingClusters;
+
   // Block reading state.
   private int blockState;
   private long blockTimeUs;
@@ -296,6 +303,9 @@ public final class WebmExtractor implements Extractor {
   @Override
   public void seek() {
     clusterTimecodeUs = UNKNOWN;
+    clusterContentPosition = UNKNOWN;
+    pendingSeekPositionCheck = clusterSeekMap != null;
+    resyncingToCluster = false;
     blockState = BLOCK_STATE_START;
     reader.reset();
     varintReader.reset();
@@ -311,6 +321,18 @@ public final class WebmExtractor implements Extractor {
   public int read(ExtractorInput input, PositionHolder seekPosition) throws IOException,
       InterruptedException {
     sampleRead = false;
+    if (pendingSeekPositionCheck) {
+      // A seek to an estimated position is unlikely to land at the start of an element.
+      resyncingToCluster = !clusterSeekMap.isClusterPosition(input.getPosition());
+      indexingClusters = !resyncingToCluster;
+      pendingSeekPositionCheck = false;
+    }
+    if (resyncingToCluster) {
+      if (!resyncToCluster(input)) {
+        return Extractor.RESULT_END_OF_INPUT;
+      }
+      resyncingToCluster = false;
+    }
     boolean continueReading = true;
     while (continueReading && !sampleRead) {
       continueReading = reader.read(input);
@@ -318,6 +340,10 @@ public final class WebmExtractor implements Extractor {
         return Extractor.RESULT_SEEK;
       }
     }
+    if (!continueReading && clusterSeekMap != null && indexingClusters) {
+      // Every cluster up to the end of the input has been indexed.
+      clusterSeekMap.setIndexComplete();
+    }
     return continueReading ? Extractor.RESULT_CONTINUE : Extractor.RESULT_END_OF_INPUT;
   }
 
@@ -420,13 +446,25 @@ public final class WebmExtractor implements Extractor {
           if (cuesContentPosition != UNKNOWN) {
             // We know where the Cues element is located. Seek to request it.
             seekForCues = true;
+          } else if (durationUs != C.UNKNOWN_TIME_US) {
+            // We don't know where the Cues element is located. It's most likely omitted. Index
+            // clusters as they are read, so that seeking is possible into the loaded part of the
+            // stream.
+            clusterSeekMap = new ClusterSeekMap(contentPosition, durationUs,
+                segmentContentPosition + segmentContentSize);
+            extractorOutput.seekMap(clusterSeekMap);
+            indexingClusters = true;
+            sentSeekMap = true;
           } else {
-            // We don't know where the Cues element is located. It's most likely omitted. Allow
-            // playback, but disable seeking.
+            // The Cues element is missing and the duration is unknown. Allow playback, but disable
+            // seeking.
             extractorOutput.seekMap(SeekMap.UNSEEKABLE);
             sentSeekMap = true;
           }
         }
+        if (clusterSeekMap != null && indexingClusters) {
+          clusterContentPosition = contentPosition;
+        }
         return;
       case ID_BLOCK_GROUP:
         sampleSeenReferenceBlock = false;
@@ -626,6 +664,10 @@ public final class WebmExtractor implements Extractor {
         return;
       case ID_TIME_CODE:
         clusterTimecodeUs = scaleTimecodeToUs(value);
+        if (clusterContentPosition != UNKNOWN) {
+          clusterSeekMap.addCluster(clusterTimecodeUs, clusterContentPosition);
+          clusterContentPosition = UNKNOWN;
+        }
         return;
       case ID_BLOCK_DURATION:
         blockDurationUs = scaleTimecodeToUs(value);
@@ -1076,6 +1118,30 @@ public final class WebmExtractor implements Extractor {
     return false;
   }
 
+  /**
+   * Skips to the start of the next Cluster element, after a seek to an estimated position.
+   *
+   * @param input The {@link ExtractorInput} from which data should be skipped.
+   * @return Whether a Cluster element was found before the end of the input.
+   * @throws IOException If an error occurs reading from the input.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  private boolean resyncToCluster(ExtractorInput input) throws IOException,
+      InterruptedException {
+    while (true) {
+      input.resetPeekPosition();
+      if (!input.peekFully(scratch.data, 0, 4, true)) {
+        return false;
+      }
+      scratch.setPosition(0);
+      if (scratch.readInt() == ID_CLUSTER) {
+        input.resetPeekPosition();
+        return true;
+      }
+      input.skipFully(1);
+    }
+  }
+
   private long scaleTimecodeToUs(long unscaledTimecode) throws ParserException {
     if (timecodeScale == C.UNKNOWN_TIME_US) {
       throw new ParserException("Can't scale timecode prior to timecodeScale being set.");
@@ -1175,6 +1241,118 @@ public final class WebmExtractor implements Extractor {
 
   }
 
+  /**
+   * A {@link SeekMap} built from the clusters read so far, for streams without a Cues element.
+   * <p>
+   * Positions are those of the clusters' contents rather than their headers. This is sufficient
+   * because elements are handled by ID, so reading can resume at a cluster's first child.
+   * <p>
+   * Positions for seeks well beyond the indexed clusters are estimated from the duration and size
+   * of the segment, assuming a constant bitrate. Reading then resumes from the next cluster.
+   */
+  private static final class ClusterSeekMap implements SeekMap {
+
+    /**
+     * Clusters are usually no longer than this. A seek less than this far beyond the last indexed
+     * cluster reads forward from it, since the cluster containing the target may start before it.
+     */
+    private static final long MAX_CLUSTER_DURATION_US = 5000000;
+
+    private final long firstClusterPosition;
+    private final long durationUs;
+    private final long segmentEndPosition;
+    private final LongArray timesUs;
+    private final LongArray positions;
+
+    private boolean indexComplete;
+
+    public ClusterSeekMap(long firstClusterPosition, long durationUs, long segmentEndPosition) {
+      this.firstClusterPosition = firstClusterPosition;
+      this.durationUs = durationUs;
+      this.segmentEndPosition = segmentEndPosition;
+      timesUs = new LongArray();
+      positions = new LongArray();
+    }
+
+    /**
+     * Records a cluster. Clusters read again after seeking, or out of order, are ignored.
+     *
+     * @param timeUs The timestamp of the cluster in microseconds.
+     * @param position The position of the cluster's contents.
+     */
+    public synchronized void addCluster(long timeUs, long position) {
+      int size = timesUs.size();
+      if (size == 0 || timeUs > timesUs.get(size - 1)) {
+        timesUs.add(timeUs);
+        positions.add(position);
+      }
+    }
+
+    @Override
+    public boolean isSeekable() {
+      return true;
+    }
+
+    /**
+     * Marks the index as containing every cluster, so that positions are no longer estimated.
+     */
+    public synchronized void setIndexComplete() {
+      indexComplete = true;
+    }
+
+    /**
+     * Returns whether a position is that of the first cluster or an indexed cluster, rather than
+     * an estimate.
+     */
+    public synchronized boolean isClusterPosition(long position) {
+      if (position <= firstClusterPosition) {
+        return true;
+      }
+      int low = 0;
+      int high = positions.size() - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        long midPosition = positions.get(mid);
+        if (midPosition == position) {
+          return true;
+        } else if (midPosition < position) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public synchronized long getPosition(long timeUs) {
+      int size = timesUs.size();
+      long lastTimeUs = size == 0 ? 0 : timesUs.get(size - 1);
+      long lastPosition = size == 0 ? firstClusterPosition : positions.get(size - 1);
+      // Estimate the position a cluster's duration before timeUs, so that the next cluster after
+      // it is likely to start at or before timeUs.
+      long estimateTimeUs = Math.min(timeUs, durationUs) - MAX_CLUSTER_DURATION_US;
+      if (!indexComplete && estimateTimeUs > lastTimeUs) {
+        return lastPosition + Util.scaleLargeTimestamp(estimateTimeUs - lastTimeUs,
+            segmentEndPosition - lastPosition, durationUs - lastTimeUs);
+      }
+      // Find the last cluster starting at or before timeUs. Samples up to timeUs are then read and
+      // discarded.
+      int low = 0;
+      int high = timesUs.size() - 1;
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        if (timesUs.get(mid) <= timeUs) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+      return high < 0 ? firstClusterPosition : positions.get(high);
+    }
+
+  }
+
   private static final class Track {
 
     private static final int DISPLAY_UNIT_PIXELS = 0;
@@ -23,6 +23,8 @@ import com.google.android.exoplayer.chunk.Chunk;
 import com.google.android.exoplayer.chunk.ChunkOperationHolder;
 import com.google.android.exoplayer.chunk.DataChunk;
 import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.Evaluation;
 import com.google.android.exoplayer.extractor.Extractor;
 import com.google.android.exoplayer.extractor.mp3.Mp3Extractor;
 import com.google.android.exoplayer.extractor.ts.AdtsExtractor;
@@ -32,6 +34,7 @@ import com.google.android.exoplayer.upstream.BandwidthMeter;
 import com.google.android.exoplayer.upstream.DataSource;
 import com.google.android.exoplayer.upstream.DataSpec;
 import com.google.android.exoplayer.upstream.HttpDataSource.InvalidResponseCodeException;
+import com.google.android.exoplayer.upstream.PrefetchingDataSource;
 import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.MimeTypes;
 import com.google.android.exoplayer.util.UriUtil;
@@ -54,6 +57,12 @@ import java.util.Locale;
 
 /**
  * A temporary test source of HLS chunks.
+ * <p>
+ * If the {@link DataSource} passed to the constructor is a {@link PrefetchingDataSource}, the
+ * segments that follow each requested segment are prefetched. Prefetches are canceled when a seek
+ * occurs or when a different variant is selected, and the prefetching threads are released when
+ * the source is reset. The {@link PrefetchingDataSource} must not be shared with other chunk
+ * sources.
  */
 public class HlsChunkSource implements HlsTrackSelector.Output {
 
@@ -122,12 +131,15 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
 
   private final boolean isMaster;
   private final DataSource dataSource;
+  private final PrefetchingDataSource prefetchingDataSource;
   private final HlsPlaylistParser playlistParser;
   private final HlsMasterPlaylist masterPlaylist;
   private final HlsTrackSelector trackSelector;
   private final BandwidthMeter bandwidthMeter;
   private final PtsTimestampAdjusterProvider timestampAdjusterProvider;
   private final int adaptiveMode;
+  private final FormatEvaluator formatEvaluator;
+  private final Evaluation evaluation;
   private final String baseUri;
   private final long minBufferDurationToSwitchUpUs;
   private final long maxBufferDurationToSwitchDownUs;
@@ -149,6 +161,7 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
   private int selectedVariantIndex;
 
   private boolean prepareCalled;
+  private boolean evaluatorEnabled;
   private byte[] scratchSpace;
   private boolean live;
   private long durationUs;
@@ -183,6 +196,34 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
         DEFAULT_MAX_BUFFER_TO_SWITCH_DOWN_MS);
   }
 
+  /**
+   * @param isMaster True if this is the master source for the playback. False otherwise. Each
+   *     playback must have exactly one master source, which should be the source providing video
+   *     chunks (or audio chunks for audio only playbacks).
+   * @param dataSource A {@link DataSource} suitable for loading the media data.
+   * @param playlistUrl The playlist URL.
+   * @param playlist The hls playlist.
+   * @param trackSelector Selects tracks to be exposed by this source.
+   * @param bandwidthMeter Provides an estimate of the currently available bandwidth.
+   * @param timestampAdjusterProvider A provider of {@link PtsTimestampAdjuster} instances. If
+   *     multiple {@link HlsChunkSource}s are used for a single playback, they should all share the
+   *     same provider.
+   * @param adaptiveMode The mode for switching from one variant to another. One of
+   *     {@link #ADAPTIVE_MODE_NONE}, {@link #ADAPTIVE_MODE_ABRUPT} and
+   *     {@link #ADAPTIVE_MODE_SPLICE}.
+   * @param formatEvaluator Selects from the available variants of an adaptive track, in the same
+   *     way as for other chunk sources. Variants that are blacklisted are not offered to the
+   *     evaluator.
+   */
+  public HlsChunkSource(boolean isMaster, DataSource dataSource, String playlistUrl,
+      HlsPlaylist playlist, HlsTrackSelector trackSelector, BandwidthMeter bandwidthMeter,
+      PtsTimestampAdjusterProvider timestampAdjusterProvider, int adaptiveMode,
+      FormatEvaluator formatEvaluator) {
+    this(isMaster, dataSource, playlistUrl, playlist, trackSelector, bandwidthMeter,
+        timestampAdjusterProvider, adaptiveMode, DEFAULT_MIN_BUFFER_TO_SWITCH_UP_MS,
+        DEFAULT_MAX_BUFFER_TO_SWITCH_DOWN_MS, formatEvaluator);
+  }
+
   /**
    * @param isMaster True if this is the master source for the playback. False otherwise. Each
    *     playback must have exactly one master source, which should be the source providing video
@@ -207,17 +248,31 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
       HlsPlaylist playlist, HlsTrackSelector trackSelector, BandwidthMeter bandwidthMeter,
       PtsTimestampAdjusterProvider timestampAdjusterProvider, int adaptiveMode,
       long minBufferDurationToSwitchUpMs, long maxBufferDurationToSwitchDownMs) {
+    this(isMaster, dataSource, playlistUrl, playlist, trackSelector, bandwidthMeter,
+        timestampAdjusterProvider, adaptiveMode, minBufferDurationToSwitchUpMs,
+        maxBufferDurationToSwitchDownMs, null);
+  }
+
+  private HlsChunkSource(boolean isMaster, DataSource dataSource, String playlistUrl,
+      HlsPlaylist playlist, HlsTrackSelector trackSelector, BandwidthMeter bandwidthMeter,
+      PtsTimestampAdjusterProvider timestampAdjusterProvider, int adaptiveMode,
+      long minBufferDurationToSwitchUpMs, long maxBufferDurationToSwitchDownMs,
+      FormatEvaluator formatEvaluator) {
     this.isMaster = isMaster;
     this.dataSource = dataSource;
+    this.prefetchingDataSource = dataSource instanceof PrefetchingDataSource
+        ? (PrefetchingDataSource) dataSource : null;
     this.trackSelector = trackSelector;
     this.bandwidthMeter = bandwidthMeter;
     this.timestampAdjusterProvider = timestampAdjusterProvider;
     this.adaptiveMode = adaptiveMode;
+    this.formatEvaluator = formatEvaluator;
     minBufferDurationToSwitchUpUs = minBufferDurationToSwitchUpMs * 1000;
     maxBufferDurationToSwitchDownUs = maxBufferDurationToSwitchDownMs * 1000;
     baseUri = playlist.baseUri;
     playlistParser = new HlsPlaylistParser();
     tracks = new ArrayList<>();
+    evaluation = new Evaluation();
 
     if (playlist.type == HlsPlaylist.TYPE_MASTER) {
       masterPlaylist = (HlsMasterPlaylist) playlist;
@@ -352,6 +407,8 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     variantPlaylists = new HlsMediaPlaylist[variants.length];
     variantLastPlaylistLoadTimesMs = new long[variants.length];
     variantBlacklistTimes = new long[variants.length];
+    // The evaluator is enabled again when the variants of the new track are first evaluated.
+    disableEvaluator();
   }
 
   /**
@@ -363,6 +420,9 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     if (isMaster) {
       timestampAdjusterProvider.reset();
     }
+    if (prefetchingDataSource != null) {
+      prefetchingDataSource.cancelPrefetches();
+    }
   }
 
   /**
@@ -372,6 +432,11 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
    */
   public void reset() {
     fatalError = null;
+    // The evaluator is enabled again if the source is re-enabled and evaluates the variants.
+    disableEvaluator();
+    if (prefetchingDataSource != null) {
+      prefetchingDataSource.release();
+    }
   }
 
   /**
@@ -459,8 +524,7 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     }
 
     // Configure the data source and spec for the chunk.
-    DataSpec dataSpec = new DataSpec(chunkUri, segment.byterangeOffset, segment.byterangeLength,
-        null);
+    DataSpec dataSpec = newSegmentDataSpec(chunkUri, segment);
 
     // Compute start and end times, and the sequence number of the next chunk.
     long startTimeUs;
@@ -541,6 +605,14 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     out.chunk = new TsChunk(dataSource, dataSpec, trigger, format, startTimeUs, endTimeUs,
         chunkMediaSequence, segment.discontinuitySequenceNumber, extractorWrapper, encryptionKey,
         encryptionIv);
+
+    if (prefetchingDataSource != null) {
+      if (previousTsChunk != null && !format.equals(previousTsChunk.format)) {
+        // Segments prefetched for the previous variant won't be requested.
+        prefetchingDataSource.cancelPrefetches();
+      }
+      prefetchFollowingSegments(mediaPlaylist, chunkIndex);
+    }
   }
 
   /**
@@ -666,6 +738,9 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
       // Don't consider switching if we don't have a previous chunk.
       return selectedVariantIndex;
     }
+    if (formatEvaluator != null) {
+      return evaluateVariantIndex(previousTsChunk, playbackPositionUs);
+    }
     if (bitrateEstimate == BandwidthMeter.NO_ESTIMATE) {
       // Don't consider switching if we don't have a bandwidth estimate.
       return selectedVariantIndex;
@@ -690,6 +765,44 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     return selectedVariantIndex;
   }
 
+  private int evaluateVariantIndex(TsChunk previousTsChunk, long playbackPositionUs) {
+    if (!evaluatorEnabled) {
+      formatEvaluator.enable();
+      evaluatorEnabled = true;
+    }
+    int enabledVariantCount = 0;
+    for (int i = 0; i < variants.length; i++) {
+      if (variantBlacklistTimes[i] == 0) {
+        enabledVariantCount++;
+      }
+    }
+    Format[] enabledFormats = new Format[enabledVariantCount];
+    for (int i = 0, j = 0; i < variants.length; i++) {
+      if (variantBlacklistTimes[i] == 0) {
+        enabledFormats[j++] = variants[i].format;
+      }
+    }
+    // When splicing, a switch reloads the previous chunk's segment from the new variant, so only
+    // the media before its start counts as buffered. Evaluators measure the buffer from the
+    // playback position to the end of the queue, so the position is offset to account for this.
+    long bufferedPositionUs = adaptiveMode == ADAPTIVE_MODE_SPLICE ? previousTsChunk.startTimeUs
+        : previousTsChunk.endTimeUs;
+    long evaluationPositionUs = playbackPositionUs + previousTsChunk.endTimeUs - bufferedPositionUs;
+    evaluation.format = variants[selectedVariantIndex].format;
+    formatEvaluator.evaluate(Collections.singletonList(previousTsChunk), evaluationPositionUs,
+        enabledFormats, evaluation);
+    return getVariantIndex(evaluation.format);
+  }
+
+  private void disableEvaluator() {
+    if (evaluatorEnabled) {
+      formatEvaluator.disable();
+      evaluatorEnabled = false;
+    }
+    evaluation.format = null;
+    evaluation.trigger = Chunk.TRIGGER_INITIAL;
+  }
+
   private int getVariantIndexForBandwidth(long bitrateEstimate) {
     if (bitrateEstimate == BandwidthMeter.NO_ESTIMATE) {
       // Select the lowest quality.
@@ -725,6 +838,34 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
     return chunkIndex + mediaPlaylist.mediaSequence;
   }
 
+  private void prefetchFollowingSegments(HlsMediaPlaylist mediaPlaylist, int chunkIndex) {
+    int lastPrefetchIndex = Math.min(mediaPlaylist.segments.size() - 1,
+        chunkIndex + prefetchingDataSource.getMaxPrefetchCount());
+    for (int i = chunkIndex + 1; i <= lastPrefetchIndex; i++) {
+      HlsMediaPlaylist.Segment segment = mediaPlaylist.segments.get(i);
+      Uri segmentUri = UriUtil.resolveToUri(mediaPlaylist.baseUri, segment.url);
+      if (!prefetchingDataSource.prefetch(newSegmentDataSpec(segmentUri, segment))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Returns the request for a media segment. Segments are cached under their URI.
+   */
+  /* package */ static DataSpec newSegmentDataSpec(Uri segmentUri,
+      HlsMediaPlaylist.Segment segment) {
+    return new DataSpec(segmentUri, segment.byterangeOffset, segment.byterangeLength,
+        segmentUri.toString());
+  }
+
+  /**
+   * Returns the request for an encryption key. Keys are cached under their URI.
+   */
+  /* package */ static DataSpec newEncryptionKeyDataSpec(Uri keyUri) {
+    return new DataSpec(keyUri, 0, C.LENGTH_UNBOUNDED, keyUri.toString());
+  }
+
   private MediaPlaylistChunk newMediaPlaylistChunk(int variantIndex) {
     Uri mediaPlaylistUri = UriUtil.resolveToUri(baseUri, variants[variantIndex].url);
     DataSpec dataSpec = new DataSpec(mediaPlaylistUri, 0, C.LENGTH_UNBOUNDED, null,
@@ -734,8 +875,8 @@ public class HlsChunkSource implements HlsTrackSelector.Output {
   }
 
   private EncryptionKeyChunk newEncryptionKeyChunk(Uri keyUri, String iv, int variantIndex) {
-    DataSpec dataSpec = new DataSpec(keyUri, 0, C.LENGTH_UNBOUNDED, null, DataSpec.FLAG_ALLOW_GZIP);
-    return new EncryptionKeyChunk(dataSource, dataSpec, scratchSpace, iv, variantIndex);
+    return new EncryptionKeyChunk(dataSource, newEncryptionKeyDataSpec(keyUri), scratchSpace, iv,
+        variantIndex);
   }
 
   private void setEncryptionData(Uri keyUri, String iv, byte[] secretKey) {
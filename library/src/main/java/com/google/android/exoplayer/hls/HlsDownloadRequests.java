@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.hls;
+
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.cache.CacheDownloader;
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.UriUtil;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Builds the requests required to download an HLS media playlist using a {@link CacheDownloader}.
+ * The requests are made in the same way as those made by {@link HlsChunkSource}, so that the
+ * downloaded data is used during playback.
+ * <p>
+ * Playlists themselves are not downloaded, and should be stored by the application if playback is
+ * to be possible without network access.
+ */
+public final class HlsDownloadRequests {
+
+  private HlsDownloadRequests() {}
+
+  /**
+   * Builds the requests required to download the segments and encryption keys of a media
+   * playlist.
+   *
+   * @param mediaPlaylist The media playlist, which must not be live.
+   * @return The requests.
+   */
+  public static List<DataSpec> build(HlsMediaPlaylist mediaPlaylist) {
+    Assertions.checkArgument(!mediaPlaylist.live);
+    ArrayList<DataSpec> dataSpecs = new ArrayList<>();
+    HashSet<String> keyUris = new HashSet<>();
+    for (HlsMediaPlaylist.Segment segment : mediaPlaylist.segments) {
+      if (segment.isEncrypted && keyUris.add(segment.encryptionKeyUri)) {
+        dataSpecs.add(HlsChunkSource.newEncryptionKeyDataSpec(
+            UriUtil.resolveToUri(mediaPlaylist.baseUri, segment.encryptionKeyUri)));
+      }
+      dataSpecs.add(HlsChunkSource.newSegmentDataSpec(
+          UriUtil.resolveToUri(mediaPlaylist.baseUri, segment.url), segment));
+    }
+    return dataSpecs;
+  }
+
+}
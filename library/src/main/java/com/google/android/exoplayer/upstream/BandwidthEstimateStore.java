@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+
+/**
+ * Persists bandwidth estimates for each network that the device connects to, so that a new
+ * playback session can start from the estimate last obtained on the same network rather than from
+ * no estimate at all.
+ * <p>
+ * Networks are identified by their type and subtype, and by the extra information that the
+ * platform reports for them (e.g. the SSID of a Wi-Fi network, or the APN of a mobile network).
+ * Use of this class requires the {@code android.permission.ACCESS_NETWORK_STATE} permission.
+ */
+public final class BandwidthEstimateStore {
+
+  private static final String PREFERENCES_NAME = "ExoPlayerBandwidthEstimates";
+
+  private final ConnectivityManager connectivityManager;
+  private final SharedPreferences preferences;
+
+  /**
+   * @param context A context.
+   */
+  public BandwidthEstimateStore(Context context) {
+    context = context.getApplicationContext();
+    connectivityManager =
+        (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+    preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+  }
+
+  /**
+   * Gets the estimate that was last stored for the active network.
+   *
+   * @return The estimate in bits/sec, or {@link BandwidthMeter#NO_ESTIMATE} if there is no active
+   *     network or no estimate has been stored for it.
+   */
+  public long getBitrateEstimate() {
+    String networkKey = getActiveNetworkKey();
+    return networkKey == null ? BandwidthMeter.NO_ESTIMATE
+        : preferences.getLong(networkKey, BandwidthMeter.NO_ESTIMATE);
+  }
+
+  /**
+   * Stores an estimate for the active network. Does nothing if there is no active network, or if
+   * the estimate is {@link BandwidthMeter#NO_ESTIMATE}.
+   *
+   * @param bitrateEstimate The estimate in bits/sec, typically obtained from
+   *     {@link BandwidthMeter#getBitrateEstimate()} at the end of a playback session.
+   */
+  public void setBitrateEstimate(long bitrateEstimate) {
+    String networkKey = getActiveNetworkKey();
+    if (networkKey != null && bitrateEstimate != BandwidthMeter.NO_ESTIMATE) {
+      preferences.edit().putLong(networkKey, bitrateEstimate).apply();
+    }
+  }
+
+  private String getActiveNetworkKey() {
+    NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+    if (networkInfo == null || !networkInfo.isConnected()) {
+      return null;
+    }
+    return networkInfo.getType() + ":" + networkInfo.getSubtype() + ":"
+        + networkInfo.getExtraInfo();
+  }
+
+}
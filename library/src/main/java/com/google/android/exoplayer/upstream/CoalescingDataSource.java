@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * A {@link UriDataSource} that reduces the number of round trips required to load many small
+ * ranges of the same resource, such as initialization data, segment indices and container headers.
+ * <p>
+ * A bounded request shorter than the minimum request length is extended to cover at least that
+ * length, together with any ranges of the same resource that have been hinted via
+ * {@link #addHint(DataSpec)} and that are adjacent to or overlap the extended request. The data is
+ * loaded into memory with a single upstream request, and subsequent requests that fall entirely
+ * within it are served without accessing the upstream source. A small number of the most recently
+ * loaded ranges are retained. Hints are discarded once a request for the same resource starts
+ * beyond them, and only a small number of the most recent hints are retained.
+ * <p>
+ * Unbounded requests and requests that are at least the minimum request length are passed
+ * directly to the upstream source.
+ */
+public final class CoalescingDataSource implements UriDataSource {
+
+  /**
+   * The default minimum request length, in bytes.
+   */
+  public static final int DEFAULT_MIN_REQUEST_LENGTH = 64 * 1024;
+  /**
+   * The default maximum length of a request extended to cover hinted ranges, in bytes.
+   */
+  public static final int DEFAULT_MAX_REQUEST_LENGTH = 1024 * 1024;
+  /**
+   * The default maximum number of loaded ranges that are retained.
+   */
+  public static final int DEFAULT_MAX_BUFFERED_RANGES = 4;
+
+  /**
+   * The maximum number of hints that are retained.
+   */
+  private static final int MAX_HINTS = 16;
+
+  private final UriDataSource upstream;
+  private final int minRequestLength;
+  private final int maxRequestLength;
+  private final int maxBufferedRanges;
+  private final LinkedList<BufferedRange> bufferedRanges;
+  private final ArrayList<DataSpec> hints;
+
+  private BufferedRange currentRange;
+  private int readPosition;
+  private int readLimit;
+  private boolean upstreamOpened;
+  private int upstreamRequestCount;
+
+  /**
+   * @param upstream The upstream {@link UriDataSource}.
+   */
+  public CoalescingDataSource(UriDataSource upstream) {
+    this(upstream, DEFAULT_MIN_REQUEST_LENGTH, DEFAULT_MAX_REQUEST_LENGTH,
+        DEFAULT_MAX_BUFFERED_RANGES);
+  }
+
+  /**
+   * @param upstream The upstream {@link UriDataSource}.
+   * @param minRequestLength Bounded requests shorter than this length, in bytes, are extended to
+   *     this length.
+   * @param maxRequestLength The maximum length of a request extended to cover hinted ranges, in
+   *     bytes.
+   * @param maxBufferedRanges The maximum number of loaded ranges that are retained.
+   */
+  public CoalescingDataSource(UriDataSource upstream, int minRequestLength, int maxRequestLength,
+      int maxBufferedRanges) {
+    Assertions.checkArgument(minRequestLength > 0 && maxRequestLength >= minRequestLength);
+    Assertions.checkArgument(maxBufferedRanges > 0);
+    this.upstream = Assertions.checkNotNull(upstream);
+    this.minRequestLength = minRequestLength;
+    this.maxRequestLength = maxRequestLength;
+    this.maxBufferedRanges = maxBufferedRanges;
+    bufferedRanges = new LinkedList<>();
+    hints = new ArrayList<>();
+  }
+
+  /**
+   * Indicates that the specified data is likely to be requested soon. If a subsequent request for
+   * the same resource is coalesced, it will be extended to also load the hinted data where
+   * possible.
+   * <p>
+   * This method may be called from any thread.
+   *
+   * @param dataSpec Defines the data that is likely to be requested.
+   */
+  public void addHint(DataSpec dataSpec) {
+    if (dataSpec.length != C.LENGTH_UNBOUNDED && dataSpec.postBody == null) {
+      synchronized (hints) {
+        if (hints.size() == MAX_HINTS) {
+          hints.remove(0);
+        }
+        hints.add(dataSpec);
+      }
+    }
+  }
+
+  /**
+   * Returns the number of requests that have been made to the upstream source.
+   *
+   * @return The number of upstream requests.
+   */
+  public int getUpstreamRequestCount() {
+    return upstreamRequestCount;
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    Assertions.checkState(currentRange == null && !upstreamOpened);
+    discardHintsBefore(dataSpec);
+    BufferedRange range = findBufferedRange(dataSpec);
+    if (range == null && dataSpec.length != C.LENGTH_UNBOUNDED
+        && dataSpec.length < minRequestLength && dataSpec.postBody == null) {
+      range = load(dataSpec);
+      if (range != null) {
+        if (bufferedRanges.size() == maxBufferedRanges) {
+          bufferedRanges.removeLast();
+        }
+        bufferedRanges.addFirst(range);
+      }
+    }
+    if (range != null) {
+      currentRange = range;
+      readPosition = (int) (dataSpec.position - range.position);
+      readLimit = readPosition + (int) dataSpec.length;
+      return dataSpec.length;
+    }
+    upstreamOpened = true;
+    upstreamRequestCount++;
+    return upstream.open(dataSpec);
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int readLength) throws IOException {
+    if (currentRange == null) {
+      return upstream.read(buffer, offset, readLength);
+    }
+    if (readPosition == readLimit) {
+      return C.RESULT_END_OF_INPUT;
+    }
+    int bytesToRead = Math.min(readLength, readLimit - readPosition);
+    System.arraycopy(currentRange.data, readPosition, buffer, offset, bytesToRead);
+    readPosition += bytesToRead;
+    return bytesToRead;
+  }
+
+  @Override
+  public String getUri() {
+    return currentRange != null ? currentRange.uri : upstreamOpened ? upstream.getUri() : null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (currentRange != null) {
+      currentRange = null;
+    } else if (upstreamOpened) {
+      upstreamOpened = false;
+      upstream.close();
+    }
+  }
+
+  /**
+   * Discards hints for the same resource as {@code dataSpec} that end at or before its start, since
+   * reading has moved beyond them.
+   */
+  private void discardHintsBefore(DataSpec dataSpec) {
+    synchronized (hints) {
+      Iterator<DataSpec> iterator = hints.iterator();
+      while (iterator.hasNext()) {
+        DataSpec hint = iterator.next();
+        if (isSameResource(hint, dataSpec) && hint.position + hint.length <= dataSpec.position) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns a retained range containing all of the data defined by {@code dataSpec}, or null if
+   * there is no such range. A returned range is moved to the front of the list.
+   */
+  private BufferedRange findBufferedRange(DataSpec dataSpec) {
+    if (dataSpec.length == C.LENGTH_UNBOUNDED || dataSpec.postBody != null) {
+      return null;
+    }
+    Iterator<BufferedRange> iterator = bufferedRanges.iterator();
+    while (iterator.hasNext()) {
+      BufferedRange range = iterator.next();
+      if (isSameResource(range.dataSpec, dataSpec) && range.position <= dataSpec.position
+          && dataSpec.position + dataSpec.length <= range.position + range.data.length) {
+        iterator.remove();
+        bufferedRanges.addFirst(range);
+        return range;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Loads an extended range that contains the data defined by {@code dataSpec}.
+   *
+   * @return The loaded range, or null if the upstream source ended before all of the data defined
+   *     by {@code dataSpec} could be loaded.
+   * @throws IOException If an error occurred loading the data defined by {@code dataSpec}.
+   */
+  private BufferedRange load(DataSpec dataSpec) throws IOException {
+    long position = dataSpec.position;
+    long endPosition = position + minRequestLength;
+    synchronized (hints) {
+      // Merge hinted ranges that are adjacent to or overlap the request. Each merge may allow
+      // further hints to be merged, so iterate until no more can be.
+      boolean merged = true;
+      while (merged) {
+        merged = false;
+        Iterator<DataSpec> iterator = hints.iterator();
+        while (iterator.hasNext()) {
+          DataSpec hint = iterator.next();
+          if (!isSameResource(hint, dataSpec)) {
+            continue;
+          }
+          long hintEndPosition = hint.position + hint.length;
+          if (hint.position >= position && hintEndPosition <= endPosition) {
+            iterator.remove();
+          } else if (hint.position >= position && hint.position <= endPosition
+              && hintEndPosition - position <= maxRequestLength) {
+            endPosition = hintEndPosition;
+            iterator.remove();
+            merged = true;
+          }
+        }
+      }
+    }
+
+    byte[] data = new byte[(int) (endPosition - position)];
+    int bytesLoaded = 0;
+    String uri = null;
+    upstreamRequestCount++;
+    try {
+      upstream.open(new DataSpec(dataSpec.uri, dataSpec.absoluteStreamPosition, position,
+          data.length, dataSpec.key, dataSpec.flags));
+      uri = upstream.getUri();
+      int read = 0;
+      while (bytesLoaded < data.length && read != C.RESULT_END_OF_INPUT) {
+        read = upstream.read(data, bytesLoaded, data.length - bytesLoaded);
+        if (read > 0) {
+          bytesLoaded += read;
+        }
+      }
+    } catch (InterruptedIOException e) {
+      throw e;
+    } catch (IOException e) {
+      // The extended part of the request may extend beyond the end of the resource, in which case
+      // the upstream source may fail having loaded all of the data that was originally requested.
+      if (bytesLoaded < dataSpec.length) {
+        throw e;
+      }
+    } finally {
+      closeUpstreamQuietly();
+    }
+
+    if (bytesLoaded < dataSpec.length) {
+      // Let the upstream source handle (and report) the request in the normal way.
+      return null;
+    }
+    if (bytesLoaded < data.length) {
+      byte[] trimmedData = new byte[bytesLoaded];
+      System.arraycopy(data, 0, trimmedData, 0, bytesLoaded);
+      data = trimmedData;
+    }
+    return new BufferedRange(dataSpec, uri, position, data);
+  }
+
+  private void closeUpstreamQuietly() {
+    try {
+      upstream.close();
+    } catch (IOException e) {
+      // Ignore.
+    }
+  }
+
+  private static boolean isSameResource(DataSpec a, DataSpec b) {
+    return a.flags == b.flags && Util.areEqual(a.uri, b.uri) && Util.areEqual(a.key, b.key);
+  }
+
+  /**
+   * A contiguous range of loaded data.
+   */
+  private static final class BufferedRange {
+
+    public final DataSpec dataSpec;
+    public final String uri;
+    public final long position;
+    public final byte[] data;
+
+    public BufferedRange(DataSpec dataSpec, String uri, long position, byte[] data) {
+      this.dataSpec = dataSpec;
+      this.uri = uri;
+      this.position = position;
+      this.data = data;
+    }
+
+  }
+
+}
@@ -17,23 +17,27 @@ package com.google.android.exoplayer.upstream;
 
 import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Clock;
-import com.google.android.exoplayer.util.SlidingPercentile;
 import com.google.android.exoplayer.util.SystemClock;
 
 import android.os.Handler;
 
 /**
  * Counts transferred bytes while transfers are open and creates a bandwidth sample and updated
- * bandwidth estimate each time a transfer ends.
+ * bandwidth estimate each time a transfer ends. Estimates are computed by a
+ * {@link BandwidthEstimator}, which by default is a {@link PercentileBandwidthEstimator} that
+ * takes the median of recent samples.
+ * <p>
+ * An initial estimate can be provided, which is used until the first sample has been taken. A
+ * {@link BandwidthEstimateStore} can supply the estimate last obtained on the current network.
  */
 public final class DefaultBandwidthMeter implements BandwidthMeter {
 
-  public static final int DEFAULT_MAX_WEIGHT = 2000;
+  public static final int DEFAULT_MAX_WEIGHT = PercentileBandwidthEstimator.DEFAULT_MAX_WEIGHT;
 
   private final Handler eventHandler;
   private final EventListener eventListener;
   private final Clock clock;
-  private final SlidingPercentile slidingPercentile;
+  private final BandwidthEstimator bandwidthEstimator;
 
   private long bytesAccumulator;
   private long startTimeMs;
@@ -58,11 +62,25 @@ public final class DefaultBandwidthMeter implements BandwidthMeter {
 
   public DefaultBandwidthMeter(Handler eventHandler, EventListener eventListener, Clock clock,
       int maxWeight) {
+    this(eventHandler, eventListener, clock, new PercentileBandwidthEstimator(maxWeight,
+        PercentileBandwidthEstimator.DEFAULT_PERCENTILE), NO_ESTIMATE);
+  }
+
+  /**
+   * @param eventHandler A handler for events. May be null if delivery of events is not required.
+   * @param eventListener A listener of events. May be null if delivery of events is not required.
+   * @param clock The clock used to time transfers.
+   * @param bandwidthEstimator The estimator that computes estimates from bandwidth samples.
+   * @param initialBitrateEstimate The estimate to return before the first sample is taken, in
+   *     bits/sec, or {@link #NO_ESTIMATE}.
+   */
+  public DefaultBandwidthMeter(Handler eventHandler, EventListener eventListener, Clock clock,
+      BandwidthEstimator bandwidthEstimator, long initialBitrateEstimate) {
     this.eventHandler = eventHandler;
     this.eventListener = eventListener;
     this.clock = clock;
-    this.slidingPercentile = new SlidingPercentile(maxWeight);
-    bitrateEstimate = NO_ESTIMATE;
+    this.bandwidthEstimator = bandwidthEstimator;
+    bitrateEstimate = initialBitrateEstimate;
   }
 
   @Override
@@ -89,11 +107,8 @@ public final class DefaultBandwidthMeter implements BandwidthMeter {
     long nowMs = clock.elapsedRealtime();
     int elapsedMs = (int) (nowMs - startTimeMs);
     if (elapsedMs > 0) {
-      float bitsPerSecond = (bytesAccumulator * 8000) / elapsedMs;
-      slidingPercentile.addSample((int) Math.sqrt(bytesAccumulator), bitsPerSecond);
-      float bandwidthEstimateFloat = slidingPercentile.getPercentile(0.5f);
-      bitrateEstimate = Float.isNaN(bandwidthEstimateFloat) ? NO_ESTIMATE
-          : (long) bandwidthEstimateFloat;
+      bandwidthEstimator.addSample(bytesAccumulator, elapsedMs);
+      bitrateEstimate = bandwidthEstimator.getBitrateEstimate();
       notifyBandwidthSample(elapsedMs, bytesAccumulator, bitrateEstimate);
     }
     streamCount--;
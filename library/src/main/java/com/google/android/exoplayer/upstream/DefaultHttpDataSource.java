@@ -20,6 +20,7 @@ import com.google.android.exoplayer.util.Assertions;
 import com.google.android.exoplayer.util.Predicate;
 import com.google.android.exoplayer.util.Util;
 
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -46,6 +47,13 @@ import java.util.regex.Pattern;
  * HTTP to HTTPS or vice versa). Cross-protocol redirects can be enabled by using the
  * {@link #DefaultHttpDataSource(String, Predicate, TransferListener, int, int, boolean)}
  * constructor and passing {@code true} as the final argument.
+ * <p>
+ * Connections are released in a way that allows the platform to return them to its connection
+ * pool, so that subsequent requests to the same host (including redirected requests) can avoid the
+ * cost of establishing a new TCP/TLS connection. Android's {@link HttpURLConnection} will also
+ * negotiate HTTP/2 where supported. The {@code okhttp} extension provides an {@link HttpDataSource}
+ * that pools connections more aggressively, and is used by {@link DefaultUriDataSource} in
+ * preference to this class when available.
  */
 public class DefaultHttpDataSource implements HttpDataSource {
 
@@ -59,6 +67,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
   public static final int DEFAULT_READ_TIMEOUT_MILLIS = 8 * 1000;
 
   private static final int MAX_REDIRECTS = 20; // Same limit as okhttp.
+  private static final int MAX_REDIRECT_BODY_BYTES = 16 * 1024;
   private static final String TAG = "DefaultHttpDataSource";
   private static final Pattern CONTENT_RANGE_HEADER =
       Pattern.compile("^bytes (\\d+)-(\\d+)/(\\d+)$");
@@ -83,6 +92,11 @@ public class DefaultHttpDataSource implements HttpDataSource {
   private long bytesSkipped;
   private long bytesRead;
 
+  private RequestTimingListener requestTimingListener;
+  private long requestStartTimeMs;
+  private long connectedTimeMs;
+  private long responseTimeMs;
+
   /**
    * @param userAgent The User-Agent string that should be used.
    * @param contentTypePredicate An optional {@link Predicate}. If a content type is
@@ -182,11 +196,17 @@ public class DefaultHttpDataSource implements HttpDataSource {
     }
   }
 
+  @Override
+  public void setRequestTimingListener(RequestTimingListener requestTimingListener) {
+    this.requestTimingListener = requestTimingListener;
+  }
+
   @Override
   public long open(DataSpec dataSpec) throws HttpDataSourceException {
     this.dataSpec = dataSpec;
     this.bytesRead = 0;
     this.bytesSkipped = 0;
+    requestStartTimeMs = SystemClock.elapsedRealtime();
     try {
       connection = makeConnection(dataSpec);
     } catch (IOException e) {
@@ -202,6 +222,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
       throw new HttpDataSourceException("Unable to connect to " + dataSpec.uri.toString(), e,
           dataSpec);
     }
+    responseTimeMs = SystemClock.elapsedRealtime();
 
     // Check for a valid response code.
     if (responseCode < 200 || responseCode > 299) {
@@ -263,23 +284,36 @@ public class DefaultHttpDataSource implements HttpDataSource {
 
   @Override
   public void close() throws HttpDataSourceException {
+    // If all of the requested data was read then closing the stream is sufficient to release the
+    // connection back to the pool, whereas disconnecting may close the underlying socket.
+    boolean reusable = inputStream != null && bytesRemaining() == 0;
     try {
       if (inputStream != null) {
         Util.maybeTerminateInputStream(connection, bytesRemaining());
         try {
           inputStream.close();
         } catch (IOException e) {
+          reusable = false;
           throw new HttpDataSourceException(e, dataSpec);
         }
       }
     } finally {
       inputStream = null;
-      closeConnectionQuietly();
+      if (reusable) {
+        connection = null;
+      } else {
+        closeConnectionQuietly();
+      }
       if (opened) {
         opened = false;
         if (listener != null) {
           listener.onTransferEnd();
         }
+        if (requestTimingListener != null) {
+          requestTimingListener.onRequestCompleted(dataSpec, connectedTimeMs - requestStartTimeMs,
+              responseTimeMs - connectedTimeMs, SystemClock.elapsedRealtime() - responseTimeMs,
+              bytesSkipped + bytesRead);
+        }
       }
     }
   }
@@ -360,7 +394,7 @@ public class DefaultHttpDataSource implements HttpDataSource {
         // GET requests. For 307 and 308 POST requests are not redirected.
         postBody = null;
         String location = connection.getHeaderField("Location");
-        connection.disconnect();
+        releaseRedirectConnection(connection);
         url = handleRedirect(url, location);
       } else {
         return connection;
@@ -413,9 +447,48 @@ public class DefaultHttpDataSource implements HttpDataSource {
     } else {
       connection.connect();
     }
+    connectedTimeMs = SystemClock.elapsedRealtime();
     return connection;
   }
 
+  /**
+   * Releases a connection whose response is a redirect.
+   * <p>
+   * The (typically small) body of the response is read and discarded so that the connection can be
+   * returned to the pool and reused to follow the redirect. If the body is too large, or cannot be
+   * read, the connection is disconnected instead.
+   *
+   * @param connection The connection to release.
+   */
+  private static void releaseRedirectConnection(HttpURLConnection connection) {
+    InputStream redirectInputStream = null;
+    boolean drained = false;
+    try {
+      redirectInputStream = connection.getInputStream();
+      byte[] discardBuffer = new byte[1024];
+      int bytesDiscarded = 0;
+      int read;
+      while (bytesDiscarded <= MAX_REDIRECT_BODY_BYTES
+          && (read = redirectInputStream.read(discardBuffer)) != -1) {
+        bytesDiscarded += read;
+      }
+      drained = bytesDiscarded <= MAX_REDIRECT_BODY_BYTES;
+    } catch (IOException e) {
+      // Do nothing. The connection will be disconnected below.
+    } finally {
+      if (redirectInputStream != null) {
+        try {
+          redirectInputStream.close();
+        } catch (IOException e) {
+          drained = false;
+        }
+      }
+      if (!drained) {
+        connection.disconnect();
+      }
+    }
+  }
+
   /**
    * Handles a redirect.
    *
@@ -21,6 +21,9 @@ import com.google.android.exoplayer.util.Util;
 import android.content.Context;
 
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.util.List;
+import java.util.Map;
 
 /**
  * A {@link UriDataSource} that supports multiple URI schemes. The supported schemes are:
@@ -33,12 +36,35 @@ import java.io.IOException;
  * <li>asset: For fetching data from an asset in the application's apk (e.g. asset:///media.mp4).
  * <li>content: For fetching data from a content URI (e.g. content://authority/path/123).
  * </ul>
+ * <p>
+ * Unless a {@link UriDataSource} for remote data is provided explicitly, HTTP(S) requests are made
+ * using the {@code okhttp} extension's {@link HttpDataSource} if it's available, since it shares a
+ * single HTTP/2-capable connection pool between all instances. {@link DefaultHttpDataSource} is
+ * used otherwise.
  */
 public final class DefaultUriDataSource implements UriDataSource {
 
   private static final String SCHEME_ASSET = "asset";
   private static final String SCHEME_CONTENT = "content";
 
+  private static final Constructor<? extends UriDataSource> POOLED_HTTP_DATA_SOURCE_CONSTRUCTOR;
+  static {
+    Constructor<? extends UriDataSource> constructor = null;
+    // Load the pooled data source using reflection so that the extension can be omitted cleanly.
+    // Class.forName(<class name>) is used so that automated tools like proguard can detect the use
+    // of reflection (see http://proguard.sourceforge.net/FAQ.html#forname).
+    try {
+      constructor = Class.forName("com.google.android.exoplayer.ext.okhttp.OkHttpDataSource")
+          .asSubclass(UriDataSource.class)
+          .getConstructor(String.class, TransferListener.class, boolean.class);
+    } catch (ClassNotFoundException e) {
+      // Extension not found.
+    } catch (NoSuchMethodException e) {
+      // Incompatible version of the extension.
+    }
+    POOLED_HTTP_DATA_SOURCE_CONSTRUCTOR = constructor;
+  }
+
   private final UriDataSource httpDataSource;
   private final UriDataSource fileDataSource;
   private final UriDataSource assetDataSource;
@@ -92,10 +118,7 @@ public final class DefaultUriDataSource implements UriDataSource {
    */
   public DefaultUriDataSource(Context context, TransferListener listener, String userAgent,
       boolean allowCrossProtocolRedirects) {
-    this(context, listener,
-        new DefaultHttpDataSource(userAgent, null, listener,
-            DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS,
-            DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS, allowCrossProtocolRedirects));
+    this(context, listener, newHttpDataSource(listener, userAgent, allowCrossProtocolRedirects));
   }
 
   /**
@@ -113,6 +136,35 @@ public final class DefaultUriDataSource implements UriDataSource {
     this.contentDataSource = new ContentDataSource(context, listener);
   }
 
+  private static UriDataSource newHttpDataSource(TransferListener listener, String userAgent,
+      boolean allowCrossProtocolRedirects) {
+    if (POOLED_HTTP_DATA_SOURCE_CONSTRUCTOR != null) {
+      try {
+        return POOLED_HTTP_DATA_SOURCE_CONSTRUCTOR.newInstance(userAgent, listener,
+            allowCrossProtocolRedirects);
+      } catch (Exception e) {
+        // Should never happen.
+        throw new IllegalStateException("Unexpected error creating pooled data source", e);
+      }
+    }
+    return new DefaultHttpDataSource(userAgent, null, listener,
+        DefaultHttpDataSource.DEFAULT_CONNECT_TIMEOUT_MILLIS,
+        DefaultHttpDataSource.DEFAULT_READ_TIMEOUT_MILLIS, allowCrossProtocolRedirects);
+  }
+
+  /**
+   * Sets a listener to be notified of the timing of each request for remote data. Has no effect if
+   * remote data is fetched by a {@link UriDataSource} that isn't an {@link HttpDataSource}.
+   *
+   * @param requestTimingListener The listener, or null to clear the current listener.
+   */
+  public void setRequestTimingListener(
+      HttpDataSource.RequestTimingListener requestTimingListener) {
+    if (httpDataSource instanceof HttpDataSource) {
+      ((HttpDataSource) httpDataSource).setRequestTimingListener(requestTimingListener);
+    }
+  }
+
   @Override
   public long open(DataSpec dataSpec) throws IOException {
     Assertions.checkState(dataSource == null);
@@ -145,6 +197,17 @@ public final class DefaultUriDataSource implements UriDataSource {
     return dataSource == null ? null : dataSource.getUri();
   }
 
+  /**
+   * Gets the headers provided in the response, if the source is open and reading from an
+   * {@link HttpDataSource}.
+   *
+   * @return The response headers, or {@code null} if response headers are unavailable.
+   */
+  public Map<String, List<String>> getResponseHeaders() {
+    return dataSource instanceof HttpDataSource
+        ? ((HttpDataSource) dataSource).getResponseHeaders() : null;
+  }
+
   @Override
   public void close() throws IOException {
     if (dataSource != null) {
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+/**
+ * A {@link BandwidthEstimator} that keeps a fast and a slow {@link EwmaBandwidthEstimator}, and
+ * estimates the bandwidth as the lower of the two. The estimate therefore falls quickly when the
+ * bandwidth drops, but rises only once an increase has been sustained.
+ */
+public final class DualEwmaBandwidthEstimator implements BandwidthEstimator {
+
+  public static final long DEFAULT_FAST_HALF_LIFE_MS = 2000;
+  public static final long DEFAULT_SLOW_HALF_LIFE_MS = 5000;
+
+  private final EwmaBandwidthEstimator fastEstimator;
+  private final EwmaBandwidthEstimator slowEstimator;
+
+  public DualEwmaBandwidthEstimator() {
+    this(DEFAULT_FAST_HALF_LIFE_MS, DEFAULT_SLOW_HALF_LIFE_MS);
+  }
+
+  /**
+   * @param fastHalfLifeMs The half life of the fast average, in milliseconds.
+   * @param slowHalfLifeMs The half life of the slow average, in milliseconds.
+   */
+  public DualEwmaBandwidthEstimator(long fastHalfLifeMs, long slowHalfLifeMs) {
+    fastEstimator = new EwmaBandwidthEstimator(fastHalfLifeMs);
+    slowEstimator = new EwmaBandwidthEstimator(slowHalfLifeMs);
+  }
+
+  @Override
+  public void addSample(long bytes, long elapsedMs) {
+    fastEstimator.addSample(bytes, elapsedMs);
+    slowEstimator.addSample(bytes, elapsedMs);
+  }
+
+  @Override
+  public long getBitrateEstimate() {
+    return Math.min(fastEstimator.getBitrateEstimate(), slowEstimator.getBitrateEstimate());
+  }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+/**
+ * A {@link BandwidthEstimator} that computes an exponentially weighted moving average of the
+ * bitrates of samples, in which each sample is weighted by the time taken by the transfer. The
+ * weight of a sample halves each time a further {@code halfLifeMs} of transfer time is sampled.
+ * <p>
+ * The average is corrected for its zero initial value, so that the first sample yields an
+ * estimate equal to its bitrate.
+ */
+public final class EwmaBandwidthEstimator implements BandwidthEstimator {
+
+  public static final long DEFAULT_HALF_LIFE_MS = 3000;
+
+  private final double halfLifeMs;
+
+  private double estimate;
+  private double totalWeightMs;
+
+  public EwmaBandwidthEstimator() {
+    this(DEFAULT_HALF_LIFE_MS);
+  }
+
+  /**
+   * @param halfLifeMs The amount of transfer time after which the weight of a sample is halved,
+   *     in milliseconds.
+   */
+  public EwmaBandwidthEstimator(long halfLifeMs) {
+    this.halfLifeMs = halfLifeMs;
+  }
+
+  @Override
+  public void addSample(long bytes, long elapsedMs) {
+    double bitsPerSecond = (bytes * 8000d) / elapsedMs;
+    double alpha = Math.pow(0.5, elapsedMs / halfLifeMs);
+    estimate = bitsPerSecond * (1 - alpha) + estimate * alpha;
+    totalWeightMs += elapsedMs;
+  }
+
+  @Override
+  public long getBitrateEstimate() {
+    if (totalWeightMs == 0) {
+      return BandwidthMeter.NO_ESTIMATE;
+    }
+    double zeroFactor = 1 - Math.pow(0.5, totalWeightMs / halfLifeMs);
+    return (long) (estimate / zeroFactor);
+  }
+
+}
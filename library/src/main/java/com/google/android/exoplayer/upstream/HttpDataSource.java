@@ -44,6 +44,28 @@ public interface HttpDataSource extends UriDataSource {
 
   };
 
+  /**
+   * Receives the timing of each request made by a {@link HttpDataSource}.
+   * <p>
+   * Invocations occur on the thread that closes the source. All durations are in milliseconds.
+   */
+  public interface RequestTimingListener {
+
+    /**
+     * Invoked when a request that was successfully opened is closed.
+     *
+     * @param dataSpec Defines the request.
+     * @param connectMs The time taken to establish the connection and send the request. This is
+     *     close to zero if a pooled connection was reused.
+     * @param firstByteMs The time between sending the request and receiving the response headers.
+     * @param transferMs The time between receiving the response headers and closing the source.
+     * @param bytesTransferred The number of bytes read and skipped during the transfer.
+     */
+    void onRequestCompleted(DataSpec dataSpec, long connectMs, long firstByteMs, long transferMs,
+        long bytesTransferred);
+
+  }
+
   /**
    * Thrown when an error is encountered when trying to read from a {@link HttpDataSource}.
    */
@@ -145,6 +167,13 @@ public interface HttpDataSource extends UriDataSource {
    */
   void clearAllRequestProperties();
 
+  /**
+   * Sets a listener to be notified of the timing of each request.
+   *
+   * @param requestTimingListener The listener, or null to clear the current listener.
+   */
+  void setRequestTimingListener(RequestTimingListener requestTimingListener);
+
   /**
    * Gets the headers provided in the response.
    *
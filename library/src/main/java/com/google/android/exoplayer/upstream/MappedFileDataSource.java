@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.FileDataSource.FileDataSourceException;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A local file {@link UriDataSource} that memory maps the file being read. Reads are served by
+ * copying from the mapping, and so do not require a system call each. Data can also be obtained
+ * without copying it at all using {@link #readBuffer(int)}.
+ * <p>
+ * This source is suited to reading large local files, such as the span files of a
+ * {@link com.google.android.exoplayer.upstream.cache.Cache}, for which it can be passed as the
+ * cache read {@link DataSource} of a
+ * {@link com.google.android.exoplayer.upstream.cache.CacheDataSource}. For small files the cost of
+ * establishing the mapping outweighs the savings, and {@link FileDataSource} should be preferred.
+ */
+public final class MappedFileDataSource implements UriDataSource {
+
+  /**
+   * The default maximum size of a single mapping.
+   */
+  public static final int DEFAULT_MAX_MAPPING_SIZE = 64 * 1024 * 1024;
+
+  private final TransferListener listener;
+  private final int maxMappingSize;
+
+  private RandomAccessFile file;
+  private String uriString;
+  private MappedByteBuffer mapping;
+  private long mappingEndPosition;
+  private long bytesRemaining;
+  private boolean opened;
+
+  /**
+   * Constructs a new {@link DataSource} that retrieves data from a file.
+   */
+  public MappedFileDataSource() {
+    this(null);
+  }
+
+  /**
+   * Constructs a new {@link DataSource} that retrieves data from a file.
+   *
+   * @param listener An optional listener. Specify {@code null} for no listener.
+   */
+  public MappedFileDataSource(TransferListener listener) {
+    this(listener, DEFAULT_MAX_MAPPING_SIZE);
+  }
+
+  /**
+   * Constructs a new {@link DataSource} that retrieves data from a file.
+   *
+   * @param listener An optional listener. Specify {@code null} for no listener.
+   * @param maxMappingSize The maximum size of a single mapping. Files larger than this are read
+   *     through a sequence of mappings.
+   */
+  public MappedFileDataSource(TransferListener listener, int maxMappingSize) {
+    this.listener = listener;
+    this.maxMappingSize = maxMappingSize;
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws FileDataSourceException {
+    try {
+      uriString = dataSpec.uri.toString();
+      file = new RandomAccessFile(dataSpec.uri.getPath(), "r");
+      bytesRemaining = dataSpec.length == C.LENGTH_UNBOUNDED ? file.length() - dataSpec.position
+          : dataSpec.length;
+      if (bytesRemaining < 0 || dataSpec.position + bytesRemaining > file.length()) {
+        throw new EOFException();
+      }
+      mappingEndPosition = dataSpec.position;
+      mapping = null;
+    } catch (IOException e) {
+      throw new FileDataSourceException(e);
+    }
+
+    opened = true;
+    if (listener != null) {
+      listener.onTransferStart();
+    }
+
+    return bytesRemaining;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int readLength) throws FileDataSourceException {
+    if (bytesRemaining == 0) {
+      return -1;
+    }
+    ensureMapped();
+    int bytesRead = Math.min(mapping.remaining(), readLength);
+    mapping.get(buffer, offset, bytesRead);
+    onBytesRead(bytesRead);
+    return bytesRead;
+  }
+
+  /**
+   * Reads up to {@code maxLength} bytes without copying them. The returned buffer is a read-only
+   * view of the mapped file, which remains valid after this source has been closed.
+   *
+   * @param maxLength The maximum number of bytes to read.
+   * @return A buffer whose remaining bytes are the data that was read, or null if the end of the
+   *     data has been reached.
+   * @throws FileDataSourceException If an error occurs mapping the file.
+   */
+  public ByteBuffer readBuffer(int maxLength) throws FileDataSourceException {
+    if (bytesRemaining == 0) {
+      return null;
+    }
+    ensureMapped();
+    int bytesRead = Math.min(mapping.remaining(), maxLength);
+    ByteBuffer data = mapping.slice();
+    data.limit(bytesRead);
+    mapping.position(mapping.position() + bytesRead);
+    onBytesRead(bytesRead);
+    return data;
+  }
+
+  @Override
+  public String getUri() {
+    return uriString;
+  }
+
+  @Override
+  public void close() throws FileDataSourceException {
+    uriString = null;
+    // The mapping is released when it is garbage collected.
+    mapping = null;
+    if (file != null) {
+      try {
+        file.close();
+      } catch (IOException e) {
+        throw new FileDataSourceException(e);
+      } finally {
+        file = null;
+        if (opened) {
+          opened = false;
+          if (listener != null) {
+            listener.onTransferEnd();
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Ensures that the current mapping has data remaining, mapping the next region of the file if
+   * necessary. Must only be called if {@link #bytesRemaining} is non-zero.
+   */
+  private void ensureMapped() throws FileDataSourceException {
+    if (mapping != null && mapping.hasRemaining()) {
+      return;
+    }
+    long mappingSize = Math.min(bytesRemaining, maxMappingSize);
+    try {
+      mapping = file.getChannel().map(FileChannel.MapMode.READ_ONLY, mappingEndPosition,
+          mappingSize);
+    } catch (IOException e) {
+      throw new FileDataSourceException(e);
+    }
+    mappingEndPosition += mappingSize;
+  }
+
+  private void onBytesRead(int bytesRead) {
+    bytesRemaining -= bytesRead;
+    if (listener != null) {
+      listener.onBytesTransferred(bytesRead);
+    }
+  }
+
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.util.SlidingPercentile;
+
+/**
+ * A {@link BandwidthEstimator} that estimates the bandwidth as a percentile of the bitrates of
+ * recent samples, each of which is weighted by the square root of the number of bytes transferred.
+ *
+ * @see SlidingPercentile
+ */
+public final class PercentileBandwidthEstimator implements BandwidthEstimator {
+
+  public static final int DEFAULT_MAX_WEIGHT = 2000;
+  public static final float DEFAULT_PERCENTILE = 0.5f;
+
+  private final SlidingPercentile slidingPercentile;
+  private final float percentile;
+
+  public PercentileBandwidthEstimator() {
+    this(DEFAULT_MAX_WEIGHT, DEFAULT_PERCENTILE);
+  }
+
+  /**
+   * @param maxWeight The maximum total weight of the samples from which the estimate is computed.
+   * @param percentile The percentile of the sampled bitrates to use as the estimate, expressed as a
+   *     fraction in the range (0,1].
+   */
+  public PercentileBandwidthEstimator(int maxWeight, float percentile) {
+    this.slidingPercentile = new SlidingPercentile(maxWeight);
+    this.percentile = percentile;
+  }
+
+  @Override
+  public void addSample(long bytes, long elapsedMs) {
+    float bitsPerSecond = (bytes * 8000) / elapsedMs;
+    slidingPercentile.addSample((int) Math.sqrt(bytes), bitsPerSecond);
+  }
+
+  @Override
+  public long getBitrateEstimate() {
+    float bitrateEstimate = slidingPercentile.getPercentile(percentile);
+    return Float.isNaN(bitrateEstimate) ? BandwidthMeter.NO_ESTIMATE : (long) bitrateEstimate;
+  }
+
+}
@@ -0,0 +1,430 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * A {@link DataSource} that is able to load requests ahead of time.
+ * <p>
+ * Requests passed to {@link #prefetch(DataSpec)} are loaded concurrently, each using one of a fixed
+ * number of prefetch {@link DataSource}s, into bounded in-memory buffers. A subsequent call to
+ * {@link #open(DataSpec)} with an equivalent {@link DataSpec} reads from the corresponding buffer,
+ * blocking only if the prefetch has not yet loaded the requested data. All other requests, and
+ * requests whose prefetch failed, are read directly from the upstream {@link DataSource}.
+ * <p>
+ * Each prefetch buffer is reused by subsequent prefetches. A prefetch that has loaded all of its
+ * data returns its {@link DataSource} for use by other prefetches, and its buffer may be reclaimed
+ * for a new prefetch if it's not claimed first. Prefetches that are no longer required (e.g.
+ * following a seek or a change of variant) should be released by calling
+ * {@link #cancelPrefetch(DataSpec)} or {@link #cancelPrefetches()}. Since the latter cancels all
+ * prefetches, it should not be called on an instance shared between components that prefetch
+ * independently.
+ */
+public final class PrefetchingDataSource implements DataSource {
+
+  /**
+   * The default size of the buffer allocated to each prefetch, in bytes.
+   */
+  public static final int DEFAULT_PREFETCH_BUFFER_SIZE = 2 * 1024 * 1024;
+
+  private static final String THREAD_NAME = "PrefetchingDataSource";
+
+  private final DataSource upstream;
+  private final int maxPrefetchCount;
+  private final ArrayList<DataSource> idleDataSources;
+  private final PrefetchTask[] prefetchTasks;
+  private final byte[][] prefetchBuffers;
+  private final int prefetchBufferSize;
+
+  private ExecutorService executorService;
+  private DataSource currentDataSource;
+  private PrefetchTask currentTask;
+  private long prefetchCount;
+
+  /**
+   * @param upstream The upstream {@link DataSource} used for requests that have not been
+   *     prefetched.
+   * @param prefetchDataSources The {@link DataSource}s used to perform prefetches. The length of
+   *     the array is the maximum number of concurrent prefetches. The sources must not be used
+   *     elsewhere.
+   */
+  public PrefetchingDataSource(DataSource upstream, DataSource[] prefetchDataSources) {
+    this(upstream, prefetchDataSources, DEFAULT_PREFETCH_BUFFER_SIZE);
+  }
+
+  /**
+   * @param upstream The upstream {@link DataSource} used for requests that have not been
+   *     prefetched.
+   * @param prefetchDataSources The {@link DataSource}s used to perform prefetches. The length of
+   *     the array is the maximum number of concurrent prefetches. The sources must not be used
+   *     elsewhere.
+   * @param prefetchBufferSize The size of the buffer allocated to each prefetch, in bytes. A
+   *     prefetch whose buffer is full waits for the data to be read before loading more.
+   */
+  public PrefetchingDataSource(DataSource upstream, DataSource[] prefetchDataSources,
+      int prefetchBufferSize) {
+    Assertions.checkArgument(prefetchDataSources.length > 0);
+    Assertions.checkArgument(prefetchBufferSize > 0);
+    this.upstream = Assertions.checkNotNull(upstream);
+    this.prefetchBufferSize = prefetchBufferSize;
+    maxPrefetchCount = prefetchDataSources.length;
+    idleDataSources = new ArrayList<>(maxPrefetchCount);
+    for (int i = 0; i < maxPrefetchCount; i++) {
+      idleDataSources.add(prefetchDataSources[i]);
+    }
+    prefetchTasks = new PrefetchTask[maxPrefetchCount];
+    prefetchBuffers = new byte[maxPrefetchCount][];
+  }
+
+  /**
+   * Returns the maximum number of concurrent prefetches.
+   *
+   * @return The maximum number of concurrent prefetches.
+   */
+  public int getMaxPrefetchCount() {
+    return maxPrefetchCount;
+  }
+
+  /**
+   * Starts loading the specified data in the background, if it's not already being prefetched and
+   * if a prefetch {@link DataSource} is available.
+   *
+   * @param dataSpec Defines the data to prefetch.
+   * @return True if the data is being prefetched. False otherwise.
+   */
+  public synchronized boolean prefetch(DataSpec dataSpec) {
+    int freeIndex = -1;
+    int reclaimableIndex = -1;
+    for (int i = 0; i < maxPrefetchCount; i++) {
+      PrefetchTask task = prefetchTasks[i];
+      if (task == null || task.isReleased()) {
+        if (freeIndex == -1) {
+          freeIndex = i;
+        }
+      } else if (!task.isCanceled() && isEquivalent(task.dataSpec, dataSpec)) {
+        return true;
+      } else if (task != currentTask && task.isFinished() && (reclaimableIndex == -1
+          || task.sequenceNumber < prefetchTasks[reclaimableIndex].sequenceNumber)) {
+        reclaimableIndex = i;
+      }
+    }
+    if (idleDataSources.isEmpty()) {
+      return false;
+    }
+    if (freeIndex == -1) {
+      if (reclaimableIndex == -1) {
+        return false;
+      }
+      // Reclaim the buffer of the oldest prefetch that has finished but hasn't been claimed.
+      prefetchTasks[reclaimableIndex].cancel();
+      freeIndex = reclaimableIndex;
+    }
+    if (prefetchBuffers[freeIndex] == null) {
+      prefetchBuffers[freeIndex] = new byte[prefetchBufferSize];
+    }
+    PrefetchTask task = new PrefetchTask(dataSpec,
+        idleDataSources.remove(0), prefetchBuffers[freeIndex],
+        prefetchCount++);
+    prefetchTasks[freeIndex] = task;
+    if (executorService == null) {
+      executorService = Executors.newFixedThreadPool(maxPrefetchCount, new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          return new Thread(r, THREAD_NAME);
+        }
+      });
+    }
+    executorService.submit(task);
+    return true;
+  }
+
+  /**
+   * Cancels the prefetch of the specified data, unless it's currently being read.
+   *
+   * @param dataSpec Defines the data whose prefetch should be canceled.
+   */
+  public synchronized void cancelPrefetch(DataSpec dataSpec) {
+    for (int i = 0; i < maxPrefetchCount; i++) {
+      PrefetchTask task = prefetchTasks[i];
+      if (task != null && task != currentTask && isEquivalent(task.dataSpec, dataSpec)) {
+        task.cancel();
+      }
+    }
+  }
+
+  /**
+   * Cancels all prefetches, other than one that is currently being read.
+   */
+  public synchronized void cancelPrefetches() {
+    for (int i = 0; i < maxPrefetchCount; i++) {
+      PrefetchTask task = prefetchTasks[i];
+      if (task != null && task != currentTask) {
+        task.cancel();
+      }
+    }
+  }
+
+  /**
+   * Cancels all prefetches and releases the threads and buffers used to perform them.
+   * <p>
+   * This method should be called when prefetching is no longer required, for example when the
+   * component that prefetches is disabled. Prefetching may resume afterwards, in which case new
+   * threads and buffers are allocated as needed.
+   */
+  public synchronized void release() {
+    for (int i = 0; i < maxPrefetchCount; i++) {
+      PrefetchTask task = prefetchTasks[i];
+      if (task != null && task != currentTask) {
+        task.cancel();
+        prefetchTasks[i] = null;
+        prefetchBuffers[i] = null;
+      }
+    }
+    if (executorService != null) {
+      executorService.shutdown();
+      executorService = null;
+    }
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    Assertions.checkState(currentDataSource == null && currentTask == null);
+    PrefetchTask task = claimPrefetchTask(dataSpec);
+    if (task != null) {
+      try {
+        return task.blockUntilOpened();
+      } catch (InterruptedIOException e) {
+        throw e;
+      } catch (IOException e) {
+        // The prefetch failed. Request the data directly instead, so that the error (if it
+        // persists) is reported in the normal way.
+        releaseCurrentTask();
+      }
+    }
+    currentDataSource = upstream;
+    return upstream.open(dataSpec);
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int readLength) throws IOException {
+    if (currentTask != null) {
+      return currentTask.read(buffer, offset, readLength);
+    }
+    return currentDataSource.read(buffer, offset, readLength);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (currentTask != null) {
+      releaseCurrentTask();
+    }
+    if (currentDataSource != null) {
+      try {
+        currentDataSource.close();
+      } finally {
+        currentDataSource = null;
+      }
+    }
+  }
+
+  private synchronized PrefetchTask claimPrefetchTask(DataSpec dataSpec) {
+    for (int i = 0; i < maxPrefetchCount; i++) {
+      PrefetchTask task = prefetchTasks[i];
+      if (task != null && !task.isCanceled() && isEquivalent(task.dataSpec, dataSpec)) {
+        currentTask = task;
+        return task;
+      }
+    }
+    return null;
+  }
+
+  private synchronized void releaseCurrentTask() {
+    // The task's buffer becomes available for reuse once its loading thread exits.
+    currentTask.cancel();
+    currentTask = null;
+  }
+
+  private synchronized void onPrefetchExited(DataSource dataSource) {
+    idleDataSources.add(dataSource);
+  }
+
+  private static boolean isEquivalent(DataSpec a, DataSpec b) {
+    return a.position == b.position && a.length == b.length && a.flags == b.flags
+        && a.postBody == null && b.postBody == null && Util.areEqual(a.uri, b.uri)
+        && Util.areEqual(a.key, b.key);
+  }
+
+  /**
+   * Loads a single {@link DataSpec} into a bounded ring buffer.
+   */
+  private final class PrefetchTask implements Runnable {
+
+    public final DataSpec dataSpec;
+    public final long sequenceNumber;
+
+    private final DataSource dataSource;
+    private final byte[] buffer;
+
+    // All fields below are guarded by this.
+    private int readPosition;
+    private int size;
+    private long length;
+    private boolean opened;
+    private boolean ended;
+    private boolean canceled;
+    private boolean exited;
+    private IOException error;
+
+    public PrefetchTask(DataSpec dataSpec, DataSource dataSource, byte[] buffer,
+        long sequenceNumber) {
+      this.dataSpec = dataSpec;
+      this.dataSource = dataSource;
+      this.buffer = buffer;
+      this.sequenceNumber = sequenceNumber;
+      this.length = C.LENGTH_UNBOUNDED;
+    }
+
+    public synchronized void cancel() {
+      canceled = true;
+      notifyAll();
+    }
+
+    public synchronized boolean isCanceled() {
+      return canceled;
+    }
+
+    /**
+     * Returns whether the task has been canceled and is no longer using its {@link DataSource}.
+     */
+    public synchronized boolean isReleased() {
+      return canceled && exited;
+    }
+
+    /**
+     * Returns whether the task has finished loading, either successfully or due to an error.
+     */
+    public synchronized boolean isFinished() {
+      return exited;
+    }
+
+    public synchronized long blockUntilOpened() throws IOException {
+      while (!opened && error == null && !canceled) {
+        waitForReader();
+      }
+      if (error != null) {
+        throw error;
+      } else if (!opened) {
+        throw new IOException("Prefetch canceled");
+      }
+      return length;
+    }
+
+    public synchronized int read(byte[] target, int offset, int readLength) throws IOException {
+      while (size == 0 && !ended && error == null) {
+        waitForReader();
+      }
+      if (size == 0) {
+        if (error != null) {
+          throw error;
+        }
+        return C.RESULT_END_OF_INPUT;
+      }
+      int bytesToRead = Math.min(readLength, Math.min(size, buffer.length - readPosition));
+      System.arraycopy(buffer, readPosition, target, offset, bytesToRead);
+      readPosition = (readPosition + bytesToRead) % buffer.length;
+      size -= bytesToRead;
+      notifyAll();
+      return bytesToRead;
+    }
+
+    @Override
+    public void run() {
+      try {
+        if (isCanceled()) {
+          return;
+        }
+        long openedLength = dataSource.open(dataSpec);
+        synchronized (this) {
+          length = openedLength;
+          opened = true;
+          notifyAll();
+        }
+        while (true) {
+          int writePosition;
+          int writeLength;
+          synchronized (this) {
+            while (size == buffer.length && !canceled) {
+              wait();
+            }
+            if (canceled) {
+              break;
+            }
+            writePosition = (readPosition + size) % buffer.length;
+            writeLength = Math.min(buffer.length - size, buffer.length - writePosition);
+          }
+          // The region being written isn't accessed by the reader until size is updated.
+          int bytesRead = dataSource.read(buffer, writePosition, writeLength);
+          synchronized (this) {
+            if (bytesRead == C.RESULT_END_OF_INPUT) {
+              ended = true;
+              break;
+            }
+            size += bytesRead;
+            notifyAll();
+          }
+        }
+      } catch (IOException e) {
+        synchronized (this) {
+          error = e;
+        }
+      } catch (InterruptedException e) {
+        cancel();
+      } finally {
+        Util.closeQuietly(dataSource);
+        synchronized (this) {
+          if (!ended && error == null) {
+            error = new IOException("Prefetch canceled");
+          }
+          exited = true;
+          notifyAll();
+        }
+        // Not called whilst holding the task's lock, since the outer source's lock is acquired
+        // before the task's lock elsewhere.
+        onPrefetchExited(dataSource);
+      }
+    }
+
+    private void waitForReader() throws InterruptedIOException {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException();
+      }
+    }
+
+  }
+
+}
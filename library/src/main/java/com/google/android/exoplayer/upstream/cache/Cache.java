@@ -15,6 +15,8 @@
  */
 package com.google.android.exoplayer.upstream.cache;
 
+import com.google.android.exoplayer.C;
+
 import java.io.File;
 import java.util.NavigableSet;
 import java.util.Set;
@@ -143,8 +145,8 @@ public interface Cache {
    *
    * @param key The cache key for the data.
    * @param position The starting position of the data.
-   * @param length The length of the data to be written. Used only to ensure that there is enough
-   *     space in the cache.
+   * @param length The length of the data to be written, or {@link C#LENGTH_UNBOUNDED} if unknown.
+   *     Used only to ensure that there is enough space in the cache.
    * @return The file into which data should be written.
    */
   File startFile(String key, long position, long length);
@@ -172,6 +174,26 @@ public interface Cache {
    */
   void removeSpan(CacheSpan span);
 
+  /**
+   * Sets the total length of the content for a given key. This allows requests of unbounded length
+   * to be fulfilled from the cache without querying the upstream source for the end of the
+   * content.
+   * <p>
+   * The length is discarded once there are no longer any spans for the key.
+   *
+   * @param key The cache key for the data.
+   * @param length The total length of the content.
+   */
+  void setContentLength(String key, long length);
+
+  /**
+   * Returns the total length of the content for a given key, if known.
+   *
+   * @param key The cache key for the data.
+   * @return The total length of the content, or {@link C#LENGTH_UNBOUNDED} if it's not known.
+   */
+  long getContentLength(String key);
+
  /**
   * Queries if a range is entirely available in the cache.
   *
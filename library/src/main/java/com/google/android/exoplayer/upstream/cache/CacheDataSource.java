@@ -24,7 +24,6 @@ import com.google.android.exoplayer.upstream.TeeDataSource;
 import com.google.android.exoplayer.upstream.cache.CacheDataSink.CacheDataSinkException;
 
 import android.net.Uri;
-import android.util.Log;
 
 import java.io.IOException;
 import java.io.InterruptedIOException;
@@ -33,6 +32,18 @@ import java.io.InterruptedIOException;
  * A {@link DataSource} that reads and writes a {@link Cache}. Requests are fulfilled from the cache
  * when possible. When data is not cached it is requested from an upstream {@link DataSource} and
  * written into the cache.
+ * <p>
+ * Data is cached under the {@link DataSpec#key} of each request. Requests without a key bypass the
+ * cache and are always read from upstream. Requests of unbounded length that set
+ * {@link DataSpec#FLAG_ALLOW_GZIP} also bypass the cache. Other unbounded requests are cached, and
+ * so their key must identify a single resource.
+ * <p>
+ * When the upstream source resolves the length of a cached unbounded request, the total length of
+ * the content is recorded in the cache, and subsequent unbounded requests for the same key can then
+ * be fulfilled entirely from the cache. Reaching the end of an unbounded request whose length was
+ * not resolved does not record a length, since the content may still be growing (e.g. a live
+ * stream). Subsequent unbounded requests for the same key read the cached data and then request
+ * any remaining data from upstream.
  */
 public final class CacheDataSource implements DataSource {
 
@@ -51,8 +62,6 @@ public final class CacheDataSource implements DataSource {
 
   }
 
-  private static final String TAG = "CacheDataSource";
-
   private final Cache cache;
   private final DataSource cacheReadDataSource;
   private final DataSource cacheWriteDataSource;
@@ -69,6 +78,8 @@ public final class CacheDataSource implements DataSource {
   private long readPosition;
   private long bytesRemaining;
   private CacheSpan lockedSpan;
+  private boolean currentRequestUnbounded;
+  private boolean bypassCache;
   private boolean ignoreCache;
   private long totalCachedBytesRead;
 
@@ -92,6 +103,18 @@ public final class CacheDataSource implements DataSource {
         blockOnCache, ignoreCacheOnError, null);
   }
 
+  /**
+   * Constructs an instance with default {@link DataSource} and {@link DataSink} instances for
+   * reading and writing the cache, in which reads of small and frequently read cache files are
+   * served from a {@link MemoryTier}. The sink is configured to fragment data such that no single
+   * cache file is greater than maxCacheFileSize bytes.
+   */
+  public CacheDataSource(Cache cache, DataSource upstream, MemoryTier memoryTier,
+      boolean blockOnCache, boolean ignoreCacheOnError, long maxCacheFileSize) {
+    this(cache, upstream, new MemoryTierDataSource(memoryTier, new FileDataSource()),
+        new CacheDataSink(cache, maxCacheFileSize), blockOnCache, ignoreCacheOnError, null);
+  }
+
   /**
    * Constructs an instance with arbitrary {@link DataSource} and {@link DataSink} instances for
    * reading and writing the cache. One use of this constructor is to allow data to be transformed
@@ -132,8 +155,15 @@ public final class CacheDataSource implements DataSource {
       key = dataSpec.key;
       readPosition = dataSpec.position;
       bytesRemaining = dataSpec.length;
+      bypassCache = ignoreCache || shouldBypassCache(dataSpec);
+      if (bytesRemaining == C.LENGTH_UNBOUNDED && !bypassCache) {
+        long contentLength = cache.getContentLength(key);
+        if (contentLength != C.LENGTH_UNBOUNDED) {
+          bytesRemaining = Math.max(0, contentLength - readPosition);
+        }
+      }
       openNextSource();
-      return dataSpec.length;
+      return bytesRemaining;
     } catch (IOException e) {
       handleBeforeThrow(e);
       throw e;
@@ -153,8 +183,10 @@ public final class CacheDataSource implements DataSource {
           bytesRemaining -= bytesRead;
         }
       } else {
+        // An unbounded request ends at the end of the content.
+        boolean endOfContent = currentRequestUnbounded;
         closeCurrentSource();
-        if (bytesRemaining > 0 && bytesRemaining != C.LENGTH_UNBOUNDED) {
+        if (!endOfContent && (bytesRemaining > 0 || bytesRemaining == C.LENGTH_UNBOUNDED)) {
           openNextSource();
           return read(buffer, offset, max);
         }
@@ -177,6 +209,16 @@ public final class CacheDataSource implements DataSource {
     }
   }
 
+  /**
+   * Returns whether a request should bypass the cache. Requests without a key may be for resources
+   * that change (e.g. live playlists), and the length of a gzipped response doesn't correspond to
+   * the content length, so neither is cached.
+   */
+  private static boolean shouldBypassCache(DataSpec dataSpec) {
+    return dataSpec.key == null || (dataSpec.length == C.LENGTH_UNBOUNDED
+        && (dataSpec.flags & DataSpec.FLAG_ALLOW_GZIP) != 0);
+  }
+
   /**
    * Opens the next source. If the cache contains data spanning the current read position then
    * {@link #cacheReadDataSource} is opened to read from it. Else {@link #upstreamDataSource} is
@@ -185,12 +227,7 @@ public final class CacheDataSource implements DataSource {
   private void openNextSource() throws IOException {
     DataSpec dataSpec;
     CacheSpan span;
-    if (ignoreCache) {
-      span = null;
-    } else if (bytesRemaining == C.LENGTH_UNBOUNDED) {
-      // TODO: Support caching for unbounded requests. This requires storing the source length
-      // into the cache (the simplest approach is to incorporate it into each cache file's name).
-      Log.w(TAG, "Cache bypassed due to unbounded length.");
+    if (bypassCache) {
       span = null;
     } else if (blockOnCache) {
       try {
@@ -202,26 +239,52 @@ public final class CacheDataSource implements DataSource {
       span = cache.startReadWriteNonBlocking(key, readPosition);
     }
     if (span == null) {
-      // The data is locked in the cache, or we're ignoring the cache. Bypass the cache and read
-      // from upstream.
+      // The data is locked in the cache, or we're bypassing the cache. Read from upstream.
       currentDataSource = upstreamDataSource;
       dataSpec = new DataSpec(uri, readPosition, bytesRemaining, key, flags);
     } else if (span.isCached) {
       // Data is cached, read from cache.
       Uri fileUri = Uri.fromFile(span.file);
       long filePosition = readPosition - span.position;
-      long length = Math.min(span.length - filePosition, bytesRemaining);
+      long length = span.length - filePosition;
+      if (bytesRemaining != C.LENGTH_UNBOUNDED) {
+        length = Math.min(length, bytesRemaining);
+      }
       dataSpec = new DataSpec(fileUri, readPosition, filePosition, length, key, flags);
       currentDataSource = cacheReadDataSource;
     } else {
       // Data is not cached, and data is not locked, read from upstream with cache backing.
       lockedSpan = span;
-      long length = span.isOpenEnded() ? bytesRemaining : Math.min(span.length, bytesRemaining);
+      long length;
+      if (span.isOpenEnded()) {
+        length = bytesRemaining;
+      } else if (bytesRemaining == C.LENGTH_UNBOUNDED) {
+        length = span.length;
+      } else {
+        length = Math.min(span.length, bytesRemaining);
+      }
       dataSpec = new DataSpec(uri, readPosition, length, key, flags);
       currentDataSource = cacheWriteDataSource != null ? cacheWriteDataSource
           : upstreamDataSource;
     }
-    currentDataSource.open(dataSpec);
+    currentRequestUnbounded = dataSpec.length == C.LENGTH_UNBOUNDED;
+    long resolvedLength = currentDataSource.open(dataSpec);
+    if (currentRequestUnbounded && resolvedLength != C.LENGTH_UNBOUNDED) {
+      // The upstream source has resolved the length of the content.
+      setContentLength(readPosition + resolvedLength);
+    }
+  }
+
+  /**
+   * Records the total length of the content, and updates the number of bytes remaining.
+   *
+   * @param contentLength The total length of the content.
+   */
+  private void setContentLength(long contentLength) {
+    bytesRemaining = contentLength - readPosition;
+    if (!bypassCache) {
+      cache.setContentLength(key, contentLength);
+    }
   }
 
   private void closeCurrentSource() throws IOException {
@@ -0,0 +1,515 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.Loader;
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NavigableSet;
+
+/**
+ * Downloads data into a {@link Cache} ahead of playback, so that it can later be played through a
+ * {@link CacheDataSource} without accessing the network.
+ * <p>
+ * The data to download is specified as a list of {@link DataSpec}s, for example a single
+ * {@link DataSpec} of unbounded length for a progressive stream, or the segments of a DASH or HLS
+ * stream. Each {@link DataSpec} must specify the {@link DataSpec#key} under which its data is
+ * cached.
+ * <p>
+ * Data is downloaded concurrently using the provided upstream {@link DataSource}s. Requests whose
+ * length is known (or becomes known when the first request for them is opened) are divided into
+ * chunks, which are requested as separate byte ranges. Data that's already cached is not requested
+ * again, so a download that's canceled or fails can be resumed by downloading again. Each chunk is
+ * downloaded into memory and then written to the cache, so that the cache is only locked whilst the
+ * chunk is written.
+ * <p>
+ * The downloader implements {@link Loader.Loadable}, and so can be run in the background by a
+ * {@link Loader}. Alternatively {@link #load()} can be invoked directly from a background thread.
+ * A downloader can only be used once.
+ */
+public final class CacheDownloader implements Loader.Loadable {
+
+  /**
+   * Interface definition for a callback to be notified of download progress.
+   */
+  public interface ProgressListener {
+
+    /**
+     * Invoked when data has been downloaded into the cache.
+     * <p>
+     * Invoked on one of the threads performing the download, but never concurrently.
+     *
+     * @param downloader The source of the event.
+     * @param cachedBytes The number of requested bytes that are cached, including those that were
+     *     cached before the download started.
+     * @param totalBytes The total number of requested bytes, or {@link C#LENGTH_UNBOUNDED} if not
+     *     yet known.
+     */
+    void onDownloadProgress(CacheDownloader downloader, long cachedBytes, long totalBytes);
+
+  }
+
+  /**
+   * The default maximum size of each chunk requested from upstream, in bytes.
+   */
+  public static final int DEFAULT_CHUNK_SIZE = 512 * 1024;
+
+  private static final int MAX_READ_LENGTH = 16 * 1024;
+
+  private final Cache cache;
+  private final DataSource[] upstreamDataSources;
+  private final List<DataSpec> dataSpecs;
+  private final int chunkSize;
+  private final ProgressListener progressListener;
+  private final LinkedList<Task> pendingTasks;
+
+  private long maxBytesPerSecond;
+  private long nextTransferTimeNs;
+
+  private int activeTaskCount;
+  private int unresolvedLengthCount;
+  private long cachedBytes;
+  private long totalBytes;
+  private IOException error;
+  private volatile boolean canceled;
+
+  /**
+   * @param cache The cache into which data should be downloaded.
+   * @param upstreamDataSources {@link DataSource}s for downloading the data. The number of sources
+   *     determines the number of concurrent requests.
+   * @param dataSpecs The data to download. Each {@link DataSpec} must have a key.
+   * @param progressListener An optional {@link ProgressListener}.
+   */
+  public CacheDownloader(Cache cache, DataSource[] upstreamDataSources, List<DataSpec> dataSpecs,
+      ProgressListener progressListener) {
+    this(cache, upstreamDataSources, dataSpecs, DEFAULT_CHUNK_SIZE, progressListener);
+  }
+
+  /**
+   * @param cache The cache into which data should be downloaded.
+   * @param upstreamDataSources {@link DataSource}s for downloading the data. The number of sources
+   *     determines the number of concurrent requests.
+   * @param dataSpecs The data to download. Each {@link DataSpec} must have a key.
+   * @param chunkSize The maximum size of each chunk requested from upstream, in bytes.
+   * @param progressListener An optional {@link ProgressListener}.
+   */
+  public CacheDownloader(Cache cache, DataSource[] upstreamDataSources, List<DataSpec> dataSpecs,
+      int chunkSize, ProgressListener progressListener) {
+    Assertions.checkArgument(upstreamDataSources.length > 0);
+    Assertions.checkArgument(chunkSize > 0);
+    for (DataSpec dataSpec : dataSpecs) {
+      if (dataSpec.key == null) {
+        throw new IllegalArgumentException("DataSpec has no cache key: " + dataSpec.uri);
+      }
+    }
+    this.cache = Assertions.checkNotNull(cache);
+    this.upstreamDataSources = upstreamDataSources;
+    this.dataSpecs = Collections.unmodifiableList(new ArrayList<>(dataSpecs));
+    this.chunkSize = chunkSize;
+    this.progressListener = progressListener;
+    pendingTasks = new LinkedList<>();
+  }
+
+  /**
+   * Sets the maximum rate at which data is downloaded, summed over all concurrent requests.
+   *
+   * @param maxBytesPerSecond The maximum rate in bytes per second, or 0 if the rate should not be
+   *     limited.
+   */
+  public synchronized void setMaxBytesPerSecond(long maxBytesPerSecond) {
+    this.maxBytesPerSecond = maxBytesPerSecond;
+  }
+
+  /**
+   * Returns the number of requested bytes that are cached.
+   */
+  public synchronized long getCachedBytes() {
+    return cachedBytes;
+  }
+
+  /**
+   * Returns the total number of requested bytes, or {@link C#LENGTH_UNBOUNDED} if not yet known.
+   */
+  public synchronized long getTotalBytes() {
+    return unresolvedLengthCount > 0 ? C.LENGTH_UNBOUNDED : totalBytes;
+  }
+
+  // Loadable implementation.
+
+  @Override
+  public void cancelLoad() {
+    canceled = true;
+    synchronized (this) {
+      notifyAll();
+    }
+  }
+
+  @Override
+  public boolean isLoadCanceled() {
+    return canceled;
+  }
+
+  /**
+   * Downloads the requested data into the cache, blocking until the download has completed, failed
+   * or been canceled.
+   *
+   * @throws IOException If an error occurred downloading the data.
+   * @throws InterruptedException If the thread was interrupted.
+   */
+  @Override
+  public void load() throws IOException, InterruptedException {
+    synchronized (this) {
+      for (DataSpec dataSpec : dataSpecs) {
+        String key = dataSpec.key;
+        long length = dataSpec.length;
+        if (length == C.LENGTH_UNBOUNDED) {
+          long contentLength = cache.getContentLength(key);
+          if (contentLength != C.LENGTH_UNBOUNDED) {
+            length = Math.max(0, contentLength - dataSpec.absoluteStreamPosition);
+          }
+        }
+        if (length == C.LENGTH_UNBOUNDED) {
+          unresolvedLengthCount++;
+        } else {
+          totalBytes += length;
+        }
+        enqueueMissingRanges(dataSpec, key, dataSpec.absoluteStreamPosition, length,
+            length == C.LENGTH_UNBOUNDED);
+      }
+    }
+    notifyProgress();
+
+    Thread[] threads = new Thread[upstreamDataSources.length - 1];
+    for (int i = 0; i < threads.length; i++) {
+      final DataSource dataSource = upstreamDataSources[i + 1];
+      threads[i] = new Thread("CacheDownloader") {
+        @Override
+        public void run() {
+          runTasks(dataSource);
+        }
+      };
+      threads[i].start();
+    }
+    runTasks(upstreamDataSources[0]);
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    synchronized (this) {
+      if (error != null) {
+        throw error;
+      }
+    }
+  }
+
+  /**
+   * Enqueues tasks to download the parts of a range that aren't cached.
+   *
+   * @param dataSpec The {@link DataSpec} being downloaded.
+   * @param key The cache key.
+   * @param position The start position of the range.
+   * @param length The length of the range, or {@link C#LENGTH_UNBOUNDED} if it extends to the end
+   *     of the content.
+   * @param resolvesLength Whether the first task resolves the length of the content on behalf of
+   *     the {@link DataSpec}.
+   */
+  private void enqueueMissingRanges(DataSpec dataSpec, String key, long position, long length,
+      boolean resolvesLength) {
+    long endPosition = length == C.LENGTH_UNBOUNDED ? Long.MAX_VALUE : position + length;
+    NavigableSet<CacheSpan> spans = cache.getCachedSpans(key);
+    if (spans != null) {
+      for (CacheSpan span : spans) {
+        long spanEndPosition = span.position + span.length;
+        if (spanEndPosition <= position) {
+          continue;
+        } else if (span.position >= endPosition) {
+          break;
+        }
+        if (span.position > position) {
+          enqueueChunks(dataSpec, key, position, span.position - position);
+        }
+        long cachedLength = Math.min(spanEndPosition, endPosition) - Math.max(span.position,
+            position);
+        cachedBytes += cachedLength;
+        position = spanEndPosition;
+        if (position >= endPosition) {
+          return;
+        }
+      }
+    }
+    if (length == C.LENGTH_UNBOUNDED) {
+      pendingTasks.add(new Task(dataSpec, key, position, C.LENGTH_UNBOUNDED, resolvesLength));
+    } else {
+      enqueueChunks(dataSpec, key, position, endPosition - position);
+    }
+  }
+
+  private void enqueueChunks(DataSpec dataSpec, String key, long position, long length) {
+    while (length > 0) {
+      long taskLength = Math.min(length, chunkSize);
+      pendingTasks.add(new Task(dataSpec, key, position, taskLength, false));
+      position += taskLength;
+      length -= taskLength;
+    }
+  }
+
+  private void runTasks(DataSource dataSource) {
+    byte[] buffer = new byte[chunkSize];
+    Task task;
+    while ((task = takeTask()) != null) {
+      try {
+        runTask(task, dataSource, buffer);
+      } catch (IOException e) {
+        onError(e);
+      } catch (InterruptedException e) {
+        onError(new InterruptedIOException());
+      } finally {
+        synchronized (this) {
+          activeTaskCount--;
+          notifyAll();
+        }
+      }
+    }
+  }
+
+  private synchronized Task takeTask() {
+    while (pendingTasks.isEmpty() && activeTaskCount > 0 && error == null && !canceled) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return null;
+      }
+    }
+    if (pendingTasks.isEmpty() || error != null || canceled) {
+      return null;
+    }
+    activeTaskCount++;
+    return pendingTasks.removeFirst();
+  }
+
+  private void runTask(Task task, DataSource dataSource, byte[] buffer)
+      throws IOException, InterruptedException {
+    long position = task.position;
+    long bytesRemaining = task.length;
+    try {
+      long resolvedLength = dataSource.open(new DataSpec(task.dataSpec.uri, task.position,
+          task.length, task.key, task.dataSpec.flags));
+      if (task.length == C.LENGTH_UNBOUNDED && resolvedLength != C.LENGTH_UNBOUNDED) {
+        onContentLengthResolved(task, resolvedLength);
+        // Read the first chunk using this request. The remainder of the content is requested in
+        // separate chunks, which may be downloaded concurrently.
+        bytesRemaining = Math.min(resolvedLength, chunkSize);
+      }
+      while (!canceled) {
+        int chunkLength = bytesRemaining == C.LENGTH_UNBOUNDED ? buffer.length
+            : (int) Math.min(bytesRemaining, buffer.length);
+        int bytesRead = readFully(dataSource, buffer, chunkLength);
+        if (bytesRead > 0) {
+          writeToCache(task.key, position, buffer, bytesRead);
+          position += bytesRead;
+          onBytesCached(bytesRead);
+        }
+        if (canceled) {
+          break;
+        } else if (bytesRemaining != C.LENGTH_UNBOUNDED) {
+          bytesRemaining -= bytesRead;
+          if (bytesRemaining == 0) {
+            break;
+          } else if (bytesRead < chunkLength) {
+            throw new IOException("Unexpected end of input");
+          }
+        } else if (bytesRead < chunkLength) {
+          // The end of the data has been reached. The length isn't recorded in the cache, since
+          // the upstream source didn't report it and the content may still be growing.
+          if (task.resolvesLength) {
+            onLengthResolved(position - task.dataSpec.absoluteStreamPosition);
+          }
+          break;
+        }
+      }
+    } finally {
+      dataSource.close();
+    }
+  }
+
+  /**
+   * Invoked when the length of a request of unbounded length is resolved by the upstream source.
+   */
+  private void onContentLengthResolved(Task task, long resolvedLength) {
+    long contentLength = task.position + resolvedLength;
+    cache.setContentLength(task.key, contentLength);
+    synchronized (this) {
+      if (task.resolvesLength) {
+        unresolvedLengthCount--;
+        totalBytes += contentLength - task.dataSpec.absoluteStreamPosition;
+      }
+      if (resolvedLength > chunkSize) {
+        enqueueMissingRanges(task.dataSpec, task.key, task.position + chunkSize,
+            resolvedLength - chunkSize, false);
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * Invoked when a request of unbounded length is found to have the specified length, having read
+   * it to the end.
+   */
+  private void onLengthResolved(long length) {
+    synchronized (this) {
+      unresolvedLengthCount--;
+      totalBytes += length;
+    }
+    notifyProgress();
+  }
+
+  private int readFully(DataSource dataSource, byte[] buffer, int length)
+      throws IOException, InterruptedException {
+    int bytesRead = 0;
+    while (bytesRead < length && !canceled) {
+      int readLength = Math.min(length - bytesRead, MAX_READ_LENGTH);
+      throttle(readLength);
+      int result = dataSource.read(buffer, bytesRead, readLength);
+      if (result == C.RESULT_END_OF_INPUT) {
+        break;
+      }
+      bytesRead += result;
+    }
+    return bytesRead;
+  }
+
+  /**
+   * Blocks as necessary to keep the total rate of transfer within the limit.
+   *
+   * @param length The number of bytes about to be transferred.
+   */
+  private void throttle(int length) throws InterruptedException {
+    long waitNs;
+    synchronized (this) {
+      if (maxBytesPerSecond <= 0) {
+        return;
+      }
+      long nowNs = System.nanoTime();
+      long transferTimeNs = Math.max(nextTransferTimeNs, nowNs);
+      nextTransferTimeNs = transferTimeNs + (length * 1000000000L) / maxBytesPerSecond;
+      waitNs = transferTimeNs - nowNs;
+    }
+    if (waitNs > 0) {
+      Thread.sleep(waitNs / 1000000, (int) (waitNs % 1000000));
+    }
+  }
+
+  /**
+   * Writes data into the cache, skipping any parts that have been cached by another writer since
+   * the download started.
+   */
+  private void writeToCache(String key, long position, byte[] data, int length)
+      throws IOException, InterruptedException {
+    long endPosition = position + length;
+    while (position < endPosition) {
+      CacheSpan span = cache.startReadWrite(key, position);
+      if (span.isCached) {
+        position = span.position + span.length;
+        continue;
+      }
+      try {
+        long writeLength = span.isOpenEnded() ? endPosition - position
+            : Math.min(span.length, endPosition - position);
+        int offset = (int) (position - (endPosition - length));
+        File file = cache.startFile(key, position, writeLength);
+        FileOutputStream outputStream = new FileOutputStream(file);
+        boolean success = false;
+        try {
+          outputStream.write(data, offset, (int) writeLength);
+          outputStream.flush();
+          outputStream.getFD().sync();
+          success = true;
+        } finally {
+          Util.closeQuietly(outputStream);
+          if (success) {
+            cache.commitFile(file);
+          } else {
+            file.delete();
+          }
+        }
+        position += writeLength;
+      } finally {
+        cache.releaseHoleSpan(span);
+      }
+    }
+  }
+
+  private void onBytesCached(int length) {
+    synchronized (this) {
+      cachedBytes += length;
+    }
+    notifyProgress();
+  }
+
+  private void onError(IOException e) {
+    synchronized (this) {
+      if (error == null && !canceled) {
+        error = e;
+      }
+      notifyAll();
+    }
+  }
+
+  private void notifyProgress() {
+    if (progressListener == null) {
+      return;
+    }
+    synchronized (progressListener) {
+      progressListener.onDownloadProgress(this, getCachedBytes(), getTotalBytes());
+    }
+  }
+
+  /**
+   * A range to be downloaded.
+   */
+  private static final class Task {
+
+    public final DataSpec dataSpec;
+    public final String key;
+    public final long position;
+    public final long length;
+    public final boolean resolvesLength;
+
+    public Task(DataSpec dataSpec, String key, long position, long length,
+        boolean resolvesLength) {
+      this.dataSpec = dataSpec;
+      this.key = key;
+      this.position = position;
+      this.length = length;
+      this.resolvesLength = resolvesLength;
+    }
+
+  }
+
+}
@@ -27,7 +27,8 @@ public interface CacheEvictor extends Cache.Listener {
    * @param cache The source of the event.
    * @param key The key being written.
    * @param position The starting position of the data being written.
-   * @param length The maximum length of the data being written.
+   * @param length The maximum length of the data being written, or
+   *     {@link com.google.android.exoplayer.C#LENGTH_UNBOUNDED} if unknown.
    */
   void onStartFile(Cache cache, String key, long position, long length);
 
@@ -0,0 +1,509 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A persistent index of the spans held by a {@link SimpleCache}, which allows the cache to be
+ * initialized without listing the cache directory and parsing the name of every file.
+ * <p>
+ * Last access timestamps are held only in the index, since they are not encoded in the names of
+ * cache files once written. The index also records the total length of the content for each key,
+ * where known.
+ * <p>
+ * The index consists of a binary snapshot of all spans, and a journal to which additions and
+ * removals are appended as they occur. When the journal becomes large relative to the snapshot,
+ * the two are merged into a new snapshot. If an error occurs writing to either file then both are
+ * deleted, in which case the cache directory is scanned when the cache is next initialized.
+ * <p>
+ * Changes are queued by the calling thread and written to the journal in batches by a single
+ * background thread, which also performs any merging. Callers therefore don't block on file I/O,
+ * and may record changes whilst holding locks of their own.
+ */
+/* package */ final class CacheIndex {
+
+  /**
+   * An entry in the index.
+   */
+  public static final class Entry {
+
+    public final String key;
+    public final long position;
+    public final long length;
+    public final long lastAccessTimestamp;
+    public final String fileName;
+
+    public Entry(String key, long position, long length, long lastAccessTimestamp,
+        String fileName) {
+      this.key = key;
+      this.position = position;
+      this.length = length;
+      this.lastAccessTimestamp = lastAccessTimestamp;
+      this.fileName = fileName;
+    }
+
+  }
+
+  private static final String TAG = "CacheIndex";
+
+  private static final String SNAPSHOT_FILE_NAME = "cache.index";
+  private static final String JOURNAL_FILE_NAME = "cache.journal";
+  private static final String TEMP_FILE_NAME = "cache.index.tmp";
+
+  private static final int SNAPSHOT_MAGIC = 0x45584F49; // EXOI
+  private static final int JOURNAL_MAGIC = 0x45584F4A; // EXOJ
+  private static final int VERSION = 3;
+
+  private static final int OP_ADD = 1;
+  private static final int OP_REMOVE = 2;
+  private static final int OP_SET_CONTENT_LENGTH = 3;
+
+  private static final int MIN_JOURNAL_RECORDS_BEFORE_COMPACTION = 1000;
+
+  private static final String THREAD_NAME = "CacheIndex";
+  private static final int WRITER_KEEP_ALIVE_MS = 1000;
+
+  private final File snapshotFile;
+  private final File journalFile;
+  private final File tempFile;
+  private final ExecutorService writeExecutor;
+  private final Runnable writeRunnable;
+  // Guards the files and the fields below it. Held by the writer thread whilst writing.
+  private final Object fileLock;
+
+  private DataOutputStream journalOutput;
+  private int snapshotEntryCount;
+  private int journalRecordCount;
+  private boolean journalTruncated;
+
+  private volatile boolean enabled;
+
+  // Guarded by this.
+  private ArrayList<Record> pendingRecords;
+  private boolean writeScheduled;
+
+  /**
+   * @param cacheDir The cache directory.
+   */
+  public CacheIndex(File cacheDir) {
+    snapshotFile = new File(cacheDir, SNAPSHOT_FILE_NAME);
+    journalFile = new File(cacheDir, JOURNAL_FILE_NAME);
+    tempFile = new File(cacheDir, TEMP_FILE_NAME);
+    fileLock = new Object();
+    pendingRecords = new ArrayList<>();
+    writeExecutor = new ThreadPoolExecutor(0, 1, WRITER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    writeRunnable = new Runnable() {
+      @Override
+      public void run() {
+        writePendingRecords();
+      }
+    };
+  }
+
+  /**
+   * Returns whether a file in the cache directory belongs to the index.
+   *
+   * @param file The file.
+   * @return Whether the file belongs to the index.
+   */
+  public static boolean isIndexFile(File file) {
+    String name = file.getName();
+    return SNAPSHOT_FILE_NAME.equals(name) || JOURNAL_FILE_NAME.equals(name)
+        || TEMP_FILE_NAME.equals(name);
+  }
+
+  /**
+   * Reads the index. If the index is usable then journaling of subsequent changes is enabled.
+   * Otherwise {@link #reset(Collection, Map)} should be called once the entries have been
+   * determined by other means.
+   *
+   * @param contentLengths A map to which the content lengths recorded in the index are added.
+   * @return The entries in the index, or null if there is no usable index.
+   */
+  public Collection<Entry> load(Map<String, Long> contentLengths) {
+    synchronized (fileLock) {
+      HashMap<String, Long> loadedContentLengths = new HashMap<>();
+      LinkedHashMap<String, Entry> entries = readEntries(loadedContentLengths);
+      if (entries == null) {
+        return null;
+      }
+      contentLengths.putAll(loadedContentLengths);
+      if (journalTruncated) {
+        // Appending to the journal would corrupt it, so write a new snapshot instead.
+        reset(entries.values(), loadedContentLengths);
+      } else {
+        try {
+          openJournal();
+          enabled = true;
+        } catch (IOException e) {
+          onError(e);
+        }
+      }
+      return entries.values();
+    }
+  }
+
+  /**
+   * Writes a new snapshot containing the specified entries, replacing the existing index, and
+   * enables journaling of subsequent changes.
+   *
+   * @param entries The entries to write.
+   * @param contentLengths The content lengths to write, keyed by cache key.
+   */
+  public void reset(Collection<Entry> entries, Map<String, Long> contentLengths) {
+    synchronized (fileLock) {
+      closeJournal();
+      try {
+        writeSnapshot(entries, contentLengths);
+        openJournal();
+        enabled = true;
+      } catch (IOException e) {
+        onError(e);
+      }
+    }
+  }
+
+  /**
+   * Records the addition of a span, or the replacement of a span with the same key and position
+   * (for example when it's touched).
+   *
+   * @param span The added span.
+   */
+  public void onSpanAdded(CacheSpan span) {
+    if (enabled) {
+      enqueue(new Record(OP_ADD, span.key, span.position, span.length, span.lastAccessTimestamp,
+          span.file.getName()));
+    }
+  }
+
+  /**
+   * Records the removal of a span.
+   *
+   * @param span The removed span.
+   */
+  public void onSpanRemoved(CacheSpan span) {
+    if (enabled) {
+      enqueue(new Record(OP_REMOVE, span.key, span.position, 0, 0, null));
+    }
+  }
+
+  /**
+   * Records the total length of the content for a key. Content lengths for keys that have no spans
+   * are discarded when the index is next read.
+   *
+   * @param key The cache key.
+   * @param contentLength The length of the content.
+   */
+  public void onContentLengthSet(String key, long contentLength) {
+    if (enabled) {
+      enqueue(new Record(OP_SET_CONTENT_LENGTH, key, 0, contentLength, 0, null));
+    }
+  }
+
+  /**
+   * Blocks until all changes recorded before the call have been written.
+   */
+  public void flush() {
+    try {
+      writeExecutor.submit(new Runnable() {
+        @Override
+        public void run() {
+          // Do nothing. Changes are written in order, so earlier changes have been written.
+        }
+      }).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // Never happens.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private synchronized void enqueue(Record record) {
+    pendingRecords.add(record);
+    if (!writeScheduled) {
+      writeScheduled = true;
+      writeExecutor.execute(writeRunnable);
+    }
+  }
+
+  private void writePendingRecords() {
+    ArrayList<Record> records;
+    synchronized (this) {
+      records = pendingRecords;
+      pendingRecords = new ArrayList<>();
+      writeScheduled = false;
+    }
+    synchronized (fileLock) {
+      if (!enabled) {
+        return;
+      }
+      try {
+        for (int i = 0; i < records.size(); i++) {
+          writeRecord(records.get(i));
+        }
+        journalOutput.flush();
+        journalRecordCount += records.size();
+        maybeCompact();
+      } catch (IOException e) {
+        onError(e);
+      }
+    }
+  }
+
+  private void writeRecord(Record record) throws IOException {
+    journalOutput.writeByte(record.op);
+    journalOutput.writeUTF(record.key);
+    switch (record.op) {
+      case OP_ADD:
+        journalOutput.writeLong(record.position);
+        journalOutput.writeLong(record.length);
+        journalOutput.writeLong(record.lastAccessTimestamp);
+        journalOutput.writeUTF(record.fileName);
+        break;
+      case OP_REMOVE:
+        journalOutput.writeLong(record.position);
+        break;
+      case OP_SET_CONTENT_LENGTH:
+        journalOutput.writeLong(record.length);
+        break;
+    }
+  }
+
+  private void maybeCompact() throws IOException {
+    if (journalRecordCount > MIN_JOURNAL_RECORDS_BEFORE_COMPACTION
+        && journalRecordCount > snapshotEntryCount) {
+      // Merge the journal into a new snapshot.
+      HashMap<String, Long> contentLengths = new HashMap<>();
+      LinkedHashMap<String, Entry> entries = readEntries(contentLengths);
+      if (entries == null) {
+        throw new IOException("Failed to read index");
+      }
+      closeJournal();
+      writeSnapshot(entries.values(), contentLengths);
+      openJournal();
+    }
+  }
+
+  private void onError(IOException e) {
+    Log.e(TAG, "Disabling cache index", e);
+    enabled = false;
+    closeJournal();
+    snapshotFile.delete();
+    journalFile.delete();
+  }
+
+  private LinkedHashMap<String, Entry> readEntries(HashMap<String, Long> contentLengths) {
+    if (!snapshotFile.exists()) {
+      return null;
+    }
+    LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    DataInputStream input = null;
+    try {
+      input = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)));
+      if (input.readInt() != SNAPSHOT_MAGIC || input.readInt() != VERSION) {
+        return null;
+      }
+      int entryCount = input.readInt();
+      for (int i = 0; i < entryCount; i++) {
+        Entry entry = new Entry(input.readUTF(), input.readLong(), input.readLong(),
+            input.readLong(), input.readUTF());
+        entries.put(getEntryId(entry.key, entry.position), entry);
+      }
+      int contentLengthCount = input.readInt();
+      for (int i = 0; i < contentLengthCount; i++) {
+        contentLengths.put(input.readUTF(), input.readLong());
+      }
+    } catch (IOException e) {
+      Log.w(TAG, "Failed to read index snapshot", e);
+      return null;
+    } finally {
+      closeQuietly(input);
+    }
+    snapshotEntryCount = entries.size();
+
+    journalRecordCount = 0;
+    journalTruncated = false;
+    if (journalFile.exists()) {
+      try {
+        input = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
+        if (input.readInt() != JOURNAL_MAGIC || input.readInt() != VERSION) {
+          return null;
+        }
+        while (true) {
+          int op = input.read();
+          if (op == -1) {
+            break;
+          }
+          String key = input.readUTF();
+          if (op == OP_ADD) {
+            long position = input.readLong();
+            entries.put(getEntryId(key, position),
+                new Entry(key, position, input.readLong(), input.readLong(), input.readUTF()));
+          } else if (op == OP_REMOVE) {
+            entries.remove(getEntryId(key, input.readLong()));
+          } else if (op == OP_SET_CONTENT_LENGTH) {
+            contentLengths.put(key, input.readLong());
+          } else {
+            Log.w(TAG, "Unexpected journal record: " + op);
+            return null;
+          }
+          journalRecordCount++;
+        }
+      } catch (EOFException e) {
+        // The final record was only partially written. Ignore it.
+        journalTruncated = true;
+      } catch (IOException e) {
+        Log.w(TAG, "Failed to read index journal", e);
+        return null;
+      } finally {
+        closeQuietly(input);
+      }
+    }
+
+    // Discard the content lengths of keys that no longer have any spans.
+    HashMap<String, Long> retainedContentLengths = new HashMap<>();
+    for (Entry entry : entries.values()) {
+      Long contentLength = contentLengths.get(entry.key);
+      if (contentLength != null) {
+        retainedContentLengths.put(entry.key, contentLength);
+      }
+    }
+    contentLengths.clear();
+    contentLengths.putAll(retainedContentLengths);
+    return entries;
+  }
+
+  private void writeSnapshot(Collection<Entry> entries, Map<String, Long> contentLengths)
+      throws IOException {
+    DataOutputStream output = null;
+    try {
+      output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      output.writeInt(SNAPSHOT_MAGIC);
+      output.writeInt(VERSION);
+      output.writeInt(entries.size());
+      for (Entry entry : entries) {
+        output.writeUTF(entry.key);
+        output.writeLong(entry.position);
+        output.writeLong(entry.length);
+        output.writeLong(entry.lastAccessTimestamp);
+        output.writeUTF(entry.fileName);
+      }
+      output.writeInt(contentLengths.size());
+      for (Map.Entry<String, Long> contentLength : contentLengths.entrySet()) {
+        output.writeUTF(contentLength.getKey());
+        output.writeLong(contentLength.getValue());
+      }
+      output.close();
+      output = null;
+      // Delete the journal first, so that a failure can't leave a new snapshot alongside a journal
+      // that has already been applied to it.
+      if ((journalFile.exists() && !journalFile.delete()) || !tempFile.renameTo(snapshotFile)) {
+        throw new IOException("Failed to replace index snapshot");
+      }
+    } finally {
+      closeQuietly(output);
+    }
+    snapshotEntryCount = entries.size();
+  }
+
+  private void openJournal() throws IOException {
+    boolean exists = journalFile.exists();
+    journalOutput = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(journalFile, true)));
+    if (!exists) {
+      journalOutput.writeInt(JOURNAL_MAGIC);
+      journalOutput.writeInt(VERSION);
+      journalOutput.flush();
+      journalRecordCount = 0;
+    }
+  }
+
+  private void closeJournal() {
+    closeQuietly(journalOutput);
+    journalOutput = null;
+  }
+
+  private static String getEntryId(String key, long position) {
+    return position + "." + key;
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // Ignore.
+      }
+    }
+  }
+
+  /**
+   * A change that is pending being written to the journal.
+   */
+  private static final class Record {
+
+    public final int op;
+    public final String key;
+    public final long position;
+    public final long length;
+    public final long lastAccessTimestamp;
+    public final String fileName;
+
+    public Record(int op, String key, long position, long length, long lastAccessTimestamp,
+        String fileName) {
+      this.op = op;
+      this.key = key;
+      this.position = position;
+      this.length = length;
+      this.lastAccessTimestamp = lastAccessTimestamp;
+      this.fileName = fileName;
+    }
+
+  }
+
+}
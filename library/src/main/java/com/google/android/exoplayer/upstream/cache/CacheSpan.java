@@ -103,6 +103,21 @@ public final class CacheSpan implements Comparable<CacheSpan> {
     return newCacheFile;
   }
 
+  /**
+   * Creates a cache span for a cache file whose properties are already known.
+   *
+   * @param file The cache file.
+   * @param key The cache key.
+   * @param position The position of the span in the original stream.
+   * @param length The length of the span.
+   * @param lastAccessTimestamp The last access timestamp.
+   * @return The span.
+   */
+  static CacheSpan createCacheEntry(File file, String key, long position, long length,
+      long lastAccessTimestamp) {
+    return new CacheSpan(key, position, length, true, lastAccessTimestamp, file);
+  }
+
   private static CacheSpan createCacheEntry(String key, long position, long lastAccessTimestamp,
       File file) {
     return new CacheSpan(key, position, file.length(), true, lastAccessTimestamp, file);
@@ -127,15 +142,13 @@ public final class CacheSpan implements Comparable<CacheSpan> {
   }
 
   /**
-   * Renames the file underlying this cache span to update its last access time.
+   * Returns a copy of this span with an updated last access timestamp. The underlying file is not
+   * renamed, so the timestamp encoded in its name is that of the span's creation.
    *
-   * @return A {@link CacheSpan} representing the updated cache file.
+   * @return A {@link CacheSpan} with an updated last access timestamp.
    */
   public CacheSpan touch() {
-    long now = System.currentTimeMillis();
-    File newCacheFile = getCacheFileName(file.getParentFile(), key, position, now);
-    file.renameTo(newCacheFile);
-    return CacheSpan.createCacheEntry(key, position, now, newCacheFile);
+    return new CacheSpan(key, position, length, true, System.currentTimeMillis(), file);
   }
 
   @Override
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Evicts cache files with the lowest access frequency per byte first.
+ * <p>
+ * Access counts decay exponentially with a specified half-life, so that files that were popular
+ * in the past but are no longer accessed are eventually evicted. Dividing by the length of each
+ * file favors retaining many small files over a few large ones.
+ */
+public final class LeastFrequentlyUsedCacheEvictor implements CacheEvictor {
+
+  /**
+   * The default half-life of access counts, in milliseconds.
+   */
+  public static final long DEFAULT_HALF_LIFE_MS = 24 * 60 * 60 * 1000;
+
+  private final long maxBytes;
+  private final double halfLifeMs;
+  private final TreeMap<CacheSpan, Entry> entries;
+  private final TreeSet<Entry> evictionQueue;
+
+  private long currentSize;
+
+  /**
+   * @param maxBytes The maximum size of the cache, in bytes.
+   */
+  public LeastFrequentlyUsedCacheEvictor(long maxBytes) {
+    this(maxBytes, DEFAULT_HALF_LIFE_MS);
+  }
+
+  /**
+   * @param maxBytes The maximum size of the cache, in bytes.
+   * @param halfLifeMs The time taken for the access count of a file to halve, in milliseconds.
+   */
+  public LeastFrequentlyUsedCacheEvictor(long maxBytes, long halfLifeMs) {
+    this.maxBytes = maxBytes;
+    this.halfLifeMs = halfLifeMs;
+    // CacheSpan's natural ordering identifies spans by key and position, so touched copies of a
+    // span map to the same entry.
+    this.entries = new TreeMap<>();
+    this.evictionQueue = new TreeSet<>();
+  }
+
+  @Override
+  public void onStartFile(Cache cache, String key, long position, long length) {
+    evictCache(cache, length == C.LENGTH_UNBOUNDED ? 0 : length);
+  }
+
+  @Override
+  public void onSpanAdded(Cache cache, CacheSpan span) {
+    // A new span has been accessed once.
+    Entry entry = new Entry(span, span.lastAccessTimestamp / halfLifeMs);
+    entries.put(span, entry);
+    evictionQueue.add(entry);
+    currentSize += span.length;
+    evictCache(cache, 0);
+  }
+
+  @Override
+  public void onSpanRemoved(Cache cache, CacheSpan span) {
+    Entry entry = entries.remove(span);
+    if (entry != null) {
+      evictionQueue.remove(entry);
+      currentSize -= entry.span.length;
+    }
+  }
+
+  @Override
+  public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+    Entry entry = entries.remove(oldSpan);
+    if (entry == null) {
+      onSpanAdded(cache, newSpan);
+      return;
+    }
+    evictionQueue.remove(entry);
+    // The log2 of the access count at the time of the access, decayed from the previous access.
+    double accessTimeScore = newSpan.lastAccessTimestamp / halfLifeMs;
+    double logDecayedCount = entry.logCountScore - accessTimeScore;
+    double logCount = logDecayedCount < -64 ? 0 : log2(Math.pow(2, logDecayedCount) + 1);
+    Entry newEntry = new Entry(newSpan, logCount + accessTimeScore);
+    entries.put(newSpan, newEntry);
+    evictionQueue.add(newEntry);
+  }
+
+  private void evictCache(Cache cache, long requiredSpace) {
+    while (currentSize + requiredSpace > maxBytes && !evictionQueue.isEmpty()) {
+      cache.removeSpan(evictionQueue.first().span);
+    }
+  }
+
+  private static double log2(double value) {
+    return Math.log(value) / Math.log(2);
+  }
+
+  /**
+   * An evictable span.
+   * <p>
+   * To avoid updating every entry as time passes, counts are stored as the log2 of the count
+   * decayed to time zero. Scores computed in this way can be compared directly, since decay affects
+   * all counts equally.
+   */
+  private static final class Entry implements Comparable<Entry> {
+
+    public final CacheSpan span;
+    public final double logCountScore;
+    public final double evictionScore;
+
+    public Entry(CacheSpan span, double logCountScore) {
+      this.span = span;
+      this.logCountScore = logCountScore;
+      this.evictionScore = logCountScore - log2(Math.max(span.length, 1));
+    }
+
+    @Override
+    public int compareTo(Entry another) {
+      int result = Double.compare(evictionScore, another.evictionScore);
+      // Use the standard compareTo method as a tie-break.
+      return result != 0 ? result : span.compareTo(another.span);
+    }
+
+  }
+
+}
@@ -15,6 +15,8 @@
  */
 package com.google.android.exoplayer.upstream.cache;
 
+import com.google.android.exoplayer.C;
+
 import java.util.Comparator;
 import java.util.TreeSet;
 
@@ -35,7 +37,7 @@ public final class LeastRecentlyUsedCacheEvictor implements CacheEvictor, Compar
 
   @Override
   public void onStartFile(Cache cache, String key, long position, long length) {
-    evictCache(cache, length);
+    evictCache(cache, length == C.LENGTH_UNBOUNDED ? 0 : length);
   }
 
   @Override
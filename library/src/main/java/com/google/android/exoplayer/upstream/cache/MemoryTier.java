@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded in-memory tier that holds the contents of small, frequently read cache files, so that
+ * reads of them can be served without accessing the disk. Used by {@link MemoryTierDataSource}, and
+ * may be shared between any number of such sources.
+ * <p>
+ * A file is promoted into the tier when it's read for the second time within a short window, so
+ * that data that's read only once (for example most media segments) doesn't displace data that's
+ * read repeatedly (for example playlists, initialization segments and encryption keys). Files are
+ * evicted in least recently used order when the tier exceeds its byte budget.
+ * <p>
+ * Cache files are never modified once committed, so the contents held by the tier are always
+ * valid. Entries for files that have been removed from the cache are never requested again, and
+ * are eventually evicted.
+ */
+public final class MemoryTier {
+
+  /**
+   * The default maximum total size of the files held by the tier, in bytes.
+   */
+  public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+  /**
+   * The default maximum size of a file that can be held by the tier, in bytes.
+   */
+  public static final int DEFAULT_MAX_FILE_BYTES = 256 * 1024;
+
+  private static final int MAX_CANDIDATE_COUNT = 256;
+
+  private final long maxBytes;
+  private final int maxFileBytes;
+  private final LinkedHashMap<String, byte[]> entries;
+  private final LinkedHashMap<String, Boolean> candidates;
+
+  private long currentBytes;
+  private long hitCount;
+  private long missCount;
+
+  public MemoryTier() {
+    this(DEFAULT_MAX_BYTES, DEFAULT_MAX_FILE_BYTES);
+  }
+
+  /**
+   * @param maxBytes The maximum total size of the files held by the tier, in bytes.
+   * @param maxFileBytes The maximum size of a file that can be held by the tier, in bytes.
+   */
+  public MemoryTier(long maxBytes, int maxFileBytes) {
+    this.maxBytes = maxBytes;
+    this.maxFileBytes = maxFileBytes;
+    entries = new LinkedHashMap<>(16, 0.75f, true);
+    candidates = new LinkedHashMap<String, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > MAX_CANDIDATE_COUNT;
+      }
+    };
+  }
+
+  /**
+   * Returns the total size of the files held by the tier, in bytes.
+   */
+  public synchronized long getSizeBytes() {
+    return currentBytes;
+  }
+
+  /**
+   * Returns the number of reads that have been served by the tier.
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * Returns the number of reads that could not be served by the tier.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Returns the contents of a cache file, if held by the tier.
+   *
+   * @param path The path of the cache file.
+   * @return The contents of the file, or null if the file isn't held by the tier.
+   */
+  /* package */ synchronized byte[] get(String path) {
+    byte[] data = entries.get(path);
+    if (data != null) {
+      hitCount++;
+    } else {
+      missCount++;
+    }
+    return data;
+  }
+
+  /**
+   * Records a read of a cache file that isn't held by the tier, and returns whether the file should
+   * now be promoted by calling {@link #put(String, byte[])}.
+   *
+   * @param path The path of the cache file.
+   * @param length The length of the cache file, in bytes.
+   * @return Whether the file should be promoted.
+   */
+  /* package */ synchronized boolean shouldPromote(String path, long length) {
+    if (length <= 0 || length > maxFileBytes || length > maxBytes) {
+      return false;
+    }
+    // Promote the file if it's been read recently.
+    if (candidates.remove(path) != null) {
+      return true;
+    }
+    candidates.put(path, Boolean.TRUE);
+    return false;
+  }
+
+  /**
+   * Adds the contents of a cache file to the tier, evicting least recently used files as
+   * necessary.
+   *
+   * @param path The path of the cache file.
+   * @param data The contents of the file.
+   */
+  /* package */ synchronized void put(String path, byte[] data) {
+    byte[] previousData = entries.put(path, data);
+    if (previousData != null) {
+      currentBytes -= previousData.length;
+    }
+    currentBytes += data.length;
+    Iterator<byte[]> iterator = entries.values().iterator();
+    while (currentBytes > maxBytes && iterator.hasNext()) {
+      currentBytes -= iterator.next().length;
+      iterator.remove();
+    }
+  }
+
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.util.Assertions;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A {@link DataSource} for reading cache files, which serves reads of files held by a
+ * {@link MemoryTier} from memory, and otherwise reads from an underlying {@link DataSource}. Files
+ * are promoted into the tier as they are read.
+ * <p>
+ * Intended for use as the cache read {@link DataSource} of a {@link CacheDataSource}. Data is
+ * always written to the cache on disk, and so is retained if evicted from the tier.
+ */
+public final class MemoryTierDataSource implements DataSource {
+
+  private final MemoryTier memoryTier;
+  private final DataSource fileDataSource;
+
+  private DataSource currentDataSource;
+  private byte[] data;
+  private int readPosition;
+  private long bytesRemaining;
+
+  /**
+   * @param memoryTier The {@link MemoryTier}.
+   * @param fileDataSource A {@link DataSource} for reading cache files from disk.
+   */
+  public MemoryTierDataSource(MemoryTier memoryTier, DataSource fileDataSource) {
+    this.memoryTier = Assertions.checkNotNull(memoryTier);
+    this.fileDataSource = Assertions.checkNotNull(fileDataSource);
+  }
+
+  @Override
+  public long open(DataSpec dataSpec) throws IOException {
+    String path = dataSpec.uri.getPath();
+    data = memoryTier.get(path);
+    if (data == null && memoryTier.shouldPromote(path, new File(path).length())) {
+      data = readFile(dataSpec);
+      if (data != null) {
+        memoryTier.put(path, data);
+      }
+    }
+    if (data == null) {
+      currentDataSource = fileDataSource;
+      return fileDataSource.open(dataSpec);
+    }
+
+    bytesRemaining = dataSpec.length == C.LENGTH_UNBOUNDED ? data.length - dataSpec.position
+        : dataSpec.length;
+    if (bytesRemaining < 0 || dataSpec.position + bytesRemaining > data.length) {
+      data = null;
+      throw new EOFException();
+    }
+    readPosition = (int) dataSpec.position;
+    return bytesRemaining;
+  }
+
+  @Override
+  public int read(byte[] buffer, int offset, int readLength) throws IOException {
+    if (currentDataSource != null) {
+      return currentDataSource.read(buffer, offset, readLength);
+    }
+    if (bytesRemaining == 0) {
+      return -1;
+    }
+    int bytesRead = (int) Math.min(readLength, bytesRemaining);
+    System.arraycopy(data, readPosition, buffer, offset, bytesRead);
+    readPosition += bytesRead;
+    bytesRemaining -= bytesRead;
+    return bytesRead;
+  }
+
+  @Override
+  public void close() throws IOException {
+    data = null;
+    if (currentDataSource != null) {
+      try {
+        currentDataSource.close();
+      } finally {
+        currentDataSource = null;
+      }
+    }
+  }
+
+  /**
+   * Reads the whole of the file referenced by a {@link DataSpec}.
+   *
+   * @param dataSpec A {@link DataSpec} referencing the file.
+   * @return The contents of the file, or null if the file's length was not as expected.
+   * @throws IOException If an error occurs reading from the file.
+   */
+  private byte[] readFile(DataSpec dataSpec) throws IOException {
+    try {
+      long length = fileDataSource.open(new DataSpec(dataSpec.uri, 0, C.LENGTH_UNBOUNDED,
+          dataSpec.key, dataSpec.flags));
+      if (length == C.LENGTH_UNBOUNDED || length > Integer.MAX_VALUE) {
+        return null;
+      }
+      byte[] fileData = new byte[(int) length];
+      int bytesRead = 0;
+      while (bytesRead < fileData.length) {
+        int result = fileDataSource.read(fileData, bytesRead, fileData.length - bytesRead);
+        if (result == -1) {
+          return null;
+        }
+        bytesRead += result;
+      }
+      return fileData;
+    } finally {
+      fileDataSource.close();
+    }
+  }
+
+}
@@ -15,12 +15,12 @@
  */
 package com.google.android.exoplayer.upstream.cache;
 
+import com.google.android.exoplayer.C;
 import com.google.android.exoplayer.util.Assertions;
 
-import android.os.ConditionVariable;
-
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -28,18 +28,36 @@ import java.util.Map.Entry;
 import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A {@link Cache} implementation that maintains an in-memory representation.
+ * <p>
+ * The in-memory representation is divided into stripes by key, each of which is guarded by its own
+ * lock, so that operations on different keys don't contend with one another. Events are delivered
+ * to the {@link CacheEvictor} in the order in which they occur, but outside of the stripe locks.
+ * <p>
+ * The spans held by the cache are recorded in a persistent index, so that the cache can be
+ * initialized without listing and parsing the names of all of the files in the cache directory.
+ * Once initialization is complete, the directory is scanned in the background to adopt any files
+ * that are missing from the index, for example because the application was killed whilst writing
+ * to it. If there is no usable index then the directory is scanned during initialization instead.
+ * Changes are written to the index in the background, so that file I/O isn't performed whilst
+ * holding a stripe lock.
  */
 public final class SimpleCache implements Cache {
 
+  private static final int STRIPE_COUNT = 16;
+
   private final File cacheDir;
   private final CacheEvictor evictor;
-  private final HashMap<String, CacheSpan> lockedSpans;
-  private final HashMap<String, TreeSet<CacheSpan>> cachedSpans;
-  private final HashMap<String, ArrayList<Listener>> listeners;
-  private long totalSpace = 0;
+  private final CacheIndex index;
+  private final Stripe[] stripes;
+  private final ConcurrentLinkedQueue<EvictorEvent> pendingEvictorEvents;
+  private final AtomicLong totalSpace;
+
+  private volatile boolean initialized;
 
   /**
    * Constructs the cache. The cache will delete any unrecognized files from the directory. Hence
@@ -50,104 +68,138 @@ public final class SimpleCache implements Cache {
   public SimpleCache(File cacheDir, CacheEvictor evictor) {
     this.cacheDir = cacheDir;
     this.evictor = evictor;
-    this.lockedSpans = new HashMap<>();
-    this.cachedSpans = new HashMap<>();
-    this.listeners = new HashMap<>();
-    // Start cache initialization.
-    final ConditionVariable conditionVariable = new ConditionVariable();
+    this.index = new CacheIndex(cacheDir);
+    this.stripes = new Stripe[STRIPE_COUNT];
+    for (int i = 0; i < STRIPE_COUNT; i++) {
+      stripes[i] = new Stripe();
+    }
+    this.pendingEvictorEvents = new ConcurrentLinkedQueue<>();
+    this.totalSpace = new AtomicLong();
+    // Start cache initialization. Calls to the cache block until the initialization is complete.
     new Thread() {
       @Override
       public void run() {
-        synchronized (SimpleCache.this) {
-          conditionVariable.open();
-          initialize();
-        }
+        initialize();
       }
     }.start();
-    conditionVariable.block();
   }
 
   @Override
-  public synchronized NavigableSet<CacheSpan> addListener(String key, Listener listener) {
-    ArrayList<Listener> listenersForKey = listeners.get(key);
-    if (listenersForKey == null) {
-      listenersForKey = new ArrayList<>();
-      listeners.put(key, listenersForKey);
+  public NavigableSet<CacheSpan> addListener(String key, Listener listener) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      ArrayList<Listener> listenersForKey = stripe.listeners.get(key);
+      if (listenersForKey == null) {
+        listenersForKey = new ArrayList<>();
+        stripe.listeners.put(key, listenersForKey);
+      }
+      listenersForKey.add(listener);
+      return getCachedSpans(stripe, key);
     }
-    listenersForKey.add(listener);
-    return getCachedSpans(key);
   }
 
   @Override
-  public synchronized void removeListener(String key, Listener listener) {
-    ArrayList<Listener> listenersForKey = listeners.get(key);
-    if (listenersForKey != null) {
-      listenersForKey.remove(listener);
-      if (listenersForKey.isEmpty()) {
-        listeners.remove(key);
+  public void removeListener(String key, Listener listener) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      ArrayList<Listener> listenersForKey = stripe.listeners.get(key);
+      if (listenersForKey != null) {
+        listenersForKey.remove(listener);
+        if (listenersForKey.isEmpty()) {
+          stripe.listeners.remove(key);
+        }
       }
     }
   }
 
   @Override
-  public synchronized NavigableSet<CacheSpan> getCachedSpans(String key) {
-    TreeSet<CacheSpan> spansForKey = cachedSpans.get(key);
-    return spansForKey == null ? null : new TreeSet<>(spansForKey);
+  public NavigableSet<CacheSpan> getCachedSpans(String key) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      return getCachedSpans(stripe, key);
+    }
   }
 
   @Override
-  public synchronized Set<String> getKeys() {
-    return new HashSet<>(cachedSpans.keySet());
+  public Set<String> getKeys() {
+    blockUntilInitialized();
+    HashSet<String> keys = new HashSet<>();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        keys.addAll(stripe.cachedSpans.keySet());
+      }
+    }
+    return keys;
   }
 
   @Override
-  public synchronized long getCacheSpace() {
-    return totalSpace;
+  public long getCacheSpace() {
+    blockUntilInitialized();
+    return totalSpace.get();
   }
 
   @Override
-  public synchronized CacheSpan startReadWrite(String key, long position)
-      throws InterruptedException {
+  public CacheSpan startReadWrite(String key, long position) throws InterruptedException {
+    blockUntilInitialized();
     CacheSpan lookupSpan = CacheSpan.createLookup(key, position);
-    while (true) {
-      CacheSpan span = startReadWriteNonBlocking(lookupSpan);
-      if (span != null) {
-        return span;
-      } else {
-        // Write case, lock not available. We'll be woken up when a locked span is released (if the
-        // released lock is for the requested key then we'll be able to make progress) or when a
-        // span is added to the cache (if the span is for the requested key and covers the requested
-        // position, then we'll become a read and be able to make progress).
-        wait();
+    Stripe stripe = getStripe(key);
+    CacheSpan span;
+    synchronized (stripe) {
+      while (true) {
+        span = startReadWriteNonBlocking(stripe, lookupSpan);
+        if (span != null) {
+          break;
+        } else {
+          // Write case, lock not available. We'll be woken up when a locked span in the same
+          // stripe is released (if the released lock is for the requested key then we'll be able
+          // to make progress) or when a span is added to the stripe (if the span is for the
+          // requested key and covers the requested position, then we'll become a read and be able
+          // to make progress).
+          stripe.wait();
+        }
       }
     }
+    dispatchEvictorEvents();
+    return span;
   }
 
   @Override
-  public synchronized CacheSpan startReadWriteNonBlocking(String key, long position) {
-    return startReadWriteNonBlocking(CacheSpan.createLookup(key, position));
+  public CacheSpan startReadWriteNonBlocking(String key, long position) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    CacheSpan span;
+    synchronized (stripe) {
+      span = startReadWriteNonBlocking(stripe, CacheSpan.createLookup(key, position));
+    }
+    dispatchEvictorEvents();
+    return span;
   }
 
-  private synchronized CacheSpan startReadWriteNonBlocking(CacheSpan lookupSpan) {
-    CacheSpan spanningRegion = getSpan(lookupSpan);
+  private CacheSpan startReadWriteNonBlocking(Stripe stripe, CacheSpan lookupSpan) {
+    CacheSpan spanningRegion = getSpan(stripe, lookupSpan);
 
     // Read case.
     if (spanningRegion.isCached) {
       CacheSpan oldCacheSpan = spanningRegion;
       // Remove the old span from the in-memory representation.
-      TreeSet<CacheSpan> spansForKey = cachedSpans.get(oldCacheSpan.key);
+      TreeSet<CacheSpan> spansForKey = stripe.cachedSpans.get(oldCacheSpan.key);
       Assertions.checkState(spansForKey.remove(oldCacheSpan));
-      // Obtain a new span with updated last access timestamp.
+      // Obtain a new span with updated last access timestamp. The timestamp is recorded in the
+      // index, rather than by renaming the file.
       spanningRegion = oldCacheSpan.touch();
       // Add the updated span back into the in-memory representation.
       spansForKey.add(spanningRegion);
-      notifySpanTouched(oldCacheSpan, spanningRegion);
+      index.onSpanAdded(spanningRegion);
+      notifySpanTouched(stripe, oldCacheSpan, spanningRegion);
       return spanningRegion;
     }
 
     // Write case, lock available.
-    if (!lockedSpans.containsKey(lookupSpan.key)) {
-      lockedSpans.put(lookupSpan.key, spanningRegion);
+    if (!stripe.lockedSpans.containsKey(lookupSpan.key)) {
+      stripe.lockedSpans.put(lookupSpan.key, spanningRegion);
       return spanningRegion;
     }
 
@@ -156,40 +208,57 @@ public final class SimpleCache implements Cache {
   }
 
   @Override
-  public synchronized File startFile(String key, long position, long length) {
-    Assertions.checkState(lockedSpans.containsKey(key));
+  public File startFile(String key, long position, long length) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      Assertions.checkState(stripe.lockedSpans.containsKey(key));
+    }
     if (!cacheDir.exists()) {
       // For some reason the cache directory doesn't exist. Make a best effort to create it.
       removeStaleSpans();
       cacheDir.mkdirs();
     }
-    evictor.onStartFile(this, key, position, length);
+    synchronized (evictor) {
+      dispatchEvictorEvents();
+      evictor.onStartFile(this, key, position, length);
+    }
     return CacheSpan.getCacheFileName(cacheDir, key, position, System.currentTimeMillis());
   }
 
   @Override
-  public synchronized void commitFile(File file) {
+  public void commitFile(File file) {
+    blockUntilInitialized();
     CacheSpan span = CacheSpan.createCacheEntry(file);
     Assertions.checkState(span != null);
-    Assertions.checkState(lockedSpans.containsKey(span.key));
-    // If the file doesn't exist, don't add it to the in-memory representation.
-    if (!file.exists()) {
-      return;
-    }
-    // If the file has length 0, delete it and don't add it to the in-memory representation.
-    long length = file.length();
-    if (length == 0) {
-      file.delete();
-      return;
+    Stripe stripe = getStripe(span.key);
+    synchronized (stripe) {
+      Assertions.checkState(stripe.lockedSpans.containsKey(span.key));
+      // If the file doesn't exist, don't add it to the in-memory representation.
+      if (!file.exists()) {
+        return;
+      }
+      // If the file has length 0, delete it and don't add it to the in-memory representation.
+      long length = file.length();
+      if (length == 0) {
+        file.delete();
+        return;
+      }
+      addSpan(stripe, span);
+      index.onSpanAdded(span);
+      stripe.notifyAll();
     }
-    addSpan(span);
-    notifyAll();
+    dispatchEvictorEvents();
   }
 
   @Override
-  public synchronized void releaseHoleSpan(CacheSpan holeSpan) {
-    Assertions.checkState(holeSpan == lockedSpans.remove(holeSpan.key));
-    notifyAll();
+  public void releaseHoleSpan(CacheSpan holeSpan) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(holeSpan.key);
+    synchronized (stripe) {
+      Assertions.checkState(holeSpan == stripe.lockedSpans.remove(holeSpan.key));
+      stripe.notifyAll();
+    }
   }
 
   /**
@@ -200,13 +269,14 @@ public final class SimpleCache implements Cache {
    * contained by an existing entry, then the returned {@link CacheSpan} defines the maximum extents
    * of the hole in the cache.
    *
+   * @param stripe The stripe containing the key, whose lock must be held.
    * @param lookupSpan A lookup {@link CacheSpan} specifying a key and position.
    * @return The corresponding cache {@link CacheSpan}.
    */
-  private CacheSpan getSpan(CacheSpan lookupSpan) {
+  private CacheSpan getSpan(Stripe stripe, CacheSpan lookupSpan) {
     String key = lookupSpan.key;
     long offset = lookupSpan.position;
-    TreeSet<CacheSpan> entries = cachedSpans.get(key);
+    TreeSet<CacheSpan> entries = stripe.cachedSpans.get(key);
     if (entries == null) {
       return CacheSpan.createOpenHole(key, lookupSpan.position);
     }
@@ -218,9 +288,10 @@ public final class SimpleCache implements Cache {
         return floorSpan;
       } else {
         // The file has been deleted from under us. It's likely that other files will have been
-        // deleted too, so scan the whole in-memory representation.
-        removeStaleSpans();
-        return getSpan(lookupSpan);
+        // deleted too, so scan the stripe. Other stripes are scanned when their files are found to
+        // be missing, or when a file is started.
+        removeStaleSpans(stripe);
+        return getSpan(stripe, lookupSpan);
       }
     }
     CacheSpan ceilEntry = entries.ceiling(lookupSpan);
@@ -230,58 +301,166 @@ public final class SimpleCache implements Cache {
   }
 
   /**
-   * Ensures that the cache's in-memory representation has been initialized.
+   * Initializes the cache's in-memory representation, from the index if possible.
    */
   private void initialize() {
     if (!cacheDir.exists()) {
       cacheDir.mkdirs();
     }
+    HashMap<String, Long> contentLengths = new HashMap<>();
+    Collection<CacheIndex.Entry> indexEntries = index.load(contentLengths);
+    if (indexEntries != null) {
+      for (Entry<String, Long> contentLength : contentLengths.entrySet()) {
+        Stripe stripe = getStripe(contentLength.getKey());
+        synchronized (stripe) {
+          stripe.contentLengths.put(contentLength.getKey(), contentLength.getValue());
+        }
+      }
+      for (CacheIndex.Entry entry : indexEntries) {
+        CacheSpan span = CacheSpan.createCacheEntry(new File(cacheDir, entry.fileName), entry.key,
+            entry.position, entry.length, entry.lastAccessTimestamp);
+        Stripe stripe = getStripe(span.key);
+        synchronized (stripe) {
+          addSpan(stripe, span);
+        }
+      }
+    } else {
+      File[] files = cacheDir.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          if (CacheIndex.isIndexFile(file)) {
+            continue;
+          }
+          if (file.length() == 0) {
+            file.delete();
+          } else {
+            file = CacheSpan.upgradeIfNeeded(file);
+            CacheSpan span = CacheSpan.createCacheEntry(file);
+            if (span == null) {
+              file.delete();
+            } else {
+              Stripe stripe = getStripe(span.key);
+              synchronized (stripe) {
+                addSpan(stripe, span);
+              }
+            }
+          }
+        }
+      }
+      index.reset(getIndexEntries(), contentLengths);
+    }
+
+    synchronized (this) {
+      initialized = true;
+      notifyAll();
+    }
+    dispatchEvictorEvents();
+
+    if (indexEntries != null) {
+      adoptUnindexedFiles();
+    }
+  }
+
+  /**
+   * Adds files in the cache directory that are missing from the in-memory representation, and
+   * deletes any files that are not recognized.
+   */
+  private void adoptUnindexedFiles() {
     File[] files = cacheDir.listFiles();
     if (files == null) {
       return;
     }
-    for (int i = 0; i < files.length; i++) {
-      File file = files[i];
-      if (file.length() == 0) {
+    for (File file : files) {
+      if (CacheIndex.isIndexFile(file)) {
+        continue;
+      }
+      CacheSpan span = CacheSpan.createCacheEntry(file);
+      if (span == null) {
         file.delete();
-      } else {
-        file = CacheSpan.upgradeIfNeeded(file);
-        CacheSpan span = CacheSpan.createCacheEntry(file);
-        if (span == null) {
+        continue;
+      }
+      Stripe stripe = getStripe(span.key);
+      synchronized (stripe) {
+        if (stripe.lockedSpans.containsKey(span.key) || getStoredSpan(stripe, span) != null) {
+          // The file is either indexed or may still be being written.
+          continue;
+        }
+        if (!file.exists()) {
+          continue;
+        } else if (span.length == 0) {
           file.delete();
-        } else {
-          addSpan(span);
+          continue;
         }
+        CacheSpan floorSpan = getSpan(stripe, CacheSpan.createLookup(span.key, span.position));
+        if (floorSpan.isCached || (!floorSpan.isOpenEnded() && floorSpan.length < span.length)) {
+          // The file overlaps an indexed span.
+          file.delete();
+          continue;
+        }
+        addSpan(stripe, span);
+        index.onSpanAdded(span);
       }
     }
+    dispatchEvictorEvents();
+  }
+
+  private ArrayList<CacheIndex.Entry> getIndexEntries() {
+    ArrayList<CacheIndex.Entry> entries = new ArrayList<>();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        for (TreeSet<CacheSpan> spansForKey : stripe.cachedSpans.values()) {
+          for (CacheSpan span : spansForKey) {
+            entries.add(new CacheIndex.Entry(span.key, span.position, span.length,
+                span.lastAccessTimestamp, span.file.getName()));
+          }
+        }
+      }
+    }
+    return entries;
   }
 
   /**
    * Adds a cached span to the in-memory representation.
    *
+   * @param stripe The stripe containing the key, whose lock must be held.
    * @param span The span to be added.
    */
-  private void addSpan(CacheSpan span) {
-    TreeSet<CacheSpan> spansForKey = cachedSpans.get(span.key);
+  private void addSpan(Stripe stripe, CacheSpan span) {
+    TreeSet<CacheSpan> spansForKey = stripe.cachedSpans.get(span.key);
     if (spansForKey == null) {
       spansForKey = new TreeSet<>();
-      cachedSpans.put(span.key, spansForKey);
+      stripe.cachedSpans.put(span.key, spansForKey);
     }
     spansForKey.add(span);
-    totalSpace += span.length;
-    notifySpanAdded(span);
+    totalSpace.addAndGet(span.length);
+    notifySpanAdded(stripe, span);
   }
 
   @Override
-  public synchronized void removeSpan(CacheSpan span) {
-    TreeSet<CacheSpan> spansForKey = cachedSpans.get(span.key);
-    totalSpace -= span.length;
-    Assertions.checkState(spansForKey.remove(span));
-    span.file.delete();
-    if (spansForKey.isEmpty()) {
-      cachedSpans.remove(span.key);
+  public void removeSpan(CacheSpan span) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(span.key);
+    synchronized (stripe) {
+      // The span may already have been removed, or replaced by a touched copy, before an evictor
+      // holding it was notified. In the latter case, the copy is removed.
+      CacheSpan storedSpan = getStoredSpan(stripe, span);
+      if (storedSpan != null) {
+        span = storedSpan;
+        TreeSet<CacheSpan> spansForKey = stripe.cachedSpans.get(span.key);
+        totalSpace.addAndGet(-span.length);
+        Assertions.checkState(spansForKey.remove(span));
+        span.file.delete();
+        if (spansForKey.isEmpty()) {
+          stripe.cachedSpans.remove(span.key);
+          stripe.contentLengths.remove(span.key);
+        }
+        index.onSpanRemoved(span);
+        notifySpanRemoved(stripe, span);
+      }
     }
-    notifySpanRemoved(span);
+    // Dispatch even if the span had already been removed. The event for the removal may still be
+    // pending, and the evictor won't stop trying to remove the span until it's delivered.
+    dispatchEvictorEvents();
   }
 
   /**
@@ -289,7 +468,22 @@ public final class SimpleCache implements Cache {
    * no longer exist.
    */
   private void removeStaleSpans() {
-    Iterator<Entry<String, TreeSet<CacheSpan>>> iterator = cachedSpans.entrySet().iterator();
+    for (Stripe stripe : stripes) {
+      synchronized (stripe) {
+        removeStaleSpans(stripe);
+      }
+    }
+    dispatchEvictorEvents();
+  }
+
+  /**
+   * Scans the cached spans in a stripe, removing any for which files no longer exist.
+   *
+   * @param stripe The stripe to scan, whose lock must be held.
+   */
+  private void removeStaleSpans(Stripe stripe) {
+    Iterator<Entry<String, TreeSet<CacheSpan>>> iterator =
+        stripe.cachedSpans.entrySet().iterator();
     while (iterator.hasNext()) {
       Entry<String, TreeSet<CacheSpan>> next = iterator.next();
       Iterator<CacheSpan> spanIterator = next.getValue().iterator();
@@ -299,84 +493,228 @@ public final class SimpleCache implements Cache {
         if (!span.file.exists()) {
           spanIterator.remove();
           if (span.isCached) {
-            totalSpace -= span.length;
+            totalSpace.addAndGet(-span.length);
           }
-          notifySpanRemoved(span);
+          index.onSpanRemoved(span);
+          notifySpanRemoved(stripe, span);
         } else {
           isEmpty = false;
         }
       }
       if (isEmpty) {
         iterator.remove();
+        stripe.contentLengths.remove(next.getKey());
       }
     }
   }
 
-  private void notifySpanRemoved(CacheSpan span) {
-    ArrayList<Listener> keyListeners = listeners.get(span.key);
+  private void notifySpanRemoved(Stripe stripe, CacheSpan span) {
+    ArrayList<Listener> keyListeners = stripe.listeners.get(span.key);
     if (keyListeners != null) {
       for (int i = keyListeners.size() - 1; i >= 0; i--) {
         keyListeners.get(i).onSpanRemoved(this, span);
       }
     }
-    evictor.onSpanRemoved(this, span);
+    pendingEvictorEvents.add(new EvictorEvent(EvictorEvent.TYPE_REMOVED, span, null));
   }
 
-  private void notifySpanAdded(CacheSpan span) {
-    ArrayList<Listener> keyListeners = listeners.get(span.key);
+  private void notifySpanAdded(Stripe stripe, CacheSpan span) {
+    ArrayList<Listener> keyListeners = stripe.listeners.get(span.key);
     if (keyListeners != null) {
       for (int i = keyListeners.size() - 1; i >= 0; i--) {
         keyListeners.get(i).onSpanAdded(this, span);
       }
     }
-    evictor.onSpanAdded(this, span);
+    pendingEvictorEvents.add(new EvictorEvent(EvictorEvent.TYPE_ADDED, span, null));
   }
 
-  private void notifySpanTouched(CacheSpan oldSpan, CacheSpan newSpan) {
-    ArrayList<Listener> keyListeners = listeners.get(oldSpan.key);
+  private void notifySpanTouched(Stripe stripe, CacheSpan oldSpan, CacheSpan newSpan) {
+    ArrayList<Listener> keyListeners = stripe.listeners.get(oldSpan.key);
     if (keyListeners != null) {
       for (int i = keyListeners.size() - 1; i >= 0; i--) {
         keyListeners.get(i).onSpanTouched(this, oldSpan, newSpan);
       }
     }
-    evictor.onSpanTouched(this, oldSpan, newSpan);
+    pendingEvictorEvents.add(new EvictorEvent(EvictorEvent.TYPE_TOUCHED, oldSpan, newSpan));
   }
 
-  @Override
-  public synchronized boolean isCached(String key, long position, long length) {
-    TreeSet<CacheSpan> entries = cachedSpans.get(key);
-    if (entries == null) {
-      return false;
+  /**
+   * Delivers pending events to the evictor. Must not be called whilst holding a stripe lock, since
+   * the evictor may remove spans from any stripe.
+   */
+  private void dispatchEvictorEvents() {
+    if (pendingEvictorEvents.isEmpty()) {
+      return;
     }
-    CacheSpan lookupSpan = CacheSpan.createLookup(key, position);
-    CacheSpan floorSpan = entries.floor(lookupSpan);
-    if (floorSpan == null || floorSpan.position + floorSpan.length <= position) {
-      // We don't have a span covering the start of the queried region.
-      return false;
+    synchronized (evictor) {
+      EvictorEvent event;
+      while ((event = pendingEvictorEvents.poll()) != null) {
+        switch (event.type) {
+          case EvictorEvent.TYPE_ADDED:
+            evictor.onSpanAdded(this, event.span);
+            break;
+          case EvictorEvent.TYPE_REMOVED:
+            evictor.onSpanRemoved(this, event.span);
+            break;
+          case EvictorEvent.TYPE_TOUCHED:
+            evictor.onSpanTouched(this, event.span, event.newSpan);
+            break;
+        }
+      }
     }
-    long queryEndPosition = position + length;
-    long currentEndPosition = floorSpan.position + floorSpan.length;
-    if (currentEndPosition >= queryEndPosition) {
-      // floorSpan covers the queried region.
-      return true;
+  }
+
+  @Override
+  public void setContentLength(String key, long length) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      Long previousLength = stripe.contentLengths.put(key, length);
+      if (previousLength == null || previousLength != length) {
+        index.onContentLengthSet(key, length);
+      }
     }
-    Iterator<CacheSpan> iterator = entries.tailSet(floorSpan, false).iterator();
-    while (iterator.hasNext()) {
-      CacheSpan next = iterator.next();
-      if (next.position > currentEndPosition) {
-        // There's a hole in the cache within the queried region.
+  }
+
+  @Override
+  public long getContentLength(String key) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      Long length = stripe.contentLengths.get(key);
+      return length == null ? C.LENGTH_UNBOUNDED : length;
+    }
+  }
+
+  @Override
+  public boolean isCached(String key, long position, long length) {
+    blockUntilInitialized();
+    Stripe stripe = getStripe(key);
+    synchronized (stripe) {
+      TreeSet<CacheSpan> entries = stripe.cachedSpans.get(key);
+      if (entries == null) {
+        return false;
+      }
+      CacheSpan lookupSpan = CacheSpan.createLookup(key, position);
+      CacheSpan floorSpan = entries.floor(lookupSpan);
+      if (floorSpan == null || floorSpan.position + floorSpan.length <= position) {
+        // We don't have a span covering the start of the queried region.
         return false;
       }
-      // We expect currentEndPosition to always equal (next.position + next.length), but
-      // perform a max check anyway to guard against the existence of overlapping spans.
-      currentEndPosition = Math.max(currentEndPosition, next.position + next.length);
+      long queryEndPosition = position + length;
+      long currentEndPosition = floorSpan.position + floorSpan.length;
       if (currentEndPosition >= queryEndPosition) {
-        // We've found spans covering the queried region.
+        // floorSpan covers the queried region.
         return true;
       }
+      Iterator<CacheSpan> iterator = entries.tailSet(floorSpan, false).iterator();
+      while (iterator.hasNext()) {
+        CacheSpan next = iterator.next();
+        if (next.position > currentEndPosition) {
+          // There's a hole in the cache within the queried region.
+          return false;
+        }
+        // We expect currentEndPosition to always equal (next.position + next.length), but
+        // perform a max check anyway to guard against the existence of overlapping spans.
+        currentEndPosition = Math.max(currentEndPosition, next.position + next.length);
+        if (currentEndPosition >= queryEndPosition) {
+          // We've found spans covering the queried region.
+          return true;
+        }
+      }
+      // We ran out of spans before covering the queried region.
+      return false;
+    }
+  }
+
+  /**
+   * Blocks until all changes to the cache have been written to its index.
+   */
+  // Visible for testing.
+  /* package */ void flushIndex() {
+    index.flush();
+  }
+
+  private Stripe getStripe(String key) {
+    return stripes[(key.hashCode() & Integer.MAX_VALUE) % STRIPE_COUNT];
+  }
+
+  private void blockUntilInitialized() {
+    if (initialized) {
+      return;
+    }
+    boolean interrupted = false;
+    synchronized (this) {
+      while (!initialized) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
     }
-    // We ran out of spans before covering the queried region.
-    return false;
+  }
+
+  private static NavigableSet<CacheSpan> getCachedSpans(Stripe stripe, String key) {
+    TreeSet<CacheSpan> spansForKey = stripe.cachedSpans.get(key);
+    return spansForKey == null ? null : new TreeSet<>(spansForKey);
+  }
+
+  /**
+   * Returns the span in the in-memory representation with the same position and file as the
+   * specified span, or null if there is no such span.
+   */
+  private static CacheSpan getStoredSpan(Stripe stripe, CacheSpan span) {
+    TreeSet<CacheSpan> spansForKey = stripe.cachedSpans.get(span.key);
+    if (spansForKey == null) {
+      return null;
+    }
+    CacheSpan floorSpan = spansForKey.floor(span);
+    return floorSpan != null && floorSpan.position == span.position
+        && floorSpan.file.equals(span.file) ? floorSpan : null;
+  }
+
+  /**
+   * The portion of the in-memory representation for a subset of keys.
+   */
+  private static final class Stripe {
+
+    public final HashMap<String, CacheSpan> lockedSpans;
+    public final HashMap<String, TreeSet<CacheSpan>> cachedSpans;
+    public final HashMap<String, ArrayList<Listener>> listeners;
+    public final HashMap<String, Long> contentLengths;
+
+    public Stripe() {
+      lockedSpans = new HashMap<>();
+      cachedSpans = new HashMap<>();
+      listeners = new HashMap<>();
+      contentLengths = new HashMap<>();
+    }
+
+  }
+
+  /**
+   * An event that is pending delivery to the evictor.
+   */
+  private static final class EvictorEvent {
+
+    public static final int TYPE_ADDED = 0;
+    public static final int TYPE_REMOVED = 1;
+    public static final int TYPE_TOUCHED = 2;
+
+    public final int type;
+    public final CacheSpan span;
+    public final CacheSpan newSpan;
+
+    public EvictorEvent(int type, CacheSpan span, CacheSpan newSpan) {
+      this.type = type;
+      this.span = span;
+      this.newSpan = newSpan;
+    }
+
   }
 
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.util.Assertions;
+import com.google.android.exoplayer.util.Predicate;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Evicts cache files that haven't been accessed for longer than a specified time-to-live, which is
+ * useful for content such as the segments of live streams that's unlikely to be requested once it
+ * has aged. The time-to-live can be restricted to a subset of cache keys. Expired files are
+ * evicted when data is next written to the cache.
+ * <p>
+ * All events are also forwarded to a delegate evictor, which is responsible for keeping the cache
+ * within its size limit.
+ */
+public final class TimeToLiveCacheEvictor implements CacheEvictor, Comparator<CacheSpan> {
+
+  private final long timeToLiveMs;
+  private final Predicate<String> keyPredicate;
+  private final CacheEvictor delegate;
+  private final TreeSet<CacheSpan> leastRecentlyUsed;
+
+  /**
+   * @param timeToLiveMs The time after which a file that hasn't been accessed is evicted, in
+   *     milliseconds.
+   * @param keyPredicate An optional {@link Predicate}. If provided, only files whose cache keys are
+   *     accepted by the predicate are subject to the time-to-live.
+   * @param delegate An evictor to which all events are forwarded.
+   */
+  public TimeToLiveCacheEvictor(long timeToLiveMs, Predicate<String> keyPredicate,
+      CacheEvictor delegate) {
+    this.timeToLiveMs = timeToLiveMs;
+    this.keyPredicate = keyPredicate;
+    this.delegate = Assertions.checkNotNull(delegate);
+    this.leastRecentlyUsed = new TreeSet<>(this);
+  }
+
+  @Override
+  public void onStartFile(Cache cache, String key, long position, long length) {
+    evictExpired(cache);
+    delegate.onStartFile(cache, key, position, length);
+  }
+
+  @Override
+  public void onSpanAdded(Cache cache, CacheSpan span) {
+    if (isSubjectToTimeToLive(span)) {
+      leastRecentlyUsed.add(span);
+    }
+    delegate.onSpanAdded(cache, span);
+    evictExpired(cache);
+  }
+
+  @Override
+  public void onSpanRemoved(Cache cache, CacheSpan span) {
+    leastRecentlyUsed.remove(span);
+    delegate.onSpanRemoved(cache, span);
+  }
+
+  @Override
+  public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+    if (leastRecentlyUsed.remove(oldSpan)) {
+      leastRecentlyUsed.add(newSpan);
+    }
+    delegate.onSpanTouched(cache, oldSpan, newSpan);
+  }
+
+  @Override
+  public int compare(CacheSpan lhs, CacheSpan rhs) {
+    long lastAccessTimestampDelta = lhs.lastAccessTimestamp - rhs.lastAccessTimestamp;
+    if (lastAccessTimestampDelta == 0) {
+      // Use the standard compareTo method as a tie-break.
+      return lhs.compareTo(rhs);
+    }
+    return lhs.lastAccessTimestamp < rhs.lastAccessTimestamp ? -1 : 1;
+  }
+
+  private boolean isSubjectToTimeToLive(CacheSpan span) {
+    return keyPredicate == null || keyPredicate.evaluate(span.key);
+  }
+
+  private void evictExpired(Cache cache) {
+    long expiryTimestamp = System.currentTimeMillis() - timeToLiveMs;
+    while (!leastRecentlyUsed.isEmpty()
+        && leastRecentlyUsed.first().lastAccessTimestamp <= expiryTimestamp) {
+      cache.removeSpan(leastRecentlyUsed.first());
+    }
+  }
+
+}
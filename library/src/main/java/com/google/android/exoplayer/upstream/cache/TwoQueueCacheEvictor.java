@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.upstream.cache;
+
+import com.google.android.exoplayer.C;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Evicts cache files using a 2Q policy, which unlike {@link LeastRecentlyUsedCacheEvictor} is
+ * resistant to being flushed by a single long sequential read.
+ * <p>
+ * Files enter a first-in first-out queue when added, and are promoted to a least recently used
+ * queue if accessed again. Files are evicted from the first queue whilst it exceeds its target
+ * share of the cache, and from the second queue otherwise. The identities of files evicted from
+ * the first queue are remembered for a while, and such a file enters the second queue directly if
+ * it's added to the cache again.
+ */
+public final class TwoQueueCacheEvictor implements CacheEvictor {
+
+  /**
+   * The default target share of the cache for files that have been accessed only once.
+   */
+  public static final float DEFAULT_FIFO_FRACTION = 0.25f;
+  /**
+   * The default maximum number of evicted files whose identities are remembered.
+   */
+  public static final int DEFAULT_MAX_GHOST_ENTRIES = 1000;
+
+  private final long maxBytes;
+  private final long fifoTargetBytes;
+  private final TreeMap<CacheSpan, Entry> entries;
+  private final TreeSet<Entry> fifoQueue;
+  private final TreeSet<Entry> lruQueue;
+  private final LinkedHashMap<String, Boolean> ghostEntries;
+
+  private long fifoBytes;
+  private long lruBytes;
+  private long nextSequenceNumber;
+
+  /**
+   * @param maxBytes The maximum size of the cache, in bytes.
+   */
+  public TwoQueueCacheEvictor(long maxBytes) {
+    this(maxBytes, DEFAULT_FIFO_FRACTION, DEFAULT_MAX_GHOST_ENTRIES);
+  }
+
+  /**
+   * @param maxBytes The maximum size of the cache, in bytes.
+   * @param fifoFraction The target share of the cache for files that have been accessed only
+   *     once.
+   * @param maxGhostEntries The maximum number of evicted files whose identities are remembered.
+   */
+  public TwoQueueCacheEvictor(long maxBytes, float fifoFraction, final int maxGhostEntries) {
+    this.maxBytes = maxBytes;
+    this.fifoTargetBytes = (long) (maxBytes * fifoFraction);
+    this.entries = new TreeMap<>();
+    this.fifoQueue = new TreeSet<>();
+    this.lruQueue = new TreeSet<>();
+    this.ghostEntries = new LinkedHashMap<String, Boolean>() {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+        return size() > maxGhostEntries;
+      }
+    };
+  }
+
+  @Override
+  public void onStartFile(Cache cache, String key, long position, long length) {
+    evictCache(cache, length == C.LENGTH_UNBOUNDED ? 0 : length);
+  }
+
+  @Override
+  public void onSpanAdded(Cache cache, CacheSpan span) {
+    boolean recentlyEvicted = ghostEntries.remove(getGhostId(span)) != null;
+    addEntry(span, recentlyEvicted);
+    evictCache(cache, 0);
+  }
+
+  @Override
+  public void onSpanRemoved(Cache cache, CacheSpan span) {
+    Entry entry = entries.remove(span);
+    if (entry != null) {
+      removeFromQueue(entry);
+    }
+  }
+
+  @Override
+  public void onSpanTouched(Cache cache, CacheSpan oldSpan, CacheSpan newSpan) {
+    Entry entry = entries.remove(oldSpan);
+    if (entry != null) {
+      removeFromQueue(entry);
+    }
+    // A span accessed again is promoted to (or moved to the end of) the least recently used queue.
+    addEntry(newSpan, true);
+    evictCache(cache, 0);
+  }
+
+  private void addEntry(CacheSpan span, boolean inLruQueue) {
+    Entry entry = new Entry(span, nextSequenceNumber++, inLruQueue);
+    entries.put(span, entry);
+    if (inLruQueue) {
+      lruQueue.add(entry);
+      lruBytes += span.length;
+    } else {
+      fifoQueue.add(entry);
+      fifoBytes += span.length;
+    }
+  }
+
+  private void removeFromQueue(Entry entry) {
+    if (entry.inLruQueue) {
+      lruQueue.remove(entry);
+      lruBytes -= entry.span.length;
+    } else {
+      fifoQueue.remove(entry);
+      fifoBytes -= entry.span.length;
+    }
+  }
+
+  private void evictCache(Cache cache, long requiredSpace) {
+    while (fifoBytes + lruBytes + requiredSpace > maxBytes && !entries.isEmpty()) {
+      Entry entry;
+      if (!fifoQueue.isEmpty() && (fifoBytes > fifoTargetBytes || lruQueue.isEmpty())) {
+        entry = fifoQueue.first();
+        ghostEntries.put(getGhostId(entry.span), Boolean.TRUE);
+      } else {
+        entry = lruQueue.first();
+      }
+      cache.removeSpan(entry.span);
+    }
+  }
+
+  private static String getGhostId(CacheSpan span) {
+    return span.position + "." + span.key;
+  }
+
+  /**
+   * A span in one of the queues.
+   */
+  private static final class Entry implements Comparable<Entry> {
+
+    public final CacheSpan span;
+    public final long sequenceNumber;
+    public final boolean inLruQueue;
+
+    public Entry(CacheSpan span, long sequenceNumber, boolean inLruQueue) {
+      this.span = span;
+      this.sequenceNumber = sequenceNumber;
+      this.inLruQueue = inLruQueue;
+    }
+
+    @Override
+    public int compareTo(Entry another) {
+      return sequenceNumber < another.sequenceNumber ? -1
+          : sequenceNumber == another.sequenceNumber ? 0 : 1;
+    }
+
+  }
+
+}
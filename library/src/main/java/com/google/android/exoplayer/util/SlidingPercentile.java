@@ -15,10 +15,6 @@
  */
 package com.google.android.exoplayer.util;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
-
 /**
  * Calculate any percentile over a sliding window of weighted values. A maximum total weight is
  * configured. Once the maximum weight is reached, the oldest value is reduced in weight until it
@@ -27,48 +23,36 @@ import java.util.Comparator;
  * SlidingPercentile can be used for bandwidth estimation based on a sliding window of past
  * download rate observations. This is an alternative to sliding mean and exponential averaging
  * which suffer from susceptibility to outliers and slow adaptation to step functions.
+ * <p>
+ * Observations are held in primitive arrays: a ring buffer in arrival order, and an array of ring
+ * buffer slots ordered by value that is maintained by insertion. Neither adding an observation nor
+ * computing a percentile allocates once the arrays have grown to the steady state size.
  *
  * @see <a href="http://en.wikipedia.org/wiki/Moving_average">Wiki: Moving average</a>
  * @see <a href="http://en.wikipedia.org/wiki/Selection_algorithm">Wiki: Selection algorithm</a>
  */
 public final class SlidingPercentile {
 
-  // Orderings.
-  private static final Comparator<Sample> INDEX_COMPARATOR = new Comparator<Sample>() {
-    @Override
-    public int compare(Sample a, Sample b) {
-      return a.index - b.index;
-    }
-  };
-
-  private static final Comparator<Sample> VALUE_COMPARATOR = new Comparator<Sample>() {
-    @Override
-    public int compare(Sample a, Sample b) {
-      return a.value < b.value ? -1 : b.value < a.value ? 1 : 0;
-    }
-  };
-
-  private static final int SORT_ORDER_NONE = -1;
-  private static final int SORT_ORDER_BY_VALUE = 0;
-  private static final int SORT_ORDER_BY_INDEX = 1;
-
-  private static final int MAX_RECYCLED_SAMPLES = 5;
+  private static final int INITIAL_CAPACITY = 16;
 
   private final int maxWeight;
-  private final ArrayList<Sample> samples;
 
-  private final Sample[] recycledSamples;
+  // Ring buffer of observations in arrival order.
+  private int[] weights;
+  private float[] values;
+  private int oldestSlot;
+  private int sampleCount;
+
+  // Slots of the ring buffer, ordered by the values that they hold.
+  private int[] slotsByValue;
 
-  private int currentSortOrder;
-  private int nextSampleIndex;
   private int totalWeight;
-  private int recycledSampleCount;
 
   public SlidingPercentile(int maxWeight) {
     this.maxWeight = maxWeight;
-    recycledSamples = new Sample[MAX_RECYCLED_SAMPLES];
-    samples = new ArrayList<>();
-    currentSortOrder = SORT_ORDER_NONE;
+    weights = new int[INITIAL_CAPACITY];
+    values = new float[INITIAL_CAPACITY];
+    slotsByValue = new int[INITIAL_CAPACITY];
   }
 
   /**
@@ -79,27 +63,37 @@ public final class SlidingPercentile {
    * @param value The value of the new observation.
    */
   public void addSample(int weight, float value) {
-    ensureSortedByIndex();
-
-    Sample newSample = recycledSampleCount > 0 ? recycledSamples[--recycledSampleCount]
-        : new Sample();
-    newSample.index = nextSampleIndex++;
-    newSample.weight = weight;
-    newSample.value = value;
-    samples.add(newSample);
+    if (sampleCount == weights.length) {
+      grow();
+    }
+    int slot = (oldestSlot + sampleCount) % weights.length;
+    weights[slot] = weight;
+    values[slot] = value;
+    // Insert the slot after any slots that hold equal values.
+    int insertionIndex = sampleCount;
+    int low = 0;
+    while (low < insertionIndex) {
+      int mid = (low + insertionIndex) >>> 1;
+      if (values[slotsByValue[mid]] <= value) {
+        low = mid + 1;
+      } else {
+        insertionIndex = mid;
+      }
+    }
+    System.arraycopy(slotsByValue, insertionIndex, slotsByValue, insertionIndex + 1,
+        sampleCount - insertionIndex);
+    slotsByValue[insertionIndex] = slot;
+    sampleCount++;
     totalWeight += weight;
 
     while (totalWeight > maxWeight) {
       int excessWeight = totalWeight - maxWeight;
-      Sample oldestSample = samples.get(0);
-      if (oldestSample.weight <= excessWeight) {
-        totalWeight -= oldestSample.weight;
-        samples.remove(0);
-        if (recycledSampleCount < MAX_RECYCLED_SAMPLES) {
-          recycledSamples[recycledSampleCount++] = oldestSample;
-        }
+      int oldestWeight = weights[oldestSlot];
+      if (oldestWeight <= excessWeight) {
+        totalWeight -= oldestWeight;
+        removeOldestSample();
       } else {
-        oldestSample.weight -= excessWeight;
+        weights[oldestSlot] -= excessWeight;
         totalWeight -= excessWeight;
       }
     }
@@ -112,46 +106,48 @@ public final class SlidingPercentile {
    * @return The requested percentile value or Float.NaN.
    */
   public float getPercentile(float percentile) {
-    ensureSortedByValue();
     float desiredWeight = percentile * totalWeight;
     int accumulatedWeight = 0;
-    for (int i = 0; i < samples.size(); i++) {
-      Sample currentSample = samples.get(i);
-      accumulatedWeight += currentSample.weight;
+    for (int i = 0; i < sampleCount; i++) {
+      int slot = slotsByValue[i];
+      accumulatedWeight += weights[slot];
       if (accumulatedWeight >= desiredWeight) {
-        return currentSample.value;
+        return values[slot];
       }
     }
     // Clamp to maximum value or NaN if no values.
-    return samples.isEmpty() ? Float.NaN : samples.get(samples.size() - 1).value;
+    return sampleCount == 0 ? Float.NaN : values[slotsByValue[sampleCount - 1]];
   }
 
-  /**
-   * Sort the samples by index, if not already.
-   */
-  private void ensureSortedByIndex() {
-    if (currentSortOrder != SORT_ORDER_BY_INDEX) {
-      Collections.sort(samples, INDEX_COMPARATOR);
-      currentSortOrder = SORT_ORDER_BY_INDEX;
+  private void removeOldestSample() {
+    int index = 0;
+    while (slotsByValue[index] != oldestSlot) {
+      index++;
     }
+    System.arraycopy(slotsByValue, index + 1, slotsByValue, index, sampleCount - index - 1);
+    oldestSlot = (oldestSlot + 1) % weights.length;
+    sampleCount--;
   }
 
   /**
-   * Sort the samples by value, if not already.
+   * Doubles the capacity of the arrays, moving the oldest observation to slot zero.
    */
-  private void ensureSortedByValue() {
-    if (currentSortOrder != SORT_ORDER_BY_VALUE) {
-      Collections.sort(samples, VALUE_COMPARATOR);
-      currentSortOrder = SORT_ORDER_BY_VALUE;
+  private void grow() {
+    int capacity = weights.length;
+    int[] newWeights = new int[capacity * 2];
+    float[] newValues = new float[capacity * 2];
+    int[] newSlotsByValue = new int[capacity * 2];
+    for (int i = 0; i < sampleCount; i++) {
+      int slot = (oldestSlot + i) % capacity;
+      newWeights[i] = weights[slot];
+      newValues[i] = values[slot];
+      int slotByValue = slotsByValue[i];
+      newSlotsByValue[i] = (slotByValue - oldestSlot + capacity) % capacity;
     }
-  }
-
-  private static class Sample {
-
-    public int index;
-    public int weight;
-    public float value;
-
+    weights = newWeights;
+    values = newValues;
+    slotsByValue = newSlotsByValue;
+    oldestSlot = 0;
   }
 
 }
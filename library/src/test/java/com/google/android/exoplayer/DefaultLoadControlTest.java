@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.AdaptiveEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.FixedEvaluator;
+import com.google.android.exoplayer.testutil.PlaybackSimulator;
+import com.google.android.exoplayer.upstream.DefaultAllocator;
+import com.google.android.exoplayer.upstream.PercentileBandwidthEstimator;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+/**
+ * Tests for {@link DefaultLoadControl}, which simulate playbacks using {@link PlaybackSimulator}.
+ */
+public class DefaultLoadControlTest extends TestCase {
+
+  private static final int BUFFER_SEGMENT_SIZE = 64 * 1024;
+  private static final int VIDEO_BUFFER_SEGMENTS = 200;
+  private static final int AUDIO_BUFFER_SEGMENTS = 54;
+
+  private static final Format[] VIDEO_FORMATS = new Format[] {
+      buildFormat("video/mp4", 4800000), buildFormat("video/mp4", 3000000),
+      buildFormat("video/mp4", 1800000), buildFormat("video/mp4", 1200000),
+      buildFormat("video/mp4", 750000), buildFormat("video/mp4", 400000)};
+  private static final Format[] AUDIO_FORMATS = new Format[] {
+      buildFormat("audio/mp4", 128000)};
+
+  private static final int CHUNK_DURATION_MS = 4000;
+  private static final int CHUNK_COUNT = 75;
+
+  public void testAmpleBandwidth() {
+    PlaybackSimulator.Result result = simulate(buildTrace(20000000), VIDEO_FORMATS);
+    assertEquals(result.toString(), 0, result.rebufferCount);
+    assertTrue(result.toString(), result.startupTimeMs < 1000);
+    assertEquals(VIDEO_FORMATS[0].bitrate, result.averageBitrate, 200000);
+    // Loads only start while the buffer is below its target size, so it can exceed the target by
+    // at most one chunk.
+    long maxChunkBytes = (long) VIDEO_FORMATS[0].bitrate * CHUNK_DURATION_MS / 8000;
+    assertTrue(result.toString(), result.memoryHighWaterBytes
+        <= (VIDEO_BUFFER_SEGMENTS + AUDIO_BUFFER_SEGMENTS) * BUFFER_SEGMENT_SIZE + maxChunkBytes);
+  }
+
+  public void testInsufficientBandwidth() {
+    // The bandwidth can't sustain the lowest quality.
+    PlaybackSimulator.Result result = simulate(buildTrace(400000), VIDEO_FORMATS);
+    assertTrue(result.toString(), result.rebufferCount > 0);
+    assertTrue(result.toString(), result.rebufferRatio > 0.1);
+    assertTrue(result.toString(),
+        result.averageBitrate < VIDEO_FORMATS[VIDEO_FORMATS.length - 2].bitrate);
+  }
+
+  public void testLowBitrateFillsBuffer() {
+    // Loading continues until both the duration of buffered media and the buffer utilization
+    // exceed their high thresholds. At a low bitrate this buffers far more media than the high
+    // watermark.
+    Format[] formats = new Format[] {VIDEO_FORMATS[3]};
+    PlaybackSimulator.Result result = simulate(buildTrace(20000000), formats);
+    int targetBufferSize = (VIDEO_BUFFER_SEGMENTS + AUDIO_BUFFER_SEGMENTS) * BUFFER_SEGMENT_SIZE;
+    assertTrue(result.toString(), result.memoryHighWaterBytes
+        > targetBufferSize * DefaultLoadControl.DEFAULT_HIGH_BUFFER_LOAD);
+    long highWatermarkBytes = (long) (formats[0].bitrate + AUDIO_FORMATS[0].bitrate)
+        * DefaultLoadControl.DEFAULT_HIGH_WATERMARK_MS / 8000;
+    assertTrue(result.toString(), result.memoryHighWaterBytes > 2 * highWatermarkBytes);
+  }
+
+  private static PlaybackSimulator.Result simulate(long[] trace, Format[] videoFormats) {
+    DefaultLoadControl loadControl =
+        new DefaultLoadControl(new DefaultAllocator(BUFFER_SEGMENT_SIZE));
+    PlaybackSimulator simulator = new PlaybackSimulator(trace, loadControl,
+        new PercentileBandwidthEstimator(), CHUNK_DURATION_MS, CHUNK_COUNT);
+    FormatEvaluator videoEvaluator = new AdaptiveEvaluator(simulator.getBandwidthMeter());
+    simulator.addTrack(videoFormats, videoEvaluator, VIDEO_BUFFER_SEGMENTS * BUFFER_SEGMENT_SIZE);
+    simulator.addTrack(AUDIO_FORMATS, new FixedEvaluator(),
+        AUDIO_BUFFER_SEGMENTS * BUFFER_SEGMENT_SIZE);
+    return simulator.run();
+  }
+
+  private static long[] buildTrace(long bandwidth) {
+    long[] trace = new long[60];
+    Arrays.fill(trace, bandwidth);
+    return trace;
+  }
+
+  private static Format buildFormat(String mimeType, int bitrate) {
+    return new Format(mimeType + bitrate, mimeType, -1, -1, -1, -1, -1, bitrate);
+  }
+
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer;
+
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator.AdaptiveEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.FixedEvaluator;
+import com.google.android.exoplayer.testutil.PlaybackSimulator;
+import com.google.android.exoplayer.upstream.BandwidthMeter;
+import com.google.android.exoplayer.upstream.DefaultAllocator;
+import com.google.android.exoplayer.upstream.PercentileBandwidthEstimator;
+
+import junit.framework.TestCase;
+
+import java.util.Random;
+
+/**
+ * Tests for {@link PriorityLoadControl}.
+ */
+public class PriorityLoadControlTest extends TestCase {
+
+  private static final int BUFFER_SEGMENT_SIZE = 64 * 1024;
+  private static final int VIDEO_BUFFER_SEGMENTS = 100;
+  private static final int AUDIO_BUFFER_SEGMENTS = 54;
+
+  private static final Format[] VIDEO_FORMATS = new Format[] {
+      buildFormat("video/mp4", 4800000), buildFormat("video/mp4", 3000000),
+      buildFormat("video/mp4", 1800000), buildFormat("video/mp4", 1200000),
+      buildFormat("video/mp4", 750000), buildFormat("video/mp4", 400000)};
+  private static final Format[] AUDIO_FORMATS = new Format[] {
+      buildFormat("audio/mp4", 128000)};
+
+  private static final int CHUNK_DURATION_MS = 4000;
+  private static final int CHUNK_COUNT = 75;
+
+  private static final long[] BANDWIDTH_LEVELS = new long[] {
+      200000, 600000, 1500000, 3000000, 6000000, 10000000};
+
+  private Object videoLoader;
+  private Object audioLoader;
+
+  @Override
+  public void setUp() {
+    videoLoader = new Object();
+    audioLoader = new Object();
+  }
+
+  public void testVideoYieldsToStarvedAudio() {
+    PriorityLoadControl loadControl = new PriorityLoadControl(new DefaultAllocator(1024));
+    loadControl.setTrackType(audioLoader, PriorityLoadControl.TRACK_TYPE_AUDIO);
+    loadControl.register(videoLoader, 100 * 1024);
+    loadControl.register(audioLoader, 10 * 1024);
+
+    // Both loaders are starved, and video may not share the bandwidth with audio.
+    assertTrue(loadControl.update(audioLoader, 0, 2000000, false));
+    assertFalse(loadControl.update(videoLoader, 0, 2000000, false));
+    // Once audio has loaded ahead, video may load.
+    assertFalse(loadControl.update(audioLoader, 0, 6000000, false));
+    assertTrue(loadControl.update(videoLoader, 0, 2000000, false));
+  }
+
+  public void testLoadersWithoutTypeAreKeptInStep() {
+    PriorityLoadControl loadControl = new PriorityLoadControl(new DefaultAllocator(1024));
+    loadControl.register(videoLoader, 100 * 1024);
+    loadControl.register(audioLoader, 10 * 1024);
+
+    assertTrue(loadControl.update(videoLoader, 0, 2000000, false));
+    assertTrue(loadControl.update(audioLoader, 0, 2000000, false));
+    assertFalse(loadControl.update(videoLoader, 0, 6000000, false));
+    assertTrue(loadControl.update(audioLoader, 0, 2000000, false));
+  }
+
+  public void testWatermarksScaleWithBandwidthVariability() {
+    PriorityLoadControl stableLoadControl = newLoadControlForLoader(videoLoader);
+    PriorityLoadControl variableLoadControl = newLoadControlForLoader(videoLoader);
+    for (int i = 0; i < 20; i++) {
+      stableLoadControl.onBandwidthSample(1000, 500000, BandwidthMeter.NO_ESTIMATE);
+      variableLoadControl.onBandwidthSample(1000, i % 2 == 0 ? 100000 : 900000,
+          BandwidthMeter.NO_ESTIMATE);
+    }
+
+    // Below the low watermark, both controls load.
+    assertTrue(stableLoadControl.update(videoLoader, 0, 10000000, false));
+    assertTrue(variableLoadControl.update(videoLoader, 0, 10000000, false));
+    // Above the high watermark, only the control whose watermarks have been scaled continues.
+    assertFalse(stableLoadControl.update(videoLoader, 0, 40000000, false));
+    assertTrue(variableLoadControl.update(videoLoader, 0, 40000000, false));
+  }
+
+  public void testFewerRebuffersOnVariableNetworks() {
+    long defaultRebufferTimeMs = 0;
+    long defaultMemoryHighWaterBytes = 0;
+    long priorityRebufferTimeMs = 0;
+    long priorityMemoryHighWaterBytes = 0;
+    for (int seed = 0; seed < 30; seed++) {
+      long[] trace = buildVariableTrace(new Random(seed));
+      PlaybackSimulator.Result result =
+          simulate(trace, new DefaultLoadControl(new DefaultAllocator(BUFFER_SEGMENT_SIZE)));
+      defaultRebufferTimeMs += result.rebufferTimeMs;
+      defaultMemoryHighWaterBytes += result.memoryHighWaterBytes;
+      result = simulate(trace, new PriorityLoadControl(new DefaultAllocator(BUFFER_SEGMENT_SIZE)));
+      priorityRebufferTimeMs += result.rebufferTimeMs;
+      priorityMemoryHighWaterBytes += result.memoryHighWaterBytes;
+    }
+    assertTrue(priorityRebufferTimeMs + " >= " + defaultRebufferTimeMs,
+        priorityRebufferTimeMs < defaultRebufferTimeMs);
+    assertTrue(priorityMemoryHighWaterBytes + " > " + defaultMemoryHighWaterBytes,
+        priorityMemoryHighWaterBytes < defaultMemoryHighWaterBytes * 1.05);
+  }
+
+  private static PriorityLoadControl newLoadControlForLoader(Object loader) {
+    PriorityLoadControl loadControl = new PriorityLoadControl(new DefaultAllocator(1024));
+    loadControl.register(loader, 100 * 1024);
+    // Fill most of the buffer, so that the buffer utilization doesn't cause loading.
+    for (int i = 0; i < 90; i++) {
+      loadControl.getAllocator().allocate();
+    }
+    return loadControl;
+  }
+
+  private static PlaybackSimulator.Result simulate(long[] trace, LoadControl loadControl) {
+    BandwidthMeter.EventListener bandwidthListener = loadControl instanceof PriorityLoadControl
+        ? (PriorityLoadControl) loadControl : null;
+    PlaybackSimulator simulator = new PlaybackSimulator(trace, loadControl,
+        new PercentileBandwidthEstimator(), bandwidthListener, CHUNK_DURATION_MS, CHUNK_COUNT);
+    simulator.addTrack(VIDEO_FORMATS, new AdaptiveEvaluator(simulator.getBandwidthMeter()),
+        VIDEO_BUFFER_SEGMENTS * BUFFER_SEGMENT_SIZE);
+    Object audioLoader = simulator.addTrack(AUDIO_FORMATS, new FixedEvaluator(),
+        AUDIO_BUFFER_SEGMENTS * BUFFER_SEGMENT_SIZE);
+    if (loadControl instanceof PriorityLoadControl) {
+      ((PriorityLoadControl) loadControl).setTrackType(audioLoader,
+          PriorityLoadControl.TRACK_TYPE_AUDIO);
+    }
+    return simulator.run();
+  }
+
+  /**
+   * Builds a trace whose bandwidth randomly steps between levels, with noise.
+   */
+  private static long[] buildVariableTrace(Random random) {
+    long[] trace = new long[300];
+    int level = 2 + random.nextInt(3);
+    for (int i = 0; i < trace.length; i++) {
+      if (random.nextInt(10) == 0) {
+        level = Math.max(0, Math.min(BANDWIDTH_LEVELS.length - 1,
+            level + (random.nextBoolean() ? 1 : -1)));
+      }
+      trace[i] = (long) (BANDWIDTH_LEVELS[level] * (0.7 + 0.6 * random.nextDouble()));
+    }
+    return trace;
+  }
+
+  private static Format buildFormat(String mimeType, int bitrate) {
+    return new Format(mimeType + bitrate, mimeType, -1, -1, -1, -1, -1, bitrate);
+  }
+
+}
@@ -0,0 +1,620 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.exoplayer.testutil;
+
+import com.google.android.exoplayer.C;
+import com.google.android.exoplayer.ExoPlayer;
+import com.google.android.exoplayer.LoadControl;
+import com.google.android.exoplayer.MediaFormat;
+import com.google.android.exoplayer.chunk.BaseMediaChunk;
+import com.google.android.exoplayer.chunk.Chunk;
+import com.google.android.exoplayer.chunk.ChunkSampleSource;
+import com.google.android.exoplayer.chunk.Format;
+import com.google.android.exoplayer.chunk.FormatEvaluator;
+import com.google.android.exoplayer.chunk.FormatEvaluator.Evaluation;
+import com.google.android.exoplayer.drm.DrmInitData;
+import com.google.android.exoplayer.extractor.DefaultTrackOutput;
+import com.google.android.exoplayer.upstream.BandwidthEstimator;
+import com.google.android.exoplayer.upstream.BandwidthMeter;
+import com.google.android.exoplayer.upstream.DataSource;
+import com.google.android.exoplayer.upstream.DataSpec;
+import com.google.android.exoplayer.upstream.DefaultBandwidthMeter;
+import com.google.android.exoplayer.util.Clock;
+import com.google.android.exoplayer.util.Util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Simulates playback of a chunked stream with a {@link LoadControl}, {@link FormatEvaluator}s and
+ * a {@link BandwidthMeter}, using a simulated clock and network. Everything runs on the calling
+ * thread, and the simulator runs as a local JVM unit test.
+ * <p>
+ * Each track is loaded as by a {@link ChunkSampleSource}: the track's evaluator selects the format
+ * of the next chunk, upstream chunks are discarded if the evaluator requests it, and the load
+ * control decides whether the next chunk may start loading. {@link ChunkSampleSource} itself
+ * can't be used, because its {@link com.google.android.exoplayer.upstream.Loader} delivers results
+ * through a {@link android.os.Looper}. The chunks are real {@link BaseMediaChunk}s. They're loaded
+ * from a {@link DataSource} that delivers the bandwidth given by a trace, shared between the
+ * loading tracks, and that reports its transfers to the {@link BandwidthMeter}. Their samples are
+ * written to a {@link DefaultTrackOutput} for each track, which takes allocations from the load
+ * control's allocator, and are discarded as they're played.
+ * <p>
+ * Playback follows the buffering rules of {@link ExoPlayer}: it starts once {@code minBufferMs} of
+ * media are buffered for every track, stops when any track runs out of media, and resumes once
+ * {@code minRebufferMs} of media are buffered. Each instance simulates a single playback.
+ */
+public final class PlaybackSimulator {
+
+  /**
+   * The result of a simulated playback.
+   */
+  public static final class Result {
+
+    /**
+     * The time from the start of the simulation until playback started, in milliseconds.
+     */
+    public final long startupTimeMs;
+    /**
+     * The number of times that playback stopped to rebuffer.
+     */
+    public final int rebufferCount;
+    /**
+     * The total time spent rebuffering, in milliseconds.
+     */
+    public final long rebufferTimeMs;
+    /**
+     * The time spent rebuffering as a fraction of the time since playback started.
+     */
+    public final double rebufferRatio;
+    /**
+     * The maximum number of bytes allocated from the load control's allocator.
+     */
+    public final int memoryHighWaterBytes;
+    /**
+     * The average bitrate of the chunks played in the first track, in bits per second.
+     */
+    public final long averageBitrate;
+    /**
+     * The number of times that the format changed between consecutive chunks of the first track.
+     */
+    public final int switchCount;
+
+    public Result(long startupTimeMs, int rebufferCount, long rebufferTimeMs, double rebufferRatio,
+        int memoryHighWaterBytes, long averageBitrate, int switchCount) {
+      this.startupTimeMs = startupTimeMs;
+      this.rebufferCount = rebufferCount;
+      this.rebufferTimeMs = rebufferTimeMs;
+      this.rebufferRatio = rebufferRatio;
+      this.memoryHighWaterBytes = memoryHighWaterBytes;
+      this.averageBitrate = averageBitrate;
+      this.switchCount = switchCount;
+    }
+
+    @Override
+    public String toString() {
+      return "startupTimeMs=" + startupTimeMs + ", rebufferCount=" + rebufferCount
+          + ", rebufferTimeMs=" + rebufferTimeMs + ", rebufferRatio=" + rebufferRatio
+          + ", memoryHighWaterBytes=" + memoryHighWaterBytes + ", averageBitrate="
+          + averageBitrate + ", switchCount=" + switchCount;
+    }
+
+  }
+
+  private static final long TICK_US = 10000;
+  private static final long SAMPLE_DURATION_US = 40000;
+  private static final long REEVALUATION_INTERVAL_US = 2000000;
+
+  private final long[] bandwidthTrace;
+  private final BandwidthMeter.EventListener bandwidthListener;
+  private final LoadControl loadControl;
+  private final long chunkDurationUs;
+  private final int chunkCount;
+  private final long minBufferUs;
+  private final long minRebufferUs;
+  private final SimulatedClock clock;
+  private final DefaultBandwidthMeter bandwidthMeter;
+  private final List<SimulatedTrack> tracks;
+
+  private long positionUs;
+  private boolean playing;
+  private boolean started;
+  private long startupTimeUs;
+  private int rebufferCount;
+  private long rebufferTimeUs;
+  private int memoryHighWaterBytes;
+
+  /**
+   * @param bandwidthTrace The available bandwidth in each second of the simulation, in bits per
+   *     second. The trace is repeated if the simulation outlasts it.
+   * @param loadControl The load control under test.
+   * @param bandwidthEstimator The estimator that computes the bandwidth meter's estimates.
+   * @param chunkDurationMs The duration of each chunk.
+   * @param chunkCount The number of chunks in each track.
+   */
+  public PlaybackSimulator(long[] bandwidthTrace, LoadControl loadControl,
+      BandwidthEstimator bandwidthEstimator, int chunkDurationMs, int chunkCount) {
+    this(bandwidthTrace, loadControl, bandwidthEstimator, null, chunkDurationMs, chunkCount,
+        ExoPlayer.Factory.DEFAULT_MIN_BUFFER_MS, ExoPlayer.Factory.DEFAULT_MIN_REBUFFER_MS);
+  }
+
+  /**
+   * @param bandwidthTrace The available bandwidth in each second of the simulation, in bits per
+   *     second. The trace is repeated if the simulation outlasts it.
+   * @param loadControl The load control under test.
+   * @param bandwidthEstimator The estimator that computes the bandwidth meter's estimates.
+   * @param bandwidthListener An optional listener, notified synchronously of a bandwidth sample
+   *     when each chunk finishes loading.
+   * @param chunkDurationMs The duration of each chunk.
+   * @param chunkCount The number of chunks in each track.
+   */
+  public PlaybackSimulator(long[] bandwidthTrace, LoadControl loadControl,
+      BandwidthEstimator bandwidthEstimator, BandwidthMeter.EventListener bandwidthListener,
+      int chunkDurationMs, int chunkCount) {
+    this(bandwidthTrace, loadControl, bandwidthEstimator, bandwidthListener, chunkDurationMs,
+        chunkCount, ExoPlayer.Factory.DEFAULT_MIN_BUFFER_MS,
+        ExoPlayer.Factory.DEFAULT_MIN_REBUFFER_MS);
+  }
+
+  /**
+   * @param bandwidthTrace The available bandwidth in each second of the simulation, in bits per
+   *     second. The trace is repeated if the simulation outlasts it.
+   * @param loadControl The load control under test.
+   * @param bandwidthEstimator The estimator that computes the bandwidth meter's estimates.
+   * @param bandwidthListener An optional listener, notified synchronously of a bandwidth sample
+   *     when each chunk finishes loading.
+   * @param chunkDurationMs The duration of each chunk.
+   * @param chunkCount The number of chunks in each track.
+   * @param minBufferMs The duration of media that must be buffered for playback to start.
+   * @param minRebufferMs The duration of media that must be buffered for playback to resume after
+   *     rebuffering.
+   */
+  public PlaybackSimulator(long[] bandwidthTrace, LoadControl loadControl,
+      BandwidthEstimator bandwidthEstimator, BandwidthMeter.EventListener bandwidthListener,
+      int chunkDurationMs, int chunkCount, int minBufferMs, int minRebufferMs) {
+    this.bandwidthTrace = bandwidthTrace;
+    this.bandwidthListener = bandwidthListener;
+    this.loadControl = loadControl;
+    this.chunkDurationUs = chunkDurationMs * 1000L;
+    this.chunkCount = chunkCount;
+    this.minBufferUs = minBufferMs * 1000L;
+    this.minRebufferUs = minRebufferMs * 1000L;
+    clock = new SimulatedClock();
+    bandwidthMeter = new DefaultBandwidthMeter(null, null, clock, bandwidthEstimator,
+        BandwidthMeter.NO_ESTIMATE);
+    tracks = new ArrayList<>();
+  }
+
+  /**
+   * Returns the {@link BandwidthMeter} that should be used by the evaluators under test.
+   */
+  public BandwidthMeter getBandwidthMeter() {
+    return bandwidthMeter;
+  }
+
+  /**
+   * Adds a track to the stream. The first track added is the one for which bitrate and switches
+   * are reported.
+   *
+   * @param formats The formats of the track, ordered by decreasing bitrate.
+   * @param evaluator Selects the format of each chunk.
+   * @param bufferSizeContribution The track's contribution to the load control's buffer size.
+   * @return The loader that will be registered with the load control for the track.
+   */
+  public Object addTrack(Format[] formats, FormatEvaluator evaluator,
+      int bufferSizeContribution) {
+    SimulatedTrack track = new SimulatedTrack(formats, evaluator, bufferSizeContribution);
+    tracks.add(track);
+    return track;
+  }
+
+  /**
+   * Simulates playback of the whole stream.
+   *
+   * @return The result.
+   */
+  public Result run() {
+    for (int i = 0; i < tracks.size(); i++) {
+      tracks.get(i).enable();
+    }
+    long durationUs = chunkCount * chunkDurationUs;
+    while (positionUs < durationUs) {
+      for (int i = 0; i < tracks.size(); i++) {
+        tracks.get(i).updateLoadControl();
+      }
+      // Data is delivered and played over the course of the tick.
+      clock.timeUs += TICK_US;
+      transfer();
+      updatePlayback();
+      memoryHighWaterBytes = Math.max(memoryHighWaterBytes,
+          loadControl.getAllocator().getTotalBytesAllocated());
+    }
+    for (int i = 0; i < tracks.size(); i++) {
+      tracks.get(i).disable();
+    }
+    SimulatedTrack firstTrack = tracks.get(0);
+    long playedTimeUs = clock.timeUs - startupTimeUs;
+    return new Result(startupTimeUs / 1000, rebufferCount, rebufferTimeUs / 1000,
+        (double) rebufferTimeUs / playedTimeUs, memoryHighWaterBytes,
+        firstTrack.totalBitrate / chunkCount, firstTrack.switchCount);
+  }
+
+  /**
+   * Transfers data for the current tick, sharing the available bandwidth equally between the
+   * loading tracks.
+   */
+  private void transfer() {
+    int loadingTrackCount = 0;
+    for (int i = 0; i < tracks.size(); i++) {
+      if (tracks.get(i).loadingChunk != null) {
+        loadingTrackCount++;
+      }
+    }
+    if (loadingTrackCount == 0) {
+      return;
+    }
+    int second = (int) (((clock.timeUs - TICK_US) / 1000000) % bandwidthTrace.length);
+    long bytesPerTrack = bandwidthTrace[second] * TICK_US / 8000000 / loadingTrackCount;
+    for (int i = 0; i < tracks.size(); i++) {
+      if (tracks.get(i).loadingChunk != null) {
+        tracks.get(i).continueLoading(bytesPerTrack);
+      }
+    }
+  }
+
+  private void updatePlayback() {
+    long bufferedPositionUs = Long.MAX_VALUE;
+    for (int i = 0; i < tracks.size(); i++) {
+      bufferedPositionUs = Math.min(bufferedPositionUs, tracks.get(i).getBufferedPositionUs());
+    }
+    long durationUs = chunkCount * chunkDurationUs;
+    if (playing) {
+      if (bufferedPositionUs - positionUs >= TICK_US || bufferedPositionUs == durationUs) {
+        positionUs = Math.min(positionUs + TICK_US, durationUs);
+        for (int i = 0; i < tracks.size(); i++) {
+          tracks.get(i).playUntil(positionUs);
+        }
+      } else {
+        playing = false;
+        rebufferCount++;
+      }
+    } else {
+      if (started) {
+        rebufferTimeUs += TICK_US;
+      }
+      long requiredBufferUs = started ? minRebufferUs : minBufferUs;
+      if (bufferedPositionUs - positionUs >= requiredBufferUs || bufferedPositionUs == durationUs) {
+        playing = true;
+        if (!started) {
+          started = true;
+          startupTimeUs = clock.timeUs;
+        }
+      }
+    }
+  }
+
+  /**
+   * A track of the stream, loaded in the same way as by a {@link ChunkSampleSource}.
+   */
+  private final class SimulatedTrack {
+
+    private final Format[] formats;
+    private final FormatEvaluator evaluator;
+    private final int bufferSizeContribution;
+    private final Evaluation evaluation;
+    private final DefaultTrackOutput sampleQueue;
+    private final LinkedList<BaseMediaChunk> mediaChunks;
+    private final List<BaseMediaChunk> readOnlyMediaChunks;
+    private final SimulatedNetworkDataSource dataSource;
+
+    private Chunk nextChunk;
+    private Chunk loadingChunk;
+    private long loadStartTimeUs;
+    private long lastEvaluationTimeUs;
+    private boolean loadingFinished;
+    private BaseMediaChunk lastPlayedChunk;
+    private long totalBitrate;
+    private int switchCount;
+
+    public SimulatedTrack(Format[] formats, FormatEvaluator evaluator,
+        int bufferSizeContribution) {
+      this.formats = formats;
+      this.evaluator = evaluator;
+      this.bufferSizeContribution = bufferSizeContribution;
+      evaluation = new Evaluation();
+      sampleQueue = new DefaultTrackOutput(loadControl.getAllocator());
+      mediaChunks = new LinkedList<>();
+      readOnlyMediaChunks = Collections.unmodifiableList(mediaChunks);
+      dataSource = new SimulatedNetworkDataSource();
+    }
+
+    public void enable() {
+      loadControl.register(this, bufferSizeContribution);
+      evaluator.enable();
+    }
+
+    public void disable() {
+      evaluator.disable();
+      sampleQueue.clear();
+      loadControl.unregister(this);
+    }
+
+    public void updateLoadControl() {
+      long nextLoadPositionUs = getNextLoadPositionUs();
+      boolean loading = loadingChunk != null;
+      if (!loading && ((nextChunk == null && nextLoadPositionUs != -1)
+          || clock.timeUs - lastEvaluationTimeUs > REEVALUATION_INTERVAL_US)) {
+        lastEvaluationTimeUs = clock.timeUs;
+        evaluate();
+        boolean chunksDiscarded = discardUpstreamMediaChunks(evaluation.queueSize);
+        if (nextChunk == null) {
+          nextLoadPositionUs = -1;
+        } else if (chunksDiscarded) {
+          nextLoadPositionUs = getNextLoadPositionUs();
+        }
+      }
+      boolean nextLoader = loadControl.update(this, positionUs, nextLoadPositionUs, loading);
+      if (!loading && nextLoader && nextChunk != null) {
+        startLoading();
+      }
+    }
+
+    public void continueLoading(long bytes) {
+      dataSource.bytesAvailable = bytes;
+      try {
+        loadingChunk.load();
+      } catch (NetworkStallException e) {
+        // The data for this tick has been loaded.
+        return;
+      } catch (IOException | InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      if (bandwidthListener != null) {
+        bandwidthListener.onBandwidthSample((int) ((clock.timeUs - loadStartTimeUs) / 1000),
+            loadingChunk.bytesLoaded(), bandwidthMeter.getBitrateEstimate());
+      }
+      loadingChunk = null;
+    }
+
+    public long getBufferedPositionUs() {
+      if (loadingFinished) {
+        return chunkCount * chunkDurationUs;
+      }
+      long largestParsedTimestampUs = sampleQueue.getLargestParsedTimestampUs();
+      return largestParsedTimestampUs == Long.MIN_VALUE ? positionUs : largestParsedTimestampUs;
+    }
+
+    /**
+     * Discards the samples that have been played, and records the format of each chunk as it
+     * starts playing.
+     */
+    public void playUntil(long positionUs) {
+      sampleQueue.discardUntil(positionUs);
+      while (mediaChunks.size() > 1
+          && mediaChunks.get(1).getFirstSampleIndex() <= sampleQueue.getReadIndex()) {
+        mediaChunks.removeFirst();
+      }
+      BaseMediaChunk currentChunk = mediaChunks.isEmpty() ? null : mediaChunks.getFirst();
+      if (currentChunk != null && currentChunk != lastPlayedChunk
+          && currentChunk.getFirstSampleIndex() < sampleQueue.getReadIndex()) {
+        if (lastPlayedChunk != null && !lastPlayedChunk.format.equals(currentChunk.format)) {
+          switchCount++;
+        }
+        totalBitrate += currentChunk.format.bitrate;
+        lastPlayedChunk = currentChunk;
+      }
+    }
+
+    private long getNextLoadPositionUs() {
+      if (loadingFinished) {
+        return -1;
+      }
+      return mediaChunks.isEmpty() ? positionUs : mediaChunks.getLast().endTimeUs;
+    }
+
+    /**
+     * Evaluates the format of the next chunk, as a chunk source would.
+     */
+    private void evaluate() {
+      evaluation.queueSize = mediaChunks.size();
+      evaluator.evaluate(readOnlyMediaChunks, positionUs, formats, evaluation);
+      int chunkIndex = evaluation.queueSize == 0 ? (int) (positionUs / chunkDurationUs)
+          : mediaChunks.get(evaluation.queueSize - 1).chunkIndex + 1;
+      if (chunkIndex == chunkCount) {
+        loadingFinished = true;
+        nextChunk = null;
+        return;
+      }
+      loadingFinished = false;
+      Format format = evaluation.format;
+      long startTimeUs = chunkIndex * chunkDurationUs;
+      long length = format.bitrate * chunkDurationUs / 8000000;
+      nextChunk = new SimulatedMediaChunk(dataSource, new DataSpec(null, 0, length, null),
+          evaluation.trigger, format, startTimeUs, startTimeUs + chunkDurationUs, chunkIndex);
+    }
+
+    private boolean discardUpstreamMediaChunks(int queueLength) {
+      if (mediaChunks.size() <= queueLength) {
+        return false;
+      }
+      BaseMediaChunk removed = null;
+      while (mediaChunks.size() > queueLength) {
+        removed = mediaChunks.removeLast();
+        loadingFinished = false;
+      }
+      sampleQueue.discardUpstreamSamples(removed.getFirstSampleIndex());
+      return true;
+    }
+
+    private void startLoading() {
+      BaseMediaChunk mediaChunk = (BaseMediaChunk) nextChunk;
+      mediaChunk.init(sampleQueue);
+      mediaChunks.add(mediaChunk);
+      loadingChunk = mediaChunk;
+      loadStartTimeUs = clock.timeUs;
+      nextChunk = null;
+    }
+
+  }
+
+  /**
+   * A {@link BaseMediaChunk} containing samples of equal duration and size, which resumes from
+   * where it stopped if loaded again after a {@link NetworkStallException}.
+   */
+  private static final class SimulatedMediaChunk extends BaseMediaChunk {
+
+    private final MediaFormat mediaFormat;
+    private final int sampleCount;
+
+    private int bytesLoaded;
+    private int samplesCommitted;
+
+    public SimulatedMediaChunk(DataSource dataSource, DataSpec dataSpec, int trigger,
+        Format format, long startTimeUs, long endTimeUs, int chunkIndex) {
+      super(dataSource, dataSpec, trigger, format, startTimeUs, endTimeUs, chunkIndex, true,
+          Chunk.NO_PARENT_ID);
+      mediaFormat = MediaFormat.createFormatForMimeType(format.id, format.mimeType,
+          format.bitrate, C.UNKNOWN_TIME_US);
+      sampleCount = (int) ((endTimeUs - startTimeUs + SAMPLE_DURATION_US - 1)
+          / SAMPLE_DURATION_US);
+    }
+
+    @Override
+    public long bytesLoaded() {
+      return bytesLoaded;
+    }
+
+    @Override
+    public MediaFormat getMediaFormat() {
+      return mediaFormat;
+    }
+
+    @Override
+    public DrmInitData getDrmInitData() {
+      return null;
+    }
+
+    @Override
+    public void cancelLoad() {
+      // Do nothing.
+    }
+
+    @Override
+    public boolean isLoadCanceled() {
+      return false;
+    }
+
+    @Override
+    public void load() throws IOException, InterruptedException {
+      DataSpec loadDataSpec = Util.getRemainderDataSpec(dataSpec, bytesLoaded);
+      try {
+        dataSource.open(loadDataSpec);
+        int result = 0;
+        while (result != C.RESULT_END_OF_INPUT) {
+          bytesLoaded += result;
+          commitLoadedSamples();
+          result = getOutput().sampleData(dataSource, Integer.MAX_VALUE, true);
+        }
+      } finally {
+        dataSource.close();
+      }
+    }
+
+    private void commitLoadedSamples() {
+      long sampleEndOffset;
+      while (samplesCommitted < sampleCount
+          && (sampleEndOffset = getSampleEndOffset(samplesCommitted)) <= bytesLoaded) {
+        int sampleSize = (int) (sampleEndOffset - getSampleEndOffset(samplesCommitted - 1));
+        getOutput().sampleMetadata(startTimeUs + samplesCommitted * SAMPLE_DURATION_US,
+            C.SAMPLE_FLAG_SYNC, sampleSize, (int) (bytesLoaded - sampleEndOffset), null);
+        samplesCommitted++;
+      }
+    }
+
+    private long getSampleEndOffset(int sampleIndex) {
+      return dataSpec.length * (sampleIndex + 1) / sampleCount;
+    }
+
+  }
+
+  /**
+   * Thrown by {@link SimulatedNetworkDataSource} when the data for the current tick has been read.
+   */
+  private static final class NetworkStallException extends IOException {}
+
+  /**
+   * A {@link DataSource} that delivers data at the simulated network rate. The bytes available in
+   * each tick are set before the tick's loading. Reading beyond them throws
+   * {@link NetworkStallException}, after which loading is resumed in the next tick. A transfer is
+   * reported to the {@link BandwidthMeter} from when its request is first opened until all of its
+   * data has been read.
+   */
+  private final class SimulatedNetworkDataSource implements DataSource {
+
+    public long bytesAvailable;
+
+    private long bytesRemaining;
+    private boolean transferring;
+
+    @Override
+    public long open(DataSpec dataSpec) {
+      bytesRemaining = dataSpec.length;
+      if (!transferring) {
+        transferring = true;
+        bandwidthMeter.onTransferStart();
+      }
+      return bytesRemaining;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int readLength) throws NetworkStallException {
+      if (bytesRemaining == 0) {
+        return C.RESULT_END_OF_INPUT;
+      } else if (bytesAvailable == 0) {
+        throw new NetworkStallException();
+      }
+      int bytesRead = (int) Math.min(readLength, Math.min(bytesAvailable, bytesRemaining));
+      bytesAvailable -= bytesRead;
+      bytesRemaining -= bytesRead;
+      bandwidthMeter.onBytesTransferred(bytesRead);
+      return bytesRead;
+    }
+
+    @Override
+    public void close() {
+      if (transferring && bytesRemaining == 0) {
+        transferring = false;
+        bandwidthMeter.onTransferEnd();
+      }
+    }
+
+  }
+
+  private static final class SimulatedClock implements Clock {
+
+    public long timeUs;
+
+    @Override
+    public long elapsedRealtime() {
+      return timeUs / 1000;
+    }
+
+  }
+
+}